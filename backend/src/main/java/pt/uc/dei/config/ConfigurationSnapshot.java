@@ -0,0 +1,125 @@
+package pt.uc.dei.config;
+
+import pt.uc.dei.dtos.ConfigurationDTO;
+import pt.uc.dei.entities.ConfigurationEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of the latest system configuration.
+ * <p>
+ * Detached from the persistence context so it can be shared by every thread without
+ * touching the database; a change to the configuration produces a new snapshot.
+ */
+public final class ConfigurationSnapshot {
+
+    private final Long id;
+    private final Long adminId;
+    private final LocalDateTime creationDate;
+    private final Integer loginTime;
+    private final Integer verificationTime;
+    private final Integer passwordResetTime;
+    private final Boolean twoFactorAuthEnabled;
+
+    private ConfigurationSnapshot(Long id, Long adminId, LocalDateTime creationDate, Integer loginTime,
+                                  Integer verificationTime, Integer passwordResetTime, Boolean twoFactorAuthEnabled) {
+        this.id = id;
+        this.adminId = adminId;
+        this.creationDate = creationDate;
+        this.loginTime = loginTime;
+        this.verificationTime = verificationTime;
+        this.passwordResetTime = passwordResetTime;
+        this.twoFactorAuthEnabled = twoFactorAuthEnabled;
+    }
+
+    /**
+     * Copies a configuration entity.
+     *
+     * @param entity the persisted configuration
+     * @return the snapshot, or {@code null} if {@code entity} is {@code null}
+     */
+    public static ConfigurationSnapshot from(ConfigurationEntity entity) {
+        if (entity == null) {
+            return null;
+        }
+        return new ConfigurationSnapshot(
+                entity.getId(),
+                entity.getAdmin() != null ? entity.getAdmin().getId() : null,
+                entity.getCreationDate(),
+                entity.getLoginTime(),
+                entity.getVerificationTime(),
+                entity.getPasswordResetTime(),
+                entity.getTwoFactorAuthEnabled());
+    }
+
+    /**
+     * Returns a copy of this snapshot with a different two-factor authentication setting.
+     *
+     * @param enabled the new two-factor authentication status
+     * @return the new snapshot
+     */
+    public ConfigurationSnapshot withTwoFactorAuthEnabled(boolean enabled) {
+        return new ConfigurationSnapshot(id, adminId, creationDate, loginTime, verificationTime,
+                passwordResetTime, enabled);
+    }
+
+    /**
+     * Builds a new (mutable) DTO from this snapshot.
+     *
+     * @return the configuration DTO
+     */
+    public ConfigurationDTO toDto() {
+        ConfigurationDTO configurationDto = new ConfigurationDTO();
+        configurationDto.setId(id);
+        configurationDto.setAdminId(adminId);
+        configurationDto.setCreationDate(creationDate);
+        configurationDto.setPasswordResetTime(passwordResetTime);
+        configurationDto.setLoginTime(loginTime);
+        configurationDto.setVerificationTime(verificationTime);
+        configurationDto.setTwoFactorAuthEnabled(twoFactorAuthEnabled);
+        return configurationDto;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAdminId() {
+        return adminId;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    /**
+     * @return session duration in minutes
+     */
+    public Integer getLoginTime() {
+        return loginTime;
+    }
+
+    /**
+     * @return activation token validity in minutes
+     */
+    public Integer getVerificationTime() {
+        return verificationTime;
+    }
+
+    /**
+     * @return password reset token validity in minutes
+     */
+    public Integer getPasswordResetTime() {
+        return passwordResetTime;
+    }
+
+    public Boolean getTwoFactorAuthEnabled() {
+        return twoFactorAuthEnabled;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigurationSnapshot{id=" + id + ", loginTime=" + loginTime + ", verificationTime=" + verificationTime
+                + ", passwordResetTime=" + passwordResetTime + ", twoFactorAuthEnabled=" + twoFactorAuthEnabled + "}";
+    }
+}
@@ -4,30 +4,62 @@ import java.util.Properties;
 
 /**
  * Configuration class for SMTP email settings.
- * Provides the necessary properties for authenticating and sending emails via Gmail's SMTP server.
+ * Provides the necessary properties for authenticating and sending emails via the SMTP server, Gmail's unless
+ * {@code SMTP_HOST} and {@code SMTP_PORT} point elsewhere (a local relay or mail catcher in development, a
+ * stand-in server in tests and benchmarks).
  */
 public class EmailConfig {
 
     /**
-     * Retrieves the SMTP properties required for sending emails.
+     * Retrieves the SMTP properties required for sending emails, configured from the environment:
+     * {@code SMTP_HOST} (smtp.gmail.com), {@code SMTP_PORT} (587), {@code SMTP_AUTH} (true),
+     * {@code SMTP_STARTTLS} (true) and {@code SMTP_TIMEOUT_MS} (15000).
      *
      * @return A {@link Properties} object containing SMTP configuration settings.
      */
     public static Properties getSMTPProperties() {
+        return getSMTPProperties(EnvironmentConfig.getString("SMTP_HOST", "smtp.gmail.com"),
+                EnvironmentConfig.getInt("SMTP_PORT", 587),
+                EnvironmentConfig.getBoolean("SMTP_AUTH", true),
+                EnvironmentConfig.getBoolean("SMTP_STARTTLS", true),
+                EnvironmentConfig.getLong("SMTP_TIMEOUT_MS", 15_000L));
+    }
+
+    /**
+     * Retrieves the SMTP properties for a given server.
+     *
+     * @param host      the SMTP server host
+     * @param port      the SMTP server port
+     * @param auth      whether to authenticate with the server
+     * @param startTls  whether to upgrade the connection with STARTTLS when the server offers it
+     * @param timeoutMs connect, read and write timeout, in milliseconds
+     * @return A {@link Properties} object containing SMTP configuration settings.
+     */
+    public static Properties getSMTPProperties(String host, int port, boolean auth, boolean startTls,
+                                               long timeoutMs) {
         Properties properties = new Properties();
 
         // Enables authentication for the SMTP server
-        properties.put("mail.smtp.auth", "true");
+        properties.put("mail.smtp.auth", String.valueOf(auth));
 
         // Enables STARTTLS encryption for secure communication
-        properties.put("mail.smtp.starttls.enable", "true");
+        properties.put("mail.smtp.starttls.enable", String.valueOf(startTls));
 
         // Specifies the SMTP server host
-        properties.put("mail.smtp.host", "smtp.gmail.com");
+        properties.put("mail.smtp.host", host);
 
         // Defines the SMTP server port
-        properties.put("mail.smtp.port", "587");
+        properties.put("mail.smtp.port", String.valueOf(port));
+
+        // Timeouts, so a pooled connection to an unresponsive server never blocks a sender indefinitely
+        String timeout = String.valueOf(timeoutMs);
+        properties.put("mail.smtp.connectiontimeout", timeout);
+        properties.put("mail.smtp.timeout", timeout);
+        properties.put("mail.smtp.writetimeout", timeout);
+
+        // Do not wait for the server's reply to QUIT when closing a connection
+        properties.put("mail.smtp.quitwait", "false");
 
         return properties;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+package pt.uc.dei.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An email template parsed once into literal text and placeholders.
+ * <p>
+ * Templates use the {@link java.util.Formatter} syntax the email templates were written in: {@code %s} and
+ * {@code %d} take the next argument, {@code %2$s} takes the second argument, and {@code %%} is a percent sign.
+ * {@link String#formatted} parses the whole template again on every call; a compiled template only appends its
+ * literals and arguments, in one pass, to a builder sized exactly for the result. Arguments are written with
+ * {@link String#valueOf(Object)}, which is what {@code %s} and, for integers, {@code %d} produce.
+ */
+public final class EmailTemplate {
+
+    private final String source;
+    /** Literal text before each placeholder, and after the last one. */
+    private final String[] literals;
+    /** Zero-based index of the argument for each placeholder. */
+    private final int[] argumentIndexes;
+    private final int literalLength;
+    private final int argumentCount;
+
+    private EmailTemplate(String source, String[] literals, int[] argumentIndexes) {
+        this.source = source;
+        this.literals = literals;
+        this.argumentIndexes = argumentIndexes;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+        int count = 0;
+        for (int index : argumentIndexes) {
+            count = Math.max(count, index + 1);
+        }
+        this.argumentCount = count;
+    }
+
+    /**
+     * Parses a template.
+     *
+     * @param source the template text
+     * @return the compiled template
+     * @throws IllegalArgumentException if the template has a conversion other than {@code %s}, {@code %d} or
+     *                                  {@code %%}
+     */
+    public static EmailTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> argumentIndexes = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int nextArgument = 0;
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i++);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            if (i < source.length() && source.charAt(i) == '%') {
+                literal.append('%');
+                i++;
+                continue;
+            }
+            int argumentIndex;
+            int digitsEnd = i;
+            while (digitsEnd < source.length() && Character.isDigit(source.charAt(digitsEnd))) {
+                digitsEnd++;
+            }
+            if (digitsEnd > i && digitsEnd < source.length() && source.charAt(digitsEnd) == '$') {
+                argumentIndex = Integer.parseInt(source, i, digitsEnd, 10) - 1;
+                i = digitsEnd + 1;
+            } else {
+                argumentIndex = nextArgument++;
+            }
+            char conversion = i < source.length() ? source.charAt(i) : 0;
+            if ((conversion != 's' && conversion != 'd') || argumentIndex < 0) {
+                throw new IllegalArgumentException("Unsupported placeholder at " + (i - 1) + " in email template");
+            }
+            i++;
+            literals.add(literal.toString());
+            argumentIndexes.add(argumentIndex);
+            literal.setLength(0);
+        }
+        literals.add(literal.toString());
+        return new EmailTemplate(source, literals.toArray(new String[0]),
+                argumentIndexes.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Fills the placeholders with the arguments.
+     *
+     * @param args the arguments, in the order the template expects them
+     * @return the rendered text
+     * @throws IllegalArgumentException if fewer arguments are given than the template uses
+     */
+    public String render(Object... args) {
+        if (args.length < argumentCount) {
+            throw new IllegalArgumentException("Email template needs " + argumentCount + " arguments, got "
+                    + args.length);
+        }
+        String[] values = new String[args.length];
+        int length = literalLength;
+        for (int index : argumentIndexes) {
+            if (values[index] == null) {
+                values[index] = String.valueOf(args[index]);
+            }
+            length += values[index].length();
+        }
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < argumentIndexes.length; i++) {
+            out.append(literals[i]).append(values[argumentIndexes[i]]);
+        }
+        return out.append(literals[argumentIndexes.length]).toString();
+    }
+
+    /**
+     * Escapes text for use in HTML content or a quoted attribute value. Templates write their arguments as they
+     * are, so values users can choose, such as names, go through this before they are rendered into a body.
+     *
+     * @param text the text; may be null
+     * @return the escaped text, or {@code "null"} for null, like an unescaped argument
+     */
+    public static String escapeHtml(String text) {
+        if (text == null) {
+            return "null";
+        }
+        StringBuilder out = null;
+        for (int i = 0; i < text.length(); i++) {
+            String replacement = switch (text.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (replacement != null && out == null) {
+                out = new StringBuilder(text.length() + 16).append(text, 0, i);
+            }
+            if (out != null) {
+                if (replacement != null) {
+                    out.append(replacement);
+                } else {
+                    out.append(text.charAt(i));
+                }
+            }
+        }
+        return out == null ? text : out.toString();
+    }
+
+    /**
+     * @return the template text as written
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the number of arguments the template uses
+     */
+    public int getArgumentCount() {
+        return argumentCount;
+    }
+}
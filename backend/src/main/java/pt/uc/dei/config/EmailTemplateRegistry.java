@@ -0,0 +1,143 @@
+package pt.uc.dei.config;
+
+import pt.uc.dei.enums.EmailTemplateType;
+import pt.uc.dei.enums.Language;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Subject and body templates for every email type and language.
+ * <p>
+ * Variants are kept in a table indexed by {@link EmailTemplateType} and {@link Language}, filled once at class
+ * load: a language without its own variant of a type gets the English one, so every lookup is two array reads
+ * and never misses. Language codes ({@code "en"}, {@code "pt"}, ...) are resolved through a map, and unknown or
+ * missing codes fall back to English.
+ */
+public final class EmailTemplateRegistry {
+
+    /**
+     * A rendered email.
+     *
+     * @param subject the subject line
+     * @param body    the HTML body
+     */
+    public record RenderedEmail(String subject, String body) {
+    }
+
+    private record Variant(EmailTemplate subject, EmailTemplate body) {
+    }
+
+    private static final Language DEFAULT_LANGUAGE = Language.ENGLISH;
+
+    private static final Variant[][] VARIANTS =
+            new Variant[EmailTemplateType.values().length][Language.values().length];
+
+    private static final Map<String, Language> LANGUAGES_BY_CODE = new HashMap<>();
+
+    static {
+        register(EmailTemplateType.ACCOUNT_ACTIVATION, Language.ENGLISH,
+                "CITRUS - Activate Your Account", MessageTemplate.ACCOUNT_ACTIVATION_EN);
+        register(EmailTemplateType.ACCOUNT_ACTIVATION, Language.PORTUGUESE,
+                "CITRUS - Ative a sua conta", MessageTemplate.ACCOUNT_ACTIVATION_PT);
+        register(EmailTemplateType.PASSWORD_RESET, Language.ENGLISH,
+                "CITRUS - Reset your password", MessageTemplate.PASSWORD_RESET_EN);
+        register(EmailTemplateType.PASSWORD_RESET, Language.PORTUGUESE,
+                "CITRUS - recupere a sua password", MessageTemplate.PASSWORD_RESET_PT);
+        register(EmailTemplateType.CYCLE_OPEN, Language.ENGLISH,
+                "CITRUS - New Performance Cycle Started", MessageTemplate.CYCLE_NOTIFICATION_EN);
+        register(EmailTemplateType.CYCLE_OPEN, Language.PORTUGUESE,
+                "CITRUS - Novo Ciclo de Avaliação Iniciado", MessageTemplate.CYCLE_NOTIFICATION_PT);
+        register(EmailTemplateType.CYCLE_CLOSE, Language.ENGLISH,
+                "CITRUS - Performance Cycle Ended", MessageTemplate.CYCLE_END_NOTIFICATION_EN);
+        register(EmailTemplateType.CYCLE_CLOSE, Language.PORTUGUESE,
+                "CITRUS - Ciclo de Avaliação Encerrado", MessageTemplate.CYCLE_END_NOTIFICATION_PT);
+        // Subjects take the body's arguments: managerName, userName, updateDate, profileLink
+        register(EmailTemplateType.PROFILE_UPDATE, Language.ENGLISH,
+                "CITRUS - %2$s profile updated", MessageTemplate.PROFILE_UPDATE_NOTIFICATION_EN);
+        // userName, managerName, courseName, assignDate, courseLink
+        register(EmailTemplateType.COURSE_ASSIGNMENT, Language.ENGLISH,
+                "CITRUS - %1$s new course added", MessageTemplate.COURSE_ASSIGNMENT_NOTIFICATION_EN);
+        register(EmailTemplateType.CHAT_REQUEST, Language.ENGLISH,
+                "CITRUS - Novo pedido de chat", MessageTemplate.CHAT_REQUEST_NOTIFICATION_EN);
+        // recipientName, chatCount, senderList, messagesLink
+        register(EmailTemplateType.MESSAGE_DIGEST, Language.ENGLISH,
+                "CITRUS - Unread messages in %2$d chats", MessageTemplate.MESSAGE_DIGEST_NOTIFICATION_EN);
+
+        for (EmailTemplateType type : EmailTemplateType.values()) {
+            Variant[] variants = VARIANTS[type.ordinal()];
+            Variant fallback = variants[DEFAULT_LANGUAGE.ordinal()];
+            if (fallback == null) {
+                throw new IllegalStateException("No " + DEFAULT_LANGUAGE + " email template for " + type);
+            }
+            for (int i = 0; i < variants.length; i++) {
+                if (variants[i] == null) {
+                    variants[i] = fallback;
+                }
+            }
+        }
+        for (Language language : Language.values()) {
+            LANGUAGES_BY_CODE.put(language.getFieldName(), language);
+            LANGUAGES_BY_CODE.put(language.name().toLowerCase(Locale.ROOT), language);
+        }
+    }
+
+    private EmailTemplateRegistry() {
+    }
+
+    private static void register(EmailTemplateType type, Language language, String subject, EmailTemplate body) {
+        VARIANTS[type.ordinal()][language.ordinal()] = new Variant(EmailTemplate.compile(subject), body);
+    }
+
+    /**
+     * Resolves a language code, falling back to English.
+     *
+     * @param code a language code such as {@code "en"} or {@code "pt"}, in any case; may be null
+     * @return the language
+     */
+    public static Language resolveLanguage(String code) {
+        if (code == null) {
+            return DEFAULT_LANGUAGE;
+        }
+        Language language = LANGUAGES_BY_CODE.get(code);
+        if (language == null) {
+            language = LANGUAGES_BY_CODE.getOrDefault(code.trim().toLowerCase(Locale.ROOT), DEFAULT_LANGUAGE);
+        }
+        return language;
+    }
+
+    /**
+     * @param type     the kind of email
+     * @param language the language
+     * @return the body template used for the type and language
+     */
+    public static EmailTemplate getBodyTemplate(EmailTemplateType type, Language language) {
+        return VARIANTS[type.ordinal()][language.ordinal()].body();
+    }
+
+    /**
+     * Renders an email in the given language, or in English if there is no variant for it.
+     *
+     * @param type     the kind of email
+     * @param language the language code; unknown or null codes give English
+     * @param args     the template arguments, in the order the body expects them
+     * @return the subject and body
+     */
+    public static RenderedEmail render(EmailTemplateType type, String language, Object... args) {
+        return render(type, resolveLanguage(language), args);
+    }
+
+    /**
+     * Renders an email in the given language, or in English if there is no variant for it.
+     *
+     * @param type     the kind of email
+     * @param language the language
+     * @param args     the template arguments, in the order the body expects them
+     * @return the subject and body
+     */
+    public static RenderedEmail render(EmailTemplateType type, Language language, Object... args) {
+        Variant variant = VARIANTS[type.ordinal()][language.ordinal()];
+        return new RenderedEmail(variant.subject().render(args), variant.body().render(args));
+    }
+}
@@ -0,0 +1,80 @@
+package pt.uc.dei.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Helper for reading optional tuning settings from environment variables.
+ * Missing or malformed values fall back to the supplied default.
+ */
+public final class EnvironmentConfig {
+
+    private static final Logger LOGGER = LogManager.getLogger(EnvironmentConfig.class);
+
+    private EnvironmentConfig() {
+    }
+
+    /**
+     * Reads a string setting.
+     *
+     * @param name         the environment variable name
+     * @param defaultValue the value used when the variable is unset or blank
+     * @return the configured value or {@code defaultValue}
+     */
+    public static String getString(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Reads an integer setting.
+     *
+     * @param name         the environment variable name
+     * @param defaultValue the value used when the variable is unset or not a number
+     * @return the configured value or {@code defaultValue}
+     */
+    public static int getInt(String name, int defaultValue) {
+        String value = getString(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring invalid value '{}' for {}, using {}", value, name, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Reads a long setting.
+     *
+     * @param name         the environment variable name
+     * @param defaultValue the value used when the variable is unset or not a number
+     * @return the configured value or {@code defaultValue}
+     */
+    public static long getLong(String name, long defaultValue) {
+        String value = getString(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring invalid value '{}' for {}, using {}", value, name, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Reads a boolean setting ({@code true}/{@code false}, case-insensitive).
+     *
+     * @param name         the environment variable name
+     * @param defaultValue the value used when the variable is unset
+     * @return the configured value or {@code defaultValue}
+     */
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        String value = getString(name, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,45 @@
+package pt.uc.dei.config;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Disposes;
+import jakarta.enterprise.inject.Produces;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.websocket.LocalMessageBus;
+import pt.uc.dei.websocket.MessageBus;
+import pt.uc.dei.websocket.PostgresMessageBus;
+
+import javax.sql.DataSource;
+
+/**
+ * Produces the {@link MessageBus} used for cross-node WebSocket delivery.
+ * <p>
+ * {@code WS_MESSAGE_BUS=postgres} selects {@link PostgresMessageBus} on the application datasource, for
+ * deployments with more than one node. Any other value, or none, keeps everything in the local JVM. The bus
+ * only takes connections from the datasource on its own threads, which never run a transaction, so they are
+ * not enlisted in the caller's.
+ */
+@ApplicationScoped
+public class MessageBusProducer {
+
+    private static final Logger LOGGER = LogManager.getLogger(MessageBusProducer.class);
+
+    @Resource(lookup = "java:/projectcitrus")
+    DataSource dataSource;
+
+    @Produces
+    @ApplicationScoped
+    public MessageBus messageBus() {
+        if ("postgres".equalsIgnoreCase(EnvironmentConfig.getString("WS_MESSAGE_BUS", "local"))) {
+            LOGGER.info("Using PostgreSQL LISTEN/NOTIFY message bus");
+            return new PostgresMessageBus(dataSource::getConnection);
+        }
+        LOGGER.info("Using in-JVM message bus");
+        return new LocalMessageBus();
+    }
+
+    public void close(@Disposes MessageBus messageBus) {
+        messageBus.close();
+    }
+}
@@ -1,10 +1,15 @@
 package pt.uc.dei.config;
 
+/**
+ * The HTML bodies of the emails sent by {@link pt.uc.dei.services.EmailService}, in English ({@code _EN}) and
+ * Portuguese ({@code _PT}).
+ * <p>
+ * Each template is compiled once into an {@link EmailTemplate}; {@link EmailTemplateRegistry} pairs them with
+ * their subjects by email type and language.
+ */
 public class MessageTemplate {
 
-  public static final String ACCOUNT_ACTIVATION_TEMPLATE_EN(String activationLink, Integer expirationTime,
-      String twoFactorSecret) {
-    return """
+  static final EmailTemplate ACCOUNT_ACTIVATION_EN = EmailTemplate.compile("""
         <!DOCTYPE html>
         <html lang="en">
           <head>
@@ -84,12 +89,14 @@ public class MessageTemplate {
             </div>
           </body>
         </html>
-        """.formatted(activationLink, expirationTime, twoFactorSecret);
-  }
+        """);
 
-  public static final String ACCOUNT_ACTIVATION_TEMPLATE_PT(String activationLink, Integer expirationTime,
+  public static final String ACCOUNT_ACTIVATION_TEMPLATE_EN(String activationLink, Integer expirationTime,
       String twoFactorSecret) {
-    return """
+    return ACCOUNT_ACTIVATION_EN.render(activationLink, expirationTime, twoFactorSecret);
+  }
+
+  static final EmailTemplate ACCOUNT_ACTIVATION_PT = EmailTemplate.compile("""
         <!DOCTYPE html>
         <html lang="pt">
           <head>
@@ -169,15 +176,14 @@ public class MessageTemplate {
             </div>
           </body>
         </html>
-        """.formatted(activationLink, expirationTime, twoFactorSecret);
+        """);
+
+  public static final String ACCOUNT_ACTIVATION_TEMPLATE_PT(String activationLink, Integer expirationTime,
+      String twoFactorSecret) {
+    return ACCOUNT_ACTIVATION_PT.render(activationLink, expirationTime, twoFactorSecret);
   }
 
-  /**
-   * The email template for account activation.
-   * Contains a link that allows users to activate their account.
-   */
-  public static final String PASSWORD_RESET_TEMPLATE_EN(String resetLink, Integer expirationTime) {
-    return """
+  static final EmailTemplate PASSWORD_RESET_EN = EmailTemplate.compile("""
         <!DOCTYPE html>
         <html lang="en">
           <head>
@@ -239,12 +245,17 @@ public class MessageTemplate {
             </div>
           </body>
         </html>
-        """
-        .formatted(resetLink, expirationTime);
+        """);
+
+  /**
+   * The email template for account activation.
+   * Contains a link that allows users to activate their account.
+   */
+  public static final String PASSWORD_RESET_TEMPLATE_EN(String resetLink, Integer expirationTime) {
+    return PASSWORD_RESET_EN.render(resetLink, expirationTime);
   }
 
-  public static final String PASSWORD_RESET_TEMPLATE_PT(String resetLink, Integer expirationTime) {
-    return """
+  static final EmailTemplate PASSWORD_RESET_PT = EmailTemplate.compile("""
         <!DOCTYPE html>
         <html lang="pt">
           <head>
@@ -306,16 +317,13 @@ public class MessageTemplate {
             </div>
           </body>
         </html>
-        """
-        .formatted(resetLink, expirationTime);
+        """);
+
+  public static final String PASSWORD_RESET_TEMPLATE_PT(String resetLink, Integer expirationTime) {
+    return PASSWORD_RESET_PT.render(resetLink, expirationTime);
   }
 
-  /**
-   * Email template for new cycle notification (English).
-   */
-  public static final String CYCLE_NOTIFICATION_TEMPLATE_EN(String cycleId, String startDate, String endDate,
-      String adminName, int appraisalsCount, String cycleLink) {
-    return """
+  static final EmailTemplate CYCLE_NOTIFICATION_EN = EmailTemplate.compile("""
         <!DOCTYPE html>
         <html lang="en">
           <head>
@@ -402,16 +410,17 @@ public class MessageTemplate {
             </div>
           </body>
         </html>
-        """
-        .formatted(cycleId, startDate, endDate, adminName, appraisalsCount, cycleLink);
-  }
+        """);
 
   /**
-   * Email template for new cycle notification (Portuguese).
+   * Email template for new cycle notification (English).
    */
-  public static final String CYCLE_NOTIFICATION_TEMPLATE_PT(String cycleId, String startDate, String endDate,
+  public static final String CYCLE_NOTIFICATION_TEMPLATE_EN(String cycleId, String startDate, String endDate,
       String adminName, int appraisalsCount, String cycleLink) {
-    return """
+    return CYCLE_NOTIFICATION_EN.render(cycleId, startDate, endDate, adminName, appraisalsCount, cycleLink);
+  }
+
+  static final EmailTemplate CYCLE_NOTIFICATION_PT = EmailTemplate.compile("""
         <!DOCTYPE html>
         <html lang="pt">
           <head>
@@ -498,16 +507,17 @@ public class MessageTemplate {
             </div>
           </body>
         </html>
-        """
-        .formatted(cycleId, startDate, endDate, adminName, appraisalsCount, cycleLink);
-  }
+        """);
 
   /**
-   * Email template for cycle ending notification (English).
+   * Email template for new cycle notification (Portuguese).
    */
-  public static final String CYCLE_END_NOTIFICATION_TEMPLATE_EN(String cycleId, String startDate, String endDate,
+  public static final String CYCLE_NOTIFICATION_TEMPLATE_PT(String cycleId, String startDate, String endDate,
       String adminName, int appraisalsCount, String cycleLink) {
-    return """
+    return CYCLE_NOTIFICATION_PT.render(cycleId, startDate, endDate, adminName, appraisalsCount, cycleLink);
+  }
+
+  static final EmailTemplate CYCLE_END_NOTIFICATION_EN = EmailTemplate.compile("""
         <!DOCTYPE html>
         <html lang=\"en\">
           <head>
@@ -587,16 +597,17 @@ public class MessageTemplate {
             </div>
           </body>
         </html>
-        """
-        .formatted(cycleId, startDate, endDate, adminName, appraisalsCount, cycleLink);
-  }
+        """);
 
   /**
-   * Email template for cycle ending notification (Portuguese).
+   * Email template for cycle ending notification (English).
    */
-  public static final String CYCLE_END_NOTIFICATION_TEMPLATE_PT(String cycleId, String startDate, String endDate,
+  public static final String CYCLE_END_NOTIFICATION_TEMPLATE_EN(String cycleId, String startDate, String endDate,
       String adminName, int appraisalsCount, String cycleLink) {
-    return """
+    return CYCLE_END_NOTIFICATION_EN.render(cycleId, startDate, endDate, adminName, appraisalsCount, cycleLink);
+  }
+
+  static final EmailTemplate CYCLE_END_NOTIFICATION_PT = EmailTemplate.compile("""
         <!DOCTYPE html>
         <html lang=\"pt\">
           <head>
@@ -676,17 +687,17 @@ public class MessageTemplate {
             </div>
           </body>
         </html>
-        """
-        .formatted(cycleId, startDate, endDate, adminName, appraisalsCount, cycleLink);
-  }
+        """);
 
   /**
-   * Email template for notifying managers when a managed user updates their
-   * profile (English).
+   * Email template for cycle ending notification (Portuguese).
    */
-  public static String PROFILE_UPDATE_NOTIFICATION_TEMPLATE_EN(String managerName, String userName, String updateDate,
-      String profileLink) {
-    return """
+  public static final String CYCLE_END_NOTIFICATION_TEMPLATE_PT(String cycleId, String startDate, String endDate,
+      String adminName, int appraisalsCount, String cycleLink) {
+    return CYCLE_END_NOTIFICATION_PT.render(cycleId, startDate, endDate, adminName, appraisalsCount, cycleLink);
+  }
+
+  static final EmailTemplate PROFILE_UPDATE_NOTIFICATION_EN = EmailTemplate.compile("""
         <!DOCTYPE html>
         <html lang=\"en\">
           <head>
@@ -748,16 +759,20 @@ public class MessageTemplate {
             </div>
           </body>
         </html>
-        """.formatted(managerName, userName, updateDate, profileLink);
+        """);
+
+  /**
+   * Email template for notifying managers when a managed user updates their
+   * profile (English).
+   */
+  public static String PROFILE_UPDATE_NOTIFICATION_TEMPLATE_EN(String managerName, String userName, String updateDate,
+      String profileLink) {
+    return PROFILE_UPDATE_NOTIFICATION_EN.render(managerName, userName, updateDate, profileLink);
   }
 
 
 
-  /**
-   * Email template for notifying a user when their manager assigns a new course (English).
-   */
-  public static String COURSE_ASSIGNMENT_NOTIFICATION_TEMPLATE_EN(String userName, String managerName, String courseName, String assignDate, String courseLink) {
-    return """
+  static final EmailTemplate COURSE_ASSIGNMENT_NOTIFICATION_EN = EmailTemplate.compile("""
         <!DOCTYPE html>
         <html lang=\"en\">
           <head>
@@ -819,14 +834,16 @@ public class MessageTemplate {
             </div>
           </body>
         </html>
-        """.formatted(userName, managerName, courseName, assignDate, courseLink);
-  }
+        """);
 
-    /**
-   * Email template for notifying a user that another user is trying to chat with them (English).
+  /**
+   * Email template for notifying a user when their manager assigns a new course (English).
    */
-  public static String CHAT_REQUEST_NOTIFICATION_TEMPLATE_EN(String recipientName, String senderName, String chatLink) {
-    return """
+  public static String COURSE_ASSIGNMENT_NOTIFICATION_TEMPLATE_EN(String userName, String managerName, String courseName, String assignDate, String courseLink) {
+    return COURSE_ASSIGNMENT_NOTIFICATION_EN.render(userName, managerName, courseName, assignDate, courseLink);
+  }
+
+  static final EmailTemplate CHAT_REQUEST_NOTIFICATION_EN = EmailTemplate.compile("""
         <!DOCTYPE html>
         <html lang=\"en\">
           <head>
@@ -885,7 +902,99 @@ public class MessageTemplate {
             </div>
           </body>
         </html>
-        """.formatted(recipientName, senderName, chatLink);
+        """);
+
+  /**
+   * Email template for notifying a user that another user is trying to chat with them (English).
+   */
+  public static String CHAT_REQUEST_NOTIFICATION_TEMPLATE_EN(String recipientName, String senderName, String chatLink) {
+    return CHAT_REQUEST_NOTIFICATION_EN.render(recipientName, senderName, chatLink);
+  }
+
+  static final EmailTemplate MESSAGE_DIGEST_NOTIFICATION_EN = EmailTemplate.compile("""
+        <!DOCTYPE html>
+        <html lang="en">
+          <head>
+            <meta charset="UTF-8" />
+            <title>Unread Messages</title>
+            <style>
+              body {
+                font-family: Arial, sans-serif;
+                background-color: #f4f4f4;
+                padding: 20px;
+                margin: 0;
+              }
+              .email-container {
+                max-width: 600px;
+                background-color: #ffffff;
+                margin: auto;
+                padding: 30px;
+                border-radius: 8px;
+                box-shadow: 0 0 10px rgba(0, 0, 0, 0.05);
+              }
+              .button {
+                display: inline-block;
+                padding: 12px 24px;
+                margin: 20px 0;
+                color: #ffffff !important;
+                background-color: #2F7C9C;
+                text-decoration: none;
+                border-radius: 5px;
+                font-weight: bold;
+              }
+              .footer {
+                font-size: 12px;
+                color: #777777;
+                margin-top: 30px;
+                text-align: center;
+              }
+            </style>
+          </head>
+          <body>
+            <div class="email-container">
+              <h2>Unread Messages</h2>
+              <p>Hello %s,</p>
+              <p>
+                You have unread messages in %d chats:
+              </p>
+              <ul>
+        %s
+              </ul>
+              <p style="text-align: center;">
+                <a href="%s" class="button">Open Messages</a>
+              </p>
+              <p>
+                If you have any questions or concerns, please contact your system administrator.
+              </p>
+              <p>Best regards,<br />The CITRUS Team</p>
+              <div class="footer">
+                ©CITRUS. All rights reserved.
+              </div>
+            </div>
+          </body>
+        </html>
+        """);
+
+  /**
+   * Email template for telling a user about unread messages from several other users at once (English).
+   * {@code senderList} is a sequence of {@code <li>} items, one per sender.
+   */
+  public static String MESSAGE_DIGEST_NOTIFICATION_TEMPLATE_EN(String recipientName, int chatCount, String senderList,
+      String messagesLink) {
+    return MESSAGE_DIGEST_NOTIFICATION_EN.render(recipientName, chatCount, senderList, messagesLink);
+  }
+
+  static final EmailTemplate MESSAGE_DIGEST_SENDER_EN = EmailTemplate.compile("""
+                  <li><a href="%s"><strong>%s</strong></a> (%d %s)</li>
+        """);
+
+  /**
+   * One {@code <li>} item of {@link #MESSAGE_DIGEST_NOTIFICATION_TEMPLATE_EN}'s {@code senderList} (English).
+   * The sender's name is HTML-escaped here, so callers pass it as stored.
+   */
+  public static String MESSAGE_DIGEST_SENDER_TEMPLATE_EN(String chatLink, String senderName, int messageCount) {
+    return MESSAGE_DIGEST_SENDER_EN.render(chatLink, EmailTemplate.escapeHtml(senderName), messageCount,
+        messageCount == 1 ? "message" : "messages");
   }
 
   }
\ No newline at end of file
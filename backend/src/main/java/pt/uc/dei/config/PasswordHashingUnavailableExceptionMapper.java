@@ -0,0 +1,32 @@
+package pt.uc.dei.config;
+
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import pt.uc.dei.services.PasswordHashingService.PasswordHashingUnavailableException;
+import pt.uc.dei.utils.ApiResponse;
+
+/**
+ * Exception mapper for saturation of the password hashing pool.
+ * Converts {@link PasswordHashingUnavailableException} into a 503 response so clients retry instead of
+ * holding an HTTP worker thread while BCrypt work queues up.
+ */
+@Provider
+public class PasswordHashingUnavailableExceptionMapper implements ExceptionMapper<PasswordHashingUnavailableException> {
+
+    /**
+     * Converts a {@link PasswordHashingUnavailableException} into a 503 Service Unavailable response.
+     *
+     * @param exception The exception raised by the hashing pool.
+     * @return A {@link Response} with a {@code Retry-After} header and an error body.
+     */
+    @Override
+    public Response toResponse(PasswordHashingUnavailableException exception) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .entity(new ApiResponse(false, "Server busy, please try again", "errorServerBusy", null))
+                .type(MediaType.APPLICATION_JSON)
+                .build();
+    }
+}
@@ -14,6 +14,7 @@ import pt.uc.dei.dtos.*;
 import pt.uc.dei.services.AuthenticationService;
 import pt.uc.dei.services.ConfigurationService;
 import pt.uc.dei.services.EmailService;
+import pt.uc.dei.services.PasswordHashingService.PasswordHashingUnavailableException;
 import pt.uc.dei.services.TokenService;
 import pt.uc.dei.services.UserService;
 import jakarta.ws.rs.*;
@@ -354,6 +355,9 @@ public class AuthenticationController {
                             Map.of("authCode", authCode)))
                     .build();
 
+        } catch (PasswordHashingUnavailableException e) {
+            // Mapped to 503 with Retry-After by PasswordHashingUnavailableExceptionMapper
+            throw e;
         } catch (Exception e) {
             LOGGER.error("Authentication request failed for {}: {}", requester.getEmail(), e.getMessage());
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
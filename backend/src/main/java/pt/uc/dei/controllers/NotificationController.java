@@ -10,11 +10,13 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pt.uc.dei.dtos.NotificationDTO;
 import pt.uc.dei.dtos.NotificationUpdateDTO;
+import pt.uc.dei.enums.NotificationType;
 import pt.uc.dei.services.NotificationService;
 import pt.uc.dei.utils.JWTUtil;
 import pt.uc.dei.utils.ApiResponse;
 
 import java.util.List;
+import java.util.Map;
 
 @Stateless
 @Path("/notifications")
@@ -57,6 +59,60 @@ public class NotificationController {
         }
     }
 
+    /**
+     * Returns one page of the user's notifications, newest first. Pass the {@code nextCursor} of a page to
+     * get the next one; the response size does not depend on how many notifications the user has.
+     *
+     * @param jwtToken JWT token from cookie
+     * @param cursor   the {@code nextCursor} of the previous page, absent for the first page
+     * @param limit    page size, at most {@link NotificationService#MAX_FEED_PAGE_SIZE}
+     * @param typeStr  optional notification type filter
+     * @param unread   only notifications not yet read
+     * @param unseen   only notifications not yet seen
+     * @return Response with the notifications, {@code nextCursor} and {@code hasMore}
+     */
+    @GET
+    @Path("/feed")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getNotificationFeed(@CookieParam("jwt") String jwtToken,
+                                        @QueryParam("cursor") String cursor,
+                                        @QueryParam("limit") @DefaultValue("20") int limit,
+                                        @QueryParam("type") String typeStr,
+                                        @QueryParam("unread") @DefaultValue("false") boolean unread,
+                                        @QueryParam("unseen") @DefaultValue("false") boolean unseen) {
+        Long userId = JWTUtil.getUserIdFromToken(jwtToken);
+        if (userId == null) {
+            LOGGER.warn("Unauthorized getNotificationFeed request: missing or invalid JWT");
+            return Response.status(Response.Status.UNAUTHORIZED)
+                    .entity(new ApiResponse(false, "Unauthorized", "errorUnauthorized", null))
+                    .build();
+        }
+        if (limit < 1) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ApiResponse(false, "Invalid page size", "errorInvalidLimit", null))
+                    .build();
+        }
+
+        try {
+            NotificationType type = typeStr != null && !typeStr.isBlank()
+                    ? NotificationType.valueOf(typeStr.trim().toUpperCase())
+                    : null;
+            Map<String, Object> feed = notificationService.getNotificationFeed(userId, cursor, limit, type, unread, unseen);
+            return Response.ok(new ApiResponse(true, "Notifications retrieved", "successNotificationsRetrieved", feed))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid notification feed request from user {}: {}", userId, e.getMessage());
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(new ApiResponse(false, "Invalid notification feed request", "errorInvalidNotificationFeed", null))
+                    .build();
+        } catch (Exception e) {
+            LOGGER.error("Exception in getNotificationFeed", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity(new ApiResponse(false, "Internal server error", "errorInternal", null))
+                    .build();
+        }
+    }
+
     @PATCH
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
@@ -1,6 +1,7 @@
 package pt.uc.dei.controllers;
 
 import jakarta.inject.Inject;
+import pt.uc.dei.annotations.AdminOnly;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -8,7 +9,17 @@ import pt.uc.dei.services.UserService;
 import pt.uc.dei.services.AppraisalService;
 import pt.uc.dei.services.CourseService;
 import pt.uc.dei.services.CycleService;
+import pt.uc.dei.services.EmailQueueService;
+import pt.uc.dei.services.MessageDigestJob;
+import pt.uc.dei.services.NotificationDispatcher;
+import pt.uc.dei.services.NotificationRetentionJob;
+import pt.uc.dei.services.PasswordHashingService;
+import pt.uc.dei.services.PrincipalCache;
 import pt.uc.dei.utils.ApiResponse;
+import pt.uc.dei.websocket.HeartbeatScheduler;
+import pt.uc.dei.websocket.WebSocketCluster;
+import pt.uc.dei.websocket.WsChat;
+import pt.uc.dei.websocket.WsNotifications;
 import pt.uc.dei.enums.AppraisalState;
 import pt.uc.dei.enums.CycleState;
 
@@ -27,6 +38,26 @@ public class StatsController {
     CourseService courseService;
     @Inject
     CycleService cycleService;
+    @Inject
+    PrincipalCache principalCache;
+    @Inject
+    PasswordHashingService passwordHashingService;
+    @Inject
+    WsChat wsChat;
+    @Inject
+    WsNotifications wsNotifications;
+    @Inject
+    HeartbeatScheduler heartbeatScheduler;
+    @Inject
+    WebSocketCluster webSocketCluster;
+    @Inject
+    NotificationDispatcher notificationDispatcher;
+    @Inject
+    NotificationRetentionJob notificationRetentionJob;
+    @Inject
+    EmailQueueService emailQueueService;
+    @Inject
+    MessageDigestJob messageDigestJob;
 
     @GET
     @Path("/users")
@@ -98,4 +129,65 @@ public class StatsController {
 
         return Response.ok(new ApiResponse(true, "Cycle stats", null, stats)).build();
     }
-}
\ No newline at end of file
+
+    @GET
+    @Path("/cache/principals")
+    @AdminOnly
+    public Response getPrincipalCacheStats() {
+        return Response.ok(new ApiResponse(true, "Principal cache stats", null, principalCache.getStats())).build();
+    }
+
+    @GET
+    @Path("/password-hashing")
+    @AdminOnly
+    public Response getPasswordHashingStats() {
+        return Response.ok(new ApiResponse(true, "Password hashing stats", null, passwordHashingService.getStats())).build();
+    }
+
+    @GET
+    @Path("/notification-retention")
+    @AdminOnly
+    public Response getNotificationRetentionStats() {
+        return Response.ok(new ApiResponse(true, "Notification retention stats", null, notificationRetentionJob.getStats())).build();
+    }
+
+    @GET
+    @Path("/message-digest")
+    @AdminOnly
+    public Response getMessageDigestStats() {
+        return Response.ok(new ApiResponse(true, "Message digest stats", null, messageDigestJob.getStats())).build();
+    }
+
+    @GET
+    @Path("/email-queue")
+    @AdminOnly
+    public Response getEmailQueueStats() {
+        return Response.ok(new ApiResponse(true, "Email queue stats", null, emailQueueService.getStats())).build();
+    }
+
+    @GET
+    @Path("/email-jobs/{id}")
+    @AdminOnly
+    public Response getEmailJobProgress(@PathParam("id") Long id) {
+        Map<String, Object> progress = emailQueueService.getJobProgress(id);
+        if (progress == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(new ApiResponse(false, "Email job not found", "errorEmailJobNotFound", null))
+                    .build();
+        }
+        return Response.ok(new ApiResponse(true, "Email job progress", null, progress)).build();
+    }
+
+    @GET
+    @Path("/websocket")
+    @AdminOnly
+    public Response getWebSocketStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("chat", wsChat.getDeliveryStats());
+        stats.put("notifications", wsNotifications.getDeliveryStats());
+        stats.put("heartbeat", heartbeatScheduler.getStats());
+        stats.put("notificationOutbox", notificationDispatcher.getStats());
+        stats.put("cluster", webSocketCluster.getStats());
+        return Response.ok(new ApiResponse(true, "WebSocket delivery stats", null, stats)).build();
+    }
+}
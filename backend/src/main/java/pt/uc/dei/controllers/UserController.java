@@ -18,6 +18,7 @@ import pt.uc.dei.services.AppraisalService;
 import pt.uc.dei.services.AuthenticationService;
 import pt.uc.dei.services.AvatarFileService;
 import pt.uc.dei.services.EmailService;
+import pt.uc.dei.services.PasswordHashingService.PasswordHashingUnavailableException;
 import pt.uc.dei.services.UserService;
 import pt.uc.dei.utils.ApiResponse;
 import pt.uc.dei.utils.JWTUtil;
@@ -105,6 +106,9 @@ public class UserController {
             return Response.status(Response.Status.BAD_REQUEST)
                     .entity(new ApiResponse(false, e.getMessage(), "errorInvalidData", null))
                     .build();
+        } catch (PasswordHashingUnavailableException e) {
+            // Mapped to 503 with Retry-After by PasswordHashingUnavailableExceptionMapper
+            throw e;
         } catch (Exception e) {
             LOGGER.error("Registration error for {}: {}", temporaryUserDTO.getEmail(), e.getMessage());
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
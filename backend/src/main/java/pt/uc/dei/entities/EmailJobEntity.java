@@ -0,0 +1,117 @@
+package pt.uc.dei.entities;
+
+import jakarta.persistence.*;
+import pt.uc.dei.enums.EmailJobType;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * A batch of emails queued together, such as the notifications for one new cycle.
+ * <p>
+ * The emails themselves are {@link QueuedEmailEntity} rows; the job keeps the totals so its progress can be
+ * read without counting them. A job is complete once every email has been sent or has failed for good.
+ */
+@Entity
+@Table(name = "email_job")
+public class EmailJobEntity implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false, unique = true, updatable = false)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, updatable = false)
+    private EmailJobType type;
+
+    /**
+     * What the emails are about, for the admin statistics (e.g. "Cycle 7").
+     */
+    @Column(name = "description", nullable = false, updatable = false)
+    private String description;
+
+    @Column(name = "total_emails", nullable = false, updatable = false)
+    private Integer totalEmails;
+
+    @Column(name = "sent_emails", nullable = false)
+    private Integer sentEmails = 0;
+
+    @Column(name = "failed_emails", nullable = false)
+    private Integer failedEmails = 0;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * When the last email of the job was sent or given up on; null while the job is in progress.
+     */
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public EmailJobEntity() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public EmailJobType getType() {
+        return type;
+    }
+
+    public void setType(EmailJobType type) {
+        this.type = type;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Integer getTotalEmails() {
+        return totalEmails;
+    }
+
+    public void setTotalEmails(Integer totalEmails) {
+        this.totalEmails = totalEmails;
+    }
+
+    public Integer getSentEmails() {
+        return sentEmails;
+    }
+
+    public void setSentEmails(Integer sentEmails) {
+        this.sentEmails = sentEmails;
+    }
+
+    public Integer getFailedEmails() {
+        return failedEmails;
+    }
+
+    public void setFailedEmails(Integer failedEmails) {
+        this.failedEmails = failedEmails;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,131 @@
+package pt.uc.dei.entities;
+
+import jakarta.persistence.*;
+import pt.uc.dei.enums.NotificationType;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * A read and seen notification moved out of the `notification` table by the retention job.
+ * <p>
+ * Rows keep the ID they had in the `notification` table. Users are referenced by ID only, without foreign
+ * keys, so archiving never locks user rows and archived notifications do not hold users back.
+ * <ul>
+ *   <li>user_id, creation_date: For looking up a user's archived notifications by date.</li>
+ * </ul>
+ */
+@Entity
+@Table(name = "notification_archive",
+    indexes = {
+        /**
+         * Index for looking up a user's archived notifications by date.
+         */
+        @Index(name = "idx_notification_archive_user_creation_date", columnList = "user_id, creation_date")
+    })
+public class NotificationArchiveEntity implements Serializable {
+
+    /**
+     * The ID the notification had in the `notification` table.
+     */
+    @Id
+    @Column(name = "id", nullable = false, unique = true, updatable = false)
+    private Long id;
+
+    /**
+     * The ID of the user who received the notification.
+     */
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    /**
+     * The ID of the user who sent the notification.
+     */
+    @Column(name = "sender_id", nullable = false, updatable = false)
+    private Long senderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, updatable = false)
+    private NotificationType type;
+
+    @Column(name = "content", nullable = false, updatable = false)
+    private String content;
+
+    @Column(name = "creation_date", nullable = false, updatable = false)
+    private LocalDateTime creationDate;
+
+    @Column(name = "message_count", nullable = false, updatable = false)
+    private Integer messageCount;
+
+    /**
+     * When the notification was moved to the archive.
+     */
+    @Column(name = "archived_at", nullable = false, updatable = false)
+    private LocalDateTime archivedAt;
+
+    public NotificationArchiveEntity() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(Long senderId) {
+        this.senderId = senderId;
+    }
+
+    public NotificationType getType() {
+        return type;
+    }
+
+    public void setType(NotificationType type) {
+        this.type = type;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(LocalDateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+
+    public Integer getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(Integer messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    public void setArchivedAt(LocalDateTime archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+}
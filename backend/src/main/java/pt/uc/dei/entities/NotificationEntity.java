@@ -1,6 +1,7 @@
 package pt.uc.dei.entities;
 
 import jakarta.persistence.*;
+import pt.uc.dei.enums.NotificationDeliveryState;
 import pt.uc.dei.enums.NotificationType;
 import java.io.Serializable;
 import java.time.LocalDateTime;
@@ -10,10 +11,6 @@ import java.time.LocalDateTime;
         "WHERE n.user.id = :id " +
         "ORDER BY n.creationDate DESC")
 
-@NamedQuery(name = "NotificationEntity.getTotalNotifications", query = "SELECT COUNT(n) " +
-        "FROM NotificationEntity n " +
-        "WHERE n.user.id = :id")
-
 @NamedQuery(name = "NotificationEntity.readNotification", query = "UPDATE NotificationEntity n " +
         "SET notificationIsRead = true " +
         "WHERE n.user.id = :userId " +
@@ -64,7 +61,8 @@ import java.time.LocalDateTime;
         /**
          * Index for ordering notifications by creation date for a user.
          */
-        @Index(name = "idx_notification_user_creation_date", columnList = "user_id, creation_date")
+        @Index(name = "idx_notification_user_creation_date", columnList = "user_id, creation_date"),
+        @Index(name = "idx_notification_delivery_state_next", columnList = "delivery_state, next_delivery_attempt")
     })
 public class NotificationEntity implements Serializable {
 
@@ -129,6 +127,22 @@ public class NotificationEntity implements Serializable {
     @Column(name = "emailsent", nullable = false, unique = false, updatable = true)
     private Boolean emailSent = false;
 
+    /**
+     * WebSocket delivery state; {@code null} for notifications created before deliveries were tracked.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "delivery_state")
+    private NotificationDeliveryState deliveryState = NotificationDeliveryState.PENDING;
+
+    @Column(name = "delivery_attempts")
+    private Integer deliveryAttempts = 0;
+
+    /**
+     * Earliest time of the next delivery attempt after a failure; {@code null} means as soon as possible.
+     */
+    @Column(name = "next_delivery_attempt")
+    private LocalDateTime nextDeliveryAttempt;
+
     /**
      * The user associated with the notification.
      * Many-to-one relationship with `UserEntity`.
@@ -327,4 +341,28 @@ public class NotificationEntity implements Serializable {
     public void setEmailSent(Boolean emailSent) {
         this.emailSent = emailSent;
     }
-}
\ No newline at end of file
+
+    public NotificationDeliveryState getDeliveryState() {
+        return deliveryState;
+    }
+
+    public void setDeliveryState(NotificationDeliveryState deliveryState) {
+        this.deliveryState = deliveryState;
+    }
+
+    public Integer getDeliveryAttempts() {
+        return deliveryAttempts;
+    }
+
+    public void setDeliveryAttempts(Integer deliveryAttempts) {
+        this.deliveryAttempts = deliveryAttempts;
+    }
+
+    public LocalDateTime getNextDeliveryAttempt() {
+        return nextDeliveryAttempt;
+    }
+
+    public void setNextDeliveryAttempt(LocalDateTime nextDeliveryAttempt) {
+        this.nextDeliveryAttempt = nextDeliveryAttempt;
+    }
+}
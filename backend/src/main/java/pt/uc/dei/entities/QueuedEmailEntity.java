@@ -0,0 +1,183 @@
+package pt.uc.dei.entities;
+
+import jakarta.persistence.*;
+import pt.uc.dei.enums.QueuedEmailState;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * One email waiting in the email queue, with its subject and HTML body already rendered.
+ * <p>
+ * Rows are written in the transaction that decides to send the email and sent later by
+ * {@link pt.uc.dei.services.EmailQueueService}, so an email is never lost to a restart between the two.
+ * <ul>
+ *   <li>state, next_attempt: For finding the emails that are due.</li>
+ * </ul>
+ */
+@Entity
+@Table(name = "email_queue",
+    indexes = {
+        /**
+         * Index for finding the emails that are due.
+         */
+        @Index(name = "idx_email_queue_state_next_attempt", columnList = "state, next_attempt")
+    })
+public class QueuedEmailEntity implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false, unique = true, updatable = false)
+    private Long id;
+
+    /**
+     * The job the email belongs to.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "job_id", nullable = false, updatable = false)
+    private EmailJobEntity job;
+
+    @Column(name = "recipient", nullable = false, updatable = false)
+    private String recipient;
+
+    @Column(name = "subject", nullable = false, updatable = false)
+    private String subject;
+
+    /**
+     * The HTML body.
+     */
+    @Lob
+    @Column(name = "body", nullable = false, updatable = false)
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", nullable = false)
+    private QueuedEmailState state = QueuedEmailState.PENDING;
+
+    /**
+     * Number of failed attempts so far.
+     */
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    /**
+     * The email is not sent before this time; pushed back after each failed attempt.
+     */
+    @Column(name = "next_attempt", nullable = false)
+    private LocalDateTime nextAttempt;
+
+    /**
+     * The error of the last failed attempt.
+     */
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    public QueuedEmailEntity() {
+    }
+
+    /**
+     * Creates an email to queue.
+     *
+     * @param recipient the address to send to
+     * @param subject   the subject
+     * @param body      the HTML body
+     */
+    public QueuedEmailEntity(String recipient, String subject, String body) {
+        this.recipient = recipient;
+        this.subject = subject;
+        this.body = body;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public EmailJobEntity getJob() {
+        return job;
+    }
+
+    public void setJob(EmailJobEntity job) {
+        this.job = job;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public QueuedEmailState getState() {
+        return state;
+    }
+
+    public void setState(QueuedEmailState state) {
+        this.state = state;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttempt() {
+        return nextAttempt;
+    }
+
+    public void setNextAttempt(LocalDateTime nextAttempt) {
+        this.nextAttempt = nextAttempt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+}
@@ -177,6 +177,22 @@ public class UserEntity implements Serializable {
     @Column(name = "onlineStatus", nullable = false, updatable = true)
     private Boolean onlineStatus;
 
+    /** Bumped when roles change or the account is deactivated; tokens carrying an older version are stale */
+    @Column(name = "token_version", nullable = false, columnDefinition = "integer default 0")
+    private Integer tokenVersion = 0;
+
+    /**
+     * Notifications not yet read; kept up to date as notifications change, null until first counted.
+     * Only written by the bulk updates in {@link pt.uc.dei.repositories.UserRepository}, which bypass the
+     * persistence context, so flushing a managed user never writes back a stale value.
+     */
+    @Column(name = "unread_notifications", updatable = false)
+    private Integer unreadNotifications;
+
+    /** Notifications not yet seen; written like {@link #unreadNotifications} */
+    @Column(name = "unseen_notifications", updatable = false)
+    private Integer unseenNotifications;
+
 
 
     /** Manager reference (self-relationship) */
@@ -607,6 +623,30 @@ public class UserEntity implements Serializable {
         return onlineStatus;
     }
 
+    public Integer getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(Integer tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
+    public Integer getUnreadNotifications() {
+        return unreadNotifications;
+    }
+
+    public void setUnreadNotifications(Integer unreadNotifications) {
+        this.unreadNotifications = unreadNotifications;
+    }
+
+    public Integer getUnseenNotifications() {
+        return unseenNotifications;
+    }
+
+    public void setUnseenNotifications(Integer unseenNotifications) {
+        this.unseenNotifications = unseenNotifications;
+    }
+
     public void setOnlineStatus(Boolean onlineStatus) {
         this.onlineStatus = onlineStatus;
     }
@@ -0,0 +1,18 @@
+package pt.uc.dei.enums;
+
+/**
+ * Enum representing what a batch of queued emails was sent for.
+ * <ul>
+ *   <li>CYCLE_OPEN: A new appraisal cycle, sent to managers and administrators.</li>
+ *   <li>CYCLE_CLOSE: A closed appraisal cycle, sent to managers and administrators.</li>
+ *   <li>MESSAGE_NOTIFICATION: Chat messages left unread for a day.</li>
+ * </ul>
+ */
+public enum EmailJobType {
+    /** A new appraisal cycle, sent to managers and administrators. */
+    CYCLE_OPEN,
+    /** A closed appraisal cycle, sent to managers and administrators. */
+    CYCLE_CLOSE,
+    /** Chat messages left unread for a day. */
+    MESSAGE_NOTIFICATION;
+}
@@ -0,0 +1,33 @@
+package pt.uc.dei.enums;
+
+/**
+ * Enum representing the kinds of email the application sends.
+ * <ul>
+ *   <li>ACCOUNT_ACTIVATION: Activation link and two-factor secret for a new account.</li>
+ *   <li>PASSWORD_RESET: Password reset link.</li>
+ *   <li>CYCLE_OPEN: A new appraisal cycle started.</li>
+ *   <li>CYCLE_CLOSE: An appraisal cycle ended.</li>
+ *   <li>PROFILE_UPDATE: A managed user's profile was updated.</li>
+ *   <li>COURSE_ASSIGNMENT: A course was assigned to the user.</li>
+ *   <li>CHAT_REQUEST: Another user is trying to chat with the user.</li>
+ *   <li>MESSAGE_DIGEST: Unread messages from several users, in one email.</li>
+ * </ul>
+ */
+public enum EmailTemplateType {
+    /** Activation link and two-factor secret for a new account. */
+    ACCOUNT_ACTIVATION,
+    /** Password reset link. */
+    PASSWORD_RESET,
+    /** A new appraisal cycle started. */
+    CYCLE_OPEN,
+    /** An appraisal cycle ended. */
+    CYCLE_CLOSE,
+    /** A managed user's profile was updated. */
+    PROFILE_UPDATE,
+    /** A course was assigned to the user. */
+    COURSE_ASSIGNMENT,
+    /** Another user is trying to chat with the user. */
+    CHAT_REQUEST,
+    /** Unread messages from several users, in one email. */
+    MESSAGE_DIGEST;
+}
@@ -0,0 +1,21 @@
+package pt.uc.dei.enums;
+
+/**
+ * Enum representing the WebSocket delivery state of a notification.
+ * <ul>
+ *   <li>PENDING: Written with the business transaction, waiting for the dispatcher.</li>
+ *   <li>DELIVERED: Accepted by at least one session of the recipient.</li>
+ *   <li>OFFLINE: The recipient had no open session; it is read from the database on the next load.</li>
+ *   <li>FAILED: Every delivery attempt failed.</li>
+ * </ul>
+ */
+public enum NotificationDeliveryState {
+    /** Written with the business transaction, waiting for the dispatcher. */
+    PENDING,
+    /** Accepted by at least one session of the recipient. */
+    DELIVERED,
+    /** The recipient had no open session. */
+    OFFLINE,
+    /** Every delivery attempt failed. */
+    FAILED;
+}
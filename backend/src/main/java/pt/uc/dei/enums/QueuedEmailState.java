@@ -0,0 +1,18 @@
+package pt.uc.dei.enums;
+
+/**
+ * Enum representing the state of an email in the email queue.
+ * <ul>
+ *   <li>PENDING: Waiting to be sent, or to be retried after a failed attempt.</li>
+ *   <li>SENT: Accepted by the SMTP server.</li>
+ *   <li>FAILED: Every attempt failed; it will not be retried.</li>
+ * </ul>
+ */
+public enum QueuedEmailState {
+    /** Waiting to be sent, or to be retried after a failed attempt. */
+    PENDING,
+    /** Accepted by the SMTP server. */
+    SENT,
+    /** Every attempt failed. */
+    FAILED;
+}
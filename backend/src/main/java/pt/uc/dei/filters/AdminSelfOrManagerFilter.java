@@ -1,6 +1,7 @@
 package pt.uc.dei.filters;
 
 import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.Priorities;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.container.ContainerRequestFilter;
@@ -9,12 +10,13 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.Provider;
 import pt.uc.dei.dtos.UserResponseDTO;
+import pt.uc.dei.services.OrgChartIndex;
 import pt.uc.dei.utils.ApiResponse;
 import pt.uc.dei.annotations.AdminSelfOrManager;
 
 /**
- * JAX-RS filter that allows access only to the user themselves or an admin.
- * Checks the path parameter 'id' against the authenticated user's ID and admin status.
+ * JAX-RS filter that allows access only to the user themselves, an admin, or the user's direct manager.
+ * Checks the path parameter 'id' against the authenticated user's ID, admin status and the {@link OrgChartIndex}.
  */
 @AdminSelfOrManager
 @Provider
@@ -24,8 +26,12 @@ public class AdminSelfOrManagerFilter implements ContainerRequestFilter {
     @Context
     private ResourceInfo resourceInfo;
 
+    @Inject
+    private OrgChartIndex orgChartIndex;
+
     /**
-     * Filters requests to ensure only the user themselves or an admin can access the resource.
+     * Filters requests to ensure only the user themselves, an admin or the direct manager of the user can
+     * access the resource. Managers higher up the chain are not admitted, as in {@link ManagerOfUserFilter}.
      *
      * @param requestContext the request context
      */
@@ -39,7 +45,8 @@ public class AdminSelfOrManagerFilter implements ContainerRequestFilter {
 
         if (idParam != null && user != null) {
             Long pathId = Long.parseLong(idParam);
-            if (!user.getId().equals(pathId) && !Boolean.TRUE.equals(isAdmin)) {
+            if (!user.getId().equals(pathId) && !Boolean.TRUE.equals(isAdmin)
+                    && !orgChartIndex.isDirectManager(user.getId(), pathId)) {
                 requestContext.abortWith(Response.status(Response.Status.FORBIDDEN)
                         .entity(new ApiResponse(false, "Access denied", "errorAccessDenied", null))
                         .build());
@@ -13,11 +13,15 @@ import jakarta.ws.rs.ext.Provider;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pt.uc.dei.annotations.AllowAnonymous;
+import pt.uc.dei.config.EnvironmentConfig;
 import pt.uc.dei.dtos.ConfigurationDTO;
 import pt.uc.dei.dtos.UserResponseDTO;
+import pt.uc.dei.enums.AccountState;
 import pt.uc.dei.repositories.AppraisalRepository;
 import pt.uc.dei.services.AuthenticationService;
 import pt.uc.dei.services.ConfigurationService;
+import pt.uc.dei.services.PrincipalCache;
+import pt.uc.dei.services.TokenVersionRegistry;
 import pt.uc.dei.services.UserService;
 import pt.uc.dei.utils.ApiResponse;
 import pt.uc.dei.utils.JWTUtil;
@@ -27,6 +31,12 @@ import java.util.Date;
 /**
  * JAX-RS authentication filter for validating JWT tokens and user authentication.
  * Skips authentication for endpoints annotated with @AllowAnonymous.
+ * The authenticated user is resolved through {@link PrincipalCache} rather than loaded on every request.
+ * <p>
+ * With {@code AUTH_CLAIMS_ONLY=true} the principal is built from the verified token claims alone
+ * ({@code sub}, {@code userIsAdmin}, {@code userIsManager}, {@code accountState}) and no user lookup is made.
+ * In both modes the token's {@code tokenVersion} is checked against {@link TokenVersionRegistry}: a stale token
+ * of an active user is answered from the database and reissued, a stale token of a deleted user is rejected.
  */
 @Provider
 @Priority(Priorities.AUTHENTICATION)
@@ -43,6 +53,14 @@ public class AuthenticationFilter implements ContainerRequestFilter {
     @Inject
     private ConfigurationService configurationService;
 
+    @Inject
+    private PrincipalCache principalCache;
+
+    @Inject
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    private boolean claimsOnly = EnvironmentConfig.getBoolean("AUTH_CLAIMS_ONLY", false);
+
     @Context
     private ResourceInfo resourceInfo;
 
@@ -75,9 +93,19 @@ public class AuthenticationFilter implements ContainerRequestFilter {
             }
 
             Long id = Long.parseLong(claims.getSubject());
-            UserResponseDTO user = authenticationService.getSelfInformation(id);
-            if (user == null) {
-                abort(requestContext, Response.Status.UNAUTHORIZED, "User not found");
+            boolean tokenIsCurrent = tokenVersionRegistry.isCurrent(id, claims.get("tokenVersion", Integer.class));
+            UserResponseDTO user;
+            if (claimsOnly && tokenIsCurrent) {
+                user = principalFromClaims(id, claims);
+            } else {
+                user = principalCache.get(id, authenticationService::getSelfInformation);
+                if (user == null) {
+                    abort(requestContext, Response.Status.UNAUTHORIZED, "User not found");
+                    return;
+                }
+            }
+            if (!tokenIsCurrent && Boolean.TRUE.equals(user.getUserIsDeleted())) {
+                abort(requestContext, Response.Status.UNAUTHORIZED, "Token revoked");
                 return;
             }
 
@@ -86,9 +114,9 @@ public class AuthenticationFilter implements ContainerRequestFilter {
             requestContext.setProperty("userIsAdmin", user.getUserIsAdmin());
             requestContext.setProperty("userIsManager", user.getUserIsManager());
 
-            // ⏳ Check if the token is about to expire (e.g., less than 5 minutes left)
+            // ⏳ Check if the token is about to expire (e.g., less than 5 minutes left) or carries outdated roles
             long timeLeft = claims.getExpiration().getTime() - System.currentTimeMillis();
-            if (timeLeft < 5 * 60 * 1000) {
+            if (timeLeft < 5 * 60 * 1000 || !tokenIsCurrent) {
                 ConfigurationDTO configuration = configurationService.getLatestConfiguration();
                 String newToken = jwtUtil.generateToken(user);
                 NewCookie newCookie = new NewCookie("jwt", newToken, "/", null, null, (configuration.getLoginTime() * 60), true); // 1 hour
@@ -102,6 +130,25 @@ public class AuthenticationFilter implements ContainerRequestFilter {
         }
     }
 
+    /**
+     * Builds the request principal from verified claims, for the claims-only mode.
+     */
+    private UserResponseDTO principalFromClaims(Long id, Claims claims) {
+        UserResponseDTO user = new UserResponseDTO();
+        user.setId(id);
+        user.setUserIsAdmin(Boolean.TRUE.equals(claims.get("userIsAdmin", Boolean.class)));
+        user.setUserIsManager(Boolean.TRUE.equals(claims.get("userIsManager", Boolean.class)));
+        Object accountState = claims.get("accountState");
+        if (accountState != null) {
+            try {
+                user.setAccountState(AccountState.valueOf(accountState.toString()));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Unknown accountState claim '{}' for user {}", accountState, id);
+            }
+        }
+        return user;
+    }
+
     private void abort(ContainerRequestContext context, Response.Status status, String message) {
         context.abortWith(Response.status(status)
                 .entity(new ApiResponse(false, message, "authError", null))
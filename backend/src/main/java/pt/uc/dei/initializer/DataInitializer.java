@@ -4,7 +4,13 @@ import jakarta.annotation.PostConstruct;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Singleton;
 import jakarta.ejb.Startup;
+import jakarta.inject.Inject;
+import pt.uc.dei.repositories.UserRepository;
 import pt.uc.dei.services.AvatarFileService;
+import pt.uc.dei.services.ConfigurationSnapshotHolder;
+import pt.uc.dei.services.OrgChartIndex;
+import pt.uc.dei.services.PresenceService;
+import pt.uc.dei.services.TokenVersionRegistry;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -19,7 +25,9 @@ import java.nio.file.Path;
  * Executes in sequence:
  * <ol>
  *   <li>Admin user creation</li>
- *   <li>System configuration setup</li>
+ *   <li>System configuration setup and in-memory snapshot load</li>
+ *   <li>Token revocation table load</li>
+ *   <li>Org chart index load</li>
  * </ol>
  *
  * Annotated with <b>@Singleton</b> and <b>@Startup</b> to ensure immediate execution on deployment.
@@ -34,6 +42,16 @@ public class DataInitializer {
     private ConfigurationInitializer configurationInitializer;
     @EJB
     private NotificationCheck notificationCheck;
+    @EJB
+    private UserRepository userRepository;
+    @Inject
+    private TokenVersionRegistry tokenVersionRegistry;
+    @Inject
+    private ConfigurationSnapshotHolder configurationSnapshotHolder;
+    @Inject
+    private OrgChartIndex orgChartIndex;
+    @EJB
+    private PresenceService presenceService;
 
     /**
      * Triggers initialization chain during application startup.
@@ -49,6 +67,10 @@ public class DataInitializer {
         }
         userInitializer.initializeAdminUser();
         configurationInitializer.initializeConfiguration();
+        configurationSnapshotHolder.reload();
+        tokenVersionRegistry.load(userRepository.findRevokedTokenVersions());
+        orgChartIndex.load(userRepository.findManagerLinks());
+        presenceService.resetOnlineStatus();
         notificationCheck.checkAndSendUnemailedNotifications();
     }
 }
\ No newline at end of file
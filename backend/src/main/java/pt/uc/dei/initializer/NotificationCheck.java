@@ -2,30 +2,22 @@ package pt.uc.dei.initializer;
 
 import jakarta.ejb.EJB;
 import jakarta.ejb.Singleton;
-import pt.uc.dei.entities.NotificationEntity;
-import pt.uc.dei.repositories.NotificationRepository;
-import pt.uc.dei.services.EmailService;
-import java.util.List;
+import pt.uc.dei.services.MessageDigestJob;
 
 /**
- * Checks for unsent notifications and triggers email sending at startup.
+ * Checks for unsent notifications at startup.
  * Annotated with @Singleton to ensure single initialization.
  */
 @Singleton
 public class NotificationCheck {
     @EJB
-    private NotificationRepository notificationRepository;
-
-    @EJB
-    private EmailService emailService;
+    private MessageDigestJob messageDigestJob;
 
     /**
-     * Checks for unsent notifications and triggers email sending.
+     * Runs the message digest once, so notifications left unemailed while the server was down are not kept
+     * waiting for the first scheduled run. The run is bounded like a scheduled one.
      */
     public void checkAndSendUnemailedNotifications() {
-        List<NotificationEntity> unsentNotifications = notificationRepository.getUnemailedMessageNotifications();
-        if (unsentNotifications != null && !unsentNotifications.isEmpty()) {
-            emailService.sendMessageNotificationEmailsAsync(unsentNotifications);
-        }
+        messageDigestJob.run();
     }
 }
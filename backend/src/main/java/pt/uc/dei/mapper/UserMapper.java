@@ -59,11 +59,17 @@ public interface UserMapper {
     @Mapping(target = "completedCourses", ignore = true)
     @Mapping(target = "userIsDeleted", ignore = true) // <-- updated this line
     @Mapping(target = "password", ignore = true)
+    @Mapping(target = "tokenVersion", ignore = true)
+    @Mapping(target = "unreadNotifications", ignore = true)
+    @Mapping(target = "unseenNotifications", ignore = true)
     UserEntity toEntity(UserDTO userDTO);
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "creationDate", ignore = true)
+    @Mapping(target = "tokenVersion", ignore = true)
+    @Mapping(target = "unreadNotifications", ignore = true)
+    @Mapping(target = "unseenNotifications", ignore = true)
     void updateUserFromDto(UserDTO dto, @MappingTarget UserEntity entity);
 
     @Named("toFullDto")
@@ -101,5 +107,8 @@ public interface UserMapper {
 
     @Named("toManagerEntity")
     @Mapping(source = "id", target = "id")
+    @Mapping(target = "tokenVersion", ignore = true)
+    @Mapping(target = "unreadNotifications", ignore = true)
+    @Mapping(target = "unseenNotifications", ignore = true)
     UserEntity toManagerEntity(ManagerDTO dto);
 }
\ No newline at end of file
@@ -453,6 +453,20 @@ public class AppraisalRepository extends AbstractRepository<AppraisalEntity> {
         return query.getResultList();
     }
 
+    /**
+     * Retrieves only the id of the appraised user of an appraisal, without loading the entity.
+     *
+     * @param appraisalId The appraisal ID
+     * @return The appraised user's ID, or null if the appraisal does not exist
+     */
+    public Long findAppraisedUserId(Long appraisalId) {
+        List<Long> ids = em.createQuery(
+                        "SELECT a.appraisedUser.id FROM AppraisalEntity a WHERE a.id = :id", Long.class)
+                .setParameter("id", appraisalId)
+                .getResultList();
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
     /**
      * Finds all COMPLETED appraisals in an OPEN cycle.
      *
@@ -46,7 +46,7 @@ public class ConfigurationRepository extends AbstractRepository<ConfigurationEnt
             ConfigurationEntity currentConfiguration = (ConfigurationEntity) em.createNamedQuery("Configuration.getLatestConfiguration")
                     .setMaxResults(1)
                     .getSingleResult();
-            LOGGER.info("Current configuration: " + currentConfiguration);
+            LOGGER.debug("Current configuration: {}", currentConfiguration);
             return currentConfiguration;
         } catch (NoResultException e) {
             LOGGER.warn("No configuration found.");
@@ -0,0 +1,126 @@
+package pt.uc.dei.repositories;
+
+import jakarta.ejb.Stateless;
+import jakarta.persistence.LockModeType;
+import pt.uc.dei.entities.EmailJobEntity;
+import pt.uc.dei.entities.QueuedEmailEntity;
+import pt.uc.dei.enums.QueuedEmailState;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the email queue: the queued emails and the jobs they belong to.
+ */
+@Stateless
+public class EmailQueueRepository extends AbstractRepository<QueuedEmailEntity> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Lock timeout hint value that makes Hibernate skip rows locked by other transactions.
+     */
+    private static final int SKIP_LOCKED = -2;
+
+    public EmailQueueRepository() {
+        super(QueuedEmailEntity.class);
+    }
+
+    /**
+     * Persists a new job.
+     *
+     * @param job The job to persist
+     */
+    public void persistJob(EmailJobEntity job) {
+        em.persist(job);
+    }
+
+    /**
+     * Fetches a job by its ID.
+     *
+     * @param jobId The job ID
+     * @return The job, or null if there is none
+     */
+    public EmailJobEntity findJob(Long jobId) {
+        return em.find(EmailJobEntity.class, jobId);
+    }
+
+    /**
+     * Fetches the most recently created jobs.
+     *
+     * @param limit Maximum number of jobs to return
+     * @return The jobs, newest first
+     */
+    public List<EmailJobEntity> findRecentJobs(int limit) {
+        return em.createQuery("SELECT j FROM EmailJobEntity j ORDER BY j.id DESC", EmailJobEntity.class)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Locks the oldest pending emails whose next attempt is due. Rows already locked by another sender, on this
+     * node or another, are skipped, so each email is sent by one sender only. The locks are held until the
+     * calling transaction ends.
+     *
+     * @param now   The current time, compared with the next attempt
+     * @param limit Maximum number of emails to claim
+     * @return The claimed emails, oldest first
+     */
+    public List<QueuedEmailEntity> claimDueEmails(LocalDateTime now, int limit) {
+        return em.createQuery(
+                        "SELECT q FROM QueuedEmailEntity q " +
+                        "WHERE q.state = :pending AND q.nextAttempt <= :now " +
+                        "ORDER BY q.id", QueuedEmailEntity.class)
+                .setParameter("pending", QueuedEmailState.PENDING)
+                .setParameter("now", now)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("jakarta.persistence.lock.timeout", SKIP_LOCKED)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * @return The number of emails still waiting to be sent, due or not
+     */
+    public long countPendingEmails() {
+        return em.createQuery("SELECT COUNT(q) FROM QueuedEmailEntity q WHERE q.state = :pending", Long.class)
+                .setParameter("pending", QueuedEmailState.PENDING)
+                .getSingleResult();
+    }
+
+    /**
+     * Adds sent and failed emails to a job's totals.
+     *
+     * @param jobId  The job ID
+     * @param sent   Emails of the job sent since the last update
+     * @param failed Emails of the job given up on since the last update
+     */
+    public void addJobProgress(Long jobId, int sent, int failed) {
+        em.createQuery(
+                        "UPDATE EmailJobEntity j SET j.sentEmails = j.sentEmails + :sent, " +
+                        "j.failedEmails = j.failedEmails + :failed WHERE j.id = :jobId")
+                .setParameter("sent", sent)
+                .setParameter("failed", failed)
+                .setParameter("jobId", jobId)
+                .executeUpdate();
+    }
+
+    /**
+     * Marks the given jobs complete if every one of their emails has been sent or has failed.
+     *
+     * @param jobIds      The jobs to check
+     * @param completedAt The completion time to record
+     * @return The number of jobs completed
+     */
+    public int completeFinishedJobs(Collection<Long> jobIds, LocalDateTime completedAt) {
+        if (jobIds.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery(
+                        "UPDATE EmailJobEntity j SET j.completedAt = :completedAt " +
+                        "WHERE j.id IN :jobIds AND j.completedAt IS NULL " +
+                        "AND j.sentEmails + j.failedEmails >= j.totalEmails")
+                .setParameter("completedAt", completedAt)
+                .setParameter("jobIds", jobIds)
+                .executeUpdate();
+    }
+}
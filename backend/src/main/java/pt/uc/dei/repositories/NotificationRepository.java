@@ -2,11 +2,17 @@
 package pt.uc.dei.repositories;
 
 import jakarta.ejb.Stateless;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.TypedQuery;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pt.uc.dei.entities.NotificationEntity;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import pt.uc.dei.enums.NotificationDeliveryState;
 import pt.uc.dei.enums.NotificationType;
 
 @Stateless
@@ -28,6 +34,16 @@ public class NotificationRepository extends AbstractRepository<NotificationEntit
     private static final Logger LOGGER = LogManager.getLogger(NotificationRepository.class);
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Maximum number of recipient ids bound in a single broadcast insert.
+     */
+    private static final int BROADCAST_BATCH_SIZE = 500;
+
+    /**
+     * Lock timeout hint value that makes Hibernate skip rows locked by other transactions.
+     */
+    private static final int SKIP_LOCKED = -2;
+
     public NotificationRepository() {
         super(NotificationEntity.class);
     }
@@ -73,21 +89,32 @@ public class NotificationRepository extends AbstractRepository<NotificationEntit
     }
 
     /**
-     * Gets the total number of notifications for a user.
+     * Returns the newest unread and unseen notification of a type from one sender to one recipient created
+     * since the given date, locked so concurrent writers fold into it one after another.
      *
-     * @param userId The ID of the user
-     * @return The total number of notifications, or 0 if an error occurs
+     * @param recipientId The ID of the recipient user
+     * @param type        The notification type
+     * @param senderId    The ID of the sender user
+     * @param since       Oldest creation date that qualifies
+     * @return The NotificationEntity if found, or null otherwise
      */
-    public int getTotalNotifications(Long userId) {
-        try {
-            Long totalNotifications = em.createNamedQuery("NotificationEntity.getTotalNotifications", Long.class)
-                    .setParameter("id", userId)
-                    .getSingleResult();
-            return totalNotifications.intValue();
-        } catch (Exception e) {
-            LOGGER.error("Error fetching notifications: ", e);
-            return 0;
-        }
+    public NotificationEntity findCoalescibleNotification(Long recipientId, NotificationType type, Long senderId,
+                                                          LocalDateTime since) {
+        return em.createQuery(
+                        "SELECT n FROM NotificationEntity n " +
+                        "WHERE n.user.id = :recipientId AND n.type = :type AND n.sender.id = :senderId " +
+                        "AND n.notificationIsRead = false AND n.notificationIsSeen = false " +
+                        "AND n.creationDate >= :since " +
+                        "ORDER BY n.creationDate DESC, n.id DESC", NotificationEntity.class)
+                .setParameter("recipientId", recipientId)
+                .setParameter("type", type)
+                .setParameter("senderId", senderId)
+                .setParameter("since", since)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(1)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
     }
 
     /**
@@ -138,18 +165,7 @@ public class NotificationRepository extends AbstractRepository<NotificationEntit
      */
     public boolean markMessageNotificationsAsRead(Long userId) {
         try {
-            int updatedCount = em.createQuery(
-                "UPDATE NotificationEntity n " +
-                "SET n.notificationIsRead = true " +
-                "WHERE n.user.id = :userId " +
-                "AND n.type = :messageType " +
-                "AND n.notificationIsRead = false"
-            )
-            .setParameter("userId", userId)
-            .setParameter("messageType", NotificationType.MESSAGE)
-            .executeUpdate();
-            
-            LOGGER.info("Marked {} MESSAGE notifications as read for user {}", updatedCount, userId);
+            markUnreadMessageNotificationsAsRead(userId);
             return true;
         } catch (Exception e) {
             LOGGER.error("Error marking MESSAGE notifications as read for user {}", userId, e);
@@ -158,30 +174,388 @@ public class NotificationRepository extends AbstractRepository<NotificationEntit
     }
 
     /**
-     * Fetches all MESSAGE notifications that are unread, unseen, and unemailed, and were created at least 24 hours ago.
-     * Includes recipient and sender entities in the result.
+     * Marks all unread MESSAGE notifications of a user as read.
+     *
+     * @param userId The ID of the user
+     * @return Number of notifications marked as read
+     */
+    public int markUnreadMessageNotificationsAsRead(Long userId) {
+        int updatedCount = em.createQuery(
+            "UPDATE NotificationEntity n " +
+            "SET n.notificationIsRead = true " +
+            "WHERE n.user.id = :userId " +
+            "AND n.type = :messageType " +
+            "AND n.notificationIsRead = false"
+        )
+        .setParameter("userId", userId)
+        .setParameter("messageType", NotificationType.MESSAGE)
+        .executeUpdate();
+
+        LOGGER.info("Marked {} MESSAGE notifications as read for user {}", updatedCount, userId);
+        return updatedCount;
+    }
+
+    /**
+     * Finds the next recipients, in ID order after {@code afterUserId}, with MESSAGE notifications that are
+     * unread, unseen, not yet emailed and created at or before {@code cutoff}.
+     *
+     * @param cutoff      Notifications created at or before this date qualify
+     * @param afterUserId The last recipient handled by the previous batch, or 0 to start from the beginning
+     * @param limit       Maximum number of recipients to return
+     * @return The recipient IDs, ascending
+     */
+    public List<Long> findDigestRecipients(LocalDateTime cutoff, long afterUserId, int limit) {
+        return em.createQuery(
+                        "SELECT DISTINCT n.user.id FROM NotificationEntity n " +
+                        "WHERE n.user.id > :afterUserId AND n.type = :type " +
+                        "AND n.notificationIsRead = false AND n.notificationIsSeen = false " +
+                        "AND n.emailSent = false AND n.creationDate <= :cutoff " +
+                        "ORDER BY n.user.id", Long.class)
+                .setParameter("afterUserId", afterUserId)
+                .setParameter("type", NotificationType.MESSAGE)
+                .setParameter("cutoff", cutoff)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Locks the MESSAGE notifications of the given recipients that still need an email, as selected by
+     * {@link #findDigestRecipients}. Rows locked by another node's sweep are skipped, so each notification is
+     * emailed once.
+     *
+     * @param recipientIds The recipient IDs
+     * @param cutoff       Notifications created at or before this date qualify
+     * @return The IDs of the locked notifications, ascending
+     */
+    public List<Long> lockDigestNotifications(Collection<Long> recipientIds, LocalDateTime cutoff) {
+        if (recipientIds == null || recipientIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return em.createQuery(
+                        "SELECT n.id FROM NotificationEntity n " +
+                        "WHERE n.user.id IN :recipientIds AND n.type = :type " +
+                        "AND n.notificationIsRead = false AND n.notificationIsSeen = false " +
+                        "AND n.emailSent = false AND n.creationDate <= :cutoff " +
+                        "ORDER BY n.id", Long.class)
+                .setParameter("recipientIds", recipientIds)
+                .setParameter("type", NotificationType.MESSAGE)
+                .setParameter("cutoff", cutoff)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("jakarta.persistence.lock.timeout", SKIP_LOCKED)
+                .getResultList();
+    }
+
+    /**
+     * Fetches notifications with their recipient and sender, grouped by recipient.
+     *
+     * @param notificationIds The notification IDs
+     * @return The notifications, ordered by recipient and then ID
+     */
+    public List<NotificationEntity> findWithUsers(Collection<Long> notificationIds) {
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return em.createQuery(
+                        "SELECT n FROM NotificationEntity n JOIN FETCH n.user JOIN FETCH n.sender " +
+                        "WHERE n.id IN :ids ORDER BY n.user.id, n.id", NotificationEntity.class)
+                .setParameter("ids", notificationIds)
+                .getResultList();
+    }
+
+    /**
+     * Marks notifications as emailed with one bulk update.
+     *
+     * @param notificationIds The notification IDs
+     * @return Number of notifications updated
+     */
+    public int markEmailSent(Collection<Long> notificationIds) {
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery("UPDATE NotificationEntity n SET n.emailSent = true WHERE n.id IN :ids")
+                .setParameter("ids", notificationIds)
+                .executeUpdate();
+    }
+
+    /**
+     * Keyset query for the notifications created after a given one, oldest first.
+     * Served by the {@code (user_id, id)} index, so the cost depends on the rows returned, not on the
+     * user's history.
+     *
+     * @param userId  The ID of the user
+     * @param afterId Only notifications with a greater ID are returned
+     * @param limit   Maximum number of notifications to return
+     * @return The notifications, or empty if an error occurs
+     */
+    public List<NotificationEntity> getNotificationsAfter(Long userId, Long afterId, int limit) {
+        try {
+            return em.createQuery(
+                            "SELECT n FROM NotificationEntity n " +
+                            "WHERE n.user.id = :userId AND n.id > :afterId " +
+                            "ORDER BY n.id ASC", NotificationEntity.class)
+                    .setParameter("userId", userId)
+                    .setParameter("afterId", afterId)
+                    .setMaxResults(limit)
+                    .getResultList();
+        } catch (Exception e) {
+            LOGGER.error("Error fetching notifications after {} for user {}", afterId, userId, e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the most recent notifications of a user, newest first.
+     *
+     * @param userId The ID of the user
+     * @param limit  Maximum number of notifications to return
+     * @return The notifications, or empty if an error occurs
+     */
+    public List<NotificationEntity> getLatestNotifications(Long userId, int limit) {
+        try {
+            return em.createQuery(
+                            "SELECT n FROM NotificationEntity n " +
+                            "WHERE n.user.id = :userId " +
+                            "ORDER BY n.id DESC", NotificationEntity.class)
+                    .setParameter("userId", userId)
+                    .setMaxResults(limit)
+                    .getResultList();
+        } catch (Exception e) {
+            LOGGER.error("Error fetching latest notifications for user {}", userId, e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns one page of a user's notifications, newest first, starting after a position in the feed.
+     * The position is the {@code (creationDate, id)} of the last notification of the previous page, so the
+     * query seeks into {@code idx_notification_user_creation_date} instead of skipping rows, and its cost does
+     * not grow with the user's history.
      *
-     * @return List of NotificationEntity matching the criteria, or empty if none found
+     * @param userId     The ID of the user
+     * @param beforeDate Creation date of the last notification already returned, or null for the first page
+     * @param beforeId   ID of the last notification already returned, or null for the first page
+     * @param type       Optional filter by notification type
+     * @param unread     If true, only notifications not yet read
+     * @param unseen     If true, only notifications not yet seen
+     * @param limit      Maximum number of notifications to return
+     * @return The notifications, or empty if an error occurs
      */
-    public List<NotificationEntity> getUnemailedMessageNotifications() {
+    public List<NotificationEntity> getNotificationFeed(Long userId, LocalDateTime beforeDate, Long beforeId,
+                                                        NotificationType type, boolean unread, boolean unseen,
+                                                        int limit) {
+        try {
+            StringBuilder jpql = new StringBuilder("SELECT n FROM NotificationEntity n WHERE n.user.id = :userId");
+            if (beforeDate != null && beforeId != null) {
+                jpql.append(" AND (n.creationDate < :beforeDate OR (n.creationDate = :beforeDate AND n.id < :beforeId))");
+            }
+            if (type != null) {
+                jpql.append(" AND n.type = :type");
+            }
+            if (unread) {
+                jpql.append(" AND n.notificationIsRead = false");
+            }
+            if (unseen) {
+                jpql.append(" AND n.notificationIsSeen = false");
+            }
+            jpql.append(" ORDER BY n.creationDate DESC, n.id DESC");
+
+            TypedQuery<NotificationEntity> query = em.createQuery(jpql.toString(), NotificationEntity.class)
+                    .setParameter("userId", userId)
+                    .setMaxResults(limit);
+            if (beforeDate != null && beforeId != null) {
+                query.setParameter("beforeDate", beforeDate).setParameter("beforeId", beforeId);
+            }
+            if (type != null) {
+                query.setParameter("type", type);
+            }
+            return query.getResultList();
+        } catch (Exception e) {
+            LOGGER.error("Error fetching notification feed for user {}", userId, e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the unseen notifications of a user with the given types. Rows of the types that are updated in
+     * place (MESSAGE notifications and coalesced bursts) can change without getting a new ID.
+     *
+     * @param userId The ID of the user
+     * @param types  The notification types to return
+     * @return The notifications, oldest first, or empty if an error occurs
+     */
+    public List<NotificationEntity> getUnseenNotifications(Long userId, Collection<NotificationType> types) {
+        if (types == null || types.isEmpty()) {
+            return Collections.emptyList();
+        }
         try {
             return em.createQuery(
-                "SELECT n FROM NotificationEntity n " +
-                "JOIN FETCH n.user " +
-                "JOIN FETCH n.sender " +
-                "WHERE n.type = :type " +
-                "AND n.notificationIsRead = false " +
-                "AND n.notificationIsSeen = false " +
-                "AND n.emailSent = false " +
-                "AND n.creationDate <= :dateLimit",
-                NotificationEntity.class
-            )
-            .setParameter("type", NotificationType.MESSAGE)
-            .setParameter("dateLimit", java.time.LocalDateTime.now().minusHours(24))
-            .getResultList();
+                            "SELECT n FROM NotificationEntity n " +
+                            "WHERE n.user.id = :userId AND n.type IN :types AND n.notificationIsSeen = false " +
+                            "ORDER BY n.id ASC", NotificationEntity.class)
+                    .setParameter("userId", userId)
+                    .setParameter("types", types)
+                    .getResultList();
         } catch (Exception e) {
-            LOGGER.error("Error fetching old unread, unseen, unemailed MESSAGE notifications", e);
+            LOGGER.error("Error fetching unseen {} notifications for user {}", types, userId, e);
             return Collections.emptyList();
         }
     }
+
+    /**
+     * Creates the same notification for many recipients with set-based inserts, one statement per
+     * {@value #BROADCAST_BATCH_SIZE} recipients, instead of loading and persisting an entity per recipient.
+     * Ids that do not match a user are skipped.
+     *
+     * @param type         The notification type
+     * @param content      The notification content
+     * @param senderId     The ID of the sending user
+     * @param recipientIds The IDs of the recipients
+     * @param creationDate The creation date shared by every row, used to find them again
+     * @return The number of notifications created
+     */
+    public int insertBroadcast(NotificationType type, String content, Long senderId,
+                               Collection<Long> recipientIds, LocalDateTime creationDate) {
+        if (recipientIds == null || recipientIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(recipientIds);
+        int inserted = 0;
+        for (int from = 0; from < ids.size(); from += BROADCAST_BATCH_SIZE) {
+            inserted += em.createQuery(
+                            "INSERT INTO NotificationEntity (type, content, creationDate, notificationIsRead, " +
+                            "notificationIsSeen, messageCount, emailSent, deliveryState, deliveryAttempts, user, sender) " +
+                            "SELECT :type, :content, :creationDate, false, false, 0, false, :pending, 0, u, s " +
+                            "FROM UserEntity u, UserEntity s " +
+                            "WHERE u.id IN :recipientIds AND s.id = :senderId")
+                    .setParameter("type", type)
+                    .setParameter("content", content)
+                    .setParameter("creationDate", creationDate)
+                    .setParameter("pending", NotificationDeliveryState.PENDING)
+                    .setParameter("senderId", senderId)
+                    .setParameter("recipientIds", ids.subList(from, Math.min(ids.size(), from + BROADCAST_BATCH_SIZE)))
+                    .executeUpdate();
+        }
+        return inserted;
+    }
+
+    /**
+     * Locks the oldest notifications waiting for WebSocket delivery whose retry time has come.
+     * Rows already locked by another dispatcher, on this node or another, are skipped, so each notification
+     * is pushed by one dispatcher only. The locks are held until the calling transaction ends.
+     *
+     * @param now   The current time, compared with the next delivery attempt
+     * @param limit Maximum number of notifications to claim
+     * @return The claimed notifications, oldest first
+     */
+    public List<NotificationEntity> claimPendingDeliveries(LocalDateTime now, int limit) {
+        return em.createQuery(
+                        "SELECT n FROM NotificationEntity n " +
+                        "WHERE n.deliveryState = :pending " +
+                        "AND (n.nextDeliveryAttempt IS NULL OR n.nextDeliveryAttempt <= :now) " +
+                        "ORDER BY n.id", NotificationEntity.class)
+                .setParameter("pending", NotificationDeliveryState.PENDING)
+                .setParameter("now", now)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("jakarta.persistence.lock.timeout", SKIP_LOCKED)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Records the outcome of a delivery for many notifications with bulk updates.
+     *
+     * @param notificationIds The notification IDs
+     * @param state           The new delivery state
+     * @return Number of notifications updated
+     */
+    public int updateDeliveryState(Collection<Long> notificationIds, NotificationDeliveryState state) {
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(notificationIds);
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += BROADCAST_BATCH_SIZE) {
+            updated += em.createQuery(
+                            "UPDATE NotificationEntity n SET n.deliveryState = :state, n.nextDeliveryAttempt = null " +
+                            "WHERE n.id IN :ids")
+                    .setParameter("state", state)
+                    .setParameter("ids", ids.subList(from, Math.min(ids.size(), from + BROADCAST_BATCH_SIZE)))
+                    .executeUpdate();
+        }
+        return updated;
+    }
+
+    /**
+     * Counts notifications still waiting for WebSocket delivery.
+     *
+     * @return Number of pending notifications
+     */
+    public long countPendingDeliveries() {
+        return em.createQuery(
+                        "SELECT COUNT(n) FROM NotificationEntity n WHERE n.deliveryState = :pending", Long.class)
+                .setParameter("pending", NotificationDeliveryState.PENDING)
+                .getSingleResult();
+    }
+
+    /**
+     * Locks the next notifications old enough to leave the table, in ID order after {@code afterId}.
+     * Only notifications that are read, seen and no longer waiting for delivery qualify, so removing them
+     * changes neither the user's counters nor the outbox. Rows locked by another node's run are skipped.
+     *
+     * @param cutoff  Notifications created before this date qualify
+     * @param afterId The last ID handled by the previous batch, or 0 to start from the beginning
+     * @param limit   Maximum number of notifications to return
+     * @return The IDs of the locked notifications, ascending
+     */
+    public List<Long> lockRetentionCandidates(LocalDateTime cutoff, long afterId, int limit) {
+        return em.createQuery(
+                        "SELECT n.id FROM NotificationEntity n " +
+                        "WHERE n.id > :afterId AND n.creationDate < :cutoff " +
+                        "AND n.notificationIsRead = true AND n.notificationIsSeen = true " +
+                        "AND (n.deliveryState IS NULL OR n.deliveryState <> :pending) " +
+                        "ORDER BY n.id", Long.class)
+                .setParameter("afterId", afterId)
+                .setParameter("cutoff", cutoff)
+                .setParameter("pending", NotificationDeliveryState.PENDING)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("jakarta.persistence.lock.timeout", SKIP_LOCKED)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Copies notifications into the archive table with a bulk insert, keeping their IDs.
+     *
+     * @param notificationIds The notification IDs
+     * @param archivedAt      The archive date recorded on every copy
+     * @return Number of notifications copied
+     */
+    public int archiveNotifications(List<Long> notificationIds, LocalDateTime archivedAt) {
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery(
+                        "INSERT INTO NotificationArchiveEntity (id, userId, senderId, type, content, creationDate, " +
+                        "messageCount, archivedAt) " +
+                        "SELECT n.id, n.user.id, n.sender.id, n.type, n.content, n.creationDate, n.messageCount, " +
+                        ":archivedAt FROM NotificationEntity n WHERE n.id IN :ids")
+                .setParameter("archivedAt", archivedAt)
+                .setParameter("ids", notificationIds)
+                .executeUpdate();
+    }
+
+    /**
+     * Deletes notifications with a bulk delete.
+     *
+     * @param notificationIds The notification IDs
+     * @return Number of notifications deleted
+     */
+    public int deleteNotifications(List<Long> notificationIds) {
+        if (notificationIds == null || notificationIds.isEmpty()) {
+            return 0;
+        }
+        return em.createQuery("DELETE FROM NotificationEntity n WHERE n.id IN :ids")
+                .setParameter("ids", notificationIds)
+                .executeUpdate();
+    }
 }
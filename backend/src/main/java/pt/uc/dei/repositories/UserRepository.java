@@ -11,8 +11,12 @@ import pt.uc.dei.enums.*;
 import pt.uc.dei.enums.OrderBy;
 import pt.uc.dei.utils.SearchUtils;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Repository class for managing {@link UserEntity} persistence operations.
@@ -37,6 +41,16 @@ public class UserRepository extends AbstractRepository<UserEntity> {
      */
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Maximum number of ids bound in a single presence update.
+     */
+    private static final int PRESENCE_BATCH_SIZE = 500;
+
+    /**
+     * Maximum number of user ids bound to one notification counter statement.
+     */
+    private static final int COUNTER_BATCH_SIZE = 500;
+
     /**
      * Constructs a new UserRepository instance.
      * Initializes the repository for {@link UserEntity} operations.
@@ -424,4 +438,175 @@ public class UserRepository extends AbstractRepository<UserEntity> {
             return new ArrayList<>();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the token version of every user whose tokens have been revoked at least once.
+     *
+     * @return map of user id to token version; empty on error
+     */
+    public Map<Long, Integer> findRevokedTokenVersions() {
+        Map<Long, Integer> versions = new HashMap<>();
+        try {
+            List<Object[]> rows = em.createQuery(
+                    "SELECT u.id, u.tokenVersion FROM UserEntity u WHERE u.tokenVersion > 0",
+                    Object[].class).getResultList();
+            for (Object[] row : rows) {
+                versions.put((Long) row[0], (Integer) row[1]);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error loading token versions: {}", e.getMessage());
+        }
+        return versions;
+    }
+
+    /**
+     * Retrieves every user-to-manager link, used to build the in-memory org chart.
+     *
+     * @return map of user id to direct manager id; empty on error
+     */
+    public Map<Long, Long> findManagerLinks() {
+        Map<Long, Long> links = new HashMap<>();
+        try {
+            List<Object[]> rows = em.createQuery(
+                    "SELECT u.id, u.managerUser.id FROM UserEntity u WHERE u.managerUser IS NOT NULL",
+                    Object[].class).getResultList();
+            for (Object[] row : rows) {
+                links.put((Long) row[0], (Long) row[1]);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error loading manager links: {}", e.getMessage());
+        }
+        return links;
+    }
+
+    /**
+     * Sets the presence of many users in one bulk update, in chunks to keep the IN list bounded.
+     *
+     * @param userIds  the users to update
+     * @param online   the online flag to store
+     * @param lastSeen the last-seen timestamp to store
+     * @return number of rows updated
+     */
+    public int updatePresence(Collection<Long> userIds, boolean online, LocalDateTime lastSeen) {
+        if (userIds == null || userIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(userIds);
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += PRESENCE_BATCH_SIZE) {
+            updated += em.createQuery(
+                            "UPDATE UserEntity u SET u.onlineStatus = :online, u.lastSeen = :lastSeen WHERE u.id IN :ids")
+                    .setParameter("online", online)
+                    .setParameter("lastSeen", lastSeen)
+                    .setParameter("ids", ids.subList(from, Math.min(ids.size(), from + PRESENCE_BATCH_SIZE)))
+                    .executeUpdate();
+        }
+        return updated;
+    }
+
+    /**
+     * @return ids of the users currently flagged online
+     */
+    public List<Long> findOnlineUserIds() {
+        return em.createQuery("SELECT u.id FROM UserEntity u WHERE u.onlineStatus = true", Long.class)
+                .getResultList();
+    }
+
+    /**
+     * Marks users as offline without touching their {@code lastSeen}, in chunks to keep the IN list bounded.
+     *
+     * @param userIds the users to reset
+     * @return number of rows updated
+     */
+    public int resetOnlineStatus(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(userIds);
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += PRESENCE_BATCH_SIZE) {
+            updated += em.createQuery(
+                            "UPDATE UserEntity u SET u.onlineStatus = false WHERE u.onlineStatus = true AND u.id IN :ids")
+                    .setParameter("ids", ids.subList(from, Math.min(ids.size(), from + PRESENCE_BATCH_SIZE)))
+                    .executeUpdate();
+        }
+        return updated;
+    }
+
+    /**
+     * Applies a change to the notification counters of many users with atomic in-place updates, so concurrent
+     * changes for the same user never overwrite each other. Users whose counters were never counted are left
+     * alone; they are counted when first read. Counters never go below zero.
+     *
+     * @param userIds     the user ids
+     * @param unreadDelta change of the unread counter
+     * @param unseenDelta change of the unseen counter
+     * @return number of users updated
+     */
+    public int adjustNotificationCounters(Collection<Long> userIds, int unreadDelta, int unseenDelta) {
+        if (userIds == null || userIds.isEmpty() || (unreadDelta == 0 && unseenDelta == 0)) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(userIds);
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += COUNTER_BATCH_SIZE) {
+            updated += em.createQuery(
+                            "UPDATE UserEntity u SET " +
+                            "u.unreadNotifications = CASE WHEN u.unreadNotifications + :unread < 0 THEN 0 " +
+                            "ELSE u.unreadNotifications + :unread END, " +
+                            "u.unseenNotifications = CASE WHEN u.unseenNotifications + :unseen < 0 THEN 0 " +
+                            "ELSE u.unseenNotifications + :unseen END " +
+                            "WHERE u.id IN :ids AND u.unreadNotifications IS NOT NULL AND u.unseenNotifications IS NOT NULL")
+                    .setParameter("unread", unreadDelta)
+                    .setParameter("unseen", unseenDelta)
+                    .setParameter("ids", ids.subList(from, Math.min(ids.size(), from + COUNTER_BATCH_SIZE)))
+                    .executeUpdate();
+        }
+        return updated;
+    }
+
+    /**
+     * Counts the unread and unseen notifications of a user whose counters were never counted and stores them
+     * on the user. Does nothing once the counters exist.
+     *
+     * @param userId the user id
+     * @return {@code true} if the counters were counted now
+     */
+    public boolean initNotificationCounters(Long userId) {
+        return em.createQuery(
+                        "UPDATE UserEntity u SET " +
+                        "u.unreadNotifications = (SELECT COUNT(n) FROM NotificationEntity n " +
+                        "WHERE n.user.id = :userId AND n.notificationIsRead = false), " +
+                        "u.unseenNotifications = (SELECT COUNT(n) FROM NotificationEntity n " +
+                        "WHERE n.user.id = :userId AND n.notificationIsSeen = false) " +
+                        "WHERE u.id = :userId AND (u.unreadNotifications IS NULL OR u.unseenNotifications IS NULL)")
+                .setParameter("userId", userId)
+                .executeUpdate() > 0;
+    }
+
+    /**
+     * Reads the stored notification counters of many users.
+     *
+     * @param userIds the user ids
+     * @return map of user id to {@code {unread, unseen}}, without users whose counters were never counted
+     */
+    public Map<Long, int[]> findNotificationCounters(Collection<Long> userIds) {
+        Map<Long, int[]> counters = new HashMap<>();
+        if (userIds == null || userIds.isEmpty()) {
+            return counters;
+        }
+        List<Long> ids = new ArrayList<>(userIds);
+        for (int from = 0; from < ids.size(); from += COUNTER_BATCH_SIZE) {
+            List<Object[]> rows = em.createQuery(
+                            "SELECT u.id, u.unreadNotifications, u.unseenNotifications FROM UserEntity u " +
+                            "WHERE u.id IN :ids AND u.unreadNotifications IS NOT NULL AND u.unseenNotifications IS NOT NULL",
+                            Object[].class)
+                    .setParameter("ids", ids.subList(from, Math.min(ids.size(), from + COUNTER_BATCH_SIZE)))
+                    .getResultList();
+            for (Object[] row : rows) {
+                counters.put((Long) row[0], new int[]{(Integer) row[1], (Integer) row[2]});
+            }
+        }
+        return counters;
+    }
+}
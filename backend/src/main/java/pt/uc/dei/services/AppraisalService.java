@@ -70,6 +70,9 @@ public class AppraisalService implements Serializable {
     @Inject
     private AppraisalMapper appraisalMapper;
 
+    @Inject
+    private OrgChartIndex orgChartIndex;
+
     /**
      * Creates a new appraisal.
      *
@@ -695,6 +698,9 @@ public class AppraisalService implements Serializable {
 
     /**
      * Checks if the given manager is the appraising user for the specified appraisal.
+     * <p>
+     * Appraisals always follow the appraised user's current manager (see {@link UserService#updateUser}),
+     * so only the appraised user's id is fetched and the manager link is checked in the {@link OrgChartIndex}.
      *
      * @param appraisalId The appraisal ID
      * @param managerId   The manager's user ID
@@ -702,12 +708,12 @@ public class AppraisalService implements Serializable {
      */
     public boolean checkIfManagerOfUser(Long appraisalId, Long managerId) {
         try {
-            AppraisalEntity appraisal = appraisalRepository.find(appraisalId);
-            if (appraisal == null) {
+            Long appraisedUserId = appraisalRepository.findAppraisedUserId(appraisalId);
+            if (appraisedUserId == null) {
                 LOGGER.warn("Appraisal not found with ID: {}", appraisalId);
                 return false;
             }
-            return appraisal.getAppraisingUser().getId().equals(managerId);
+            return orgChartIndex.isDirectManager(managerId, appraisedUserId);
         } catch (Exception e) {
             LOGGER.error("Error checking manager of user for appraisal ID: {}", appraisalId, e);
             return false;
@@ -18,8 +18,8 @@ import pt.uc.dei.repositories.ActivationTokenRepository;
 import pt.uc.dei.repositories.PasswordResetTokenRepository;
 import pt.uc.dei.repositories.TemporaryUserRepository;
 import pt.uc.dei.repositories.UserRepository;
+import pt.uc.dei.services.PasswordHashingService.PasswordHashingUnavailableException;
 import pt.uc.dei.utils.JWTUtil;
-import pt.uc.dei.utils.PasswordUtils;
 import pt.uc.dei.utils.TwoFactorUtil;
 
 import java.io.Serializable;
@@ -50,6 +50,18 @@ public class AuthenticationService implements Serializable {
     @Inject
     UserMapper userMapper;
 
+    /**
+     * Runs BCrypt work on its own bounded pool instead of the request thread.
+     */
+    @Inject
+    PasswordHashingService passwordHashingService;
+
+    /**
+     * Tracks online state in memory and persists it in batches.
+     */
+    @EJB
+    PresenceService presenceService;
+
 
     /**
      * Injected repository for activation token persistence.
@@ -66,6 +78,7 @@ public class AuthenticationService implements Serializable {
      * <p>
      * - Retrieves the user from the database based on the provided email.
      * - Verifies the provided password against the stored hashed password using BCrypt.
+     * - Re-hashes the password if it was stored with a different BCrypt cost than the configured one.
      * - Converts the UserEntity into a UserDTO with basic data.
      * - Generates a JWT token upon successful authentication.
      * </p>
@@ -78,7 +91,12 @@ public class AuthenticationService implements Serializable {
         // Retrieve user entity from the database using their email
         UserEntity user = findUserByEmail(loginDTO.getEmail());
         if (user != null) {
-            if (PasswordUtils.verify(user.getPassword(), loginDTO.getPassword())) {
+            if (passwordHashingService.verify(user.getPassword(), loginDTO.getPassword())) {
+                String upgradedHash = passwordHashingService.rehashIfNeeded(user.getPassword(), loginDTO.getPassword());
+                if (upgradedHash != null) {
+                    user.setPassword(upgradedHash);
+                    userRepository.merge(user);
+                }
                 UserResponseDTO userResponseDTO = userMapper.toUserResponseDto(user);
                 // Generate a JWT token for authentication
                 String token = jwtUtil.generateToken(userResponseDTO);
@@ -141,7 +159,7 @@ public class AuthenticationService implements Serializable {
         UserEntity user = findUserByEmail(requester.getEmail());
         if (user != null) {
             // Verify if the provided password matches the stored hash
-            if (PasswordUtils.verify(user.getPassword(), requester.getPassword())) {
+            if (passwordHashingService.verify(user.getPassword(), requester.getPassword())) {
                 String authenticationCode = user.getSecretKey();
                 return authenticationCode;
             }
@@ -189,10 +207,12 @@ public class AuthenticationService implements Serializable {
         try {
             PasswordResetTokenEntity passwordResetToken = passwordResetTokenRepository.getTokenFromValue(passwordResetTokenDTO.getTokenValue());
             UserEntity user = userRepository.findUserById(passwordResetToken.getUser().getId());
-            user.setPassword(PasswordUtils.encrypt(newPassword));
+            user.setPassword(passwordHashingService.hash(newPassword));
             userRepository.persist(user);
             passwordResetTokenRepository.remove(passwordResetToken);
             return true;
+        } catch (PasswordHashingUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.info("Password setting for token {}", passwordResetTokenDTO.getTokenValue());
             return false;
@@ -204,25 +224,24 @@ public class AuthenticationService implements Serializable {
         return user;
     }
 
+    /**
+     * Records a login for presence tracking. The online flag itself follows the user's WebSocket sessions,
+     * and {@code lastSeen} is written by the next {@link PresenceService#flush()}.
+     *
+     * @param userId the user id
+     * @return {@code false} if no user id was given
+     */
     public boolean setUserOnline(Long userId) {
-    UserEntity user = userRepository.findUserById(userId);
-        if (user != null) {
-            user.setOnlineStatus(true);
-            user.setLastSeen(LocalDateTime.now());
-            userRepository.merge(user);
-            return true;
-        }
-        return false;
+        return presenceService.recordActivity(userId);
     }
 
+    /**
+     * Records a logout for presence tracking. The user goes offline once their last WebSocket closes.
+     *
+     * @param userId the user id
+     * @return {@code false} if no user id was given
+     */
     public boolean setUserOffline(Long userId) {
-        UserEntity user = userRepository.findUserById(userId);
-        if (user != null) {
-            user.setOnlineStatus(false);
-            user.setLastSeen(LocalDateTime.now());
-            userRepository.merge(user);
-            return true;
-        }
-        return false;
+        return presenceService.recordActivity(userId);
     }
 }
@@ -0,0 +1,24 @@
+package pt.uc.dei.services;
+
+import pt.uc.dei.config.ConfigurationSnapshot;
+
+/**
+ * CDI event fired by {@link ConfigurationService} after changing the configuration.
+ * {@link ConfigurationSnapshotHolder} observes it once the changing transaction has committed, so readers never
+ * see a configuration that is not in the database yet, or one that was rolled back.
+ */
+public final class ConfigurationChangedEvent {
+
+    private final ConfigurationSnapshot snapshot;
+
+    /**
+     * @param snapshot the configuration now in effect, or {@code null} to reload it from the database
+     */
+    public ConfigurationChangedEvent(ConfigurationSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public ConfigurationSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
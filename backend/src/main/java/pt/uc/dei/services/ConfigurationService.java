@@ -1,9 +1,11 @@
 package pt.uc.dei.services;
 
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.ConfigurationSnapshot;
 import pt.uc.dei.dtos.ConfigurationDTO;
 import pt.uc.dei.entities.ConfigurationEntity;
 import pt.uc.dei.entities.UserEntity;
@@ -17,6 +19,8 @@ import java.time.LocalDateTime;
  * <p>
  * Provides methods for retrieving the latest system configuration and creating new configurations.
  * Utilizes {@link ConfigurationRepository} for persistence and {@link UserRepository} for user-related operations.
+ * Reads are served from {@link ConfigurationSnapshotHolder}; every write fires a {@link ConfigurationChangedEvent},
+ * which publishes the new snapshot once the write has committed.
  *
  * @Stateless Marks this class as a stateless EJB, making it eligible for dependency injection
  * and transaction management by the EJB container.
@@ -46,6 +50,18 @@ public class ConfigurationService {
     @Inject
     UserRepository userRepository;
 
+    /**
+     * In-memory snapshot of the latest configuration.
+     */
+    @Inject
+    ConfigurationSnapshotHolder configurationSnapshotHolder;
+
+    /**
+     * Fired on every configuration change, so the snapshot is replaced after the commit.
+     */
+    @Inject
+    Event<ConfigurationChangedEvent> configurationChanged;
+
     /**
      * Default constructor for ConfigurationService.
      */
@@ -53,24 +69,16 @@ public class ConfigurationService {
     }
 
     /**
-     * Retrieves the latest configuration from the database.
+     * Retrieves the latest configuration.
      * <p>
-     * Constructs a {@link ConfigurationDTO} object based on the latest persisted {@link ConfigurationEntity}.
+     * Builds a {@link ConfigurationDTO} from the in-memory {@link ConfigurationSnapshot}; no query is made.
      *
      * @return The latest {@link ConfigurationDTO} if found, null otherwise.
      */
     public ConfigurationDTO getLatestConfiguration() {
         try {
-            ConfigurationEntity configurationEntity = configurationRepository.getLatestConfiguration();
-            ConfigurationDTO configurationDto = new ConfigurationDTO();
-            configurationDto.setId(configurationEntity.getId());
-            configurationDto.setAdminId(configurationEntity.getAdmin().getId());
-            configurationDto.setCreationDate(configurationEntity.getCreationDate());
-            configurationDto.setPasswordResetTime(configurationEntity.getPasswordResetTime());
-            configurationDto.setLoginTime(configurationEntity.getLoginTime());
-            configurationDto.setVerificationTime(configurationEntity.getVerificationTime());
-            configurationDto.setTwoFactorAuthEnabled(configurationEntity.getTwoFactorAuthEnabled());
-            return configurationDto;
+            ConfigurationSnapshot snapshot = configurationSnapshotHolder.get();
+            return snapshot != null ? snapshot.toDto() : null;
         } catch (Exception e) {
             LOGGER.error("Error getting latest expiration configuration");
             return null;
@@ -91,13 +99,46 @@ public class ConfigurationService {
             newConfiguration.setPasswordResetTime(configurationDto.getPasswordResetTime());
             newConfiguration.setLoginTime(configurationDto.getLoginTime());
             newConfiguration.setVerificationTime(configurationDto.getVerificationTime());
+            newConfiguration.setTwoFactorAuthEnabled(configurationDto.getTwoFactorAuthEnabled() != null
+                    ? configurationDto.getTwoFactorAuthEnabled()
+                    : currentTwoFactorAuthEnabled());
             UserEntity admin = userRepository.findUserById(configurationDto.getAdminId());
             newConfiguration.setAdmin(admin);
             configurationRepository.persist(newConfiguration);
+            configurationChanged.fire(new ConfigurationChangedEvent(ConfigurationSnapshot.from(newConfiguration)));
             return true;
         } catch (Exception e) {
             LOGGER.error("Error setting new configuration by admin ID " + configurationDto.getAdminId());
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Enables or disables two-factor authentication in the latest configuration and publishes the change.
+     *
+     * @param enabled The new status for two-factor authentication
+     * @return true if the configuration was updated, false otherwise
+     */
+    public boolean updateTwoFactorAuth(boolean enabled) {
+        try {
+            if (!configurationRepository.updateTwoFactorAuthEnabled(enabled)) {
+                return false;
+            }
+            ConfigurationSnapshot snapshot = configurationSnapshotHolder.get();
+            configurationChanged.fire(new ConfigurationChangedEvent(
+                    snapshot != null ? snapshot.withTwoFactorAuthEnabled(enabled) : null));
+            return true;
+        } catch (Exception e) {
+            LOGGER.error("Error updating two-factor authentication setting to {}", enabled);
+            return false;
+        }
+    }
+
+    /**
+     * Two-factor setting carried over to a new configuration that does not specify one.
+     */
+    private boolean currentTwoFactorAuthEnabled() {
+        ConfigurationSnapshot snapshot = configurationSnapshotHolder.get();
+        return snapshot == null || !Boolean.FALSE.equals(snapshot.getTwoFactorAuthEnabled());
+    }
+}
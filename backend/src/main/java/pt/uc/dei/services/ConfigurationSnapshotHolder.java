@@ -0,0 +1,111 @@
+package pt.uc.dei.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.EJB;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.ConfigurationSnapshot;
+import pt.uc.dei.repositories.ConfigurationRepository;
+import pt.uc.dei.websocket.MessageBus;
+
+import java.util.UUID;
+
+/**
+ * Holds the current {@link ConfigurationSnapshot}.
+ * <p>
+ * The snapshot is loaded at startup by {@link pt.uc.dei.initializer.DataInitializer} and replaced
+ * atomically from the {@link ConfigurationChangedEvent} that {@link ConfigurationService} fires whenever the
+ * configuration changes, once that change has committed, so readers
+ * (token generation, token expiry checks, emails, 2FA settings) never query the database.
+ * If no snapshot has been loaded yet, the first read loads it once.
+ * <p>
+ * Each node holds its own snapshot, so a committed change is also announced on the {@link MessageBus} and the
+ * other nodes reload the configuration from the database on receipt. A node whose bus connection dropped may
+ * have missed announcements, so it reloads once the bus reconnects.
+ */
+@ApplicationScoped
+public class ConfigurationSnapshotHolder {
+
+    private static final Logger LOGGER = LogManager.getLogger(ConfigurationSnapshotHolder.class);
+
+    static final String CHANNEL = "configuration";
+
+    @EJB
+    private ConfigurationRepository configurationRepository;
+
+    @Inject
+    MessageBus messageBus;
+
+    /**
+     * Identifies this node's announcements, which it skips as it already holds the new snapshot.
+     */
+    private final String origin = UUID.randomUUID().toString();
+
+    private volatile ConfigurationSnapshot current;
+
+    /**
+     * Subscribes to the changes committed on other nodes.
+     */
+    @PostConstruct
+    void subscribe() {
+        messageBus.subscribe(CHANNEL, this::onRemoteChange);
+        messageBus.onReconnect(this::reload);
+    }
+
+    /**
+     * Returns the current configuration.
+     *
+     * @return the snapshot, or {@code null} if no configuration exists
+     */
+    public ConfigurationSnapshot get() {
+        ConfigurationSnapshot snapshot = current;
+        return snapshot != null ? snapshot : reload();
+    }
+
+    /**
+     * Reloads the snapshot from the latest persisted configuration.
+     *
+     * @return the new snapshot, or {@code null} if no configuration exists
+     */
+    public synchronized ConfigurationSnapshot reload() {
+        current = ConfigurationSnapshot.from(configurationRepository.getLatestConfiguration());
+        LOGGER.info("Configuration snapshot loaded: {}", current);
+        return current;
+    }
+
+    /**
+     * Publishes the configuration of a committed change and tells the other nodes to reload theirs.
+     *
+     * @param event the new snapshot, or none to reload it
+     */
+    public void onConfigurationChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ConfigurationChangedEvent event) {
+        if (event.getSnapshot() != null) {
+            replace(event.getSnapshot());
+        } else {
+            reload();
+        }
+        if (!messageBus.publish(CHANNEL, origin)) {
+            LOGGER.error("Failed to announce the configuration change to the other nodes");
+        }
+    }
+
+    private void onRemoteChange(String payload) {
+        if (!origin.equals(payload)) {
+            reload();
+        }
+    }
+
+    /**
+     * Publishes a new snapshot to all readers.
+     *
+     * @param snapshot the configuration that is now in effect
+     */
+    public synchronized void replace(ConfigurationSnapshot snapshot) {
+        current = snapshot;
+        LOGGER.info("Configuration snapshot replaced: {}", snapshot);
+    }
+}
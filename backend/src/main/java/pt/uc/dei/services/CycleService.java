@@ -24,7 +24,6 @@ import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
@@ -132,7 +131,7 @@ public class CycleService implements Serializable {
             // CREATE APPRAISALS FOR ALL ACTIVE USERS
             createAppraisalsForCycle(cycleEntity);
 
-            // ✅ MODIFICAR: Usar envio assíncrono
+            // ✅ MODIFICAR: Usar envio em fila
             // Get admin name for email
             String adminName = admin != null ? (admin.getName() + " " + admin.getSurname()) : "System Administrator";
             
@@ -144,10 +143,10 @@ public class CycleService implements Serializable {
             notificationService.newCycleOpenNotification(cycleEntity, managersAndAdmins);
             
             if (!managersAndAdmins.isEmpty()) {
-                LOGGER.info("🔄 Starting ASYNC email notification for {} recipients", managersAndAdmins.size());
+                LOGGER.info("🔄 Queueing email notification for {} recipients", managersAndAdmins.size());
                 
-                // ✅ ENVIO ASSÍNCRONO - não bloqueia a criação do ciclo
-                Future<Boolean> emailResult = emailService.sendCycleOpenNotificationEmailsAsync(
+                // ✅ ENVIO EM FILA - gravado com o ciclo, enviado em segundo plano
+                Long emailJobId = emailService.queueCycleOpenNotificationEmails(
                     cycleEntity.getId().toString(),
                     cycleEntity.getStartDate().toString(),
                     cycleEntity.getEndDate().toString(),
@@ -156,8 +155,8 @@ public class CycleService implements Serializable {
                     managersAndAdmins
                 );
 
-                LOGGER.info("🔄 Async email process initiated for cycle {}. Emails will be sent in background.", 
-                           cycleEntity.getId());
+                LOGGER.info("🔄 Email job {} queued for cycle {}. Emails will be sent in background.",
+                           emailJobId, cycleEntity.getId());
             } else {
                 LOGGER.warn("No managers or administrators found to notify about cycle creation");
             }
@@ -224,10 +223,10 @@ public class CycleService implements Serializable {
         List<UserEntity> managersAndAdmins = userRepository.findManagersAndAdmins();
         notificationService.newCycleCloseNotification(cycle, managersAndAdmins);
         if (!managersAndAdmins.isEmpty()) {
-            LOGGER.info("🔄 Starting ASYNC email notification for {} recipients", managersAndAdmins.size());
+            LOGGER.info("🔄 Queueing email notification for {} recipients", managersAndAdmins.size());
 
-            // ✅ ENVIO ASSÍNCRONO - não bloqueia a criação do ciclo
-            Future<Boolean> emailResult = emailService.sendCycleCloseNotificationEmailsAsync(
+            // ✅ ENVIO EM FILA - gravado com o ciclo, enviado em segundo plano
+            Long emailJobId = emailService.queueCycleCloseNotificationEmails(
                     cycle.getId().toString(),
                     cycle.getStartDate().toString(),
                     cycle.getEndDate().toString(),
@@ -236,8 +235,8 @@ public class CycleService implements Serializable {
                     managersAndAdmins
             );
 
-            LOGGER.info("🔄 Async email process initiated for cycle {}. Emails will be sent in background.",
-                    cycle.getId());
+            LOGGER.info("🔄 Email job {} queued for cycle {}. Emails will be sent in background.",
+                    emailJobId, cycle.getId());
         } else {
             LOGGER.warn("No managers or administrators found to notify about cycle creation");
         }
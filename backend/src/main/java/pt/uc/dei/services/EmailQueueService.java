@@ -0,0 +1,297 @@
+package pt.uc.dei.services;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EnvironmentConfig;
+import pt.uc.dei.entities.EmailJobEntity;
+import pt.uc.dei.entities.QueuedEmailEntity;
+import pt.uc.dei.enums.EmailJobType;
+import pt.uc.dei.enums.QueuedEmailState;
+import pt.uc.dei.repositories.EmailQueueRepository;
+import pt.uc.dei.utils.TokenBucket;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends bulk emails from a database queue at a limited rate.
+ * <p>
+ * Callers queue a job of rendered emails with {@link #enqueue} in their own transaction, so the emails are
+ * written if and only if the business change is, and survive restarts until they are sent. Every few seconds
+ * the queue is drained: due emails are claimed in ID order with {@code SKIP LOCKED}, so several nodes never
+ * send the same email, and sent on one pooled SMTP connection per batch. The rate is capped by a
+ * {@link TokenBucket} of {@code EMAIL_RATE_BURST} tokens refilled at {@code EMAIL_RATE_PER_HOUR}; once it is
+ * empty the rest waits in the table for a later run, so no thread sleeps. The bucket is per node, so a cluster
+ * of N nodes sends up to N times that rate.
+ * <p>
+ * A failed email is retried after {@code EMAIL_QUEUE_RETRY_DELAY_MS}, doubled on every attempt, and given up on
+ * after {@code EMAIL_QUEUE_MAX_ATTEMPTS}; a rejected address is given up on at once. An email sent just before
+ * its transaction fails to commit is sent again, so delivery is at least once. Each job counts its sent and
+ * failed emails and records when it completed, see {@link #getJobProgress(Long)}.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class EmailQueueService {
+
+    private static final Logger LOGGER = LogManager.getLogger(EmailQueueService.class);
+
+    private static final int RECENT_JOBS = 10;
+
+    private final long ratePerHour = EnvironmentConfig.getLong("EMAIL_RATE_PER_HOUR", 20L);
+    private final int burst = EnvironmentConfig.getInt("EMAIL_RATE_BURST", 1);
+    private final int batchSize = EnvironmentConfig.getInt("EMAIL_QUEUE_BATCH_SIZE", 50);
+    private final int maxAttempts = EnvironmentConfig.getInt("EMAIL_QUEUE_MAX_ATTEMPTS", 5);
+    private final long retryDelayMs = EnvironmentConfig.getLong("EMAIL_QUEUE_RETRY_DELAY_MS", 60_000L);
+
+    /**
+     * Limits the sending rate of this node.
+     */
+    TokenBucket rateLimiter = new TokenBucket(burst, ratePerHour);
+
+    /**
+     * Set while the queue is being drained, so a slow run is not overlapped by the next timeout.
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final LongAdder emailsSent = new LongAdder();
+    private final LongAdder emailsFailed = new LongAdder();
+    private final LongAdder emailsRetried = new LongAdder();
+
+    @Inject
+    EmailQueueRepository emailQueueRepository;
+
+    @Inject
+    SmtpTransportPool smtpTransportPool;
+
+    /**
+     * This bean through the container, so each batch gets its own transaction.
+     */
+    @EJB
+    EmailQueueService self;
+
+    /**
+     * Queues a job of emails, in the caller's transaction.
+     *
+     * @param type        what the emails are sent for
+     * @param description what the emails are about, for the statistics
+     * @param emails      the rendered emails; their job, state and times are set here
+     * @return the ID of the job, or null if there are no emails
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public Long enqueue(EmailJobType type, String description, List<QueuedEmailEntity> emails) {
+        if (emails.isEmpty()) {
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        EmailJobEntity job = new EmailJobEntity();
+        job.setType(type);
+        job.setDescription(description);
+        job.setTotalEmails(emails.size());
+        job.setCreatedAt(now);
+        emailQueueRepository.persistJob(job);
+        for (QueuedEmailEntity email : emails) {
+            email.setJob(job);
+            email.setState(QueuedEmailState.PENDING);
+            email.setAttempts(0);
+            email.setCreatedAt(now);
+            email.setNextAttempt(now);
+            emailQueueRepository.persist(email);
+        }
+        LOGGER.info("Queued email job {} ({}, {}): {} emails", job.getId(), type, description, emails.size());
+        return job.getId();
+    }
+
+    @Schedule(second = "*/5", minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void scheduledDrain() {
+        drain();
+    }
+
+    /**
+     * Sends due emails in batches while the rate limit allows.
+     *
+     * @return the number of emails sent or failed
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return 0;
+        }
+        int processed = 0;
+        try {
+            long tokens;
+            while ((tokens = rateLimiter.available()) > 0) {
+                int limit = (int) Math.min(tokens, batchSize);
+                int batch = self.sendBatch(limit);
+                processed += batch;
+                if (batch < limit) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("Email queue stopped after {} emails", processed, e);
+        } finally {
+            draining.set(false);
+        }
+        return processed;
+    }
+
+    /**
+     * Claims up to {@code limit} due emails and sends them on one SMTP connection, in one transaction. Emails
+     * claimed after the rate limit runs out are left pending.
+     *
+     * @param limit maximum number of emails to claim
+     * @return the number of emails sent or failed
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int sendBatch(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<QueuedEmailEntity> emails = emailQueueRepository.claimDueEmails(now, limit);
+        if (emails.isEmpty()) {
+            return 0;
+        }
+        // [sent, failed] per job
+        Map<Long, int[]> progress = new HashMap<>();
+        int processed = 0;
+        try (SmtpTransportPool.Lease lease = smtpTransportPool.lease()) {
+            for (QueuedEmailEntity email : emails) {
+                if (!rateLimiter.tryAcquire()) {
+                    break;
+                }
+                processed++;
+                int[] jobProgress = progress.computeIfAbsent(email.getJob().getId(), id -> new int[2]);
+                try {
+                    lease.send(toMessage(email));
+                    email.setState(QueuedEmailState.SENT);
+                    email.setSentAt(LocalDateTime.now());
+                    jobProgress[0]++;
+                    emailsSent.increment();
+                } catch (MessagingException e) {
+                    if (recordFailure(email, e, now)) {
+                        jobProgress[1]++;
+                    }
+                }
+            }
+        } catch (MessagingException e) {
+            // No SMTP connection free in time; the emails stay pending for the next run
+            LOGGER.warn("Email queue could not get an SMTP connection: {}", e.getMessage());
+        }
+        for (Map.Entry<Long, int[]> entry : progress.entrySet()) {
+            int[] jobProgress = entry.getValue();
+            if (jobProgress[0] > 0 || jobProgress[1] > 0) {
+                emailQueueRepository.addJobProgress(entry.getKey(), jobProgress[0], jobProgress[1]);
+            }
+        }
+        emailQueueRepository.completeFinishedJobs(progress.keySet(), LocalDateTime.now());
+        return processed;
+    }
+
+    /**
+     * Records a failed attempt and schedules the next one, or gives up on the email.
+     *
+     * @return whether the email was given up on
+     */
+    private boolean recordFailure(QueuedEmailEntity email, MessagingException e, LocalDateTime now) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        String error = String.valueOf(e.getMessage());
+        email.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+        if (attempts >= maxAttempts || isRejectedAddress(e)) {
+            email.setState(QueuedEmailState.FAILED);
+            emailsFailed.increment();
+            LOGGER.error("Giving up on email {} to {} after {} attempts: {}", email.getId(), email.getRecipient(),
+                    attempts, error);
+            return true;
+        }
+        long delayMs = retryDelayMs << Math.min(attempts - 1, 16);
+        email.setNextAttempt(now.plusNanos(delayMs * 1_000_000L));
+        emailsRetried.increment();
+        LOGGER.warn("Email {} to {} failed, retrying in {} ms: {}", email.getId(), email.getRecipient(), delayMs,
+                error);
+        return false;
+    }
+
+    /**
+     * @return whether the address is malformed or the server refused it, so retrying would not help
+     */
+    private static boolean isRejectedAddress(MessagingException e) {
+        return e instanceof AddressException
+                || e instanceof SendFailedException failed
+                && failed.getInvalidAddresses() != null && failed.getInvalidAddresses().length > 0;
+    }
+
+    private Message toMessage(QueuedEmailEntity email) throws MessagingException {
+        Message message = new MimeMessage(smtpTransportPool.getSession());
+        message.setFrom(new InternetAddress(smtpTransportPool.getFromAddress()));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(email.getRecipient()));
+        message.setSubject(email.getSubject());
+        message.setContent(email.getBody(), "text/html");
+        return message;
+    }
+
+    /**
+     * @param jobId the job ID
+     * @return the job's totals and state, or null if there is no such job
+     */
+    public Map<String, Object> getJobProgress(Long jobId) {
+        EmailJobEntity job = emailQueueRepository.findJob(jobId);
+        return job == null ? null : toProgress(job);
+    }
+
+    /**
+     * @return the rate limit, the queue length, the totals since startup and the most recent jobs
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ratePerHour", ratePerHour);
+        stats.put("burst", rateLimiter.getCapacity());
+        stats.put("tokensAvailable", rateLimiter.available());
+        stats.put("batchSize", batchSize);
+        stats.put("maxAttempts", maxAttempts);
+        stats.put("pending", emailQueueRepository.countPendingEmails());
+        stats.put("sent", emailsSent.sum());
+        stats.put("failed", emailsFailed.sum());
+        stats.put("retried", emailsRetried.sum());
+        List<Map<String, Object>> recentJobs = new ArrayList<>();
+        for (EmailJobEntity job : emailQueueRepository.findRecentJobs(RECENT_JOBS)) {
+            recentJobs.add(toProgress(job));
+        }
+        stats.put("recentJobs", recentJobs);
+        return stats;
+    }
+
+    private static Map<String, Object> toProgress(EmailJobEntity job) {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("id", job.getId());
+        progress.put("type", job.getType().name());
+        progress.put("description", job.getDescription());
+        progress.put("total", job.getTotalEmails());
+        progress.put("sent", job.getSentEmails());
+        progress.put("failed", job.getFailedEmails());
+        progress.put("pending", job.getTotalEmails() - job.getSentEmails() - job.getFailedEmails());
+        progress.put("complete", job.getCompletedAt() != null);
+        progress.put("createdAt", job.getCreatedAt().toString());
+        progress.put("completedAt", job.getCompletedAt() == null ? null : job.getCompletedAt().toString());
+        return progress;
+    }
+}
@@ -0,0 +1,28 @@
+package pt.uc.dei.services;
+
+/**
+ * CDI event fired when a user is assigned a new direct manager. {@link OrgChartIndex} observes it once the
+ * changing transaction has committed, so a rollback never leaves a manager grant the database does not have.
+ */
+public final class ManagerChangedEvent {
+
+    private final Long userId;
+    private final Long managerId;
+
+    /**
+     * @param userId    the user whose manager changed
+     * @param managerId the new direct manager, or {@code null} if the user no longer has one
+     */
+    public ManagerChangedEvent(Long userId, Long managerId) {
+        this.userId = userId;
+        this.managerId = managerId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getManagerId() {
+        return managerId;
+    }
+}
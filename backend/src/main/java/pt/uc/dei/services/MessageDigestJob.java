@@ -0,0 +1,186 @@
+package pt.uc.dei.services;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EnvironmentConfig;
+import pt.uc.dei.entities.NotificationEntity;
+import pt.uc.dei.repositories.NotificationRepository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Emails users about chat messages they have left unread, one digest per user.
+ * <p>
+ * Every few minutes, MESSAGE notifications that are unread, unseen, not yet emailed and older than
+ * {@code MESSAGE_DIGEST_DELAY_HOURS} are gathered by recipient: each recipient gets one email listing every
+ * sender, queued through {@link EmailService} and so sent by {@link EmailQueueService} at its rate, and the
+ * notifications are marked as emailed with one bulk update. A run handles at most
+ * {@code MESSAGE_DIGEST_MAX_BATCHES} batches of {@code MESSAGE_DIGEST_BATCH_SIZE} recipients, each in its own
+ * short transaction, and remembers the last recipient it reached as a watermark; the next run continues after
+ * it. When a run reaches the last recipient the watermark goes back to the start, so notifications that became
+ * unread again behind it are found on the next pass.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MessageDigestJob {
+
+    private static final Logger LOGGER = LogManager.getLogger(MessageDigestJob.class);
+
+    /**
+     * Outcome of one batch.
+     *
+     * @param recipients    the recipients handled, ascending
+     * @param notifications the notifications marked as emailed
+     * @param emails        the emails queued
+     */
+    public record Batch(List<Long> recipients, int notifications, int emails) {
+    }
+
+    private final int delayHours = EnvironmentConfig.getInt("MESSAGE_DIGEST_DELAY_HOURS", 24);
+    private final int batchSize = EnvironmentConfig.getInt("MESSAGE_DIGEST_BATCH_SIZE", 100);
+    private final int maxBatches = EnvironmentConfig.getInt("MESSAGE_DIGEST_MAX_BATCHES", 5);
+
+    /**
+     * The last recipient handled, or 0 at the start of a pass.
+     */
+    private volatile long watermark;
+
+    /**
+     * Set while a run is in progress, so a slow run is not overlapped by the next timeout.
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder totalNotifications = new LongAdder();
+    private final LongAdder totalEmails = new LongAdder();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @Inject
+    NotificationRepository notificationRepository;
+
+    @EJB
+    EmailService emailService;
+
+    /**
+     * This bean through the container, so each batch gets its own transaction.
+     */
+    @EJB
+    MessageDigestJob self;
+
+    @Schedule(minute = "*/10", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void scheduledRun() {
+        run();
+    }
+
+    /**
+     * Processes batches from the watermark until every recipient has been handled or the batch limit is reached.
+     *
+     * @return number of digest emails queued
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int run() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(delayHours);
+        long from = watermark;
+        int batches = 0;
+        int notifications = 0;
+        int emails = 0;
+        boolean passComplete = false;
+        try {
+            while (batches < maxBatches) {
+                Batch batch = self.digestBatch(cutoff, watermark);
+                batches++;
+                notifications += batch.notifications();
+                emails += batch.emails();
+                if (batch.recipients().size() < batchSize) {
+                    watermark = 0;
+                    passComplete = true;
+                    break;
+                }
+                watermark = batch.recipients().get(batch.recipients().size() - 1);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Message digest stopped after {} emails", emails, e);
+        } finally {
+            running.set(false);
+        }
+        long durationMs = (System.nanoTime() - start) / 1_000_000L;
+        runs.increment();
+        totalNotifications.add(notifications);
+        totalEmails.add(emails);
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("finishedAt", LocalDateTime.now().toString());
+        run.put("fromRecipient", from);
+        run.put("emails", emails);
+        run.put("notifications", notifications);
+        run.put("batches", batches);
+        run.put("passComplete", passComplete);
+        run.put("durationMs", durationMs);
+        lastRun = run;
+        if (emails > 0) {
+            LOGGER.info("Message digest: queued {} emails for {} notifications in {} batches, {} ms", emails,
+                    notifications, batches, durationMs);
+        }
+        return emails;
+    }
+
+    /**
+     * Queues the digests of the next batch of recipients after {@code afterUserId} and marks their notifications
+     * as emailed, in one transaction.
+     *
+     * @param cutoff      notifications created at or before this date are emailed
+     * @param afterUserId the last recipient of the previous batch
+     * @return the recipients handled and what was done for them
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public Batch digestBatch(LocalDateTime cutoff, long afterUserId) {
+        List<Long> recipients = notificationRepository.findDigestRecipients(cutoff, afterUserId, batchSize);
+        if (recipients.isEmpty()) {
+            return new Batch(recipients, 0, 0);
+        }
+        List<Long> ids = notificationRepository.lockDigestNotifications(recipients, cutoff);
+        if (ids.isEmpty()) {
+            // Taken by another node's sweep
+            return new Batch(recipients, 0, 0);
+        }
+        List<NotificationEntity> notifications = notificationRepository.findWithUsers(ids);
+        emailService.queueMessageNotificationEmails(notifications);
+        notificationRepository.markEmailSent(ids);
+        int emails = (int) notifications.stream().map(n -> n.getUser().getId()).distinct().count();
+        return new Batch(recipients, ids.size(), emails);
+    }
+
+    /**
+     * @return the configuration, the watermark, the last run and the totals since startup
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("delayHours", delayHours);
+        stats.put("batchSize", batchSize);
+        stats.put("maxBatches", maxBatches);
+        stats.put("watermark", watermark);
+        stats.put("runs", runs.sum());
+        stats.put("emails", totalEmails.sum());
+        stats.put("notifications", totalNotifications.sum());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+}
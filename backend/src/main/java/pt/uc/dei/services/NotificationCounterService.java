@@ -0,0 +1,249 @@
+package pt.uc.dei.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.repositories.UserRepository;
+import pt.uc.dei.websocket.MessageBus;
+import pt.uc.dei.websocket.WsNotifications;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Unread and unseen notification counters of each user.
+ * <p>
+ * The counters are stored on {@link pt.uc.dei.entities.UserEntity} and changed with atomic in-place updates in
+ * the same transaction as the notifications they count, so reading them never needs a {@code COUNT} over the
+ * user's history. Users created before the counters existed are counted once, the first time they connect.
+ * After a change commits, the new counters are read back and pushed as a {@code NOTIFICATION_COUNT} frame,
+ * which replaces one still waiting to be sent.
+ * <p>
+ * The counters of users with a notifications session on this node are also kept in memory and served from
+ * there to their further sessions; entries are dropped when the user's last session here closes. Changes
+ * committed on another node reach the client through the cluster, and that node announces the changed users
+ * on the {@link MessageBus} so every other node drops their entries and reads them again when needed. A node
+ * whose bus connection dropped may have missed announcements, so it drops the whole table once the bus
+ * reconnects.
+ */
+@ApplicationScoped
+public class NotificationCounterService {
+
+    private static final Logger LOGGER = LogManager.getLogger(NotificationCounterService.class);
+
+    static final String CHANNEL = "notification_counters";
+
+    /**
+     * Longest list of user ids announced; larger changes, e.g. broadcasts, make the other nodes drop everything.
+     */
+    private static final int MAX_ANNOUNCED_IDS_LENGTH = 7000;
+    private static final String ALL_USERS = "*";
+
+    private final ConcurrentHashMap<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Identifies this node's announcements, which it skips as it already holds the new counters.
+     */
+    private final String origin = UUID.randomUUID().toString();
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    WsNotifications wsNotifications;
+
+    @Inject
+    Event<NotificationCountersChangedEvent> countersChanged;
+
+    @Inject
+    MessageBus messageBus;
+
+    /**
+     * Subscribes to the counter changes committed on other nodes.
+     */
+    @PostConstruct
+    void subscribe() {
+        messageBus.subscribe(CHANNEL, this::onRemoteChange);
+        messageBus.onReconnect(counters::clear);
+    }
+
+    /**
+     * Returns the counters of a user, from memory if the user is connected here, otherwise from the database.
+     *
+     * @param userId the user id
+     * @return the user's counters
+     */
+    public Counters getCounters(Long userId) {
+        Counters cached = counters.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        userRepository.initNotificationCounters(userId);
+        Counters current = read(userId);
+        if (wsNotifications.isConnectedHere(userId)) {
+            counters.put(userId, current);
+        }
+        return current;
+    }
+
+    /**
+     * Changes a user's counters in the caller's transaction.
+     *
+     * @param userId      the user id
+     * @param unreadDelta change of the unread counter
+     * @param unseenDelta change of the unseen counter
+     */
+    public void adjust(Long userId, int unreadDelta, int unseenDelta) {
+        adjust(List.of(userId), unreadDelta, unseenDelta);
+    }
+
+    /**
+     * Changes the counters of many users by the same amount in the caller's transaction, e.g. after a broadcast.
+     *
+     * @param userIds     the user ids
+     * @param unreadDelta change of each unread counter
+     * @param unseenDelta change of each unseen counter
+     */
+    public void adjust(Collection<Long> userIds, int unreadDelta, int unseenDelta) {
+        if (userRepository.adjustNotificationCounters(userIds, unreadDelta, unseenDelta) > 0) {
+            countersChanged.fire(new NotificationCountersChangedEvent(userIds));
+        }
+    }
+
+    /**
+     * Forgets the counters of a user whose last session on this node closed.
+     *
+     * @param userId the user id
+     */
+    public void evict(Long userId) {
+        counters.remove(userId);
+    }
+
+    /**
+     * Pushes the committed counters of the users whose counters changed and tells the other nodes to forget
+     * theirs. Each user's counters are pushed under that user's entry, so pushes go out in the order they were
+     * read.
+     *
+     * @param event the changed users
+     */
+    public void onCountersChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) NotificationCountersChangedEvent event) {
+        announce(event.getUserIds());
+        try {
+            Collection<Long> userIds = event.getUserIds();
+            if (userIds.size() == 1) {
+                Long userId = userIds.iterator().next();
+                counters.compute(userId, (id, previous) -> push(id, read(id)));
+                return;
+            }
+            // A broadcast reads every recipient at once
+            Map<Long, int[]> rows = userRepository.findNotificationCounters(userIds);
+            rows.forEach((userId, row) ->
+                    counters.compute(userId, (id, previous) -> push(id, new Counters(row[0], row[1]))));
+        } catch (Exception e) {
+            LOGGER.warn("Failed to push notification counters of {} users: {}", event.getUserIds().size(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * @return number of users whose counters are held in memory
+     */
+    public int getCachedUsers() {
+        return counters.size();
+    }
+
+    private void announce(Collection<Long> userIds) {
+        String ids = userIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        String payload = origin + ":" + (ids.length() > MAX_ANNOUNCED_IDS_LENGTH ? ALL_USERS : ids);
+        if (!messageBus.publish(CHANNEL, payload)) {
+            LOGGER.error("Failed to announce notification counter changes of {} users to the other nodes",
+                    userIds.size());
+        }
+    }
+
+    /**
+     * Drops the counters announced as changed by another node, as {@code origin:id,id,...} or {@code origin:*}.
+     */
+    private void onRemoteChange(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0) {
+            LOGGER.warn("Ignoring malformed notification counter message: {}", payload);
+            return;
+        }
+        if (origin.equals(payload.substring(0, separator))) {
+            return;
+        }
+        String ids = payload.substring(separator + 1);
+        if (ids.equals(ALL_USERS)) {
+            counters.clear();
+            return;
+        }
+        try {
+            for (String id : ids.split(",")) {
+                counters.remove(Long.parseLong(id));
+            }
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Ignoring malformed notification counter message: {}", payload);
+        }
+    }
+
+    private Counters read(Long userId) {
+        int[] row = userRepository.findNotificationCounters(List.of(userId)).get(userId);
+        return row == null ? new Counters(0, 0) : new Counters(row[0], row[1]);
+    }
+
+    /**
+     * @return the counters to keep in memory: only users with a notifications session here are remembered
+     */
+    private Counters push(Long userId, Counters current) {
+        wsNotifications.sendCounters(userId, current);
+        return wsNotifications.isConnectedHere(userId) ? current : null;
+    }
+
+    /**
+     * Unread and unseen notifications of one user.
+     */
+    public static final class Counters {
+
+        private final int unread;
+        private final int unseen;
+
+        public Counters(int unread, int unseen) {
+            this.unread = unread;
+            this.unseen = unseen;
+        }
+
+        public int getUnread() {
+            return unread;
+        }
+
+        public int getUnseen() {
+            return unseen;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Counters other && unread == other.unread && unseen == other.unseen;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(unread, unseen);
+        }
+
+        @Override
+        public String toString() {
+            return "Counters{unread=" + unread + ", unseen=" + unseen + "}";
+        }
+    }
+}
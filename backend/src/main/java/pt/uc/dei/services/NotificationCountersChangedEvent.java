@@ -0,0 +1,24 @@
+package pt.uc.dei.services;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * CDI event fired by {@link NotificationCounterService} after it changed the notification counters of some
+ * users. It observes the event itself once the changing transaction has committed, to push the new counters.
+ */
+public final class NotificationCountersChangedEvent {
+
+    private final Collection<Long> userIds;
+
+    /**
+     * @param userIds the users whose counters changed
+     */
+    public NotificationCountersChangedEvent(Collection<Long> userIds) {
+        this.userIds = List.copyOf(userIds);
+    }
+
+    public Collection<Long> getUserIds() {
+        return userIds;
+    }
+}
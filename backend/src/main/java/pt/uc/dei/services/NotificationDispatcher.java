@@ -0,0 +1,270 @@
+package pt.uc.dei.services;
+
+import jakarta.ejb.Asynchronous;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EnvironmentConfig;
+import pt.uc.dei.dtos.NotificationDTO;
+import pt.uc.dei.entities.NotificationEntity;
+import pt.uc.dei.enums.NotificationDeliveryState;
+import pt.uc.dei.mapper.NotificationMapper;
+import pt.uc.dei.repositories.NotificationRepository;
+import pt.uc.dei.utils.LatencyHistogram;
+import pt.uc.dei.websocket.WsNotifications;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes notifications written by {@link NotificationService} over WebSocket after their transaction commits.
+ * <p>
+ * Each {@link NotificationsWrittenEvent} starts an asynchronous dispatch once the writing transaction has
+ * succeeded; events arriving while a dispatch is queued are folded into it. A dispatch claims pending rows in
+ * batches of {@code NOTIFICATION_DISPATCH_BATCH_SIZE}, each in its own transaction and locked with
+ * {@code SKIP LOCKED} so concurrent dispatchers on any node never push the same row. The rows of a batch are
+ * grouped per recipient: a single notification goes out in its usual frame, several go out together in one
+ * {@code NOTIFICATION_BATCH} frame, and a notification shared by many recipients (a broadcast) is serialized
+ * once. The outcome is written back as {@link NotificationDeliveryState}; failed pushes are retried with
+ * exponential backoff from {@code NOTIFICATION_DELIVERY_RETRY_MS} up to {@code NOTIFICATION_DELIVERY_MAX_ATTEMPTS}
+ * times by {@link #retryDue()}, which also picks up rows left behind by a crash.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class NotificationDispatcher {
+
+    private static final Logger LOGGER = LogManager.getLogger(NotificationDispatcher.class);
+
+    private final int batchSize = EnvironmentConfig.getInt("NOTIFICATION_DISPATCH_BATCH_SIZE", 500);
+    private final int maxAttempts = EnvironmentConfig.getInt("NOTIFICATION_DELIVERY_MAX_ATTEMPTS", 5);
+    private final long retryDelayMs = EnvironmentConfig.getLong("NOTIFICATION_DELIVERY_RETRY_MS", 5_000L);
+
+    /**
+     * Set while an asynchronous dispatch is queued but has not started yet.
+     */
+    private final AtomicBoolean dispatchQueued = new AtomicBoolean();
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder offline = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LatencyHistogram deliveryDelay = new LatencyHistogram();
+
+    @Inject
+    NotificationRepository notificationRepository;
+
+    @Inject
+    NotificationMapper notificationMapper;
+
+    @Inject
+    WsNotifications wsNotifications;
+
+    /**
+     * This bean through the container, so asynchronous and transactional attributes apply to self-calls.
+     */
+    @EJB
+    NotificationDispatcher self;
+
+    /**
+     * Starts a dispatch once the transaction that wrote notifications has committed.
+     *
+     * @param event the written notifications
+     */
+    public void onNotificationsWritten(@Observes(during = TransactionPhase.AFTER_SUCCESS) NotificationsWrittenEvent event) {
+        if (dispatchQueued.compareAndSet(false, true)) {
+            self.dispatchAsync();
+        }
+    }
+
+    /**
+     * Dispatches on a container thread, so the committing request does not wait for the pushes.
+     */
+    @Asynchronous
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void dispatchAsync() {
+        // Cleared first: notifications written from now on need another pass, which this one may not see
+        dispatchQueued.set(false);
+        dispatchPending();
+    }
+
+    /**
+     * Retries failed pushes whose backoff has elapsed and picks up rows whose dispatch never ran.
+     */
+    @Schedule(second = "*/15", minute = "*", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void retryDue() {
+        dispatchPending();
+    }
+
+    /**
+     * Dispatches batches until no due notification is left.
+     *
+     * @return number of notifications processed
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int dispatchPending() {
+        int total = 0;
+        try {
+            int processed;
+            do {
+                processed = self.dispatchBatch();
+                total += processed;
+            } while (processed >= batchSize);
+        } catch (Exception e) {
+            LOGGER.error("Notification dispatch failed after {} notifications, will retry", total, e);
+        }
+        return total;
+    }
+
+    /**
+     * Claims one batch of due notifications, pushes them and records the outcome, in one transaction.
+     *
+     * @return number of notifications claimed
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<NotificationEntity> batch = notificationRepository.claimPendingDeliveries(now, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<Long, List<NotificationEntity>> byRecipient = new LinkedHashMap<>();
+        for (NotificationEntity notification : batch) {
+            byRecipient.computeIfAbsent(notification.getRecipientId(), id -> new ArrayList<>()).add(notification);
+        }
+        // Recipients with one notification that is also one of many identical rows are sent as a broadcast
+        Map<List<Object>, Map<Long, NotificationEntity>> broadcasts = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<NotificationEntity>> recipient : byRecipient.entrySet()) {
+            if (recipient.getValue().size() == 1) {
+                NotificationEntity notification = recipient.getValue().get(0);
+                broadcasts.computeIfAbsent(broadcastKey(notification), key -> new LinkedHashMap<>())
+                        .put(recipient.getKey(), notification);
+            }
+        }
+
+        List<Long> deliveredIds = new ArrayList<>();
+        List<Long> offlineIds = new ArrayList<>();
+        for (Map<Long, NotificationEntity> group : broadcasts.values()) {
+            if (group.size() > 1) {
+                pushBroadcast(group, now, deliveredIds, offlineIds);
+                group.keySet().forEach(byRecipient::remove);
+            }
+        }
+        for (Map.Entry<Long, List<NotificationEntity>> recipient : byRecipient.entrySet()) {
+            push(recipient.getKey(), recipient.getValue(), now, deliveredIds, offlineIds);
+        }
+        notificationRepository.updateDeliveryState(deliveredIds, NotificationDeliveryState.DELIVERED);
+        notificationRepository.updateDeliveryState(offlineIds, NotificationDeliveryState.OFFLINE);
+        return batch.size();
+    }
+
+    /**
+     * @return pending rows, delivery outcome counters, frames sent and the delay between writing and pushing
+     *         a notification
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", notificationRepository.countPendingDeliveries());
+        stats.put("delivered", delivered.sum());
+        stats.put("offline", offline.sum());
+        stats.put("retried", retried.sum());
+        stats.put("failed", failed.sum());
+        stats.put("frames", frames.sum());
+        stats.put("deliveryDelay", deliveryDelay.toMap());
+        return stats;
+    }
+
+    private void push(Long recipientId, List<NotificationEntity> notifications, LocalDateTime now,
+                      List<Long> deliveredIds, List<Long> offlineIds) {
+        try {
+            List<NotificationDTO> dtos = new ArrayList<>(notifications.size());
+            for (NotificationEntity notification : notifications) {
+                dtos.add(notificationMapper.toDto(notification));
+            }
+            boolean accepted = wsNotifications.deliver(recipientId, dtos);
+            frames.increment();
+            for (NotificationEntity notification : notifications) {
+                recordOutcome(notification, accepted, now, deliveredIds, offlineIds);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to push {} notifications to user {}: {}", notifications.size(), recipientId,
+                    e.getMessage());
+            notifications.forEach(notification -> scheduleRetry(notification, now));
+        }
+    }
+
+    private void pushBroadcast(Map<Long, NotificationEntity> group, LocalDateTime now,
+                               List<Long> deliveredIds, List<Long> offlineIds) {
+        try {
+            NotificationDTO template = notificationMapper.toDto(group.values().iterator().next());
+            template.setId(null);
+            template.setRecipient(null);
+            Map<Long, Long> notificationIds = new LinkedHashMap<>();
+            group.forEach((recipientId, notification) -> notificationIds.put(recipientId, notification.getId()));
+            Set<Long> accepted = wsNotifications.broadcast(template, notificationIds);
+            frames.add(accepted.size());
+            group.forEach((recipientId, notification) ->
+                    recordOutcome(notification, accepted.contains(recipientId), now, deliveredIds, offlineIds));
+        } catch (Exception e) {
+            LOGGER.warn("Failed to push broadcast notification to {} users: {}", group.size(), e.getMessage());
+            group.values().forEach(notification -> scheduleRetry(notification, now));
+        }
+    }
+
+    private void recordOutcome(NotificationEntity notification, boolean accepted, LocalDateTime now,
+                               List<Long> deliveredIds, List<Long> offlineIds) {
+        if (accepted) {
+            deliveredIds.add(notification.getId());
+            delivered.increment();
+            if (notification.getCreationDate() != null) {
+                deliveryDelay.record(Duration.between(notification.getCreationDate(), now).toNanos());
+            }
+        } else {
+            offlineIds.add(notification.getId());
+            offline.increment();
+        }
+    }
+
+    /**
+     * Leaves the notification pending with a later attempt time, or gives up after the last attempt.
+     */
+    private void scheduleRetry(NotificationEntity notification, LocalDateTime now) {
+        int attempts = (notification.getDeliveryAttempts() == null ? 0 : notification.getDeliveryAttempts()) + 1;
+        notification.setDeliveryAttempts(attempts);
+        if (attempts >= maxAttempts) {
+            notification.setDeliveryState(NotificationDeliveryState.FAILED);
+            notification.setNextDeliveryAttempt(null);
+            failed.increment();
+        } else {
+            long backoffMs = retryDelayMs << Math.min(attempts - 1, 16);
+            notification.setNextDeliveryAttempt(now.plus(Duration.ofMillis(backoffMs)));
+            retried.increment();
+        }
+    }
+
+    private static List<Object> broadcastKey(NotificationEntity notification) {
+        Long senderId = notification.getSender() != null ? notification.getSender().getId() : null;
+        return List.of(Objects.toString(notification.getType()), Objects.toString(senderId),
+                Objects.toString(notification.getContent()), Objects.toString(notification.getCreationDate()),
+                Objects.toString(notification.getMessageCount()), Objects.toString(notification.getNotificationIsRead()),
+                Objects.toString(notification.getNotificationIsSeen()));
+    }
+}
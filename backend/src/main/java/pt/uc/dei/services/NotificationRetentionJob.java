@@ -0,0 +1,179 @@
+package pt.uc.dei.services;
+
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EnvironmentConfig;
+import pt.uc.dei.repositories.NotificationRepository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves old notifications out of the `notification` table so the queries that serve the feed and the
+ * counters keep working on a small table.
+ * <p>
+ * Every few minutes, notifications that are read, seen and older than {@code NOTIFICATION_RETENTION_DAYS} are
+ * copied to {@link pt.uc.dei.entities.NotificationArchiveEntity} and deleted, or only deleted when
+ * {@code NOTIFICATION_RETENTION_MODE} is {@code DELETE}. The work is split into batches of
+ * {@code NOTIFICATION_RETENTION_BATCH_SIZE} rows walked in ID order, each in its own short transaction, and a
+ * run stops once it has used {@code NOTIFICATION_RETENTION_BUDGET_MS}; whatever is left is picked up by the next
+ * run. A retention of zero days or less turns the job off.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class NotificationRetentionJob {
+
+    private static final Logger LOGGER = LogManager.getLogger(NotificationRetentionJob.class);
+
+    /**
+     * What happens to notifications past the retention age.
+     */
+    public enum Mode {
+        /** Copied to the archive table, then deleted. */
+        ARCHIVE,
+        /** Deleted. */
+        DELETE
+    }
+
+    private final int retentionDays = EnvironmentConfig.getInt("NOTIFICATION_RETENTION_DAYS", 90);
+    private final Mode mode = parseMode(EnvironmentConfig.getString("NOTIFICATION_RETENTION_MODE", "ARCHIVE"));
+    private final int batchSize = EnvironmentConfig.getInt("NOTIFICATION_RETENTION_BATCH_SIZE", 500);
+    private final long budgetMs = EnvironmentConfig.getLong("NOTIFICATION_RETENTION_BUDGET_MS", 2_000L);
+
+    /**
+     * Set while a run is in progress, so a slow run is not overlapped by the next timeout.
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final LongAdder totalArchived = new LongAdder();
+    private final LongAdder totalDeleted = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @Inject
+    NotificationRepository notificationRepository;
+
+    /**
+     * This bean through the container, so each batch gets its own transaction.
+     */
+    @EJB
+    NotificationRetentionJob self;
+
+    @Schedule(minute = "*/5", hour = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void scheduledRun() {
+        if (retentionDays > 0) {
+            run();
+        }
+    }
+
+    /**
+     * Processes batches until nothing old enough is left or the time budget is used up.
+     *
+     * @return number of notifications removed from the `notification` table
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public int run() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        long deadline = start + budgetMs * 1_000_000L;
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        long afterId = 0;
+        int removed = 0;
+        int batches = 0;
+        boolean complete = false;
+        try {
+            while (System.nanoTime() < deadline) {
+                List<Long> ids = self.retainBatch(cutoff, afterId);
+                batches++;
+                removed += ids.size();
+                if (ids.size() < batchSize) {
+                    complete = true;
+                    break;
+                }
+                afterId = ids.get(ids.size() - 1);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Notification retention stopped after {} notifications", removed, e);
+        } finally {
+            running.set(false);
+        }
+        long durationMs = (System.nanoTime() - start) / 1_000_000L;
+        runs.increment();
+        (mode == Mode.ARCHIVE ? totalArchived : totalDeleted).add(removed);
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("finishedAt", LocalDateTime.now().toString());
+        run.put("mode", mode.name());
+        run.put(mode == Mode.ARCHIVE ? "archived" : "deleted", removed);
+        run.put("batches", batches);
+        run.put("complete", complete);
+        run.put("durationMs", durationMs);
+        lastRun = run;
+        if (removed > 0 || !complete) {
+            LOGGER.info("Notification retention: {} {} notifications older than {} in {} batches, {} ms{}",
+                    mode == Mode.ARCHIVE ? "archived" : "deleted", removed, cutoff, batches, durationMs,
+                    complete ? "" : ", budget used up");
+        }
+        return removed;
+    }
+
+    /**
+     * Archives or deletes one batch of notifications after {@code afterId}, in one transaction.
+     *
+     * @param cutoff  notifications created before this date are removed
+     * @param afterId the last ID of the previous batch
+     * @return the IDs removed, ascending
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public List<Long> retainBatch(LocalDateTime cutoff, long afterId) {
+        List<Long> ids = notificationRepository.lockRetentionCandidates(cutoff, afterId, batchSize);
+        if (ids.isEmpty()) {
+            return ids;
+        }
+        if (mode == Mode.ARCHIVE) {
+            notificationRepository.archiveNotifications(ids, LocalDateTime.now());
+        }
+        notificationRepository.deleteNotifications(ids);
+        return ids;
+    }
+
+    /**
+     * @return the configuration, the last run and the totals since startup
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", retentionDays > 0);
+        stats.put("retentionDays", retentionDays);
+        stats.put("mode", mode.name());
+        stats.put("runs", runs.sum());
+        stats.put("archived", totalArchived.sum());
+        stats.put("deleted", totalDeleted.sum());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+
+    private static Mode parseMode(String value) {
+        try {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown NOTIFICATION_RETENTION_MODE '{}', archiving instead", value);
+            return Mode.ARCHIVE;
+        }
+    }
+}
@@ -2,11 +2,13 @@
 package pt.uc.dei.services;
 
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EnvironmentConfig;
 import pt.uc.dei.dtos.MessageDTO;
 import pt.uc.dei.dtos.NotificationDTO;
 import pt.uc.dei.dtos.NotificationUpdateDTO;
@@ -16,31 +18,60 @@ import pt.uc.dei.entities.CycleEntity;
 import pt.uc.dei.entities.FinishedCourseEntity;
 import pt.uc.dei.entities.NotificationEntity;
 import pt.uc.dei.entities.UserEntity;
+import pt.uc.dei.enums.NotificationDeliveryState;
 import pt.uc.dei.enums.NotificationType;
 import pt.uc.dei.mapper.NotificationMapper;
 import pt.uc.dei.repositories.MessageRepository;
 import pt.uc.dei.repositories.NotificationRepository;
 import pt.uc.dei.repositories.UserRepository;
-import pt.uc.dei.websocket.WsNotifications;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Service for creating, sending, and managing user notifications.
  * Handles notifications for messages, appraisals, courses, cycles, and user updates.
- * Integrates with WebSocket for real-time delivery and persists notifications as fallback.
+ * <p>
+ * Notifications are written in the caller's transaction as {@link NotificationDeliveryState#PENDING} and a
+ * {@link NotificationsWrittenEvent} is fired; {@link NotificationDispatcher} pushes them over WebSocket once
+ * that transaction has committed, so no socket I/O happens while it holds locks and a rollback pushes nothing.
+ * Bursts of appraisal, course and user update notifications from one sender are folded into one row, see
+ * {@link #writeNotification(UserEntity, UserEntity, NotificationType, String)}.
  */
 @Stateless
 public class NotificationService {
     private static final Logger logger = LogManager.getLogger(NotificationService.class);
 
+    /**
+     * Largest page the notification feed returns, whatever the client asks for.
+     */
+    public static final int MAX_FEED_PAGE_SIZE = 100;
+
+    private final long coalesceWindowSeconds = EnvironmentConfig.getLong("NOTIFICATION_COALESCE_WINDOW_SECONDS", 60L);
+    private final Set<NotificationType> coalescedTypes = parseTypes(
+            EnvironmentConfig.getString("NOTIFICATION_COALESCE_TYPES", "APPRAISAL,COURSE,USER_UPDATE"));
+
     @Inject
     NotificationRepository notificationRepository;
 
     @Inject
-    WsNotifications wsNotifications;
+    Event<NotificationsWrittenEvent> notificationsWritten;
+
+    @Inject
+    NotificationCounterService notificationCounterService;
 
     @Inject
     MessageRepository messageRepository;
@@ -60,11 +91,11 @@ public class NotificationService {
     /**
      * Creates and sends a new message notification based on a MessageDTO.
      * <p>
-     * Checks unread messages, builds NotificationEntity, maps to NotificationDTO,
-     * and tries WebSocket delivery. Falls back to persistence if WebSocket fails.
+     * Checks unread messages and creates a NotificationEntity, or updates the recipient's unseen one from
+     * the same sender. It is pushed over WebSocket after the transaction commits.
      *
      * @param messageDTO the message data transfer object containing sender and recipient info
-     * @return true if notification was created and sent/persisted successfully, false otherwise
+     * @return true if notification was created and queued for delivery, false otherwise
      */
     public boolean newMessageNotification(MessageDTO messageDTO) {
         try {
@@ -96,23 +127,23 @@ public class NotificationService {
                 notificationEntity.setNotificationIsSeen(false);
                 notificationEntity.setMessageCount(unreadCount);
                 notificationRepository.persist(notificationEntity);
+                notificationCounterService.adjust(recipientId, 1, 1);
             } else {
-                // Update existing notification
+                // Update existing notification; it is still unseen, but may have been read
+                if (Boolean.TRUE.equals(notificationEntity.getNotificationIsRead())) {
+                    notificationCounterService.adjust(recipientId, 1, 0);
+                }
                 notificationEntity.setContent(messageDTO.getContent());
                 notificationEntity.setMessageCount(unreadCount);
                 notificationEntity.setCreationDate(LocalDateTime.now());
                 notificationEntity.setNotificationIsRead(false);
                 notificationEntity.setNotificationIsSeen(false);
+                // Pushed again with the new content and count
+                markPending(notificationEntity);
                 // No need to persist explicitly if managed, but can call merge if needed
                 // notificationRepository.merge(notificationEntity);
             }
-
-            // Map to NotificationDTO for WebSocket delivery
-            NotificationDTO notificationDTO = notificationMapper.toDto(notificationEntity);
-            boolean delivered = wsNotifications.notifyUser(notificationDTO);
-            if (!delivered) {
-                logger.info("WebSocket delivery failed, notification persisted for userId {}", recipientId);
-            }
+            notificationsWritten.fire(new NotificationsWrittenEvent());
             return true;
         } catch (Exception e) {
             logger.error("Error creating/sending new message notification", e);
@@ -139,6 +170,117 @@ public class NotificationService {
         }
     }
 
+    /**
+     * Returns what a reconnecting client missed since the last notification it saw: notifications with a
+     * greater ID, plus unseen notifications of the types updated in place, which keep their ID: MESSAGE
+     * notifications and the types in {@code NOTIFICATION_COALESCE_TYPES}.
+     *
+     * @param userId             the ID of the user
+     * @param lastNotificationId the ID of the last notification the client saw
+     * @param limit              maximum number of new notifications worth replaying
+     * @return the notifications to replay, oldest first, or empty if there are more than {@code limit} new
+     *         notifications and the client should load a snapshot instead
+     */
+    @Transactional
+    public Optional<List<NotificationDTO>> getReplay(Long userId, Long lastNotificationId, int limit) {
+        List<NotificationEntity> newer = notificationRepository.getNotificationsAfter(userId, lastNotificationId, limit + 1);
+        if (newer.size() > limit) {
+            return Optional.empty();
+        }
+        Map<Long, NotificationEntity> replay = new LinkedHashMap<>();
+        for (NotificationEntity notification : notificationRepository.getUnseenNotifications(userId, inPlaceTypes())) {
+            if (notification.getId() <= lastNotificationId) {
+                replay.put(notification.getId(), notification);
+            }
+        }
+        newer.forEach(notification -> replay.put(notification.getId(), notification));
+        return Optional.of(replay.values().stream()
+                .map(notificationMapper::toDto)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return the notification types whose rows can change without getting a new ID
+     */
+    private Set<NotificationType> inPlaceTypes() {
+        Set<NotificationType> types = EnumSet.of(NotificationType.MESSAGE);
+        if (coalesceWindowSeconds > 0) {
+            types.addAll(coalescedTypes);
+        }
+        return types;
+    }
+
+    /**
+     * Returns the most recent notifications of a user, newest first.
+     *
+     * @param userId the ID of the user
+     * @param limit  maximum number of notifications
+     * @return list of NotificationDTOs, or empty list on error
+     */
+    @Transactional
+    public List<NotificationDTO> getLatestNotifications(Long userId, int limit) {
+        return notificationRepository.getLatestNotifications(userId, limit).stream()
+                .map(notificationMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns one page of a user's notification feed, newest first.
+     * <p>
+     * The cursor is opaque to clients: it encodes the creation date and ID of the last notification of the
+     * previous page, so every page is a seek on the user's creation date index and costs the same however
+     * much history the user has. MESSAGE notifications move to the top when updated, so one may show up on
+     * a later page again; clients merge pages by ID.
+     *
+     * @param userId the ID of the user
+     * @param cursor the {@code nextCursor} of the previous page, or null for the first page
+     * @param limit  page size, capped at {@link #MAX_FEED_PAGE_SIZE}
+     * @param type   optional filter by notification type
+     * @param unread if true, only notifications not yet read
+     * @param unseen if true, only notifications not yet seen
+     * @return map with the page's {@code notifications}, {@code nextCursor} (null on the last page),
+     *         {@code hasMore} and {@code limit}
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional
+    public Map<String, Object> getNotificationFeed(Long userId, String cursor, int limit, NotificationType type,
+                                                   boolean unread, boolean unseen) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_FEED_PAGE_SIZE));
+        LocalDateTime beforeDate = null;
+        Long beforeId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                beforeDate = LocalDateTime.parse(position[0]);
+                beforeId = Long.valueOf(position[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid notification feed cursor", e);
+            }
+        }
+        // One extra row tells whether another page exists without counting the user's history
+        List<NotificationEntity> page = notificationRepository.getNotificationFeed(userId, beforeDate, beforeId,
+                type, unread, unseen, pageSize + 1);
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) {
+            page = page.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            NotificationEntity last = page.get(page.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getCreationDate() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put("notifications", page.stream()
+                .map(notificationMapper::toDto)
+                .collect(Collectors.toList()));
+        responseData.put("nextCursor", nextCursor);
+        responseData.put("hasMore", hasMore);
+        responseData.put("limit", pageSize);
+        return responseData;
+    }
+
     /**
      * Updates notification status (isRead, isSeen) for a user.
      *
@@ -155,6 +297,8 @@ public class NotificationService {
                 logger.warn("Notification {} does not exist for userId {}", notificationId, userId);
                 return false;
             }
+            boolean wasRead = Boolean.TRUE.equals(notification.getNotificationIsRead());
+            boolean wasSeen = Boolean.TRUE.equals(notification.getNotificationIsSeen());
             boolean changed = false;
             if (updateDTO.getNotificationIsRead() != null) {
                 notification.setNotificationIsRead(updateDTO.getNotificationIsRead());
@@ -167,6 +311,11 @@ public class NotificationService {
             }
             if (changed) {
                 notificationRepository.merge(notification);
+                int unreadDelta = counterDelta(wasRead, notification.getNotificationIsRead());
+                int unseenDelta = counterDelta(wasSeen, notification.getNotificationIsSeen());
+                if (unreadDelta != 0 || unseenDelta != 0) {
+                    notificationCounterService.adjust(userId, unreadDelta, unseenDelta);
+                }
             }
             return changed;
         } catch (Exception e) {
@@ -176,30 +325,20 @@ public class NotificationService {
         }
     }
 
-    /**
-     * Gets the total number of notifications for a user.
-     *
-     * @param id the user ID
-     * @return total number of notifications, or 0 on error
-     */
-    public int getTotalNotifications(Long id) {
-        try {
-            return notificationRepository.getTotalNotifications(id);
-        } catch (Exception e) {
-            logger.error("Failed to get notifications from user " + id);
-            return 0;
-        }
-    }
-
     /**
      * Marks all message notifications as read for a user.
      *
      * @param userId the user ID
      * @return true if successful, false otherwise
      */
+    @Transactional
     public boolean markMessageNotificationsAsRead(Long userId) {
         try {
-            return notificationRepository.markMessageNotificationsAsRead(userId);
+            int marked = notificationRepository.markUnreadMessageNotificationsAsRead(userId);
+            if (marked > 0) {
+                notificationCounterService.adjust(userId, -marked, 0);
+            }
+            return true;
         } catch (Exception e) {
             logger.error("Error marking message notifications as read for user {}", userId, e);
             return false;
@@ -213,7 +352,7 @@ public class NotificationService {
      * the score (as string or "N/A").
      *
      * @param appraisal the appraisal entity containing users and score
-     * @return true if notification was created and sent/persisted successfully, false otherwise
+     * @return true if notification was created and queued for delivery, false otherwise
      */
     @Transactional
     public boolean newAppraisalNotification(AppraisalEntity appraisal) {
@@ -235,23 +374,8 @@ public class NotificationService {
                 return false;
             }
 
-            NotificationEntity notificationEntity = new NotificationEntity();
-            notificationEntity.setSender(senderUser);
-            notificationEntity.setUser(recipientUser);
-            notificationEntity.setType(NotificationType.APPRAISAL);
             String scoreStr = appraisal.getScore() != null ? String.valueOf(appraisal.getScore()) : "N/A";
-            notificationEntity.setContent(scoreStr);
-            notificationEntity.setCreationDate(LocalDateTime.now());
-            notificationEntity.setNotificationIsRead(false);
-            notificationEntity.setNotificationIsSeen(false);
-            notificationEntity.setMessageCount(0); // Not relevant for appraisal
-            notificationRepository.persist(notificationEntity);
-
-            NotificationDTO notificationDTO = notificationMapper.toDto(notificationEntity);
-            boolean delivered = wsNotifications.notifyUser(notificationDTO);
-            if (!delivered) {
-                logger.info("WebSocket delivery failed, appraisal notification persisted for userId {}", recipientId);
-            }
+            writeNotification(recipientUser, senderUser, NotificationType.APPRAISAL, scoreStr);
             return true;
         } catch (Exception e) {
             logger.error("Error creating/sending new appraisal notification", e);
@@ -265,7 +389,7 @@ public class NotificationService {
      * The recipient is the user, sender is the user's manager, content is the course id.
      *
      * @param finishedCourse the finished course entity
-     * @return true if notification was created and sent/persisted successfully, false otherwise
+     * @return true if notification was created and queued for delivery, false otherwise
      */
     @Transactional
     public boolean newCourseNotification(FinishedCourseEntity finishedCourse) {
@@ -288,24 +412,9 @@ public class NotificationService {
                 return false;
             }
 
-            NotificationEntity notificationEntity = new NotificationEntity();
-            notificationEntity.setSender(sender);
-            notificationEntity.setUser(recipientUser);
-            notificationEntity.setType(NotificationType.COURSE);
             String courseIdStr = finishedCourse.getCourse() != null ? String.valueOf(finishedCourse.getCourse().getTitle())
                     : "N/A";
-            notificationEntity.setContent(courseIdStr);
-            notificationEntity.setCreationDate(LocalDateTime.now());
-            notificationEntity.setNotificationIsRead(false);
-            notificationEntity.setNotificationIsSeen(false);
-            notificationEntity.setMessageCount(0); // Not relevant for course
-            notificationRepository.persist(notificationEntity);
-
-            NotificationDTO notificationDTO = notificationMapper.toDto(notificationEntity);
-            boolean delivered = wsNotifications.notifyUser(notificationDTO);
-            if (!delivered) {
-                logger.info("WebSocket delivery failed, course notification persisted for userId {}", recipientId);
-            }
+            writeNotification(recipientUser, sender, NotificationType.COURSE, courseIdStr);
             return true;
         } catch (Exception e) {
             logger.error("Error creating/sending new course notification", e);
@@ -316,110 +425,168 @@ public class NotificationService {
     /**
      * Creates and sends a new cycle open notification to a list of users.
      * <p>
-     * For each user, creates a CYCLE_OPEN notification with the cycle end date as content.
+     * Every user gets a CYCLE_OPEN notification with the cycle end date as content, created and pushed with
+     * {@link #broadcast(NotificationType, Long, String, Collection)}.
      *
      * @param cycle the cycle entity
      * @param users the list of users to notify
      */
     @Transactional
     public void newCycleOpenNotification(CycleEntity cycle, List<UserEntity> users) {
-        try {
-            if (cycle == null || cycle.getAdmin() == null || users == null) {
-                logger.error("Invalid cycle or user list for cycle notification");
-                return;
-            }
-            Long senderId = cycle.getAdmin().getId();
-            String endDateStr = cycle.getEndDate() != null ? cycle.getEndDate().toString() : "N/A";
-            for (UserEntity user : users) {
-                if (user == null)
-                    continue;
-                Long recipientId = user.getId();
-                UserEntity recipientUser = userRepository.findUserById(recipientId);
-                if (recipientUser == null) {
-                    logger.error("Cycle notification recipient user {} not found", recipientId);
-                    continue;
-                }
-                UserEntity sender = userRepository.findUserById(senderId);
-                if (sender == null) {
-                    logger.error("Cycle notification recipient user {} not found", senderId);
-                    continue;
-                }
-
-                NotificationEntity notificationEntity = new NotificationEntity();
-                notificationEntity.setSender(sender);
-                notificationEntity.setUser(recipientUser);
-                notificationEntity.setType(NotificationType.CYCLE_OPEN);
-                notificationEntity.setContent(endDateStr);
-                notificationEntity.setCreationDate(LocalDateTime.now());
-                notificationEntity.setNotificationIsRead(false);
-                notificationEntity.setNotificationIsSeen(false);
-                notificationEntity.setMessageCount(0); // Not relevant for cycle
-                notificationRepository.persist(notificationEntity);
-
-                NotificationDTO notificationDTO = notificationMapper.toDto(notificationEntity);
-                boolean delivered = wsNotifications.notifyUser(notificationDTO);
-                if (!delivered) {
-                    logger.info("WebSocket delivery failed, cycle notification persisted for userId {}", recipientId);
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error creating/sending new cycle notifications", e);
-        }
+        newCycleNotification(cycle, users, NotificationType.CYCLE_OPEN);
     }
 
     /**
      * Creates and sends a new cycle close notification to a list of users.
      * <p>
-     * For each user, creates a CYCLE_CLOSE notification with the cycle end date as content.
+     * Every user gets a CYCLE_CLOSE notification with the cycle end date as content, created and pushed with
+     * {@link #broadcast(NotificationType, Long, String, Collection)}.
      *
      * @param cycle the cycle entity
      * @param users the list of users to notify
      */
     @Transactional
     public void newCycleCloseNotification(CycleEntity cycle, List<UserEntity> users) {
+        newCycleNotification(cycle, users, NotificationType.CYCLE_CLOSE);
+    }
+
+    private void newCycleNotification(CycleEntity cycle, List<UserEntity> users, NotificationType type) {
         try {
             if (cycle == null || cycle.getAdmin() == null || users == null) {
                 logger.error("Invalid cycle or user list for cycle notification");
                 return;
             }
-            Long senderId = cycle.getAdmin().getId();
             String endDateStr = cycle.getEndDate() != null ? cycle.getEndDate().toString() : "N/A";
+            Set<Long> recipientIds = new LinkedHashSet<>();
             for (UserEntity user : users) {
-                if (user == null)
-                    continue;
-                Long recipientId = user.getId();
-                UserEntity recipientUser = userRepository.findUserById(recipientId);
-                if (recipientUser == null) {
-                    logger.error("Cycle notification recipient user {} not found", recipientId);
-                    continue;
-                }
-                UserEntity sender = userRepository.findUserById(senderId);
-                if (sender == null) {
-                    logger.error("Cycle notification recipient user {} not found", senderId);
-                    continue;
-                }
-                NotificationEntity notificationEntity = new NotificationEntity();
-                notificationEntity.setSender(sender);
-                notificationEntity.setUser(recipientUser);
-                notificationEntity.setType(NotificationType.CYCLE_CLOSE);
-                notificationEntity.setContent(endDateStr);
-                notificationEntity.setCreationDate(LocalDateTime.now());
-                notificationEntity.setNotificationIsRead(false);
-                notificationEntity.setNotificationIsSeen(false);
-                notificationEntity.setMessageCount(0); // Not relevant for cycle
-                notificationRepository.persist(notificationEntity);
-
-                NotificationDTO notificationDTO = notificationMapper.toDto(notificationEntity);
-                boolean delivered = wsNotifications.notifyUser(notificationDTO);
-                if (!delivered) {
-                    logger.info("WebSocket delivery failed, cycle notification persisted for userId {}", recipientId);
+                if (user != null && user.getId() != null) {
+                    recipientIds.add(user.getId());
                 }
             }
+            broadcast(type, cycle.getAdmin().getId(), endDateStr, recipientIds);
         } catch (Exception e) {
             logger.error("Error creating/sending new cycle notifications", e);
         }
     }
 
+    /**
+     * Creates the same notification for many users.
+     * <p>
+     * The sender is loaded once and the rows are created with bulk inserts. The dispatcher later recognises
+     * them as one broadcast and serializes the notification once for all connected recipients. Recipients
+     * that are not connected find the notification when they next load their notifications.
+     *
+     * @param type         the notification type
+     * @param senderId     the ID of the sending user
+     * @param content      the notification content
+     * @param recipientIds the IDs of the users to notify
+     * @return the number of notifications created
+     */
+    @Transactional
+    public int broadcast(NotificationType type, Long senderId, String content, Collection<Long> recipientIds) {
+        if (recipientIds == null || recipientIds.isEmpty()) {
+            return 0;
+        }
+        UserEntity sender = userRepository.findUserById(senderId);
+        if (sender == null) {
+            logger.error("Broadcast sender user {} not found", senderId);
+            return 0;
+        }
+        // Truncated so every row of this broadcast keeps the same value after the database round trip
+        LocalDateTime creationDate = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        int created = notificationRepository.insertBroadcast(type, content, senderId, recipientIds, creationDate);
+        if (created > 0) {
+            notificationCounterService.adjust(recipientIds, 1, 1);
+            notificationsWritten.fire(new NotificationsWrittenEvent());
+        }
+        logger.info("Broadcast {} notification to {} users", type, created);
+        return created;
+    }
+
+    /**
+     * @return the notification types named in a comma-separated list; unknown names are logged and skipped
+     */
+    private static Set<NotificationType> parseTypes(String value) {
+        Set<NotificationType> types = EnumSet.noneOf(NotificationType.class);
+        for (String name : value.split(",")) {
+            if (name.isBlank()) {
+                continue;
+            }
+            try {
+                types.add(NotificationType.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Unknown notification type '{}' in NOTIFICATION_COALESCE_TYPES", name.trim());
+            }
+        }
+        // MESSAGE notifications already fold per sender by unread message count
+        types.remove(NotificationType.MESSAGE);
+        return types;
+    }
+
+    /**
+     * @return change of a counter of notifications without a flag, when the flag goes from one value to another
+     */
+    private static int counterDelta(boolean before, Boolean after) {
+        boolean now = Boolean.TRUE.equals(after);
+        return before == now ? 0 : now ? -1 : 1;
+    }
+
+    /**
+     * Writes a notification and queues it for delivery, or folds it into a recent one.
+     * <p>
+     * For the types in {@code NOTIFICATION_COALESCE_TYPES}, a notification is folded into the newest unread and
+     * unseen notification of the same type from the same sender to the same recipient created less than
+     * {@code NOTIFICATION_COALESCE_WINDOW_SECONDS} ago. The folded row takes the new content and counts the
+     * notifications it stands for in its message count, so a burst such as closing a cycle's appraisals leaves
+     * one row and one push per recipient. The window starts with the first notification of the burst. Folding
+     * leaves the unread and unseen counters alone, since the row was already counted.
+     *
+     * @param recipient the receiving user
+     * @param sender    the sending user
+     * @param type      the notification type
+     * @param content   the notification content
+     * @return the created or updated notification
+     */
+    private NotificationEntity writeNotification(UserEntity recipient, UserEntity sender, NotificationType type,
+                                                 String content) {
+        LocalDateTime now = LocalDateTime.now();
+        if (coalesceWindowSeconds > 0 && coalescedTypes.contains(type)) {
+            NotificationEntity burst = notificationRepository.findCoalescibleNotification(recipient.getId(), type,
+                    sender.getId(), now.minusSeconds(coalesceWindowSeconds));
+            if (burst != null) {
+                int folded = burst.getMessageCount() == null ? 1 : Math.max(1, burst.getMessageCount());
+                burst.setMessageCount(folded + 1);
+                burst.setContent(content);
+                // Pushed again with the new content and count
+                markPending(burst);
+                notificationsWritten.fire(new NotificationsWrittenEvent());
+                return burst;
+            }
+        }
+        NotificationEntity notificationEntity = new NotificationEntity();
+        notificationEntity.setSender(sender);
+        notificationEntity.setUser(recipient);
+        notificationEntity.setType(type);
+        notificationEntity.setContent(content);
+        notificationEntity.setCreationDate(now);
+        notificationEntity.setNotificationIsRead(false);
+        notificationEntity.setNotificationIsSeen(false);
+        notificationEntity.setMessageCount(0); // Counts folded notifications once a second one arrives
+        notificationRepository.persist(notificationEntity);
+        notificationCounterService.adjust(notificationEntity.getRecipientId(), 1, 1);
+        notificationsWritten.fire(new NotificationsWrittenEvent());
+        return notificationEntity;
+    }
+
+    /**
+     * Queues an updated notification for delivery again.
+     */
+    private static void markPending(NotificationEntity notificationEntity) {
+        notificationEntity.setDeliveryState(NotificationDeliveryState.PENDING);
+        notificationEntity.setDeliveryAttempts(0);
+        notificationEntity.setNextDeliveryAttempt(null);
+    }
+
     /**
      * Creates and sends a new user update notification to the user's manager.
      * <p>
@@ -438,22 +605,8 @@ public class NotificationService {
                 logger.error("User {} has no manager for user update notification", userUpdated.getId());
                 return;
             }
-                NotificationEntity notificationEntity = new NotificationEntity();
-                notificationEntity.setSender(userUpdated);
-                notificationEntity.setUser(userUpdated.getManager());
-                notificationEntity.setType(NotificationType.USER_UPDATE);
-                notificationEntity.setContent(userUpdated.getName() + " " + userUpdated.getSurname());
-                notificationEntity.setCreationDate(LocalDateTime.now());
-                notificationEntity.setNotificationIsRead(false);
-                notificationEntity.setNotificationIsSeen(false);
-                notificationEntity.setMessageCount(0);
-                notificationRepository.persist(notificationEntity);
-
-                NotificationDTO notificationDTO = notificationMapper.toDto(notificationEntity);
-                boolean delivered = wsNotifications.notifyUser(notificationDTO);
-                if (!delivered) {
-                    logger.info("WebSocket delivery failed, user updated notification persisted for userId {}", userUpdated.getId());
-                }
+            writeNotification(userUpdated.getManager(), userUpdated, NotificationType.USER_UPDATE,
+                    userUpdated.getName() + " " + userUpdated.getSurname());
         } catch (Exception e) {
             logger.error("Error creating/sending new cycle notifications", e);
         }
@@ -0,0 +1,8 @@
+package pt.uc.dei.services;
+
+/**
+ * CDI event fired by {@link NotificationService} after it wrote notifications that are waiting for WebSocket
+ * delivery. {@link NotificationDispatcher} observes it once the writing transaction has committed.
+ */
+public final class NotificationsWrittenEvent {
+}
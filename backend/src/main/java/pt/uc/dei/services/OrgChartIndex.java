@@ -0,0 +1,226 @@
+package pt.uc.dei.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.repositories.UserRepository;
+import pt.uc.dei.utils.LongLongHashMap;
+import pt.uc.dei.websocket.MessageBus;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the organisation chart used for manager-of-user authorization checks.
+ * <p>
+ * Keeps a primitive user-to-direct-manager map and the reverse children adjacency, so
+ * "is X the (direct or transitive) manager of Y" is answered in O(depth) without the database.
+ * Loaded at startup by {@link pt.uc.dei.initializer.DataInitializer} and kept up to date from the
+ * {@link ManagerChangedEvent}s fired by {@link UserService#updateUser} on manager reassignments, applied only
+ * once the reassignment has committed.
+ * <p>
+ * The index is kept per node, so each reassignment is also published on the {@link MessageBus} and applied by
+ * the other nodes the same way. A node whose bus connection dropped may have missed some, so it reloads the
+ * whole index from the database once the bus reconnects.
+ */
+@ApplicationScoped
+public class OrgChartIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger(OrgChartIndex.class);
+
+    static final String CHANNEL = "org_chart";
+
+    private static final long NO_MANAGER = 0L;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongLongHashMap managerOf = new LongLongHashMap(1024);
+    private final Map<Long, Set<Long>> reportsOf = new HashMap<>();
+
+    @Inject
+    MessageBus messageBus;
+
+    @Inject
+    UserRepository userRepository;
+
+    /**
+     * Subscribes to the reassignments committed on other nodes.
+     */
+    @PostConstruct
+    void subscribe() {
+        messageBus.subscribe(CHANNEL, this::onRemoteChange);
+        messageBus.onReconnect(this::reload);
+    }
+
+    /**
+     * Replaces the index with the given manager links.
+     *
+     * @param userToManager map of user id to direct manager id, for users that have a manager
+     */
+    public void load(Map<Long, Long> userToManager) {
+        lock.writeLock().lock();
+        try {
+            managerOf.clear();
+            reportsOf.clear();
+            userToManager.forEach(this::link);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Org chart index loaded with {} manager links", userToManager.size());
+    }
+
+    /**
+     * Records a user's direct manager, replacing any previous one.
+     *
+     * @param userId    the user id
+     * @param managerId the new direct manager id, or {@code null} to remove the link
+     */
+    public void setManager(Long userId, Long managerId) {
+        if (userId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            unlink(userId);
+            if (managerId != null) {
+                link(userId, managerId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a committed manager reassignment and forwards it to the other nodes.
+     *
+     * @param event the user and their new direct manager
+     */
+    public void onManagerChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) ManagerChangedEvent event) {
+        setManager(event.getUserId(), event.getManagerId());
+        String managerId = event.getManagerId() == null ? "" : event.getManagerId().toString();
+        if (!messageBus.publish(CHANNEL, event.getUserId() + ":" + managerId)) {
+            LOGGER.error("Failed to publish the new manager of user {} to the other nodes", event.getUserId());
+        }
+    }
+
+    /**
+     * Applies a reassignment published by another node, as {@code userId:managerId} with an empty manager id
+     * when the link was removed.
+     */
+    private void onRemoteChange(String payload) {
+        int separator = payload.indexOf(':');
+        try {
+            String managerId = payload.substring(separator + 1);
+            setManager(Long.parseLong(payload.substring(0, separator)),
+                    managerId.isEmpty() ? null : Long.parseLong(managerId));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Ignoring malformed org chart message: {}", payload);
+        }
+    }
+
+    private void reload() {
+        LOGGER.info("Reloading org chart index after a message bus reconnect");
+        load(userRepository.findManagerLinks());
+    }
+
+    /**
+     * Returns a user's direct manager.
+     *
+     * @param userId the user id
+     * @return the manager id, or {@code null} if the user has no manager
+     */
+    public Long getManager(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            long managerId = managerOf.get(userId, NO_MANAGER);
+            return managerId == NO_MANAGER ? null : managerId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether {@code managerId} is the direct manager of {@code userId}.
+     */
+    public boolean isDirectManager(Long managerId, Long userId) {
+        return managerId != null && managerId.equals(getManager(userId));
+    }
+
+    /**
+     * Checks whether {@code managerId} is the direct or transitive manager of {@code userId}.
+     * Walks up the chain from the user; a cycle in the data ends the walk instead of looping.
+     */
+    public boolean isManagerOf(Long managerId, Long userId) {
+        if (managerId == null || userId == null) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            long current = managerOf.get(userId, NO_MANAGER);
+            for (int steps = 0; current != NO_MANAGER && steps <= managerOf.size(); steps++) {
+                if (current == managerId) {
+                    return true;
+                }
+                current = managerOf.get(current, NO_MANAGER);
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the users directly managed by {@code managerId}.
+     *
+     * @return an immutable copy, empty if the user manages nobody
+     */
+    public Set<Long> getDirectReports(Long managerId) {
+        lock.readLock().lock();
+        try {
+            Set<Long> reports = reportsOf.get(managerId);
+            return reports == null ? Collections.emptySet() : Set.copyOf(reports);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of users with a manager
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return managerOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void link(Long userId, Long managerId) {
+        managerOf.put(userId, managerId, NO_MANAGER);
+        reportsOf.computeIfAbsent(managerId, id -> new LinkedHashSet<>()).add(userId);
+    }
+
+    private void unlink(Long userId) {
+        long previous = managerOf.remove(userId, NO_MANAGER);
+        if (previous != NO_MANAGER) {
+            Set<Long> reports = reportsOf.get(previous);
+            if (reports != null) {
+                reports.remove(userId);
+                if (reports.isEmpty()) {
+                    reportsOf.remove(previous);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package pt.uc.dei.services;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ApplicationException;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EnvironmentConfig;
+import pt.uc.dei.utils.LatencyHistogram;
+import pt.uc.dei.utils.PasswordUtils;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs BCrypt hashing and verification on a dedicated, bounded thread pool.
+ * <p>
+ * BCrypt is deliberately slow; running it on the HTTP worker threads lets a burst of logins starve every
+ * other endpoint. This service caps hashing concurrency ({@code PASSWORD_HASH_THREADS}), bounds the number
+ * of waiting requests ({@code PASSWORD_HASH_QUEUE}) and fails fast with
+ * {@link PasswordHashingUnavailableException} when a request would wait longer than
+ * {@code PASSWORD_HASH_QUEUE_TIMEOUT_MS}. The cost factor for new hashes comes from
+ * {@code PASSWORD_BCRYPT_COST}; hashes with a different cost are upgraded on the next successful login.
+ * Hash latency and queue wait are recorded in histograms exposed through {@link #getStats()}.
+ */
+@ApplicationScoped
+public class PasswordHashingService {
+
+    private static final Logger LOGGER = LogManager.getLogger(PasswordHashingService.class);
+
+    /**
+     * Extra time a caller waits for a task that has left the queue, on top of the queue timeout.
+     */
+    private static final long HASH_BUDGET_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final int cost;
+    private final int threads;
+    private final int queueCapacity;
+    private final long queueTimeoutNanos;
+    private final ThreadPoolExecutor executor;
+
+    private final LatencyHistogram hashLatency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder rehashed = new LongAdder();
+
+    /**
+     * Creates the service configured from the environment.
+     */
+    public PasswordHashingService() {
+        this(EnvironmentConfig.getInt("PASSWORD_HASH_THREADS", Math.max(2, Runtime.getRuntime().availableProcessors() / 2)),
+                EnvironmentConfig.getInt("PASSWORD_HASH_QUEUE", 64),
+                Duration.ofMillis(EnvironmentConfig.getLong("PASSWORD_HASH_QUEUE_TIMEOUT_MS", 2000)),
+                EnvironmentConfig.getInt("PASSWORD_BCRYPT_COST", PasswordUtils.DEFAULT_COST));
+    }
+
+    /**
+     * Creates the service with explicit limits.
+     *
+     * @param threads       maximum number of concurrent hash operations
+     * @param queueCapacity maximum number of operations waiting for a thread
+     * @param queueTimeout  maximum time an operation may wait before it is abandoned
+     * @param cost          BCrypt cost factor for new hashes
+     */
+    public PasswordHashingService(int threads, int queueCapacity, Duration queueTimeout, int cost) {
+        this.threads = Math.max(1, threads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.cost = cost;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Verifies a password against its stored hash.
+     *
+     * @param hashedPassword the stored BCrypt hash
+     * @param plainPassword  the password supplied by the user
+     * @return {@code true} if the password matches
+     * @throws PasswordHashingUnavailableException if the pool is saturated
+     */
+    public boolean verify(String hashedPassword, String plainPassword) {
+        return run(() -> PasswordUtils.verify(hashedPassword, plainPassword));
+    }
+
+    /**
+     * Hashes a password with the configured cost.
+     *
+     * @param plainPassword the password to hash
+     * @return the BCrypt hash
+     * @throws PasswordHashingUnavailableException if the pool is saturated
+     */
+    public String hash(String plainPassword) {
+        return run(() -> PasswordUtils.encrypt(plainPassword, cost));
+    }
+
+    /**
+     * Checks whether a stored hash was produced with a different cost than the configured one.
+     */
+    public boolean needsRehash(String hashedPassword) {
+        return PasswordUtils.getCost(hashedPassword) != cost;
+    }
+
+    /**
+     * Produces a new hash for a password that has just been verified, if its stored hash uses an outdated cost.
+     * Never fails the caller: when the pool is busy the upgrade is simply skipped until the next login.
+     *
+     * @param hashedPassword the stored hash that was just verified
+     * @param plainPassword  the verified plain-text password
+     * @return the new hash, or {@code null} if no upgrade is needed or possible right now
+     */
+    public String rehashIfNeeded(String hashedPassword, String plainPassword) {
+        if (!needsRehash(hashedPassword)) {
+            return null;
+        }
+        try {
+            String upgraded = hash(plainPassword);
+            rehashed.increment();
+            return upgraded;
+        } catch (PasswordHashingUnavailableException e) {
+            LOGGER.info("Skipping password rehash, hashing pool busy");
+            return null;
+        }
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * Returns pool configuration, counters and latency histograms.
+     *
+     * @return map suitable for a metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cost", cost);
+        stats.put("threads", threads);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("queueTimeoutMs", TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos));
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("rejected", rejected.sum());
+        stats.put("timedOut", timedOut.sum());
+        stats.put("rehashed", rehashed.sum());
+        stats.put("hashLatency", hashLatency.toMap());
+        stats.put("queueWait", queueWait.toMap());
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> operation) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long waited = System.nanoTime() - enqueuedAt;
+                queueWait.record(waited);
+                if (waited > queueTimeoutNanos) {
+                    throw new PasswordHashingUnavailableException("Password hashing request waited too long");
+                }
+                long startedAt = System.nanoTime();
+                try {
+                    return operation.call();
+                } finally {
+                    hashLatency.recordSince(startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            LOGGER.warn("Password hashing queue full ({} waiting)", queueCapacity);
+            throw new PasswordHashingUnavailableException("Password hashing queue is full");
+        }
+        try {
+            return future.get(queueTimeoutNanos + HASH_BUDGET_NANOS, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new PasswordHashingUnavailableException("Password hashing timed out");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PasswordHashingUnavailableException) {
+                timedOut.increment();
+                LOGGER.warn("Password hashing request dropped after waiting in queue");
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new PasswordHashingUnavailableException("Interrupted while waiting for password hashing");
+        }
+    }
+
+    /**
+     * Thrown when a hashing request cannot be served in time because the pool is saturated.
+     * Mapped to HTTP 503 by {@link pt.uc.dei.config.PasswordHashingUnavailableExceptionMapper}.
+     */
+    @ApplicationException(rollback = true)
+    public static class PasswordHashingUnavailableException extends RuntimeException {
+        public PasswordHashingUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
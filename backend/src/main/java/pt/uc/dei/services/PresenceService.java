@@ -0,0 +1,224 @@
+package pt.uc.dei.services;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.EJB;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EnvironmentConfig;
+import pt.uc.dei.repositories.MessageRepository;
+import pt.uc.dei.repositories.UserRepository;
+import pt.uc.dei.websocket.WebSocketCluster;
+import pt.uc.dei.websocket.WsChat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which users are online from their open WebSocket sessions and persists presence in the background.
+ * <p>
+ * A user is online while at least one chat or notification socket is open. Sessions are only held in the
+ * endpoints' {@link pt.uc.dei.websocket.SessionRegistry registries}; after registering or removing one, an
+ * endpoint calls {@link #sessionsChanged(Long)} and presence re-reads them through {@link WebSocketCluster}, so
+ * no open, close, error or reap path has a second structure to keep in sync. Presence changes are kept in
+ * memory and written to {@code UserEntity.onlineStatus}/{@code lastSeen} by {@link #flush()} in batched
+ * bulk updates every few seconds, instead of a find + merge on every login, logout and socket connect.
+ * Transitions (first socket opened, last socket closed) are pushed to the user's chat contacts through
+ * {@link WsChat}.
+ * <p>
+ * With several nodes a user may have sockets on another one, which this node only knows from the cluster
+ * directory. Presence is therefore routed through {@link WebSocketCluster#isConnected(Long)}: a node never
+ * writes a user offline, nor tells their contacts so, while another node still reports sessions of them. The
+ * check is repeated when the write is flushed, after the other nodes' {@code JOIN}/{@code LEAVE} messages had
+ * time to arrive. Stale {@code onlineStatus} flags left by a crash are cleared by {@link #resetOnlineStatus()}
+ * the same way, sparing users connected to the nodes still running.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PresenceService {
+
+    private static final Logger LOGGER = LogManager.getLogger(PresenceService.class);
+
+    /**
+     * Users last seen with a session on this node, so each transition is published once.
+     */
+    private final Map<Long, Boolean> onlineUsers = new ConcurrentHashMap<>();
+
+    /**
+     * Presence waiting to be written: user id to the online flag to persist.
+     */
+    private final Map<Long, Boolean> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Users flagged online in the database at startup, to reset once the cluster directory is known.
+     */
+    private final Set<Long> unconfirmed = ConcurrentHashMap.newKeySet();
+
+    private final long resetDelayMs = EnvironmentConfig.getLong("PRESENCE_RESET_DELAY_MS", 30_000L);
+    private volatile long resetAfter;
+
+    @EJB
+    UserRepository userRepository;
+
+    @EJB
+    MessageRepository messageRepository;
+
+    @Inject
+    WsChat wsChat;
+
+    @Inject
+    WebSocketCluster cluster;
+
+    /**
+     * Re-reads a user's sessions after an endpoint registered or removed one. The first session of a user
+     * marks them online, closing the last one marks them offline. Safe to call more than once per change.
+     *
+     * @param userId the user whose sessions changed
+     */
+    public void sessionsChanged(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        Boolean[] transition = {null};
+        // The registries are read under the entry's lock, so concurrent changes for one user apply in order
+        onlineUsers.compute(userId, (id, wasOnline) -> {
+            boolean isOnline = cluster.isConnectedHere(id);
+            if (isOnline != (wasOnline != null)) {
+                transition[0] = isOnline;
+            }
+            return isOnline ? Boolean.TRUE : null;
+        });
+        if (transition[0] != null) {
+            pending.put(userId, transition[0]);
+            if (transition[0] || !cluster.isConnectedElsewhere(userId)) {
+                publish(userId, transition[0]);
+            }
+        }
+    }
+
+    /**
+     * Records activity outside a WebSocket (login, logout) so {@code lastSeen} is refreshed on the next flush.
+     * The persisted online flag still follows the user's open sessions.
+     *
+     * @param userId the user id
+     * @return {@code false} if no user id was given
+     */
+    public boolean recordActivity(Long userId) {
+        if (userId == null) {
+            return false;
+        }
+        pending.put(userId, isOnline(userId));
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the user has at least one open WebSocket session on any node
+     */
+    public boolean isOnline(Long userId) {
+        return userId != null && cluster.isConnected(userId);
+    }
+
+    /**
+     * @return ids of all users with an open WebSocket session on this node
+     */
+    public Set<Long> getOnlineUserIds() {
+        return Collections.unmodifiableSet(onlineUsers.keySet());
+    }
+
+    /**
+     * @return number of presence updates waiting to be persisted
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Writes pending presence changes with at most two bulk updates (online and offline users).
+     * {@code lastSeen} is set to the flush time, so it may lag the real transition by one flush interval.
+     * Users still connected to another node are left to that node. Entries that change again while the flush
+     * runs are kept for the next one; failed writes are retried.
+     */
+    @Schedule(second = "*/10", minute = "*", hour = "*", persistent = false)
+    public void flush() {
+        resetUnconfirmed();
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, Boolean> batch = Map.copyOf(pending);
+        List<Long> online = new ArrayList<>();
+        List<Long> offline = new ArrayList<>();
+        batch.forEach((userId, isOnline) -> {
+            if (isOnline) {
+                online.add(userId);
+            } else if (!cluster.isConnected(userId)) {
+                offline.add(userId);
+            }
+        });
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            int updated = userRepository.updatePresence(online, true, now)
+                    + userRepository.updatePresence(offline, false, now);
+            batch.forEach(pending::remove);
+            LOGGER.debug("Flushed presence for {} users ({} rows)", batch.size(), updated);
+        } catch (Exception e) {
+            LOGGER.error("Failed to flush presence for {} users, will retry", batch.size(), e);
+        }
+    }
+
+    /**
+     * Schedules the reset of the {@code onlineStatus} flags found at startup. Called once at startup, when no
+     * socket of this node can be open yet; the flags of users connected to other nodes must survive, so the
+     * reset runs with a flush after {@code PRESENCE_RESET_DELAY_MS}, once the other nodes answered this node's
+     * {@code HELLO}.
+     */
+    public void resetOnlineStatus() {
+        List<Long> flagged = userRepository.findOnlineUserIds();
+        unconfirmed.addAll(flagged);
+        resetAfter = System.currentTimeMillis() + resetDelayMs;
+        LOGGER.info("Node {} will reset the online status of {} users not connected to any node",
+                cluster.getNodeId(), flagged.size());
+    }
+
+    /**
+     * Clears the startup flags of users no node reports sessions of, once the reset delay has passed.
+     */
+    private void resetUnconfirmed() {
+        if (unconfirmed.isEmpty() || System.currentTimeMillis() < resetAfter) {
+            return;
+        }
+        List<Long> stale = unconfirmed.stream().filter(userId -> !cluster.isConnected(userId)).toList();
+        try {
+            int reset = userRepository.resetOnlineStatus(stale);
+            unconfirmed.clear();
+            LOGGER.info("Reset online status for {} users", reset);
+        } catch (Exception e) {
+            LOGGER.error("Failed to reset online status for {} users, will retry", stale.size(), e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private void publish(Long userId, boolean online) {
+        try {
+            List<Object[]> contacts = messageRepository.getAllConversations(userId);
+            for (Object[] contact : contacts) {
+                // Contacts may be connected to another node, so delivery decides where (and whether) to send
+                wsChat.sendPresence((Long) contact[0], userId, online);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Failed to publish presence of user {}: {}", userId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package pt.uc.dei.services;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EnvironmentConfig;
+import pt.uc.dei.dtos.UserResponseDTO;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, time-limited cache of authenticated principals ({@link UserResponseDTO}) keyed by user id.
+ * <p>
+ * Used by the authentication filter to avoid loading and mapping the user on every request.
+ * Entries expire after a fixed TTL ({@code PRINCIPAL_CACHE_TTL_SECONDS}, default 60) and the cache
+ * holds at most {@code PRINCIPAL_CACHE_MAX_ENTRIES} users (default 10000); when full, expired entries
+ * are purged first and then the entries closest to expiry are evicted.
+ * <p>
+ * Services that change data exposed through the principal (roles, manager, account state, avatar,
+ * completed courses, soft-delete) fire a {@link PrincipalChangedEvent}; the cache drops those users once the
+ * change has committed, so the next request reloads it. Invalidating inside the transaction would let a request
+ * running before the commit cache the old row again. A load that overlaps an invalidation is returned to its
+ * caller but not cached.
+ */
+@ApplicationScoped
+public class PrincipalCache {
+
+    private static final Logger LOGGER = LogManager.getLogger(PrincipalCache.class);
+
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    /**
+     * Creates a cache configured from the environment.
+     */
+    public PrincipalCache() {
+        this(EnvironmentConfig.getInt("PRINCIPAL_CACHE_MAX_ENTRIES", 10_000),
+                Duration.ofSeconds(EnvironmentConfig.getLong("PRINCIPAL_CACHE_TTL_SECONDS", 60)),
+                System::nanoTime);
+    }
+
+    /**
+     * Creates a cache with explicit limits.
+     *
+     * @param maxEntries maximum number of cached principals
+     * @param ttl        time an entry stays valid after being loaded
+     * @param clock      monotonic nanosecond clock
+     */
+    public PrincipalCache(int maxEntries, Duration ttl, LongSupplier clock) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached principal for a user, loading it on a miss.
+     * {@code null} results from the loader are not cached.
+     *
+     * @param userId the user id
+     * @param loader function that loads the principal from the database
+     * @return the principal, or {@code null} if the loader found no user
+     */
+    public UserResponseDTO get(Long userId, Function<Long, UserResponseDTO> loader) {
+        long now = clock.getAsLong();
+        Entry entry = entries.get(userId);
+        if (entry != null) {
+            if (entry.expiresAt - now > 0) {
+                hits.increment();
+                return entry.principal;
+            }
+            if (entries.remove(userId, entry)) {
+                evictions.increment();
+            }
+        }
+        misses.increment();
+
+        long epoch = invalidationEpoch.get();
+        UserResponseDTO principal = loader.apply(userId);
+        if (principal != null && ttlNanos > 0) {
+            entries.put(userId, new Entry(principal, clock.getAsLong() + ttlNanos));
+            if (invalidationEpoch.get() != epoch) {
+                // An invalidation ran while we were loading; the value may already be stale
+                entries.remove(userId);
+            } else if (entries.size() > maxEntries) {
+                evict();
+            }
+        }
+        return principal;
+    }
+
+    /**
+     * Removes the given users from the cache.
+     *
+     * @param userIds ids of users whose principal changed; {@code null} ids are ignored
+     */
+    public void invalidate(Long... userIds) {
+        invalidationEpoch.incrementAndGet();
+        for (Long userId : userIds) {
+            if (userId != null && entries.remove(userId) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops the principals of the users changed by a committed transaction.
+     *
+     * @param event the changed users
+     */
+    public void onPrincipalChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) PrincipalChangedEvent event) {
+        invalidate(event.getUserIds().toArray(new Long[0]));
+    }
+
+    /**
+     * Removes every cached principal.
+     */
+    public void invalidateAll() {
+        invalidationEpoch.incrementAndGet();
+        int size = entries.size();
+        entries.clear();
+        invalidations.add(size);
+    }
+
+    /**
+     * Returns the cache counters.
+     *
+     * @return map with hits, misses, evictions, invalidations, size, hitRatio, maxEntries and ttlSeconds
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("size", entries.size());
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", Duration.ofNanos(ttlNanos).toSeconds());
+        return stats;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Brings the cache back under its limit: expired entries go first, then the ones closest to
+     * expiry until the cache is at 90% of capacity, so eviction is not triggered on every insert.
+     */
+    private synchronized void evict() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        long now = clock.getAsLong();
+        List<Map.Entry<Long, Entry>> live = new ArrayList<>(entries.size());
+        for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+            if (e.getValue().expiresAt - now <= 0) {
+                if (entries.remove(e.getKey(), e.getValue())) {
+                    evictions.increment();
+                }
+            } else {
+                live.add(e);
+            }
+        }
+        int target = Math.max(1, (int) (maxEntries * 0.9));
+        if (entries.size() <= target) {
+            return;
+        }
+        live.sort(Comparator.comparingLong(e -> e.getValue().expiresAt));
+        for (Map.Entry<Long, Entry> e : live) {
+            if (entries.size() <= target) {
+                break;
+            }
+            if (entries.remove(e.getKey(), e.getValue())) {
+                evictions.increment();
+            }
+        }
+        LOGGER.debug("Principal cache evicted down to {} entries", entries.size());
+    }
+
+    private static final class Entry {
+        private final UserResponseDTO principal;
+        private final long expiresAt;
+
+        private Entry(UserResponseDTO principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package pt.uc.dei.services;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * CDI event fired by services that changed data exposed through the authenticated principal. {@link PrincipalCache}
+ * observes it once the changing transaction has committed, so a request running before the commit cannot load
+ * the old row back into the cache.
+ */
+public final class PrincipalChangedEvent {
+
+    private final Collection<Long> userIds;
+
+    /**
+     * @param userIds the users whose principal changed; {@code null} ids are ignored
+     */
+    public PrincipalChangedEvent(Long... userIds) {
+        this.userIds = Arrays.stream(userIds).filter(Objects::nonNull).toList();
+    }
+
+    public Collection<Long> getUserIds() {
+        return userIds;
+    }
+}
@@ -2,17 +2,20 @@ package pt.uc.dei.services;
 
 import jakarta.ejb.Stateless;
 import jakarta.inject.Inject;
-import pt.uc.dei.repositories.ConfigurationRepository;
+import pt.uc.dei.config.ConfigurationSnapshot;
 
 @Stateless
 public class SettingsService {
 
     @Inject
-    private ConfigurationRepository configurationRepository;
+    private ConfigurationService configurationService;
+
+    @Inject
+    private ConfigurationSnapshotHolder configurationSnapshotHolder;
 
     public boolean setTwoFactorAuthEnabled(boolean enabled) {
         try {
-            return configurationRepository.updateTwoFactorAuthEnabled(enabled);
+            return configurationService.updateTwoFactorAuth(enabled);
         } catch (Exception e) {
             return false;
         }
@@ -20,7 +23,8 @@ public class SettingsService {
 
     public Boolean getTwoFactorAuthEnabled() {
         try {
-            return configurationRepository.getLatestTwoFactorAuthEnabled();
+            ConfigurationSnapshot snapshot = configurationSnapshotHolder.get();
+            return snapshot != null ? snapshot.getTwoFactorAuthEnabled() : null;
         } catch (Exception e) {
             return null;
         }
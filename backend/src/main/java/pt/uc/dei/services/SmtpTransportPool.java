@@ -0,0 +1,279 @@
+package pt.uc.dei.services;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EmailConfig;
+import pt.uc.dei.config.EnvironmentConfig;
+import pt.uc.dei.utils.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small pool of long-lived, authenticated SMTP connections shared by {@link EmailService}.
+ * <p>
+ * Opening an SMTP connection costs a TCP connect, the STARTTLS handshake and AUTH; sending one message on an
+ * open connection costs a few round trips. The pool keeps up to {@code SMTP_POOL_SIZE} connections open and
+ * hands them out one caller at a time, most recently used first, so idle connections beyond what the load needs
+ * are left to time out. A connection left unused for {@code SMTP_POOL_VALIDATE_AFTER_MS} is checked with
+ * {@code NOOP} before it is used again, and one that fails while sending is reopened and the message retried
+ * once; a rejected recipient is not a connection failure and is reported to the caller as is. Callers wait
+ * at most {@code SMTP_POOL_BORROW_TIMEOUT_MS} for a free connection.
+ * <p>
+ * {@link #send(Message)} sends one message; bulk senders take a {@link Lease} and send all their messages on
+ * the same connection. Connection and send counts and send latency are exposed through {@link #getStats()}.
+ */
+@ApplicationScoped
+public class SmtpTransportPool {
+
+    private static final Logger LOGGER = LogManager.getLogger(SmtpTransportPool.class);
+
+    private final Session session;
+    private final String username;
+    private final String password;
+    private final int size;
+    private final long borrowTimeoutNanos;
+    private final long validateAfterNanos;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledTransport> idle = new ConcurrentLinkedDeque<>();
+
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder messagesSent = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LatencyHistogram sendLatency = new LatencyHistogram();
+
+    /**
+     * Creates the pool configured from the environment.
+     */
+    public SmtpTransportPool() {
+        this(EmailConfig.getSMTPProperties(), System.getenv("EMAIL"), System.getenv("PASSWORD"),
+                EnvironmentConfig.getInt("SMTP_POOL_SIZE", 4),
+                Duration.ofMillis(EnvironmentConfig.getLong("SMTP_POOL_BORROW_TIMEOUT_MS", 10_000L)),
+                Duration.ofMillis(EnvironmentConfig.getLong("SMTP_POOL_VALIDATE_AFTER_MS", 30_000L)));
+    }
+
+    /**
+     * Creates the pool with explicit settings.
+     *
+     * @param properties    the JavaMail session properties, including host and port
+     * @param username      the SMTP user, or null to connect without AUTH
+     * @param password      the SMTP password
+     * @param size          maximum number of open connections
+     * @param borrowTimeout maximum time a caller waits for a free connection
+     * @param validateAfter idle time after which a connection is checked before use
+     */
+    public SmtpTransportPool(Properties properties, String username, String password, int size,
+                             Duration borrowTimeout, Duration validateAfter) {
+        this.session = Session.getInstance(properties);
+        this.username = username;
+        this.password = password;
+        this.size = Math.max(1, size);
+        this.borrowTimeoutNanos = borrowTimeout.toNanos();
+        this.validateAfterNanos = validateAfter.toNanos();
+        this.permits = new Semaphore(this.size, true);
+    }
+
+    /**
+     * @return the session messages sent through this pool should be created with
+     */
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * @return the address messages are sent from
+     */
+    public String getFromAddress() {
+        return username;
+    }
+
+    /**
+     * Sends one message on a pooled connection.
+     *
+     * @param message the message to send
+     * @throws MessagingException if no connection is free in time, or the message could not be sent
+     */
+    public void send(Message message) throws MessagingException {
+        try (Lease lease = lease()) {
+            lease.send(message);
+        }
+    }
+
+    /**
+     * Takes a connection for the exclusive use of the caller until the lease is closed.
+     *
+     * @return the lease
+     * @throws MessagingException if no connection is free within the borrow timeout
+     */
+    public Lease lease() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                borrowTimeouts.increment();
+                throw new MessagingException("No SMTP connection free after "
+                        + TimeUnit.NANOSECONDS.toMillis(borrowTimeoutNanos) + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+        PooledTransport pooled = idle.pollFirst();
+        if (pooled == null) {
+            try {
+                pooled = new PooledTransport(session.getTransport("smtp"));
+            } catch (MessagingException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        return new Lease(pooled);
+    }
+
+    /**
+     * @return pool size, open and idle connections, connection and message counts and send latency
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("inUse", size - permits.availablePermits());
+        stats.put("idle", idle.size());
+        stats.put("connectionsOpened", connectionsOpened.sum());
+        stats.put("reconnects", reconnects.sum());
+        stats.put("messagesSent", messagesSent.sum());
+        stats.put("sendFailures", sendFailures.sum());
+        stats.put("borrowTimeouts", borrowTimeouts.sum());
+        stats.put("sendLatency", sendLatency.toMap());
+        return stats;
+    }
+
+    /**
+     * Closes the idle connections.
+     */
+    @PreDestroy
+    public void shutdown() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.close();
+        }
+    }
+
+    /**
+     * One connection held by one caller. Not thread-safe; close it to return the connection to the pool.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private PooledTransport pooled;
+
+        private Lease(PooledTransport pooled) {
+            this.pooled = pooled;
+        }
+
+        /**
+         * Sends a message, connecting or reconnecting first if needed.
+         *
+         * @param message the message to send
+         * @throws MessagingException if the message could not be sent, even on a fresh connection
+         */
+        public void send(Message message) throws MessagingException {
+            if (pooled == null) {
+                throw new IllegalStateException("Lease already closed");
+            }
+            long start = System.nanoTime();
+            message.saveChanges();
+            try {
+                pooled.ensureConnected(start);
+                pooled.transport.sendMessage(message, message.getAllRecipients());
+            } catch (MessagingException e) {
+                if (isRecipientRejection(e)) {
+                    // The server refused a recipient; the connection itself is fine
+                    sendFailures.increment();
+                    throw e;
+                }
+                LOGGER.warn("SMTP connection failed, reconnecting: {}", e.getMessage());
+                pooled.close();
+                reconnects.increment();
+                try {
+                    pooled.ensureConnected(System.nanoTime());
+                    pooled.transport.sendMessage(message, message.getAllRecipients());
+                } catch (MessagingException retryFailure) {
+                    sendFailures.increment();
+                    pooled.close();
+                    throw retryFailure;
+                }
+            }
+            pooled.lastUsedNanos = System.nanoTime();
+            messagesSent.increment();
+            sendLatency.record(pooled.lastUsedNanos - start);
+        }
+
+        @Override
+        public void close() {
+            if (pooled == null) {
+                return;
+            }
+            // Most recently used first, so the connections the load does not need stay idle and time out
+            idle.offerFirst(pooled);
+            pooled = null;
+            permits.release();
+        }
+    }
+
+    /**
+     * @return whether the server refused recipients, as opposed to the connection failing; JavaMail reports
+     *         both, and an unexpected end of stream, as {@link SendFailedException}
+     */
+    private static boolean isRecipientRejection(MessagingException e) {
+        return e instanceof SendFailedException failed
+                && failed.getInvalidAddresses() != null && failed.getInvalidAddresses().length > 0;
+    }
+
+    private final class PooledTransport {
+
+        private final Transport transport;
+        private boolean open;
+        private long lastUsedNanos;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        /**
+         * Opens the connection if it is closed, or if it has been idle for a while and no longer answers.
+         * {@link Transport#isConnected()} costs a NOOP round trip on SMTP, so it is only used for that check.
+         */
+        private void ensureConnected(long now) throws MessagingException {
+            if (open && (now - lastUsedNanos < validateAfterNanos || transport.isConnected())) {
+                return;
+            }
+            close();
+            transport.connect(username, password);
+            open = true;
+            connectionsOpened.increment();
+            lastUsedNanos = now;
+        }
+
+        private void close() {
+            open = false;
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                LOGGER.debug("Error closing SMTP connection: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -2,9 +2,11 @@ package pt.uc.dei.services;
 
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.ConfigurationSnapshot;
 import pt.uc.dei.dtos.ActivationTokenDTO;
 import pt.uc.dei.dtos.PasswordResetTokenDTO;
 import pt.uc.dei.dtos.TemporaryUserDTO;
@@ -54,8 +56,11 @@ public class TokenService {
     @EJB
     UserRepository userRepository;
 
-    @EJB
-    ConfigurationRepository configurationRepository;
+    /**
+     * In-memory configuration snapshot, used for token validity periods.
+     */
+    @Inject
+    ConfigurationSnapshotHolder configurationSnapshotHolder;
 
     @EJB
     UserService userService;
@@ -215,7 +220,7 @@ public class TokenService {
      * @return The expiration {@link LocalDateTime}, or {@code null} if unable to determine.
      */
     private LocalDateTime getExpirationDate(Object token) {
-        ConfigurationEntity latestConfiguration = configurationRepository.getLatestConfiguration();
+        ConfigurationSnapshot latestConfiguration = configurationSnapshotHolder.get();
         if (token instanceof ActivationTokenDTO) {
             return ((ActivationTokenDTO) token).getCreationDate().plusMinutes(latestConfiguration.getVerificationTime());
         }
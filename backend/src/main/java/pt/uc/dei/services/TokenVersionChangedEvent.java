@@ -0,0 +1,28 @@
+package pt.uc.dei.services;
+
+/**
+ * CDI event fired by services that bumped a user's token version. {@link TokenVersionRegistry} observes it once
+ * the changing transaction has committed, so tokens are only rejected after the new roles can be read back.
+ */
+public final class TokenVersionChangedEvent {
+
+    private final Long userId;
+    private final int version;
+
+    /**
+     * @param userId  the user whose tokens are revoked
+     * @param version the token version now stored on the user
+     */
+    public TokenVersionChangedEvent(Long userId, int version) {
+        this.userId = userId;
+        this.version = version;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
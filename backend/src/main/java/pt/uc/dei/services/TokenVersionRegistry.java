@@ -0,0 +1,132 @@
+package pt.uc.dei.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.websocket.MessageBus;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory table of the current token version of each user.
+ * <p>
+ * Every JWT carries the {@code tokenVersion} of its user at issue time. When a user's roles change or
+ * the account is deactivated, the version stored on {@link pt.uc.dei.entities.UserEntity} is bumped and
+ * recorded here, so tokens issued before the change are recognised as stale without a database lookup.
+ * Only users whose version is above zero are kept, which keeps the table small; it is loaded at startup
+ * by {@link pt.uc.dei.initializer.DataInitializer}.
+ * <p>
+ * Bumps are applied from a {@link TokenVersionChangedEvent} once the change has committed, after dropping the
+ * user's cached principal: a stale token is then reissued from the committed roles, never from the old ones,
+ * and a rollback leaves the table untouched. The table is kept per node, so each bump is also published on the
+ * {@link MessageBus} and applied by the other nodes the same way. A node that misses the message (e.g. while its
+ * listener reconnects) only catches up on its next restart.
+ */
+@ApplicationScoped
+public class TokenVersionRegistry {
+
+    private static final Logger LOGGER = LogManager.getLogger(TokenVersionRegistry.class);
+
+    static final String CHANNEL = "token_versions";
+
+    private final ConcurrentHashMap<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    @Inject
+    MessageBus messageBus;
+
+    @Inject
+    PrincipalCache principalCache;
+
+    /**
+     * Subscribes to the bumps committed on other nodes.
+     */
+    @PostConstruct
+    void subscribe() {
+        messageBus.subscribe(CHANNEL, this::onRemoteChange);
+    }
+
+    /**
+     * Replaces the table with the versions persisted in the database.
+     *
+     * @param persistedVersions map of user id to token version, for users with a version above zero
+     */
+    public void load(Map<Long, Integer> persistedVersions) {
+        versions.clear();
+        versions.putAll(persistedVersions);
+        LOGGER.info("Loaded token versions for {} users", versions.size());
+    }
+
+    /**
+     * Returns the version that new tokens for the user must carry.
+     *
+     * @param userId the user id
+     * @return the current token version, {@code 0} if never bumped
+     */
+    public int currentVersion(Long userId) {
+        return userId == null ? 0 : versions.getOrDefault(userId, 0);
+    }
+
+    /**
+     * Records a new token version for a user. Versions only move forward.
+     *
+     * @param userId  the user id
+     * @param version the version now stored on the user
+     */
+    public void update(Long userId, int version) {
+        if (userId == null) {
+            return;
+        }
+        versions.merge(userId, version, Math::max);
+        LOGGER.info("Tokens issued for user {} before version {} are no longer accepted", userId, version);
+    }
+
+    /**
+     * Checks whether a token version is still current for a user.
+     *
+     * @param userId       the user id from the token subject
+     * @param tokenVersion the {@code tokenVersion} claim, {@code null} for tokens issued without one
+     * @return {@code true} if the token was issued at or after the user's current version
+     */
+    public boolean isCurrent(Long userId, Integer tokenVersion) {
+        int version = tokenVersion == null ? 0 : tokenVersion;
+        return version >= currentVersion(userId);
+    }
+
+    /**
+     * Applies a bump once its transaction has committed and forwards it to the other nodes.
+     *
+     * @param event the user and the version now stored on it
+     */
+    public void onTokenVersionChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) TokenVersionChangedEvent event) {
+        apply(event.getUserId(), event.getVersion());
+        if (!messageBus.publish(CHANNEL, event.getUserId() + ":" + event.getVersion())) {
+            LOGGER.error("Failed to publish token version {} of user {} to the other nodes",
+                    event.getVersion(), event.getUserId());
+        }
+    }
+
+    private void onRemoteChange(String payload) {
+        int separator = payload.indexOf(':');
+        try {
+            apply(Long.parseLong(payload.substring(0, separator)), Integer.parseInt(payload.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Ignoring malformed token version message: {}", payload);
+        }
+    }
+
+    /**
+     * Drops the cached principal before the bump, so a request that finds its token stale reloads the user.
+     */
+    private void apply(Long userId, int version) {
+        if (version <= currentVersion(userId)) {
+            return;
+        }
+        principalCache.invalidate(userId);
+        update(userId, version);
+    }
+}
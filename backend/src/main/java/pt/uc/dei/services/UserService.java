@@ -5,6 +5,7 @@ import pt.uc.dei.mapper.FinishedCourseMapper;
 import com.warrenstrange.googleauth.GoogleAuthenticatorKey;
 import jakarta.ejb.EJB;
 import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import org.apache.logging.log4j.LogManager;
@@ -25,7 +26,6 @@ import pt.uc.dei.mapper.UserMapper;
 import pt.uc.dei.repositories.ActivationTokenRepository;
 import pt.uc.dei.repositories.TemporaryUserRepository;
 import pt.uc.dei.repositories.UserRepository;
-import pt.uc.dei.utils.PasswordUtils;
 import pt.uc.dei.utils.TwoFactorUtil;
 
 import java.io.Serializable;
@@ -34,6 +34,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
@@ -98,12 +99,39 @@ public class UserService implements Serializable {
     @Inject
     UserMapper userMapper;
 
+    @Inject
+    PasswordHashingService passwordHashingService;
+
     @Inject
     FinishedCourseMapper finishedCourseMapper;
 
     @Inject
     TwoFactorUtil twoFactorUtil;
 
+    /**
+     * Fired whenever a user's profile or roles change, so {@link PrincipalCache} drops them after the commit.
+     */
+    @Inject
+    Event<PrincipalChangedEvent> principalChanged;
+
+    /**
+     * Fired when a change must invalidate existing tokens, so {@link TokenVersionRegistry} records it after the commit.
+     */
+    @Inject
+    Event<TokenVersionChangedEvent> tokenVersionChanged;
+
+    /**
+     * In-memory org chart used for manager-of-user checks.
+     */
+    @Inject
+    OrgChartIndex orgChartIndex;
+
+    /**
+     * Fired on manager reassignment, so {@link OrgChartIndex} records it after the commit.
+     */
+    @Inject
+    Event<ManagerChangedEvent> managerChanged;
+
     /**
      * Injected repository for activation token persistence.
      */
@@ -137,7 +165,7 @@ public class UserService implements Serializable {
     public Map<String, String> registerUser(TemporaryUserDTO newUser) {
         TemporaryUserEntity user = new TemporaryUserEntity();
         user.setEmail(newUser.getEmail());
-        user.setPassword(PasswordUtils.encrypt(newUser.getPassword()));
+        user.setPassword(passwordHashingService.hash(newUser.getPassword()));
         ActivationTokenEntity token = new ActivationTokenEntity();
         token.setTokenValue(tokenService.generateNewToken());
         token.setCreationDate(LocalDateTime.now());
@@ -173,22 +201,35 @@ public class UserService implements Serializable {
             LOGGER.error("Update user - user not found");
             return false;
         }
+        // Authorization-relevant state before the update, to detect changes that must revoke tokens
+        Boolean wasAdmin = user.getUserIsAdmin();
+        Boolean wasManager = user.getUserIsManager();
+        Boolean wasDeleted = user.getUserIsDeleted();
+        AccountState previousAccountState = user.getAccountState();
         if (updateUserDTO.getManagerId() != null) {
             UserEntity previousManager = user.getManagerUser();
             UserEntity newManager = userRepository.findUserById(updateUserDTO.getManagerId());
             if (newManager != null) {
+                principalChanged.fire(new PrincipalChangedEvent(newManager.getId()));
                 // 1. Move all appraisals to new manager
                 appraisalRepository.setAppraisalsToNewManager(user.getId(), newManager.getId());
                 // 2. Set new manager as user's manager
                 user.setManagerUser(newManager);
+                if (!Boolean.TRUE.equals(newManager.getUserIsManager())) {
+                    revokeTokens(newManager);
+                }
                 newManager.setUserIsManager(true);
                 userRepository.merge(user);
                 userRepository.merge(newManager);
+                managerChanged.fire(new ManagerChangedEvent(user.getId(), newManager.getId()));
             }
             // 3. If there was a previous manager, check if they still manage anyone
             if (previousManager != null && !checkIfUserStillIsManager(previousManager.getId())) {
                 updateManagerStatus(previousManager);
             }
+            if (previousManager != null) {
+                principalChanged.fire(new PrincipalChangedEvent(previousManager.getId()));
+            }
         }
 
         if (updateUserDTO.getUserIsManager() != null) {
@@ -256,7 +297,14 @@ public class UserService implements Serializable {
             emailService.sendUserUpdateNotificationEmail(user.getManager().getEmail(),
                     user.getManager().getName(), userName, user.getId(), date);
         }
+        if (!Objects.equals(wasAdmin, user.getUserIsAdmin())
+                || !Objects.equals(wasManager, user.getUserIsManager())
+                || !Objects.equals(wasDeleted, user.getUserIsDeleted())
+                || previousAccountState != user.getAccountState()) {
+            revokeTokens(user);
+        }
         userRepository.persist(user);
+        principalChanged.fire(new PrincipalChangedEvent(id));
         return true;
     }
 
@@ -470,14 +518,8 @@ public class UserService implements Serializable {
      * @return true if the user is managed by the given manager, false otherwise
      */
     public boolean checkIfManagerOfUser(Long userId, Long managerId) {
-        UserEntity user = userRepository.findUserById(userId);
-        if (user == null) {
-            LOGGER.error("User with ID {} not found", userId);
-            return false;
-        }
-        UserEntity manager = user.getManagerUser();
-        boolean isManager = manager != null && manager.getId().equals(managerId);
-        LOGGER.info("User with ID {} is managed by manager with ID {}: {}", userId, managerId, isManager);
+        boolean isManager = orgChartIndex.isDirectManager(managerId, userId);
+        LOGGER.debug("User with ID {} is managed by manager with ID {}: {}", userId, managerId, isManager);
         return isManager;
     }
 
@@ -538,6 +580,7 @@ public class UserService implements Serializable {
         if (isComplete && user.getAccountState() == AccountState.INCOMPLETE) {
             user.setAccountState(AccountState.COMPLETE);
             userRepository.persist(user);
+            principalChanged.fire(new PrincipalChangedEvent(userId));
         }
         LOGGER.info("User account state updated for user ID: " + userId + ", new state: " + user.getAccountState());
         return true;
@@ -579,6 +622,7 @@ public class UserService implements Serializable {
         finished.setCourse(course);
         finished.setCompletionDate(LocalDate.now());
         finishedCourseRepository.persist(finished);
+        principalChanged.fire(new PrincipalChangedEvent(userId));
         String managerName = user.getManager().getName() + " " + user.getManager().getSurname();
         emailService.sendNewCourseNotificationEmail(user.getEmail(), user.getName(), managerName, course.getTitle(), user.getId());
         notificationService.newCourseNotification(finished);
@@ -609,10 +653,24 @@ public class UserService implements Serializable {
      */
     private void updateManagerStatus(UserEntity user) {
         user.setUserIsManager(false);
+        revokeTokens(user);
         userRepository.persist(user);
+        principalChanged.fire(new PrincipalChangedEvent(user.getId()));
         LOGGER.info("User with ID {} is no longer a manager", user.getId());
     }
 
+    /**
+     * Bumps the user's token version so every token issued before this change is rejected
+     * (or, when the account is still active, transparently reissued) by the authentication filter.
+     *
+     * @param user The user entity whose tokens are revoked; the caller persists it
+     */
+    private void revokeTokens(UserEntity user) {
+        int version = (user.getTokenVersion() == null ? 0 : user.getTokenVersion()) + 1;
+        user.setTokenVersion(version);
+        tokenVersionChanged.fire(new TokenVersionChangedEvent(user.getId(), version));
+    }
+
     /**
      * Updates admin permissions for a user.
      * <p>
@@ -645,8 +703,12 @@ public class UserService implements Serializable {
                 return false;
             }
             
+            if (!Objects.equals(user.getUserIsAdmin(), isAdmin)) {
+                revokeTokens(user);
+            }
             user.setUserIsAdmin(isAdmin);
             userRepository.merge(user);
+            principalChanged.fire(new PrincipalChangedEvent(userId));
             
             LOGGER.info("Admin permissions updated: User {} isAdmin={} by user {}", userId, isAdmin, requesterId);
             return true;
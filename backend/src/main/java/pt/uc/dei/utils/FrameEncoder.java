@@ -0,0 +1,112 @@
+package pt.uc.dei.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Encodes WebSocket frames of the form {@code {"type": ..., "<field>": <payload>}} in a single pass.
+ * <p>
+ * {@link JsonCreator#createJson(String, String, Object)} serializes the payload to a String, parses it back
+ * into a {@code jakarta.json} tree and serializes the tree again. This encoder writes the envelope and the
+ * payload straight from Jackson's streaming {@link JsonGenerator} into a per-thread buffer that is reused
+ * between frames. The output is the same JSON, with the same date format, as {@code JsonCreator}.
+ */
+public final class FrameEncoder {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    static {
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, true);
+    }
+
+    private static final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    /**
+     * Buffers that grew beyond this size are not kept, so one large frame does not pin memory per thread.
+     */
+    private static final int MAX_RETAINED_CHARS = 64 * 1024;
+
+    private static final ThreadLocal<BufferWriter> buffers = ThreadLocal.withInitial(BufferWriter::new);
+
+    private FrameEncoder() {
+    }
+
+    /**
+     * Encodes a frame.
+     *
+     * @param type       the frame type
+     * @param objectName the name of the payload field
+     * @param payload    the payload; DTOs are serialized with Jackson, strings and numbers are written as is
+     * @return the frame as JSON text
+     * @throws UncheckedIOException if the payload cannot be serialized
+     */
+    public static String encode(String type, String objectName, Object payload) {
+        BufferWriter buffer = buffers.get();
+        buffer.reset();
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", type);
+            generator.writeFieldName(objectName);
+            generator.writeObject(payload);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode " + type + " frame", e);
+        }
+        String frame = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CHARS) {
+            buffers.remove();
+        }
+        return frame;
+    }
+
+    /**
+     * Unsynchronized writer over a reusable {@link StringBuilder}.
+     */
+    private static final class BufferWriter extends Writer {
+        private final StringBuilder builder = new StringBuilder(1024);
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+            builder.append(string, offset, offset + length);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void reset() {
+            builder.setLength(0);
+        }
+
+        private int capacity() {
+            return builder.capacity();
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+}
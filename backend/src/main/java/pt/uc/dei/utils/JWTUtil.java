@@ -1,21 +1,33 @@
 package pt.uc.dei.utils;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.ProtectedHeader;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.InvalidKeyException;
 import io.jsonwebtoken.security.Keys;
-import jakarta.ejb.EJB;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.websocket.server.HandshakeRequest;
 import jakarta.ws.rs.container.ContainerRequestContext;
 import jakarta.ws.rs.core.Cookie;
 import jakarta.ws.rs.core.Response;
 import pt.uc.dei.dtos.UserResponseDTO;
-import pt.uc.dei.entities.ConfigurationEntity;
-import pt.uc.dei.repositories.ConfigurationRepository;
+import pt.uc.dei.config.ConfigurationSnapshot;
+import pt.uc.dei.services.ConfigurationSnapshotHolder;
+import pt.uc.dei.services.TokenVersionRegistry;
+
+import javax.crypto.SecretKey;
+import java.security.Key;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 /**
  * Utility class for handling JWT (JSON Web Token) authentication and authorization.
  * <p>
@@ -23,6 +35,12 @@ import java.util.List;
  * Uses a secret key stored in environment variables for signing the tokens.
  * Supports extracting user information from HTTP and WebSocket requests.
  * </p>
+ * <p>
+ * The HMAC keys and the {@link JwtParser} are built once and shared by every request; they are only
+ * rebuilt when the configured secrets change. Each token carries a {@code kid} header naming the key
+ * that signed it, so retired keys listed in {@link #RETIRED_SECRET_KEYS} keep validating tokens issued
+ * before a rotation until they expire.
+ * </p>
  */
 @ApplicationScoped // Ensures this bean is managed by CDI and can be injected
 public class JWTUtil {
@@ -34,11 +52,39 @@ public class JWTUtil {
     public static String SECRET_KEY = System.getenv("SECRET_KEY");
 
     /**
-     * Injected EJB ConfigurationRepository to fetch configuration settings.
-     * Used to retrieve authentication expiration time for tokens.
+     * Key id ({@code kid} header) written into tokens signed with {@link #SECRET_KEY}.
+     * Tokens without a {@code kid} header are resolved against {@link #DEFAULT_KEY_ID}.
+     */
+    public static String SECRET_KEY_ID = System.getenv("SECRET_KEY_ID");
+
+    /**
+     * Previously active secrets that are still accepted for validation, formatted as
+     * {@code kid:base64Secret} pairs separated by commas. Never used for signing.
      */
-    @EJB
-    private ConfigurationRepository configurationRepository;
+    public static String RETIRED_SECRET_KEYS = System.getenv("RETIRED_SECRET_KEYS");
+
+    /**
+     * Key id assumed for the active secret when {@link #SECRET_KEY_ID} is not set,
+     * and for tokens issued before key ids were introduced.
+     */
+    public static final String DEFAULT_KEY_ID = "primary";
+
+    /**
+     * Keys and parser built from the secrets above, replaced whenever one of them changes.
+     */
+    private static volatile KeyRing keyRing;
+
+    /**
+     * In-memory configuration snapshot, used for the authentication expiration time of tokens.
+     */
+    @Inject
+    private ConfigurationSnapshotHolder configurationSnapshotHolder;
+
+    /**
+     * Source of the per-user token version embedded in every token.
+     */
+    @Inject
+    private TokenVersionRegistry tokenVersionRegistry;
 
     /**
      * Generates a JWT authentication token for the given user.
@@ -47,19 +93,21 @@ public class JWTUtil {
      * @return A signed JWT token containing user authentication claims.
      */
     public String generateToken(UserResponseDTO user) {
-        // Get latest configuration from database
-        ConfigurationEntity latestConfiguration = configurationRepository.getLatestConfiguration();
+        // Get latest configuration from the in-memory snapshot
+        ConfigurationSnapshot latestConfiguration = configurationSnapshotHolder.get();
         Integer expirationTime = latestConfiguration.getLoginTime() * 60 * 1000; // Convert minutes to milliseconds
-        System.out.println(SECRET_KEY);
+        KeyRing ring = keyRing();
         // Create JWT token with user details (email, isAdmin, isManager)
         return Jwts.builder()
+                .header().keyId(ring.activeKeyId).and() // Key used to sign, looked up again on validation
                 .setSubject(String.valueOf(user.getId())) // Set user's email as subject
                 .claim("userIsAdmin", user.getUserIsAdmin()) // Store isAdmin flag
                 .claim("userIsManager", user.getUserIsManager()) // Store isManager flag
                 .claim("accountState", user.getAccountState())
+                .claim("tokenVersion", tokenVersionRegistry.currentVersion(user.getId())) // Checked against revocations
                 .setIssuedAt(new Date()) // Token creation time
                 .setExpiration(new Date(System.currentTimeMillis() + expirationTime)) // Expiry time
-                .signWith(Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET_KEY)), SignatureAlgorithm.HS256) // Secure signing
+                .signWith(ring.activeKey, SignatureAlgorithm.HS256) // Secure signing
                 .compact(); // Final compact JWT
     }
 
@@ -71,12 +119,27 @@ public class JWTUtil {
      * @throws io.jsonwebtoken.JwtException if the token is invalid or expired
      */
     public static Claims validateToken(String token) {
-        // Decode secret key and verify JWT signature
-        return Jwts.parser()
-                .setSigningKey(Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET_KEY))) // Ensure token integrity
-                .build()
-                .parseClaimsJws(token) // Parse JWT
-                .getBody(); // Extract claims
+        // Verify JWT signature with the shared parser; the key is picked from the kid header
+        return keyRing().parser
+                .parseSignedClaims(token) // Parse JWT
+                .getPayload(); // Extract claims
+    }
+
+    /**
+     * Returns the current key ring, rebuilding it if the configured secrets changed since it was built.
+     *
+     * @return The key ring matching {@link #SECRET_KEY}, {@link #SECRET_KEY_ID} and {@link #RETIRED_SECRET_KEYS}.
+     */
+    private static KeyRing keyRing() {
+        KeyRing current = keyRing;
+        String secret = SECRET_KEY;
+        String keyId = SECRET_KEY_ID;
+        String retired = RETIRED_SECRET_KEYS;
+        if (current == null || !current.matches(secret, keyId, retired)) {
+            current = new KeyRing(secret, keyId, retired);
+            keyRing = current;
+        }
+        return current;
     }
 
 
@@ -202,6 +265,66 @@ public class JWTUtil {
                 .build();
     }
 
+    /**
+     * Immutable set of signing keys indexed by key id, together with the parser that resolves them.
+     */
+    private static final class KeyRing {
+        private final String secret;
+        private final String keyIdSetting;
+        private final String retired;
+        private final String activeKeyId;
+        private final SecretKey activeKey;
+        private final Map<String, SecretKey> keys;
+        private final JwtParser parser;
+
+        private KeyRing(String secret, String keyIdSetting, String retired) {
+            this.secret = secret;
+            this.keyIdSetting = keyIdSetting;
+            this.retired = retired;
+            this.activeKeyId = keyIdSetting == null || keyIdSetting.isBlank() ? DEFAULT_KEY_ID : keyIdSetting.trim();
+            this.activeKey = secret == null ? null : decode(secret);
+
+            Map<String, SecretKey> ring = new HashMap<>();
+            if (retired != null) {
+                for (String entry : retired.split(",")) {
+                    String[] parts = entry.trim().split(":", 2);
+                    if (parts.length == 2 && !parts[0].isBlank()) {
+                        ring.put(parts[0].trim(), decode(parts[1].trim()));
+                    }
+                }
+            }
+            if (activeKey != null) {
+                ring.put(activeKeyId, activeKey); // The active key wins over a retired key with the same id
+            }
+            this.keys = Collections.unmodifiableMap(ring);
+            this.parser = Jwts.parser()
+                    .keyLocator(new LocatorAdapter<Key>() {
+                        @Override
+                        protected Key locate(ProtectedHeader header) {
+                            return resolve(header.getKeyId());
+                        }
+                    })
+                    .build();
+        }
+
+        private boolean matches(String secret, String keyIdSetting, String retired) {
+            return Objects.equals(this.secret, secret) && Objects.equals(this.keyIdSetting, keyIdSetting)
+                    && Objects.equals(this.retired, retired);
+        }
+
+        private Key resolve(String keyId) {
+            SecretKey key = keys.get(keyId == null ? DEFAULT_KEY_ID : keyId);
+            if (key == null) {
+                throw new InvalidKeyException("Unknown JWT signing key id: " + keyId);
+            }
+            return key;
+        }
+
+        private static SecretKey decode(String base64Secret) {
+            return Keys.hmacShaKeyFor(Base64.getDecoder().decode(base64Secret));
+        }
+    }
+
     /**
      * Custom exception to handle JWT validation errors.
      */
@@ -20,9 +20,9 @@ public class JsonCreator {
         objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, true);
     }
 
-    private static JsonObject parseJsonString(String jsonString) {
+    private static JsonValue parseJsonString(String jsonString) {
         try (JsonReader jsonReader = Json.createReader(new StringReader(jsonString))) {
-            return jsonReader.readObject();
+            return jsonReader.readValue();
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -32,7 +32,8 @@ public class JsonCreator {
     /**
      * Creates a JSON object with a specified type and named object field.
      * <p>
-     * If the object is an Integer or String, it is added directly. Otherwise, it is serialized with Jackson and parsed.
+     * If the object is an Integer or String, it is added directly. Otherwise, it is serialized with Jackson and parsed;
+     * collections become JSON arrays.
      *
      * @param type       the type string to include in the JSON
      * @param objectName the name of the object field
@@ -48,8 +49,8 @@ public class JsonCreator {
                 jsonBuilder.add(objectName, (String) object);
             } else {
                 String jsonString = objectMapper.writeValueAsString(object);
-                JsonObject jsonObject = parseJsonString(jsonString);
-                jsonBuilder.add(objectName, jsonObject);
+                JsonValue jsonValue = parseJsonString(jsonString);
+                jsonBuilder.add(objectName, jsonValue);
             }
             return jsonBuilder.build();
         } catch (Exception e) {
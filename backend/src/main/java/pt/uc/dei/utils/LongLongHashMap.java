@@ -0,0 +1,169 @@
+package pt.uc.dei.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code long} keys to {@code long} values, without boxing.
+ * <p>
+ * Uses linear probing with backward-shift deletion, so no tombstones accumulate. {@link Long#MIN_VALUE}
+ * is reserved as the empty-slot marker and cannot be used as a key. Not thread-safe; callers synchronize.
+ */
+public final class LongLongHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates a map sized for the expected number of entries.
+     *
+     * @param expectedSize number of entries the map should hold without resizing
+     */
+    public LongLongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public LongLongHashMap() {
+        this(16);
+    }
+
+    /**
+     * Returns the value mapped to {@code key}, or {@code defaultValue} if there is none.
+     */
+    public long get(long key, long defaultValue) {
+        int index = indexOf(key);
+        return index < 0 ? defaultValue : values[index];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Maps {@code key} to {@code value}.
+     *
+     * @return the previous value, or {@code defaultValue} if the key was absent
+     */
+    public long put(long key, long value, long defaultValue) {
+        checkKey(key);
+        if ((size + 1) * 4L > keys.length * 3L) {
+            allocateAndRehash(keys.length << 1);
+        }
+        int index = slot(key);
+        while (true) {
+            long current = keys[index];
+            if (current == EMPTY) {
+                keys[index] = key;
+                values[index] = value;
+                size++;
+                return defaultValue;
+            }
+            if (current == key) {
+                long previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes the mapping for {@code key}.
+     *
+     * @return the removed value, or {@code defaultValue} if the key was absent
+     */
+    public long remove(long key, long defaultValue) {
+        int gap = indexOf(key);
+        if (gap < 0) {
+            return defaultValue;
+        }
+        long removed = values[gap];
+        // Shift following entries of the same probe run back into the gap
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            long current = keys[index];
+            if (current == EMPTY) {
+                break;
+            }
+            int home = slot(current);
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = current;
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private int indexOf(long key) {
+        if (key == EMPTY) {
+            return -1;
+        }
+        int index = slot(key);
+        while (true) {
+            long current = keys[index];
+            if (current == EMPTY) {
+                return -1;
+            }
+            if (current == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key");
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = Math.max(4L, (long) Math.ceil(Math.max(expectedSize, 1) / 0.75));
+        int capacity = Integer.highestOneBit((int) Math.min(needed, 1 << 30));
+        return capacity < needed ? capacity << 1 : capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void allocateAndRehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i], 0L);
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package pt.uc.dei.utils;
 
-import at.favre.lib.crypto.bcrypt.BCrypt;
 import at.favre.lib.crypto.bcrypt.BCrypt;
 
 /**
@@ -10,9 +9,16 @@ import at.favre.lib.crypto.bcrypt.BCrypt;
  * - Allows verification of a plain-text password against its hashed version.
  * - Uses a default hashing strength of 10 rounds.
  * </p>
+ * Request paths should go through {@link pt.uc.dei.services.PasswordHashingService}, which runs these
+ * methods on a bounded pool instead of the HTTP worker thread.
  */
 public class PasswordUtils {
 
+    /**
+     * Default BCrypt cost factor.
+     */
+    public static final int DEFAULT_COST = 10;
+
     /**
      * Verifies a password against its stored, hashed version.
      *
@@ -36,6 +42,38 @@ public class PasswordUtils {
      */
     public static String encrypt(String password) {
         // Hash password using BCrypt with a cost factor of 10 (higher values increase security).
-        return BCrypt.withDefaults().hashToString(10, password.toCharArray());
+        return encrypt(password, DEFAULT_COST);
+    }
+
+    /**
+     * Encrypts a given password using the BCrypt algorithm with the given cost factor.
+     *
+     * @param password The plain-text password to be encrypted.
+     * @param cost     The BCrypt cost factor (log2 of the number of rounds, 4 to 31).
+     * @return The securely hashed password string.
+     */
+    public static String encrypt(String password, int cost) {
+        return BCrypt.withDefaults().hashToString(cost, password.toCharArray());
+    }
+
+    /**
+     * Reads the cost factor from a BCrypt hash such as {@code $2a$10$...}.
+     *
+     * @param hashedPassword The hashed password.
+     * @return The cost factor, or {@code -1} if the value is not a BCrypt hash.
+     */
+    public static int getCost(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$') {
+            return -1;
+        }
+        int costStart = hashedPassword.indexOf('$', 1) + 1;
+        if (costStart <= 0 || costStart + 2 > hashedPassword.length()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(costStart, costStart + 2));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package pt.uc.dei.utils;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket rate limiter that never blocks.
+ * <p>
+ * The bucket holds at most {@code capacity} tokens and gains {@code tokensPerHour} tokens an hour, added lazily
+ * from the elapsed time whenever it is asked. Callers take one token per unit of work and, when none is left,
+ * leave the work for later instead of sleeping. It starts full, so up to {@code capacity} units go out at once
+ * and the steady rate applies after that.
+ */
+public final class TokenBucket {
+
+    private static final double NANOS_PER_HOUR = 3_600_000_000_000.0;
+
+    private final long capacity;
+    private final double tokensPerNano;
+    private final LongSupplier clock;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * Creates a full bucket timed by {@link System#nanoTime()}.
+     *
+     * @param capacity      the burst size, at least one
+     * @param tokensPerHour the steady rate
+     */
+    public TokenBucket(long capacity, double tokensPerHour) {
+        this(capacity, tokensPerHour, System::nanoTime);
+    }
+
+    /**
+     * Creates a full bucket timed by the given clock.
+     *
+     * @param capacity      the burst size, at least one
+     * @param tokensPerHour the steady rate
+     * @param clock         a monotonic time source in nanoseconds
+     */
+    public TokenBucket(long capacity, double tokensPerHour, LongSupplier clock) {
+        this.capacity = Math.max(1, capacity);
+        this.tokensPerNano = Math.max(0, tokensPerHour) / NANOS_PER_HOUR;
+        this.clock = clock;
+        this.tokens = this.capacity;
+        this.lastRefillNanos = clock.getAsLong();
+    }
+
+    /**
+     * Takes one token if there is one.
+     *
+     * @return whether a token was taken
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * @return the number of whole tokens available now
+     */
+    public synchronized long available() {
+        refill();
+        return (long) tokens;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
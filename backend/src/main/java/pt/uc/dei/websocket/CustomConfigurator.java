@@ -1,15 +1,130 @@
 package pt.uc.dei.websocket;
 
+import jakarta.websocket.Extension;
 import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.Session;
 import jakarta.websocket.server.HandshakeRequest;
 import jakarta.websocket.server.ServerEndpointConfig;
+import pt.uc.dei.config.EnvironmentConfig;
+import pt.uc.dei.utils.JWTUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Custom configurator to make the HandshakeRequest available in EndpointConfig user properties.
+ * Custom configurator that authenticates the handshake and hands the user to the session it opens.
+ * <p>
+ * The endpoint configuration is shared by every session of an endpoint, so nothing specific to one handshake
+ * can be passed through its user properties: two handshakes running at once would read each other's. Clients
+ * instead add a random {@code connection} query parameter, fresh for every socket. The user id is read from the
+ * JWT cookie while handshaking and kept under that key until {@link #takeUserId(Session)} claims it for the
+ * session, which carries the same query parameters. A key used by two pending handshakes authenticates neither,
+ * and unclaimed keys expire after {@code WS_HANDSHAKE_TTL_MS}.
+ * <p>
+ * Also negotiates {@code permessage-deflate} when the client offers it and the container has it installed
+ * (on WildFly, {@code per-message-deflate="true"} in the undertow websockets configuration). Chat and
+ * notification frames are repetitive JSON and usually shrink several times. Set
+ * {@code WS_PERMESSAGE_DEFLATE=false} to turn compression off.
  */
 public class CustomConfigurator extends ServerEndpointConfig.Configurator {
+
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    /**
+     * Query parameter holding the client's key for one connection.
+     */
+    public static final String CONNECTION_PARAMETER = "connection";
+
+    private static final int MAX_CONNECTION_KEY_LENGTH = 64;
+
+    private static final long HANDSHAKE_TTL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(EnvironmentConfig.getLong("WS_HANDSHAKE_TTL_MS", 30_000L));
+
+    /**
+     * Handshakes whose session has not opened yet, by connection key.
+     */
+    private static final Map<String, PendingHandshake> PENDING = new ConcurrentHashMap<>();
+
+    /**
+     * @param userId      the authenticated user, or {@code null} if the JWT was missing or invalid, or the key
+     *                    was reused
+     * @param createdNanos when the handshake ran, for expiry
+     */
+    private record PendingHandshake(Long userId, long createdNanos) {
+    }
+
+    private final boolean deflateEnabled;
+
+    public CustomConfigurator() {
+        this(EnvironmentConfig.getBoolean("WS_PERMESSAGE_DEFLATE", true));
+    }
+
+    /**
+     * @param deflateEnabled whether {@code permessage-deflate} may be negotiated
+     */
+    public CustomConfigurator(boolean deflateEnabled) {
+        this.deflateEnabled = deflateEnabled;
+    }
+
+    /**
+     * Authenticates the handshake and keeps the user under the request's connection key. Handshakes without a
+     * key are left unauthenticated, and their session is closed when it opens.
+     */
     @Override
     public void modifyHandshake(ServerEndpointConfig sec, HandshakeRequest request, HandshakeResponse response) {
-        sec.getUserProperties().put("HandshakeRequest", request);
+        String connection = connectionKey(request.getParameterMap());
+        if (connection == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        PENDING.values().removeIf(pending -> now - pending.createdNanos() > HANDSHAKE_TTL_NANOS);
+        PENDING.merge(connection, new PendingHandshake(JWTUtil.getUserIdFromToken(request), now),
+                (first, second) -> new PendingHandshake(null, now));
+    }
+
+    /**
+     * Claims the user authenticated by the handshake that opened a session. Each handshake can be claimed once.
+     *
+     * @param session the session being opened
+     * @return the user id, or {@code null} if the handshake had no connection key, no valid JWT, or expired
+     */
+    public static Long takeUserId(Session session) {
+        String connection = connectionKey(session.getRequestParameterMap());
+        PendingHandshake pending = connection == null ? null : PENDING.remove(connection);
+        if (pending == null || System.nanoTime() - pending.createdNanos() > HANDSHAKE_TTL_NANOS) {
+            return null;
+        }
+        return pending.userId();
+    }
+
+    private static String connectionKey(Map<String, List<String>> parameters) {
+        List<String> values = parameters == null ? null : parameters.get(CONNECTION_PARAMETER);
+        if (values == null || values.size() != 1) {
+            return null;
+        }
+        String key = values.get(0);
+        return key == null || key.isBlank() || key.length() > MAX_CONNECTION_KEY_LENGTH ? null : key;
+    }
+
+    /**
+     * Accepts the client's extensions, in the client's order of preference, that the container has installed.
+     * {@code permessage-deflate} is dropped when compression is disabled.
+     */
+    @Override
+    public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+        List<Extension> negotiated = new ArrayList<>();
+        for (Extension extension : requested) {
+            if (!deflateEnabled && PERMESSAGE_DEFLATE.equals(extension.getName())) {
+                continue;
+            }
+            if (installed.stream().anyMatch(available -> available.getName().equals(extension.getName()))
+                    && negotiated.stream().noneMatch(chosen -> chosen.getName().equals(extension.getName()))) {
+                negotiated.add(extension);
+            }
+        }
+        return negotiated;
     }
 }
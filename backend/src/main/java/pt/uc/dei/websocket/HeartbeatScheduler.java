@@ -0,0 +1,236 @@
+package pt.uc.dei.websocket;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EnvironmentConfig;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Pings WebSocket sessions of every endpoint and reaps those that stopped answering.
+ * <p>
+ * Sessions are hashed into the slots of a timing wheel that turns once per heartbeat interval
+ * ({@code WS_HEARTBEAT_INTERVAL_MS}); each tick pings only the sessions of one slot, so pings are spread
+ * over the interval instead of going out in one burst. Every pong or inbound message refreshes the
+ * session's last activity. A session silent for longer than {@code WS_HEARTBEAT_REAP_AFTER_MS} is closed
+ * and handed to its endpoint's callback, which also ends the user's presence; sessions found closed are
+ * handed over the same way. Live, idle and reaped counts are exposed through {@link #getStats()}.
+ */
+@ApplicationScoped
+public class HeartbeatScheduler {
+
+    private static final Logger LOGGER = LogManager.getLogger(HeartbeatScheduler.class);
+
+    private static final ByteBuffer PING = ByteBuffer.allocate(0);
+
+    /**
+     * Heartbeat state of one session.
+     */
+    private static final class Entry {
+        private final Session session;
+        private final Consumer<Session> onReap;
+        private final int slot;
+        private volatile long lastActivity;
+
+        private Entry(Session session, Consumer<Session> onReap, int slot, long now) {
+            this.session = session;
+            this.onReap = onReap;
+            this.slot = slot;
+            this.lastActivity = now;
+        }
+    }
+
+    private final long intervalNanos;
+    private final long reapAfterNanos;
+    private final long tickNanos;
+    private final LongSupplier clock;
+    private final Set<Entry>[] wheel;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private int cursor;
+    private ScheduledExecutorService executor;
+
+    private final LongAdder pings = new LongAdder();
+    private final LongAdder pingFailures = new LongAdder();
+    private final LongAdder reaped = new LongAdder();
+
+    /**
+     * Creates a scheduler configured from the environment.
+     */
+    public HeartbeatScheduler() {
+        this(EnvironmentConfig.getLong("WS_HEARTBEAT_INTERVAL_MS", 30_000L),
+                EnvironmentConfig.getLong("WS_HEARTBEAT_REAP_AFTER_MS", 90_000L),
+                EnvironmentConfig.getInt("WS_HEARTBEAT_WHEEL_SLOTS", 64),
+                System::nanoTime);
+    }
+
+    /**
+     * Creates a scheduler with explicit settings. The wheel only turns once {@link #start()} is called;
+     * tests can drive it with {@link #tick()} instead.
+     *
+     * @param intervalMs  time between two pings of the same session
+     * @param reapAfterMs inactivity after which a session is reaped
+     * @param slots       number of wheel slots; one slot is processed per {@code intervalMs / slots}
+     * @param clock       source of {@link System#nanoTime()}-like timestamps
+     */
+    @SuppressWarnings("unchecked")
+    public HeartbeatScheduler(long intervalMs, long reapAfterMs, int slots, LongSupplier clock) {
+        int size = Math.max(1, slots);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.reapAfterNanos = TimeUnit.MILLISECONDS.toNanos(reapAfterMs);
+        this.tickNanos = Math.max(1, intervalNanos / size);
+        this.clock = clock;
+        this.wheel = new Set[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+    }
+
+    /**
+     * Starts turning the wheel on a dedicated daemon thread.
+     */
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::safeTick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts tracking an authenticated session.
+     *
+     * @param session the session
+     * @param onReap  called after the session was reaped, to remove it from its endpoint
+     */
+    public void register(Session session, Consumer<Session> onReap) {
+        Entry entry = new Entry(session, onReap, Math.floorMod(session.getId().hashCode(), wheel.length), clock.getAsLong());
+        Entry previous = entries.put(session.getId(), entry);
+        if (previous != null) {
+            wheel[previous.slot].remove(previous);
+        }
+        wheel[entry.slot].add(entry);
+    }
+
+    /**
+     * Records that a session answered a ping or sent a message.
+     */
+    public void touch(Session session) {
+        Entry entry = entries.get(session.getId());
+        if (entry != null) {
+            entry.lastActivity = clock.getAsLong();
+        }
+    }
+
+    /**
+     * Stops tracking a session. Safe to call more than once.
+     */
+    public void unregister(Session session) {
+        Entry entry = entries.remove(session.getId());
+        if (entry != null) {
+            wheel[entry.slot].remove(entry);
+        }
+    }
+
+    /**
+     * Processes the current slot and advances the wheel by one slot: sessions silent for too long, or already
+     * closed, are reaped; the others are pinged.
+     */
+    public void tick() {
+        int slot;
+        synchronized (this) {
+            slot = cursor;
+            cursor = (cursor + 1) % wheel.length;
+        }
+        long now = clock.getAsLong();
+        for (Entry entry : wheel[slot]) {
+            if (!entry.session.isOpen() || now - entry.lastActivity > reapAfterNanos) {
+                reap(entry);
+            } else {
+                ping(entry);
+            }
+        }
+    }
+
+    /**
+     * @return live sessions, sessions that missed at least one ping, reaped sessions and ping counters
+     */
+    public Map<String, Object> getStats() {
+        long now = clock.getAsLong();
+        int idle = 0;
+        for (Entry entry : entries.values()) {
+            if (now - entry.lastActivity > intervalNanos) {
+                idle++;
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("intervalMs", TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+        stats.put("reapAfterMs", TimeUnit.NANOSECONDS.toMillis(reapAfterNanos));
+        stats.put("slots", wheel.length);
+        stats.put("live", entries.size());
+        stats.put("idle", idle);
+        stats.put("reaped", reaped.sum());
+        stats.put("pings", pings.sum());
+        stats.put("pingFailures", pingFailures.sum());
+        return stats;
+    }
+
+    private void safeTick() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic task and stop every heartbeat
+            LOGGER.error("WebSocket heartbeat tick failed", e);
+        }
+    }
+
+    private void ping(Entry entry) {
+        try {
+            entry.session.getAsyncRemote().sendPing(PING.duplicate());
+            pings.increment();
+        } catch (Exception e) {
+            pingFailures.increment();
+            LOGGER.debug("Failed to send WebSocket PING to session {}", entry.session.getId(), e);
+        }
+    }
+
+    private void reap(Entry entry) {
+        if (!entries.remove(entry.session.getId(), entry)) {
+            return;
+        }
+        wheel[entry.slot].remove(entry);
+        reaped.increment();
+        if (entry.session.isOpen()) {
+            LOGGER.info("Reaping idle WebSocket session {}", entry.session.getId());
+            try {
+                entry.session.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Heartbeat timeout"));
+            } catch (Exception e) {
+                LOGGER.debug("Failed to close idle session {}", entry.session.getId(), e);
+            }
+        }
+        entry.onReap.accept(entry.session);
+    }
+}
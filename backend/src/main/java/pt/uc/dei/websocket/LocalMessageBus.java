@@ -0,0 +1,48 @@
+package pt.uc.dei.websocket;
+
+import jakarta.enterprise.inject.Vetoed;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-JVM {@link MessageBus} for single-node deployments.
+ * <p>
+ * Listeners run synchronously on the publishing thread. Several {@link WebSocketCluster} instances can
+ * share one instance to simulate a multi-node deployment in tests. Created by
+ * {@link pt.uc.dei.config.MessageBusProducer}, not discovered as a bean itself.
+ */
+@Vetoed
+public class LocalMessageBus implements MessageBus {
+
+    private static final Logger LOGGER = LogManager.getLogger(LocalMessageBus.class);
+
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean publish(String channel, String payload) {
+        for (Consumer<String> listener : listeners.getOrDefault(channel, List.of())) {
+            try {
+                listener.accept(payload);
+            } catch (RuntimeException e) {
+                LOGGER.error("Message bus listener on channel {} failed", channel, e);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        listeners.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @Override
+    public void close() {
+        listeners.clear();
+    }
+}
@@ -0,0 +1,55 @@
+package pt.uc.dei.websocket;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Publish/subscribe channel shared by all application nodes.
+ * <p>
+ * Used by {@link WebSocketCluster} to route WebSocket deliveries to the node that holds the recipient's
+ * sessions. Implementations deliver every published message to every subscriber of the channel, including
+ * the publisher's own subscribers, and keep the order of messages published by one node.
+ */
+public interface MessageBus {
+
+    /**
+     * Publishes a message to every subscriber of a channel.
+     *
+     * @param channel channel name, lowercase letters, digits and underscores
+     * @param payload message body
+     * @return {@code true} if the message was handed to the bus, {@code false} if it was rejected or could not
+     *         be sent, in which case no subscriber receives it. Buses that send asynchronously may still lose
+     *         an accepted message; they report it through {@link #onReconnect(Runnable)} or {@link #getStats()}
+     */
+    boolean publish(String channel, String payload);
+
+    /**
+     * Registers a listener for a channel.
+     *
+     * @param channel  channel name
+     * @param listener called with each message payload
+     */
+    void subscribe(String channel, Consumer<String> listener);
+
+    /**
+     * Registers a callback run after the bus restored its subscriptions following a failure. Messages published
+     * while it was disconnected are lost, so subscribers that keep state from them should resynchronize.
+     * Buses that cannot lose messages never call it.
+     *
+     * @param listener called on the bus thread after every reconnect
+     */
+    default void onReconnect(Runnable listener) {
+    }
+
+    /**
+     * @return counters describing the bus, e.g. queued and dropped messages; empty when it keeps none
+     */
+    default Map<String, Object> getStats() {
+        return Map.of();
+    }
+
+    /**
+     * Releases connections and threads held by the bus.
+     */
+    void close();
+}
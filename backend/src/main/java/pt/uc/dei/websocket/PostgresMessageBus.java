@@ -0,0 +1,308 @@
+package pt.uc.dei.websocket;
+
+import jakarta.enterprise.inject.Vetoed;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import pt.uc.dei.config.EnvironmentConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * {@link MessageBus} over PostgreSQL {@code LISTEN}/{@code NOTIFY}, so nodes that share the application
+ * database can exchange messages without extra infrastructure.
+ * <p>
+ * One dedicated connection is kept in {@code LISTEN} mode by a daemon thread that polls for notifications
+ * and reconnects with back-off after failures; once a new connection listens on every channel again, the
+ * {@linkplain #onReconnect(Runnable) reconnect callbacks} run, since notifications sent meanwhile were lost.
+ * <p>
+ * Publishing never waits for the database. Messages go into a bounded queue of
+ * {@code MESSAGE_BUS_QUEUE_CAPACITY} entries, drained in order by a publisher thread that runs {@code pg_notify}
+ * on a second long-lived connection in auto-commit mode, so the caller's transaction is never joined and each
+ * notification goes out at once. When the queue is full the message is dropped and counted, so a slow or
+ * unreachable database costs callers (chat messages, announcements, the notification dispatcher) nothing but
+ * the messages themselves; the publishing connection is reopened with back-off after failures. PostgreSQL
+ * limits a notification payload to just under 8000 bytes; larger messages are rejected. Rejected, dropped and
+ * failed messages are reported by {@link #getStats()}.
+ */
+@Vetoed
+public class PostgresMessageBus implements MessageBus {
+
+    private static final Logger LOGGER = LogManager.getLogger(PostgresMessageBus.class);
+
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final int POLL_TIMEOUT_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000L;
+    private static final long CLOSE_TIMEOUT_MS = 1_000L;
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z0-9_]{1,63}");
+
+    /**
+     * Source of JDBC connections, e.g. {@code dataSource::getConnection}.
+     */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection open() throws SQLException;
+    }
+
+    private record Message(String channel, String payload) {
+    }
+
+    private final ConnectionSource connectionSource;
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+    private final List<Runnable> reconnectListeners = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<Message> outbox;
+    private final Thread listenerThread;
+    private final Thread publisherThread;
+    private volatile boolean running = true;
+
+    private final LongAdder published = new LongAdder();
+    private final AtomicLong dropped = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Creates the bus with the queue capacity from the environment and starts its threads.
+     *
+     * @param connectionSource source of connections to the shared PostgreSQL database
+     */
+    public PostgresMessageBus(ConnectionSource connectionSource) {
+        this(connectionSource, EnvironmentConfig.getInt("MESSAGE_BUS_QUEUE_CAPACITY", 10_000));
+    }
+
+    /**
+     * Creates the bus and starts its threads.
+     *
+     * @param connectionSource source of connections to the shared PostgreSQL database
+     * @param queueCapacity    messages waiting to be published before new ones are dropped
+     */
+    public PostgresMessageBus(ConnectionSource connectionSource, int queueCapacity) {
+        this.connectionSource = connectionSource;
+        this.outbox = new ArrayBlockingQueue<>(queueCapacity);
+        this.listenerThread = new Thread(this::listen, "message-bus-listener");
+        this.listenerThread.setDaemon(true);
+        this.listenerThread.start();
+        this.publisherThread = new Thread(this::drain, "message-bus-publisher");
+        this.publisherThread.setDaemon(true);
+        this.publisherThread.start();
+    }
+
+    /**
+     * Queues a message for the publisher thread and returns at once.
+     *
+     * @return {@code true} if the message was queued; {@code false} if it is too large, the queue is full or the
+     *         bus is closed
+     */
+    @Override
+    public boolean publish(String channel, String payload) {
+        checkChannel(channel);
+        int size = payload.getBytes(StandardCharsets.UTF_8).length;
+        if (size > MAX_PAYLOAD_BYTES) {
+            rejected.increment();
+            LOGGER.warn("Not publishing {} byte message on channel {}: the limit is {} bytes",
+                    size, channel, MAX_PAYLOAD_BYTES);
+            return false;
+        }
+        if (running && outbox.offer(new Message(channel, payload))) {
+            return true;
+        }
+        long drops = dropped.incrementAndGet();
+        // One line per burst rather than per message while the database is slow
+        if (drops == 1 || drops % 1000 == 0) {
+            LOGGER.warn("Message bus queue is {}, {} messages dropped so far (last on channel {})",
+                    running ? "full" : "closed", drops, channel);
+        }
+        return false;
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        checkChannel(channel);
+        listeners.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @Override
+    public void onReconnect(Runnable listener) {
+        reconnectListeners.add(listener);
+    }
+
+    /**
+     * Stops both threads. Messages still queued, such as a last {@code BYE}, get up to a second to go out.
+     */
+    @Override
+    public void close() {
+        running = false;
+        listenerThread.interrupt();
+        try {
+            publisherThread.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publisherThread.interrupt();
+    }
+
+    /**
+     * @return queued, published, dropped, rejected and failed message counts
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", outbox.size());
+        stats.put("published", published.sum());
+        stats.put("dropped", dropped.get());
+        stats.put("rejected", rejected.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    /**
+     * Publisher thread: sends queued messages in order on one connection, reopened with back-off after a
+     * failure. A message whose send failed is counted and not retried, as the caller was already told it went
+     * out.
+     */
+    private void drain() {
+        long backoff = 1000L;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        while (running || !outbox.isEmpty()) {
+            Message message;
+            try {
+                message = outbox.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (message == null) {
+                continue;
+            }
+            try {
+                if (connection == null) {
+                    connection = connectionSource.open();
+                    connection.setAutoCommit(true);
+                    statement = connection.prepareStatement("SELECT pg_notify(?, ?)");
+                }
+                statement.setString(1, message.channel());
+                statement.setString(2, message.payload());
+                statement.execute();
+                published.increment();
+                backoff = 1000L;
+            } catch (SQLException e) {
+                failed.increment();
+                closeQuietly(connection);
+                connection = null;
+                statement = null;
+                if (!running) {
+                    break;
+                }
+                LOGGER.error("Failed to publish on message bus channel {}, reconnecting in {} ms",
+                        message.channel(), backoff, e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    break;
+                }
+                backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+            }
+        }
+        closeQuietly(connection);
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOGGER.debug("Failed to close message bus publishing connection", e);
+        }
+    }
+
+    private void listen() {
+        long backoff = 1000L;
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = connectionSource.open();
+                 Statement statement = connection.createStatement()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                Set<String> listening = new HashSet<>();
+                backoff = 1000L;
+                boolean reconnected = connectedBefore;
+                connectedBefore = true;
+                while (running) {
+                    for (String channel : listeners.keySet()) {
+                        if (listening.add(channel)) {
+                            // Channel names are validated against CHANNEL_NAME, so they are safe identifiers
+                            statement.execute("LISTEN " + channel);
+                        }
+                    }
+                    if (reconnected) {
+                        reconnected = false;
+                        LOGGER.warn("Message bus listener reconnected; notifications sent meanwhile were lost");
+                        reconnectListeners.forEach(PostgresMessageBus::runReconnectListener);
+                    }
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getName(), notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.error("Message bus listener connection failed, retrying in {} ms", backoff, e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+            }
+        }
+    }
+
+    private static void runReconnectListener(Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            LOGGER.error("Message bus reconnect listener failed", e);
+        }
+    }
+
+    private void dispatch(String channel, String payload) {
+        for (Consumer<String> listener : listeners.getOrDefault(channel, List.of())) {
+            try {
+                listener.accept(payload);
+            } catch (RuntimeException e) {
+                LOGGER.error("Message bus listener on channel {} failed", channel, e);
+            }
+        }
+    }
+
+    private static void checkChannel(String channel) {
+        if (channel == null || !CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid message bus channel: " + channel);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package pt.uc.dei.websocket;
+
+import jakarta.websocket.Session;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Bidirectional registry of authenticated WebSocket sessions for one endpoint.
+ * <p>
+ * Keeps a user-to-sessions map and a session-id-to-user map, both backed by {@link ConcurrentHashMap}
+ * with concurrent key sets, so lookups in either direction are O(1) and lock-free. Registration and
+ * removal update a user's session set atomically, and a user's entry disappears together with their last
+ * session. Iteration is weakly consistent: sessions opened or closed during a send may or may not be seen,
+ * but iteration never fails.
+ */
+public final class SessionRegistry {
+
+    private final Map<Long, Set<Session>> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<String, Long> userBySessionId = new ConcurrentHashMap<>();
+
+    /**
+     * Associates a session with a user.
+     *
+     * @param userId  the authenticated user
+     * @param session the session to register
+     */
+    public void register(Long userId, Session session) {
+        userBySessionId.put(session.getId(), userId);
+        sessionsByUser.compute(userId, (id, sessions) -> {
+            Set<Session> userSessions = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+            userSessions.add(session);
+            return userSessions;
+        });
+    }
+
+    /**
+     * Removes a session. Safe to call more than once, and for sessions that were never registered.
+     *
+     * @param session the session to remove
+     * @return the user the session belonged to, or {@code null} if it was not registered
+     */
+    public Long unregister(Session session) {
+        Long userId = userBySessionId.remove(session.getId());
+        if (userId != null) {
+            sessionsByUser.computeIfPresent(userId, (id, sessions) -> {
+                sessions.remove(session);
+                return sessions.isEmpty() ? null : sessions;
+            });
+        }
+        return userId;
+    }
+
+    /**
+     * @return the user that owns the session, or {@code null} if it is not registered
+     */
+    public Long getUserId(Session session) {
+        return userBySessionId.get(session.getId());
+    }
+
+    /**
+     * Returns a live, read-only view of a user's sessions.
+     *
+     * @param userId the user id
+     * @return the user's sessions, empty if the user has none
+     */
+    public Set<Session> getSessions(Long userId) {
+        Set<Session> sessions = userId == null ? null : sessionsByUser.get(userId);
+        return sessions == null ? Collections.emptySet() : Collections.unmodifiableSet(sessions);
+    }
+
+    /**
+     * @return {@code true} if the user has at least one registered session
+     */
+    public boolean isConnected(Long userId) {
+        return userId != null && sessionsByUser.containsKey(userId);
+    }
+
+    /**
+     * @return a live, read-only view of the ids of users with at least one session
+     */
+    public Set<Long> getUserIds() {
+        return Collections.unmodifiableSet(sessionsByUser.keySet());
+    }
+
+    /**
+     * Applies an action to every registered session.
+     */
+    public void forEachSession(Consumer<Session> action) {
+        sessionsByUser.values().forEach(sessions -> sessions.forEach(action));
+    }
+
+    /**
+     * @return number of users with at least one session
+     */
+    public int getUserCount() {
+        return sessionsByUser.size();
+    }
+
+    /**
+     * @return number of registered sessions
+     */
+    public int getSessionCount() {
+        return userBySessionId.size();
+    }
+}
@@ -3,18 +3,13 @@ package pt.uc.dei.websocket;
 import jakarta.ejb.EJB;
 import jakarta.json.JsonObject;
 import jakarta.websocket.Session;
-import jakarta.websocket.server.HandshakeRequest;
-import pt.uc.dei.services.AuthenticationService;
-import pt.uc.dei.utils.JWTUtil;
+import pt.uc.dei.config.EnvironmentConfig;
+import pt.uc.dei.services.PresenceService;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 /**
  * Classe utilitária responsável por gerenciar a autenticação de usuários
  * no contexto de sockets WebSocket.
@@ -24,27 +19,36 @@ import java.util.Set;
 public class WebSocketAuthentication {
 
     @EJB
-    AuthenticationService authenticationService;
+    PresenceService presenceService;
+
+    /**
+     * Sessions without any inbound traffic (including PONG replies to the server PINGs) for this long are
+     * closed by the container, so sockets that died without a close frame do not keep users online.
+     */
+    private static final long IDLE_TIMEOUT_MS = EnvironmentConfig.getLong("WS_IDLE_TIMEOUT_MS", 150_000L);
 
     // Logger para registrar eventos e erros relacionados à autenticação
     private static final Logger logger = LogManager.getLogger(WebSocketAuthentication.class);
 
     /**
-     * Authenticates a WebSocket session using the HandshakeRequest.
-     * Extracts the JWT from cookies, validates it, and registers the session by user ID.
+     * Authenticates a WebSocket session with the user its handshake was authenticated as.
+     * The JWT cookie is validated by {@link CustomConfigurator} during the handshake; the session is registered
+     * by user ID.
      *
      * @param session   The WebSocket session to authenticate.
-     * @param request   The HandshakeRequest containing cookies.
-     * @param sessions  The map of user IDs to their WebSocket sessions.
+     * @param sessions  The registry of the endpoint's authenticated sessions.
      * @return true if authentication is successful, false otherwise.
      */
-    public boolean authenticate(Session session, HandshakeRequest request, HashMap<Long, Set<Session>> sessions) {
-        Long userId = JWTUtil.getUserIdFromToken(request);
-        authenticationService.setUserOnline(userId);
+    public boolean authenticate(Session session, SessionRegistry sessions) {
+        Long userId = CustomConfigurator.takeUserId(session);
         if (userId != null) {
-            sessions.computeIfAbsent(userId, k -> new HashSet<>()).add(session);
-            logger.info("User {} authenticated in WebSocket via cookie", userId);
+            // Sent with a blocking write before anything can queue asynchronous frames on the session, since
+            // containers reject a blocking send while an asynchronous one is in flight
             sendSuccessMessage(session, userId);
+            sessions.register(userId, session);
+            session.setMaxIdleTimeout(IDLE_TIMEOUT_MS);
+            presenceService.sessionsChanged(userId);
+            logger.info("User {} authenticated in WebSocket via cookie", userId);
             return true;
         } else {
             logger.warn("WebSocket authentication failed: missing or invalid JWT");
@@ -99,20 +103,4 @@ public class WebSocketAuthentication {
             logger.error("Failed to send authentication success message", e);
         }
     }
-
-    /**
-     * Método para localizar o ID do usuário associado a uma determinada sessão WebSocket.
-     *
-     * @param sessions Mapa que associa IDs de usuários às suas sessões WebSocket.
-     * @param session  Sessão WebSocket a ser buscada.
-     * @return ID do usuário associado à sessão, ou `null` se não for encontrado.
-     */
-    public static Long findUserIdBySession(HashMap<Long, Set<Session>> sessions, Session session) {
-        for (Map.Entry<Long, Set<Session>> entry : sessions.entrySet()) {
-            if (entry.getValue().contains(session)) {
-                return entry.getKey();
-            }
-        }
-        return null;
-    }
-}
\ No newline at end of file
+}
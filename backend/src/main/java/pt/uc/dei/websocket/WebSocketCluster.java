@@ -0,0 +1,488 @@
+package pt.uc.dei.websocket;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EnvironmentConfig;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes WebSocket deliveries between application nodes over a {@link MessageBus}.
+ * <p>
+ * Each endpoint registers a {@link LocalDelivery} for the sessions it holds on this node. A delivery is
+ * first attempted locally; a {@code DELIVER} message is published on the bus only when the cluster
+ * directory shows another node holding sessions of the recipient, and only that node sends it. The
+ * directory is kept by {@code JOIN}/{@code LEAVE} messages when a user's first session opens or last
+ * session closes, a {@code SYNC} of all local users answering every {@code HELLO} from a starting node,
+ * and periodic {@code HEARTBEAT}s; nodes not heard from within {@code WS_CLUSTER_NODE_TTL_MS} are dropped.
+ * With a single node nothing is ever published besides the heartbeat.
+ * <p>
+ * A {@code SYNC} replaces what the directory held for its node, so it also repairs entries that missed
+ * messages. One is requested with a {@code RESYNC} from a node heard from while not in the directory (e.g.
+ * after it timed out), and again on every heartbeat until its answer arrived. A {@code HELLO} is sent again
+ * after the bus reconnected, since messages published meanwhile were lost, and this node publishes its own
+ * {@code SYNC} on the next heartbeat when a {@code JOIN}/{@code LEAVE} could not be published.
+ */
+@ApplicationScoped
+public class WebSocketCluster {
+
+    private static final Logger LOGGER = LogManager.getLogger(WebSocketCluster.class);
+
+    static final String CHANNEL = "ws_cluster";
+    private static final int SYNC_CHUNK_SIZE = 500;
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Sessions of one endpoint on this node.
+     */
+    public interface LocalDelivery {
+
+        /**
+         * Sends a message to the user's sessions on this node.
+         *
+         * @return {@code true} if at least one session accepted it
+         */
+        boolean deliverLocally(Long userId, String payload, String coalesceKey);
+
+        /**
+         * @return {@code true} if the user has a session on this node
+         */
+        boolean isConnected(Long userId);
+
+        /**
+         * @return ids of users with a session on this node
+         */
+        Set<Long> localUsers();
+
+        /**
+         * Delivers through an endpoint's session registry and outbound queues.
+         */
+        static LocalDelivery of(SessionRegistry sessions, WebSocketOutbound outbound) {
+            return new LocalDelivery() {
+                @Override
+                public boolean deliverLocally(Long userId, String payload, String coalesceKey) {
+                    return outbound.sendAll(sessions.getSessions(userId), payload, coalesceKey);
+                }
+
+                @Override
+                public boolean isConnected(Long userId) {
+                    return sessions.isConnected(userId);
+                }
+
+                @Override
+                public Set<Long> localUsers() {
+                    return sessions.getUserIds();
+                }
+            };
+        }
+    }
+
+    /**
+     * What this node knows about another node.
+     */
+    private static final class NodeState {
+        private volatile long lastHeard = System.nanoTime();
+        /** Whether a complete {@code SYNC} of the node arrived since it entered the directory. */
+        private volatile boolean synced;
+        private final Map<String, Set<Long>> usersByEndpoint = new ConcurrentHashMap<>();
+        /** Users of a {@code SYNC} still arriving in chunks, by endpoint; they replace the endpoint's users. */
+        private final Map<String, Set<Long>> rebuilding = new ConcurrentHashMap<>();
+
+        private Set<Long> users(String endpoint) {
+            return usersByEndpoint.computeIfAbsent(endpoint, e -> ConcurrentHashMap.newKeySet());
+        }
+
+        private void join(String endpoint, Long userId) {
+            users(endpoint).add(userId);
+            Set<Long> next = rebuilding.get(endpoint);
+            if (next != null) {
+                next.add(userId);
+            }
+        }
+
+        private void leave(String endpoint, Long userId) {
+            users(endpoint).remove(userId);
+            Set<Long> next = rebuilding.get(endpoint);
+            if (next != null) {
+                next.remove(userId);
+            }
+        }
+    }
+
+    private final MessageBus bus;
+    private final String nodeId;
+    private final long nodeTtlNanos;
+    private final Map<String, LocalDelivery> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, NodeState> nodes = new ConcurrentHashMap<>();
+    private final Object[] announceLocks = new Object[LOCK_STRIPES];
+    private volatile boolean syncPending;
+
+    private final LongAdder deliveredLocally = new LongAdder();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder received = new LongAdder();
+
+    @Inject
+    public WebSocketCluster(MessageBus bus) {
+        this(bus, EnvironmentConfig.getString("NODE_ID", UUID.randomUUID().toString()),
+                EnvironmentConfig.getLong("WS_CLUSTER_NODE_TTL_MS", 150_000L));
+    }
+
+    /**
+     * Creates a cluster member with explicit settings.
+     *
+     * @param bus       the shared message bus
+     * @param nodeId    unique id of this node
+     * @param nodeTtlMs how long another node stays in the directory without being heard from
+     */
+    public WebSocketCluster(MessageBus bus, String nodeId, long nodeTtlMs) {
+        this.bus = bus;
+        this.nodeId = nodeId;
+        this.nodeTtlNanos = TimeUnit.MILLISECONDS.toNanos(nodeTtlMs);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            announceLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Required by CDI for client proxies of normal-scoped beans.
+     */
+    protected WebSocketCluster() {
+        this.bus = null;
+        this.nodeId = null;
+        this.nodeTtlNanos = 0;
+    }
+
+    /**
+     * Subscribes to the cluster channel and asks the other nodes for their users.
+     */
+    @PostConstruct
+    public void start() {
+        bus.subscribe(CHANNEL, this::onMessage);
+        bus.onReconnect(this::onReconnect);
+        publish(message("HELLO"));
+        LOGGER.info("WebSocket cluster node {} started", nodeId);
+    }
+
+    @PreDestroy
+    void stop() {
+        publish(message("BYE"));
+    }
+
+    /**
+     * Registers the local sessions of an endpoint.
+     *
+     * @param endpoint endpoint name, the same on every node
+     * @param delivery access to the endpoint's sessions on this node
+     */
+    public void register(String endpoint, LocalDelivery delivery) {
+        endpoints.put(endpoint, delivery);
+    }
+
+    /**
+     * Delivers a message to a user wherever their sessions are.
+     *
+     * @param endpoint    the endpoint the message belongs to
+     * @param userId      the recipient
+     * @param payload     the message
+     * @param coalesceKey coalescing key passed to the sending node's outbound queues, or {@code null}
+     * @return {@code true} if a local session accepted the message or it was forwarded to another node holding
+     *         the user's sessions; {@code false} if neither happened, e.g. because the bus could not publish it,
+     *         so the caller can fall back to a notification
+     */
+    public boolean deliver(String endpoint, Long userId, String payload, String coalesceKey) {
+        LocalDelivery delivery = endpoints.get(endpoint);
+        boolean local = delivery != null && delivery.deliverLocally(userId, payload, coalesceKey);
+        if (local) {
+            deliveredLocally.increment();
+        }
+        if (!isConnectedElsewhere(endpoint, userId)) {
+            return local;
+        }
+        JsonObjectBuilder message = message("DELIVER")
+                .add("endpoint", endpoint)
+                .add("userId", userId)
+                .add("payload", payload);
+        if (coalesceKey != null) {
+            message.add("key", coalesceKey);
+        }
+        if (!publish(message)) {
+            return local;
+        }
+        forwarded.increment();
+        return true;
+    }
+
+    /**
+     * Publishes whether a user currently has sessions of an endpoint on this node. Called after a session of
+     * the user opened or closed; calls for the same user are serialized so the last one published reflects
+     * the latest state.
+     *
+     * @param endpoint the endpoint name
+     * @param userId   the user whose sessions changed
+     */
+    public void announce(String endpoint, Long userId) {
+        LocalDelivery delivery = endpoints.get(endpoint);
+        if (delivery == null || userId == null) {
+            return;
+        }
+        synchronized (announceLocks[Math.floorMod(userId.hashCode(), LOCK_STRIPES)]) {
+            boolean published = publish(message(delivery.isConnected(userId) ? "JOIN" : "LEAVE")
+                    .add("endpoint", endpoint)
+                    .add("userId", userId));
+            if (!published) {
+                // The other nodes' view of this user is now stale; the next heartbeat sends a full SYNC
+                syncPending = true;
+            }
+        }
+    }
+
+    /**
+     * Tells the other nodes this node is alive and drops nodes that stopped doing so. Also repairs the
+     * directory: nodes whose {@code SYNC} has not arrived are asked again, and this node publishes its own if
+     * an announcement was lost.
+     */
+    public void heartbeat() {
+        publish(message("HEARTBEAT"));
+        if (syncPending) {
+            syncPending = false;
+            sync();
+        }
+        nodes.forEach((id, node) -> {
+            if (!node.synced) {
+                requestSync(id);
+            }
+        });
+        long now = System.nanoTime();
+        nodes.entrySet().removeIf(entry -> {
+            boolean expired = now - entry.getValue().lastHeard > nodeTtlNanos;
+            if (expired) {
+                LOGGER.warn("WebSocket cluster node {} timed out", entry.getKey());
+            }
+            return expired;
+        });
+    }
+
+    /**
+     * @return {@code true} if the user has a session of any endpoint on this node
+     */
+    public boolean isConnectedHere(Long userId) {
+        for (LocalDelivery delivery : endpoints.values()) {
+            if (delivery.isConnected(userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if another live node reports sessions of the user on any endpoint
+     */
+    public boolean isConnectedElsewhere(Long userId) {
+        long now = System.nanoTime();
+        for (NodeState node : nodes.values()) {
+            if (now - node.lastHeard > nodeTtlNanos) {
+                continue;
+            }
+            for (Set<Long> users : node.usersByEndpoint.values()) {
+                if (users.contains(userId)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if the user has a session of any endpoint on this or another live node
+     */
+    public boolean isConnected(Long userId) {
+        return isConnectedHere(userId) || isConnectedElsewhere(userId);
+    }
+
+    /**
+     * @return {@code true} if another live node reports sessions of the user on the endpoint
+     */
+    public boolean isConnectedElsewhere(String endpoint, Long userId) {
+        if (nodes.isEmpty()) {
+            return false;
+        }
+        long now = System.nanoTime();
+        for (NodeState node : nodes.values()) {
+            Set<Long> users = node.usersByEndpoint.get(endpoint);
+            if (users != null && users.contains(userId) && now - node.lastHeard <= nodeTtlNanos) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return known nodes, routing counters and the message bus counters
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("peers", nodes.size());
+        stats.put("deliveredLocally", deliveredLocally.sum());
+        stats.put("forwarded", forwarded.sum());
+        stats.put("received", received.sum());
+        stats.put("bus", bus.getStats());
+        return stats;
+    }
+
+    private void onMessage(String raw) {
+        JsonObject message;
+        try (JsonReader reader = Json.createReader(new StringReader(raw))) {
+            message = reader.readObject();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Ignoring malformed WebSocket cluster message: {}", e.getMessage());
+            return;
+        }
+        String origin = message.getString("origin", null);
+        if (origin == null || origin.equals(nodeId)) {
+            return;
+        }
+        String type = message.getString("type", "");
+        if ("BYE".equals(type)) {
+            nodes.remove(origin);
+            return;
+        }
+        NodeState node = nodes.get(origin);
+        if (node == null) {
+            NodeState joined = new NodeState();
+            node = nodes.putIfAbsent(origin, joined);
+            if (node == null) {
+                node = joined;
+                // Unknown here, e.g. after it timed out: the messages it sent meanwhile were missed
+                requestSync(origin);
+            }
+        }
+        node.lastHeard = System.nanoTime();
+        switch (type) {
+            case "HELLO" -> sync();
+            case "RESYNC" -> {
+                if (nodeId.equals(message.getString("target", null))) {
+                    sync();
+                }
+            }
+            case "JOIN" -> node.join(message.getString("endpoint"), userId(message));
+            case "LEAVE" -> node.leave(message.getString("endpoint"), userId(message));
+            case "SYNC" -> onSync(node, message);
+            case "DELIVER" -> {
+                LocalDelivery delivery = endpoints.get(message.getString("endpoint"));
+                if (delivery != null) {
+                    received.increment();
+                    delivery.deliverLocally(userId(message), message.getString("payload"),
+                            message.getString("key", null));
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Collects a chunk of another node's {@code SYNC}; the last chunk of an endpoint replaces its users. A
+     * round whose first chunk was missed is applied on top of the current users and asked for again.
+     */
+    private void onSync(NodeState node, JsonObject message) {
+        String endpoint = message.getString("endpoint");
+        Set<Long> users = message.getBoolean("first", false)
+                ? ConcurrentHashMap.newKeySet()
+                : node.rebuilding.get(endpoint);
+        boolean complete = users != null;
+        if (users == null) {
+            users = node.users(endpoint);
+        } else {
+            node.rebuilding.put(endpoint, users);
+        }
+        Set<Long> target = users;
+        message.getJsonArray("userIds").getValuesAs(JsonNumber.class).forEach(id -> target.add(id.longValue()));
+        if (message.getBoolean("last", false) && complete) {
+            node.usersByEndpoint.put(endpoint, target);
+            node.rebuilding.remove(endpoint);
+            node.synced = true;
+        } else if (!complete) {
+            node.synced = false;
+        }
+    }
+
+    /**
+     * Asks one node for a {@code SYNC} of its users.
+     */
+    private void requestSync(String target) {
+        publish(message("RESYNC").add("target", target));
+    }
+
+    /**
+     * Asks every node for its users again, since messages published while the bus was reconnecting were lost.
+     */
+    private void onReconnect() {
+        LOGGER.warn("WebSocket cluster node {} reconnected to the message bus, requesting the directory again",
+                nodeId);
+        publish(message("HELLO"));
+    }
+
+    /**
+     * Publishes every local user in chunks, so other nodes learn or repair where sessions are. Each endpoint
+     * is sent as one round, marked by its first and last chunk, even when it has no users; rounds are
+     * published one at a time so their chunks never interleave.
+     */
+    private synchronized void sync() {
+        endpoints.forEach((endpoint, delivery) -> {
+            List<Long> users = new ArrayList<>(delivery.localUsers());
+            int from = 0;
+            do {
+                int to = Math.min(users.size(), from + SYNC_CHUNK_SIZE);
+                JsonArrayBuilder ids = Json.createArrayBuilder();
+                users.subList(from, to).forEach(ids::add);
+                publish(message("SYNC")
+                        .add("endpoint", endpoint)
+                        .add("userIds", ids)
+                        .add("first", from == 0)
+                        .add("last", to == users.size()));
+                from = to;
+            } while (from < users.size());
+        });
+    }
+
+    private JsonObjectBuilder message(String type) {
+        return Json.createObjectBuilder().add("type", type).add("origin", nodeId);
+    }
+
+    private boolean publish(JsonObjectBuilder message) {
+        try {
+            return bus.publish(CHANNEL, message.build().toString());
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to publish WebSocket cluster message", e);
+            return false;
+        }
+    }
+
+    private static Long userId(JsonObject message) {
+        return message.getJsonNumber("userId").longValue();
+    }
+}
@@ -0,0 +1,308 @@
+package pt.uc.dei.websocket;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pt.uc.dei.config.EnvironmentConfig;
+import pt.uc.dei.utils.LatencyHistogram;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking outbound delivery for one WebSocket endpoint.
+ * <p>
+ * Every session gets a bounded queue drained through {@code getAsyncRemote()}, with at most one send in
+ * flight per session as the WebSocket API requires. Callers never wait on the network, so a slow client
+ * only fills its own queue. Messages sent with a coalescing key (counters, presence, read receipts)
+ * replace a queued message with the same key instead of piling up. When a session's queue stays full for
+ * longer than {@code WS_SLOW_CONSUMER_EVICT_MS} the session is closed and handed to the eviction callback.
+ * Queue depth, send latency and queue wait are exposed through {@link #getStats()}.
+ */
+public final class WebSocketOutbound {
+
+    private static final Logger LOGGER = LogManager.getLogger(WebSocketOutbound.class);
+
+    /**
+     * Outcome of {@link #send(Session, String, String)}.
+     */
+    public enum Result {
+        /** Queued or handed to the container. */
+        QUEUED,
+        /** Replaced an undelivered message with the same coalescing key. */
+        COALESCED,
+        /** Queue full; the message was discarded. */
+        DROPPED,
+        /** Queue full for too long; the session was evicted. */
+        EVICTED,
+        /** Session closed or unknown. */
+        CLOSED;
+
+        /**
+         * @return {@code true} if the message will reach the client unless the connection fails
+         */
+        public boolean accepted() {
+            return this == QUEUED || this == COALESCED;
+        }
+    }
+
+    private final String name;
+    private final int capacity;
+    private final long evictAfterNanos;
+    private final Consumer<Session> onEvict;
+    private final Map<String, SessionOutbox> outboxes = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram sendLatency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * Creates an outbound dispatcher configured from the environment.
+     *
+     * @param name    endpoint name used in logs
+     * @param onEvict called with a session after it was evicted as a slow consumer
+     */
+    public WebSocketOutbound(String name, Consumer<Session> onEvict) {
+        this(name, EnvironmentConfig.getInt("WS_OUTBOX_CAPACITY", 256),
+                EnvironmentConfig.getLong("WS_SLOW_CONSUMER_EVICT_MS", 10_000L), onEvict);
+    }
+
+    /**
+     * Creates an outbound dispatcher with explicit limits.
+     *
+     * @param name           endpoint name used in logs
+     * @param capacity       maximum queued messages per session
+     * @param evictAfterMs   how long a queue may stay full before its session is evicted
+     * @param onEvict        called with a session after it was evicted as a slow consumer
+     */
+    public WebSocketOutbound(String name, int capacity, long evictAfterMs, Consumer<Session> onEvict) {
+        this.name = name;
+        this.capacity = Math.max(1, capacity);
+        this.evictAfterNanos = TimeUnit.MILLISECONDS.toNanos(evictAfterMs);
+        this.onEvict = onEvict;
+    }
+
+    /**
+     * Queues a message for a session.
+     */
+    public Result send(Session session, String text) {
+        return send(session, text, null);
+    }
+
+    /**
+     * Queues a message for a session.
+     *
+     * @param session     the recipient session
+     * @param text        the message
+     * @param coalesceKey messages with the same non-null key replace each other while still queued
+     * @return what happened to the message
+     */
+    public Result send(Session session, String text, String coalesceKey) {
+        if (!session.isOpen()) {
+            return Result.CLOSED;
+        }
+        SessionOutbox outbox = outboxes.computeIfAbsent(session.getId(), id -> new SessionOutbox(session));
+        Result result = outbox.offer(text, coalesceKey);
+        switch (result) {
+            case QUEUED -> enqueued.increment();
+            case COALESCED -> coalesced.increment();
+            case DROPPED -> dropped.increment();
+            case EVICTED -> evict(outbox);
+            default -> {
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sends a message to several sessions.
+     *
+     * @return {@code true} if at least one session accepted the message
+     */
+    public boolean sendAll(Iterable<Session> sessions, String text, String coalesceKey) {
+        boolean accepted = false;
+        for (Session session : sessions) {
+            accepted |= send(session, text, coalesceKey).accepted();
+        }
+        return accepted;
+    }
+
+    /**
+     * Discards a session's queue, e.g. after it closed.
+     */
+    public void remove(Session session) {
+        SessionOutbox outbox = outboxes.remove(session.getId());
+        if (outbox != null) {
+            outbox.close();
+        }
+    }
+
+    /**
+     * Evicts sessions whose queue has been full for too long, even if nothing new was sent to them.
+     */
+    public void evictStalled() {
+        long now = System.nanoTime();
+        for (SessionOutbox outbox : outboxes.values()) {
+            if (outbox.stalledSince(now)) {
+                evict(outbox);
+            }
+        }
+    }
+
+    /**
+     * Returns queue depth, counters and latency histograms.
+     *
+     * @return map suitable for a metrics endpoint
+     */
+    public Map<String, Object> getStats() {
+        int totalDepth = 0;
+        int maxDepth = 0;
+        for (SessionOutbox outbox : outboxes.values()) {
+            int depth = outbox.depth();
+            totalDepth += depth;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", outboxes.size());
+        stats.put("queueCapacity", capacity);
+        stats.put("queuedMessages", totalDepth);
+        stats.put("maxQueueDepth", maxDepth);
+        stats.put("enqueued", enqueued.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("failed", failed.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("sendLatency", sendLatency.toMap());
+        stats.put("queueWait", queueWait.toMap());
+        return stats;
+    }
+
+    private void evict(SessionOutbox outbox) {
+        Session session = outbox.session;
+        if (outboxes.remove(session.getId(), outbox)) {
+            outbox.close();
+            evicted.increment();
+            LOGGER.warn("Evicting slow {} WebSocket session {} ({} messages queued)", name, session.getId(), capacity);
+            try {
+                session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Slow consumer"));
+            } catch (Exception e) {
+                LOGGER.debug("Failed to close evicted session {}", session.getId(), e);
+            }
+            onEvict.accept(session);
+        }
+    }
+
+    private static final class Message {
+        private String text;
+        private final String coalesceKey;
+        private final long enqueuedAt;
+
+        private Message(String text, String coalesceKey, long enqueuedAt) {
+            this.text = text;
+            this.coalesceKey = coalesceKey;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    /**
+     * Queue of one session. All state is guarded by the outbox monitor; sends happen outside it.
+     */
+    private final class SessionOutbox {
+        private final Session session;
+        private final ArrayDeque<Message> queue = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+        private long fullSince;
+
+        private SessionOutbox(Session session) {
+            this.session = session;
+        }
+
+        private Result offer(String text, String coalesceKey) {
+            long now = System.nanoTime();
+            Message next;
+            synchronized (this) {
+                if (closed) {
+                    return Result.CLOSED;
+                }
+                if (coalesceKey != null) {
+                    for (Message queued : queue) {
+                        if (coalesceKey.equals(queued.coalesceKey)) {
+                            queued.text = text;
+                            return Result.COALESCED;
+                        }
+                    }
+                }
+                if (queue.size() >= capacity) {
+                    if (fullSince == 0) {
+                        fullSince = now;
+                    }
+                    return now - fullSince > evictAfterNanos ? Result.EVICTED : Result.DROPPED;
+                }
+                queue.add(new Message(text, coalesceKey, now));
+                if (sending) {
+                    return Result.QUEUED;
+                }
+                sending = true;
+                next = queue.poll();
+            }
+            transmit(next);
+            return Result.QUEUED;
+        }
+
+        private void transmit(Message message) {
+            long startedAt = System.nanoTime();
+            queueWait.record(startedAt - message.enqueuedAt);
+            try {
+                session.getAsyncRemote().sendText(message.text,
+                        result -> completed(startedAt, result.isOK() ? null : result.getException()));
+            } catch (RuntimeException e) {
+                completed(startedAt, e);
+            }
+        }
+
+        private void completed(long startedAt, Throwable error) {
+            sendLatency.recordSince(startedAt);
+            if (error != null) {
+                failed.increment();
+                LOGGER.debug("{} WebSocket send to session {} failed", name, session.getId(), error);
+            }
+            Message next;
+            synchronized (this) {
+                next = closed ? null : queue.poll();
+                if (queue.size() < capacity) {
+                    fullSince = 0;
+                }
+                if (next == null) {
+                    sending = false;
+                }
+            }
+            if (next != null) {
+                transmit(next);
+            }
+        }
+
+        private synchronized boolean stalledSince(long now) {
+            return fullSince != 0 && now - fullSince > evictAfterNanos;
+        }
+
+        private synchronized int depth() {
+            return queue.size();
+        }
+
+        private synchronized void close() {
+            closed = true;
+            queue.clear();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package pt.uc.dei.websocket;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
 import jakarta.ejb.Schedule;
 import jakarta.ejb.Singleton;
 import jakarta.inject.Inject;
@@ -7,7 +10,6 @@ import jakarta.json.Json;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonReader;
 import jakarta.websocket.*;
-import jakarta.websocket.server.HandshakeRequest;
 import jakarta.websocket.server.ServerEndpoint;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,15 +18,15 @@ import pt.uc.dei.dtos.UserDTO;
 import pt.uc.dei.services.AuthenticationService;
 import pt.uc.dei.services.MessageService;
 import pt.uc.dei.services.NotificationService;
+import pt.uc.dei.services.PresenceService;
 import pt.uc.dei.services.UserService;
+import pt.uc.dei.utils.FrameEncoder;
 import pt.uc.dei.utils.JsonCreator;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Set;
+import java.util.Map;
 
 /**
  * Endpoint WebSocket responsável pela comunicação em tempo real no chat.
@@ -32,6 +34,7 @@ import java.util.Set;
  * recebimento de pings e gerenciamento de sessões de usuários.
  */
 @Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 @ServerEndpoint(value = "/websocket/chat/", configurator = CustomConfigurator.class)
 public class WsChat {
 
@@ -39,13 +42,22 @@ public class WsChat {
     // erros)
     private static final Logger logger = LogManager.getLogger(WsChat.class);
 
-    // Mapa que armazena as sessões dos usuários. A chave é o ID do usuário,
-    // e o valor é um conjunto de sessões WebSocket associados a ele.
-    private HashMap<Long, Set<Session>> sessions = new HashMap<>();
+    // Nome do endpoint no cluster; igual em todos os nós.
+    static final String ENDPOINT = "chat";
+
+    // Registo das sessões dos usuários, indexado por ID do usuário e por ID da sessão.
+    private final SessionRegistry sessions = new SessionRegistry();
+
+    // Filas de envio assíncrono por sessão; sessões lentas são removidas em vez de bloquear o servidor.
+    private final WebSocketOutbound outbound = new WebSocketOutbound(ENDPOINT, this::unregister);
 
     @Inject
     private WebSocketAuthentication webSocketAuthentication;
     @Inject
+    private WebSocketCluster cluster;
+    @Inject
+    private HeartbeatScheduler heartbeat;
+    @Inject
     private AuthenticationService authenticationService;
     @Inject
     private UserService userService;
@@ -53,6 +65,16 @@ public class WsChat {
     private MessageService messageService;
     @Inject
     private NotificationService notificationService;
+    @Inject
+    private PresenceService presenceService;
+
+    /**
+     * Registers this node's sessions with the cluster, so deliveries for users connected here are routed to us.
+     */
+    @PostConstruct
+    void registerWithCluster() {
+        cluster.register(ENDPOINT, WebSocketCluster.LocalDelivery.of(sessions, outbound));
+    }
 
     /**
      * Método chamado automaticamente quando uma nova conexão WebSocket é
@@ -65,12 +87,14 @@ public class WsChat {
     @OnOpen
     public void onOpen(Session session, EndpointConfig config) {
         try {
-            HandshakeRequest request = (HandshakeRequest) config.getUserProperties().get("HandshakeRequest");
-            boolean authenticated = webSocketAuthentication.authenticate(session, request, sessions);
+            boolean authenticated = webSocketAuthentication.authenticate(session, sessions);
             if (!authenticated) {
                 logger.warn("WebSocket authentication failed: missing or invalid JWT cookie");
                 session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY,
                         "Unauthorized: missing or invalid JWT"));
+            } else {
+                heartbeat.register(session, this::unregister);
+                cluster.announce(ENDPOINT, sessions.getUserId(session));
             }
         } catch (Exception e) {
             logger.error("WebSocket authentication error", e);
@@ -91,21 +115,44 @@ public class WsChat {
      */
     @OnClose
     public void onClose(Session session, CloseReason reason) {
-        Long userId = WebSocketAuthentication.findUserIdBySession(sessions, session);
+        Long userId = unregister(session);
         if (userId != null) {
-            Set<Session> userSessions = sessions.get(userId);
-            if (userSessions != null) {
-                userSessions.remove(session); // Remove apenas a sessão encerrada
-                if (userSessions.isEmpty()) {
-                    sessions.remove(userId); // Remove o usuário se não houver mais sessões
-                }
-            }
             logger.info("User {} disconnected from chat. Reason: {}", userId, reason.getReasonPhrase());
         } else {
             logger.info("Unknown WebSocket session closed: {}", reason.getReasonPhrase());
         }
     }
 
+    /**
+     * Called when a connection fails, e.g. when the peer vanished without a close frame.
+     * The session is dropped immediately so the user does not stay online until the close callback.
+     *
+     * @param session The failed WebSocket session.
+     * @param error   The transport error.
+     */
+    @OnError
+    public void onError(Session session, Throwable error) {
+        Long userId = unregister(session);
+        logger.warn("WebSocket chat session {} of user {} failed: {}", session.getId(), userId, error.getMessage());
+    }
+
+    /**
+     * Removes a session from the active sessions and from presence tracking.
+     *
+     * @param session The session to remove.
+     * @return The owning user id, or {@code null} if the session was not registered.
+     */
+    private Long unregister(Session session) {
+        heartbeat.unregister(session);
+        outbound.remove(session);
+        Long userId = sessions.unregister(session);
+        presenceService.sessionsChanged(userId);
+        if (userId != null && !sessions.isConnected(userId)) {
+            cluster.announce(ENDPOINT, userId);
+        }
+        return userId;
+    }
+
     /**
      * Método chamado automaticamente quando uma mensagem é recebida pelo WebSocket.
      * Este método processa tipos específicos de mensagens, como autenticação e
@@ -117,7 +164,8 @@ public class WsChat {
      */
     @OnMessage
     public void toDoOnMessage(Session session, String msg) throws IOException {
-        System.out.println("Received message: " + msg);
+        heartbeat.touch(session);
+        logger.debug("Received message: {}", msg);
         JsonReader jsonReader = Json.createReader(new StringReader(msg));
         JsonObject jsonMessage = jsonReader.readObject();
         String messageType = jsonMessage.getString("type");
@@ -125,19 +173,19 @@ public class WsChat {
         switch (messageType) {
             case "MESSAGE": {
                 if (!checkIfValidMessage(jsonMessage)) {
-                    session.getBasicRemote().sendText(
+                    outbound.send(session,
                             JsonCreator.createJson("ERROR", "message", "Invalid message format").toString());
                 } else {
                     Long recipientId = jsonMessage.getJsonNumber("recipientId").longValue();
                     String message = jsonMessage.getString("message").trim();
-                    Long senderId = WebSocketAuthentication.findUserIdBySession(sessions, session);
+                    Long senderId = sessions.getUserId(session);
                     UserDTO recipientUser = userService.getUser(recipientId);
                     if (recipientUser != null) {
                         if (recipientUser.getUserIsDeleted()) {
                             logger.info("Recipient {} is deleted", recipientUser.getId());
                             JsonObject errorJson = JsonCreator.createJson("ERROR", "message",
                                     "Recipient user is deleted");
-                            session.getBasicRemote().sendText(errorJson.toString());
+                            outbound.send(session, errorJson.toString());
                             return;
                         }
                         MessageDTO messageDTO = new MessageDTO();
@@ -153,29 +201,29 @@ public class WsChat {
                                 messageDTO = messageService.archiveMessage(messageDTO);
                                 JsonObject confirmationJson = JsonCreator.createJson("SUCCESS", "message",
                                         "Message sent successfully");
-                                session.getBasicRemote().sendText(confirmationJson.toString());
+                                outbound.send(session, confirmationJson.toString());
                             } else {
                                 messageDTO = messageService.archiveMessage(messageDTO);
                                 notificationService.newMessageNotification(messageDTO);
                             }
                         } else {
-                            session.getBasicRemote().sendText(
+                            outbound.send(session,
                                     JsonCreator.createJson("ERROR", "message", "Failed to archive message").toString());
                         }
                     } else {
                         logger.info("Recipient {} does not exist", recipientId);
                         JsonObject errorJson = JsonCreator.createJson("ERROR", "message",
                                 "Recipient user does not exist");
-                        session.getBasicRemote().sendText(errorJson.toString());
+                        outbound.send(session, errorJson.toString());
                     }
                 }
                 break;
             }
             case "CONVERSATION_READ": {
                 Long recipientId = jsonMessage.getJsonNumber("recipientId").longValue();
-                Long senderId = WebSocketAuthentication.findUserIdBySession(sessions, session);
+                Long senderId = sessions.getUserId(session);
                 JsonObject conversationRead = JsonCreator.createJson("CONVERSATION_READ", "senderId", senderId);
-                sendJsonToUser(conversationRead, recipientId);
+                sendJsonToUser(conversationRead, recipientId, "CONVERSATION_READ:" + senderId);
                 break;
             }
             default:
@@ -188,27 +236,13 @@ public class WsChat {
      * Envia uma mensagem para todas as sessões associadas ao usuário destinatário.
      *
      * @param messageDTO O DTO da mensagem a ser enviada.
-     * @return `true` se pelo menos uma sessão recebeu a mensagem; caso contrário,
+     * @return `true` se pelo menos uma sessão recebeu a mensagem, neste ou noutro nó; caso contrário,
      *         `false`.
      */
     public boolean sendMessageToUser(MessageDTO messageDTO) {
         Long recipientUserId = messageDTO.getRecipientId();
-        Set<Session> recipientSessions = sessions.get(recipientUserId);
-        if (recipientSessions != null) {
-            JsonObject messageJson = JsonCreator.createJson("MESSAGE", "message", messageDTO);
-            for (Session recipientSession : recipientSessions) {
-                if (recipientSession.isOpen()) {
-                    try {
-                        recipientSession.getBasicRemote().sendText(messageJson.toString());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                        return false;
-                    }
-                }
-            }
-            return true;
-        }
-        return false;
+        String frame = FrameEncoder.encode("MESSAGE", "message", messageDTO);
+        return cluster.deliver(ENDPOINT, recipientUserId, frame, null);
     }
 
     /**
@@ -221,22 +255,39 @@ public class WsChat {
      *         `false`.
      */
     public boolean sendJsonToUser(JsonObject json, Long recipientUserId) {
-        System.out.println("Sending JSON to user: " + recipientUserId + ", JSON: " + json);
-        Set<Session> recipientSessions = sessions.get(recipientUserId);
-        if (recipientSessions != null) {
-            for (Session recipientSession : recipientSessions) {
-                if (recipientSession.isOpen()) {
-                    try {
-                        recipientSession.getBasicRemote().sendText(json.toString());
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                        return false;
-                    }
-                }
-            }
-            return true;
-        }
-        return false;
+        return sendJsonToUser(json, recipientUserId, null);
+    }
+
+    /**
+     * Envia um objeto JSON para todas as sessões do destinatário, substituindo uma mensagem
+     * ainda por enviar com a mesma chave (ex.: contadores e estados de presença).
+     *
+     * @param json            O objeto JSON a ser enviado.
+     * @param recipientUserId O ID do usuário destinatário.
+     * @param coalesceKey     Chave de agregação, ou `null` para enviar sempre.
+     * @return `true` se pelo menos uma sessão aceitou a mensagem; caso contrário,
+     *         `false`.
+     */
+    public boolean sendJsonToUser(JsonObject json, Long recipientUserId, String coalesceKey) {
+        logger.debug("Sending JSON to user {}: {}", recipientUserId, json);
+        return cluster.deliver(ENDPOINT, recipientUserId, json.toString(), coalesceKey);
+    }
+
+    /**
+     * Tells a user that one of their chat contacts came online or went offline.
+     *
+     * @param recipientUserId The contact to notify.
+     * @param userId          The user whose presence changed.
+     * @param online          Whether that user is now online.
+     * @return `true` if the recipient has an open chat session; otherwise `false`.
+     */
+    public boolean sendPresence(Long recipientUserId, Long userId, boolean online) {
+        JsonObject presence = Json.createObjectBuilder()
+                .add("type", "PRESENCE")
+                .add("userId", userId)
+                .add("online", online)
+                .build();
+        return sendJsonToUser(presence, recipientUserId, "PRESENCE:" + userId);
     }
 
     /**
@@ -246,7 +297,7 @@ public class WsChat {
      * @return `true` se a mensagem for válida; caso contrário, `false`.
      */
     private boolean checkIfValidMessage(JsonObject jsonMessage) {
-        System.out.println("Checking if message is valid: " + jsonMessage);
+        logger.debug("Checking if message is valid: {}", jsonMessage);
         return jsonMessage.containsKey("recipientId") &&
                 jsonMessage.containsKey("message") &&
                 jsonMessage.get("recipientId") != null &&
@@ -263,24 +314,24 @@ public class WsChat {
      */
     @OnMessage
     public void handlePing(Session session, PongMessage pongMessage) {
-        logger.info("Received WebSocket PONG from session {}: {}", session.getId(), pongMessage);
+        heartbeat.touch(session);
+        logger.debug("Received WebSocket PONG from session {}", session.getId());
     }
 
     /**
-     * Envia mensagens do tipo PING para todas as sessões ativas a cada 60 segundos.
+     * Tarefas periódicas do endpoint: remove sessões lentas cujas filas ficaram cheias e anuncia este nó ao cluster.
+     * Os PINGs e a remoção de sessões inativas são feitos pelo {@link HeartbeatScheduler}.
      */
-    @Schedule(second = "*/60", minute = "*", hour = "*") // Executa a cada 60 segundos
-    private void pingUsers() {
-        for (Set<Session> userSessions : sessions.values()) { // Itera sobre os conjuntos de sessões
-            for (Session session : userSessions) { // Itera sobre sessões individuais
-                if (session.isOpen()) {
-                    try {
-                        session.getBasicRemote().sendPing(ByteBuffer.wrap(new byte[0])); // Envia um PING
-                    } catch (IOException e) {
-                        logger.error("Failed to send WebSocket PING to session {}", session.getId(), e);
-                    }
-                }
-            }
-        }
+    @Schedule(second = "*/60", minute = "*", hour = "*", persistent = false) // Executa a cada 60 segundos
+    private void housekeeping() {
+        cluster.heartbeat();
+        outbound.evictStalled();
+    }
+
+    /**
+     * @return outbound queue depth, send latency and eviction metrics of the chat endpoint
+     */
+    public Map<String, Object> getDeliveryStats() {
+        return outbound.getStats();
     }
-}
\ No newline at end of file
+}
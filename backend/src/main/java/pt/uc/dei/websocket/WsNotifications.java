@@ -1,18 +1,25 @@
 package pt.uc.dei.websocket;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
 import jakarta.ejb.Schedule;
 import jakarta.ejb.Singleton;
 import jakarta.inject.Inject;
 import jakarta.json.Json;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
 import jakarta.websocket.*;
-import jakarta.websocket.server.HandshakeRequest;
 import jakarta.websocket.server.ServerEndpoint;
 import org.jboss.resteasy.annotations.LinkHeaderParam;
+import pt.uc.dei.config.EnvironmentConfig;
 import pt.uc.dei.dtos.NotificationDTO;
 import pt.uc.dei.services.AuthenticationService;
+import pt.uc.dei.services.NotificationCounterService;
 import pt.uc.dei.services.NotificationService;
+import pt.uc.dei.services.PresenceService;
+import pt.uc.dei.utils.FrameEncoder;
 import pt.uc.dei.utils.JsonCreator;
 
 import org.apache.logging.log4j.LogManager;
@@ -20,8 +27,10 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.io.StringReader;
-import java.nio.ByteBuffer;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -30,15 +39,24 @@ import java.util.Set;
  * envio de mensagens PING para manter as conexões ativas e encerramento de sessões.
  */
 @Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 @ServerEndpoint(value = "/websocket/notifications/", configurator = CustomConfigurator.class)
 public class WsNotifications {
 
     // Logger para registrar informações sobre conexões, erros ou eventos importantes
     private static final Logger LOGGER = LogManager.getLogger(WsNotifications.class);
 
-    // HashMap que armazena as sessões WebSocket de cada usuário autenticado.
-    // A chave é o nome do usuário, e o valor é o conjunto de sessões do usuário.
-    private HashMap<Long, Set<Session>> sessions = new HashMap<>();
+    // Número máximo de notificações reenviadas num RESUME; acima disso é enviado um snapshot.
+    private static final int MAX_REPLAY = EnvironmentConfig.getInt("WS_NOTIFICATION_MAX_REPLAY", 100);
+
+    // Nome do endpoint no cluster; igual em todos os nós.
+    static final String ENDPOINT = "notifications";
+
+    // Registo das sessões WebSocket de cada usuário autenticado, indexado por usuário e por sessão.
+    private final SessionRegistry sessions = new SessionRegistry();
+
+    // Filas de envio assíncrono por sessão; sessões lentas são removidas em vez de bloquear o servidor.
+    private final WebSocketOutbound outbound = new WebSocketOutbound(ENDPOINT, this::unregister);
 
 
     @Inject
@@ -46,9 +64,25 @@ public class WsNotifications {
 
     @Inject
     private NotificationService notificationService;
+    @Inject
+    private PresenceService presenceService;
+    @Inject
+    private NotificationCounterService notificationCounterService;
 
     @Inject
     private WebSocketAuthentication webSocketAuthentication;
+    @Inject
+    private WebSocketCluster cluster;
+    @Inject
+    private HeartbeatScheduler heartbeat;
+
+    /**
+     * Registers this node's sessions with the cluster, so deliveries for users connected here are routed to us.
+     */
+    @PostConstruct
+    void registerWithCluster() {
+        cluster.register(ENDPOINT, WebSocketCluster.LocalDelivery.of(sessions, outbound));
+    }
 
     /**
      * Método chamado automaticamente quando uma nova conexão WebSocket é estabelecida.
@@ -61,23 +95,19 @@ public class WsNotifications {
     @OnOpen
     public void onOpen(Session session, EndpointConfig config) {
         try {
-            // Tenta autenticar usando a solicitação de handshake (JWT nos cookies ou cabeçalhos)
-            HandshakeRequest request = (HandshakeRequest) config.getUserProperties().get("HandshakeRequest");
-            boolean authenticated = webSocketAuthentication.authenticate(session, request, sessions);
+            // Autentica com o usuário validado no handshake desta ligação (JWT nos cookies)
+            boolean authenticated = webSocketAuthentication.authenticate(session, sessions);
             if (!authenticated) {
                 LOGGER.warn("WebSocket authentication failed: missing or invalid JWT/token");
                 session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Unauthorized: missing or invalid JWT/token"));
                 return;
             }
             // Após a autenticação bem-sucedida, envia a contagem de notificações para o usuário
-            Long userId = WebSocketAuthentication.findUserIdBySession(sessions, session);
-            if (userId != null && notificationService != null) {
-                int notificationsCount = notificationService.getTotalNotifications(userId);
-                JsonObject notificationsJSON = Json.createObjectBuilder()
-                        .add("type", "NOTIFICATION_COUNT")
-                        .add("count", notificationsCount)
-                        .build();
-                session.getBasicRemote().sendText(notificationsJSON.toString());
+            Long userId = sessions.getUserId(session);
+            heartbeat.register(session, this::unregister);
+            cluster.announce(ENDPOINT, userId);
+            if (userId != null && notificationCounterService != null) {
+                outbound.send(session, countersFrame(notificationCounterService.getCounters(userId)), "NOTIFICATION_COUNT");
             }
         } catch (Exception e) {
             LOGGER.error("WebSocket authentication error", e);
@@ -96,21 +126,45 @@ public class WsNotifications {
      */
     @OnClose
     public void onClose(Session session, CloseReason reason) {
-        Long userId = WebSocketAuthentication.findUserIdBySession(sessions, session);
+        Long userId = unregister(session);
         if (userId != null) {
-            Set<Session> userSessions = sessions.get(userId);
-            if (userSessions != null) {
-                userSessions.remove(session); // Remove apenas a sessão fechada
-                if (userSessions.isEmpty()) {
-                    sessions.remove(userId); // Remove o usuário se não tiver mais sessões
-                }
-            }
             LOGGER.info("User {} disconnected from notifications. Reason: {}", userId, reason.getReasonPhrase());
         } else {
             LOGGER.info("Unknown WebSocket session closed: {}", reason.getReasonPhrase());
         }
     }
 
+    /**
+     * Called when a connection fails, e.g. when the peer vanished without a close frame.
+     * The session is dropped immediately so the user does not stay online until the close callback.
+     *
+     * @param session The failed WebSocket session.
+     * @param error   The transport error.
+     */
+    @OnError
+    public void onError(Session session, Throwable error) {
+        Long userId = unregister(session);
+        LOGGER.warn("WebSocket notifications session {} of user {} failed: {}", session.getId(), userId, error.getMessage());
+    }
+
+    /**
+     * Removes a session from the active sessions and from presence tracking.
+     *
+     * @param session The session to remove.
+     * @return The owning user id, or {@code null} if the session was not registered.
+     */
+    private Long unregister(Session session) {
+        heartbeat.unregister(session);
+        outbound.remove(session);
+        Long userId = sessions.unregister(session);
+        presenceService.sessionsChanged(userId);
+        if (userId != null && !sessions.isConnected(userId)) {
+            cluster.announce(ENDPOINT, userId);
+            notificationCounterService.evict(userId);
+        }
+        return userId;
+    }
+
     /**
      * Método chamado automaticamente quando o servidor recebe uma mensagem de um cliente.
      * Este método trata mensagens relacionadas à autenticação e envia ao usuário, caso autenticado,
@@ -122,6 +176,7 @@ public class WsNotifications {
      */
     @OnMessage
     public void toDoOnMessage(Session session, String msg) throws IOException {
+        heartbeat.touch(session);
         JsonReader jsonReader = Json.createReader(new StringReader(msg));
         JsonObject jsonMessage = jsonReader.readObject();
         String messageType = jsonMessage.getString("type");
@@ -139,11 +194,41 @@ public class WsNotifications {
             case "MESSAGE":
                 LOGGER.info("Received MESSAGE notification message from client: " + msg);
                 break;
+            case "RESUME":
+                resume(session, jsonMessage);
+                break;
             default:
                 LOGGER.info("Received unknown message type: " + messageType);
         }
     }
 
+    /**
+     * Retoma o fluxo de notificações de um cliente que voltou a ligar-se.
+     * O cliente indica o ID da última notificação que recebeu e recebe apenas as mais recentes
+     * ({@code NOTIFICATION_REPLAY}), obtidas por keyset em {@code (user_id, id)}. Sem ID, ou quando há mais de
+     * {@code WS_NOTIFICATION_MAX_REPLAY} notificações novas, recebe as mais recentes ({@code NOTIFICATION_SNAPSHOT})
+     * e deve substituir a lista que tinha.
+     *
+     * @param session     A sessão que pediu a retoma.
+     * @param jsonMessage A mensagem RESUME, com o campo opcional {@code lastNotificationId}.
+     */
+    private void resume(Session session, JsonObject jsonMessage) {
+        Long userId = sessions.getUserId(session);
+        if (userId == null) {
+            return;
+        }
+        Long lastNotificationId = jsonMessage.containsKey("lastNotificationId")
+                && jsonMessage.get("lastNotificationId").getValueType() == JsonValue.ValueType.NUMBER
+                ? jsonMessage.getJsonNumber("lastNotificationId").longValue() : null;
+        Optional<List<NotificationDTO>> replay = lastNotificationId == null ? Optional.empty()
+                : notificationService.getReplay(userId, lastNotificationId, MAX_REPLAY);
+        String frame = replay.isPresent()
+                ? FrameEncoder.encode("NOTIFICATION_REPLAY", "notifications", replay.get())
+                : FrameEncoder.encode("NOTIFICATION_SNAPSHOT", "notifications",
+                        notificationService.getLatestNotifications(userId, MAX_REPLAY));
+        outbound.send(session, frame, "RESUME");
+    }
+
     /**
      * Envia uma notificação para todas as sessões pertencentes a um usuário.
      *
@@ -153,16 +238,7 @@ public class WsNotifications {
      */
     public boolean notifyUser(NotificationDTO notificationDto) throws Exception {
         try {
-            // Cria o JSON da notificação usando um utilitário
-            JsonObject notificationsJson = JsonCreator.createJson(notificationDto.getType().toString().toUpperCase(), "notification", notificationDto);
-            String notificationJsonString = notificationsJson.toString();
-
-            // Envia a notificação para as sessões do usuário
-            if (sendNotificationToUserSessions(notificationDto.getRecipient().getId(), notificationJsonString)) {
-                return true;
-            } else {
-                return false;
-            }
+            return deliver(notificationDto.getRecipient().getId(), List.of(notificationDto));
         } catch (Exception e) {
             LOGGER.error("Error while creating JSON object", e);
             return false;
@@ -170,32 +246,95 @@ public class WsNotifications {
     }
 
     /**
-     * Envia uma notificação para todas as sessões abertas de um usuário específico.
+     * Envia as notificações pendentes de um usuário num único frame.
+     * Uma notificação segue no frame habitual do seu tipo; várias seguem num frame `NOTIFICATION_BATCH`.
      *
-     * @param recipientId O nome do usuário destinatário da notificação.
-     * @param notification       A notificação que será enviada (em formato JSON String).
-     * @return Retorna `true` se a notificação foi enviada com sucesso; caso contrário `false`.
-     * @throws Exception Se ocorrer erro ao enviar a notificação.
+     * @param recipientId   O ID do usuário destinatário.
+     * @param notifications As notificações, da mais antiga para a mais recente.
+     * @return `true` se pelo menos uma sessão, neste ou noutro nó, aceitou o frame; `false` se o usuário não está ligado.
+     * @throws java.io.UncheckedIOException Se as notificações não puderem ser serializadas.
      */
-    private boolean sendNotificationToUserSessions(Long recipientId, String notification) throws Exception {
-        try {
-            Set<Session> recipientSessions = sessions.get(recipientId);
-            if (recipientSessions != null && !recipientSessions.isEmpty()) {
-                for (Session session : recipientSessions) {
-                    // Double-check: session must still be mapped to this userId
-                    Long mappedUserId = WebSocketAuthentication.findUserIdBySession(sessions, session);
-                    if (session.isOpen() && recipientId.equals(mappedUserId)) {
-                        session.getBasicRemote().sendText(notification);
-                    }
-                }
-                return true;
-            } else {
-                return false;
+    public boolean deliver(Long recipientId, List<NotificationDTO> notifications) {
+        if (notifications.size() == 1) {
+            // Serializa a notificação diretamente para o frame, numa única passagem
+            NotificationDTO notificationDto = notifications.get(0);
+            String frame = FrameEncoder.encode(notificationDto.getType().toString().toUpperCase(), "notification", notificationDto);
+            // Uma notificação atualizada (mesmo ID) substitui a versão anterior ainda por enviar
+            String coalesceKey = notificationDto.getId() != null ? "NOTIFICATION:" + notificationDto.getId() : null;
+            return sendNotificationToUserSessions(recipientId, frame, coalesceKey);
+        }
+        return sendNotificationToUserSessions(recipientId,
+                FrameEncoder.encode("NOTIFICATION_BATCH", "notifications", notifications), null);
+    }
+
+    /**
+     * Envia os contadores de notificações de um usuário a todas as suas sessões, em qualquer nó.
+     * Um frame `NOTIFICATION_COUNT` ainda por enviar é substituído pelo mais recente.
+     *
+     * @param userId   O ID do usuário.
+     * @param counters Os contadores de notificações por ler e por ver.
+     * @return `true` se pelo menos uma sessão aceitou o frame; `false` se o usuário não está ligado.
+     */
+    public boolean sendCounters(Long userId, NotificationCounterService.Counters counters) {
+        return cluster.deliver(ENDPOINT, userId, countersFrame(counters), "NOTIFICATION_COUNT");
+    }
+
+    /**
+     * @param userId the user id
+     * @return {@code true} if the user has a notifications session on this node
+     */
+    public boolean isConnectedHere(Long userId) {
+        return sessions.isConnected(userId);
+    }
+
+    /**
+     * `count` mantém o significado que os clientes já conhecem: o número de notificações por ler.
+     */
+    private static String countersFrame(NotificationCounterService.Counters counters) {
+        return Json.createObjectBuilder()
+                .add("type", "NOTIFICATION_COUNT")
+                .add("count", counters.getUnread())
+                .add("unread", counters.getUnread())
+                .add("unseen", counters.getUnseen())
+                .build()
+                .toString();
+    }
+
+    /**
+     * Envia a mesma notificação a muitos usuários, serializando-a uma única vez.
+     * Cada destinatário tem a sua própria linha na base de dados, por isso o frame de cada um só difere no ID
+     * da notificação, acrescentado ao JSON já serializado.
+     *
+     * @param notificationDto   A notificação, sem ID nem destinatário.
+     * @param notificationIds   ID da notificação de cada destinatário, indexado pelo ID do destinatário.
+     * @return Os IDs dos destinatários com pelo menos uma sessão que aceitou a notificação.
+     */
+    public Set<Long> broadcast(NotificationDTO notificationDto, Map<Long, Long> notificationIds) {
+        String type = notificationDto.getType().toString().toUpperCase();
+        JsonObject notification = JsonCreator.createJson(type, "notification", notificationDto).getJsonObject("notification");
+        String fields = Json.createObjectBuilder(notification).remove("id").build().toString();
+        String prefix = "{\"type\":" + Json.createValue(type) + ",\"notification\":{\"id\":";
+        String suffix = fields.length() > 2 ? "," + fields.substring(1) + "}" : "}}";
+        Set<Long> delivered = new HashSet<>();
+        for (Map.Entry<Long, Long> recipient : notificationIds.entrySet()) {
+            if (cluster.deliver(ENDPOINT, recipient.getKey(), prefix + recipient.getValue() + suffix, null)) {
+                delivered.add(recipient.getKey());
             }
-        } catch (IOException e) {
-            LOGGER.error("Failed to send notification to user {}", recipientId, e);
-            return false;
         }
+        return delivered;
+    }
+
+    /**
+     * Envia uma notificação para todas as sessões abertas de um usuário específico.
+     * O envio é assíncrono: a notificação fica na fila de cada sessão, neste nó ou no nó que tem as sessões.
+     *
+     * @param recipientId  O ID do usuário destinatário da notificação.
+     * @param notification A notificação que será enviada (em formato JSON String).
+     * @param coalesceKey  Chave de agregação, ou `null` para enviar sempre.
+     * @return Retorna `true` se pelo menos uma sessão aceitou a notificação; caso contrário `false`.
+     */
+    private boolean sendNotificationToUserSessions(Long recipientId, String notification, String coalesceKey) {
+        return cluster.deliver(ENDPOINT, recipientId, notification, coalesceKey);
     }
 
     /**
@@ -207,27 +346,23 @@ public class WsNotifications {
      */
     @OnMessage
     public void handlePing(Session session, PongMessage pongMessage) {
-        LOGGER.info("Received WebSocket PONG from session {}: {}", session.getId(), pongMessage);
+        heartbeat.touch(session);
+        LOGGER.debug("Received WebSocket PONG from session {}", session.getId());
     }
 
     /**
-     * Envia mensagens do tipo PING para todas as conexões WebSocket ativas a cada 60 segundos.
-     * O envio de PING serve para manter as conexões ativas e identificar sessões inativas.
+     * Tarefas periódicas do endpoint: remove sessões lentas cujas filas ficaram cheias.
+     * Os PINGs e a remoção de sessões inativas são feitos pelo {@link HeartbeatScheduler}.
      */
-    @Schedule(second = "*/60", minute = "*", hour = "*") // Executado automaticamente a cada 60 segundos
-    private void pingUsers() {
-        for (Set<Session> userSessions : sessions.values()) { // Itera sobre os conjuntos de sessões dos usuários
-            for (Session session : userSessions) { // Itera sobre as sessões individuais
-                if (session.isOpen()) { // Verifica se a sessão está aberta
-                    try {
-                        session.getBasicRemote().sendPing(ByteBuffer.wrap(new byte[0])); // Envia o PING
-                    } catch (IOException e) {
-                        LOGGER.error("Failed to send WebSocket PING to session {}", session.getId(), e);
-                    }
-                }
-            }
-        }
+    @Schedule(second = "*/60", minute = "*", hour = "*", persistent = false) // Executa a cada 60 segundos
+    private void housekeeping() {
+        outbound.evictStalled();
     }
 
-    
-}
\ No newline at end of file
+    /**
+     * @return outbound queue depth, send latency and eviction metrics of the notifications endpoint
+     */
+    public Map<String, Object> getDeliveryStats() {
+        return outbound.getStats();
+    }
+}
@@ -0,0 +1,352 @@
+package pt.uc.dei.benchmark;
+
+import pt.uc.dei.config.EmailTemplateRegistry;
+import pt.uc.dei.dtos.ConfigurationDTO;
+import pt.uc.dei.entities.EmailJobEntity;
+import pt.uc.dei.entities.NotificationEntity;
+import pt.uc.dei.entities.QueuedEmailEntity;
+import pt.uc.dei.entities.UserEntity;
+import pt.uc.dei.enums.EmailTemplateType;
+import pt.uc.dei.enums.NotificationType;
+import pt.uc.dei.enums.QueuedEmailState;
+import pt.uc.dei.repositories.EmailQueueRepository;
+import pt.uc.dei.services.ConfigurationService;
+import pt.uc.dei.services.EmailQueueService;
+import pt.uc.dei.services.EmailService;
+import pt.uc.dei.services.SmtpTransportPool;
+import pt.uc.dei.utils.TokenBucket;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the email pipeline, from the {@link EmailService} call to a local {@link SmtpSink}, for activation,
+ * cycle and message digest emails at several recipient counts.
+ * <p>
+ * Cycle and digest emails go the way they do in production: {@code EmailService} renders them and hands them to
+ * {@link EmailQueueService}, whose drain sends them in batches on one pooled connection. The queue table is
+ * replaced by an in-memory repository and the rate limit by a bucket that never runs out, so the numbers are
+ * those of rendering, queueing and SMTP rather than of H2 or of {@code EMAIL_RATE_PER_HOUR}. Activation emails
+ * are sent synchronously, one {@code EmailService} call per recipient from {@code threads} request threads.
+ * <p>
+ * For each run it reports emails per second over the whole run, the p99 latency of one SMTP send as recorded by
+ * {@link SmtpTransportPool}, and the heap retained per queued email, measured after a full GC with every email
+ * still in the queue. Activation emails are not queued; their memory figure is that of the same email rendered
+ * into a {@link QueuedEmailEntity}, for comparison.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=pt.uc.dei.benchmark.EmailPipelineBenchmark -Demail.recipients=100,1000,10000
+ * -Demail.threads=4 -Demail.handshakeDelayMs=5}.
+ */
+public final class EmailPipelineBenchmark {
+
+    private static final String FROM = "citrus@example.com";
+    private static final int SENDERS_PER_DIGEST = 3;
+    private static final int WARMUP_RECIPIENTS = 1000;
+
+    public enum Kind {
+        ACTIVATION, CYCLE, DIGEST
+    }
+
+    /**
+     * @param recipients       recipient counts, each run for every kind
+     * @param threads          concurrent activation senders, and the pool size
+     * @param handshakeDelayMs delay the {@link SmtpSink} adds to each new connection and each AUTH, standing in
+     *                         for the round trips to a remote relay
+     */
+    public record Settings(List<Integer> recipients, int threads, long handshakeDelayMs) {
+
+        public static Settings fromSystemProperties() {
+            List<Integer> recipients = Arrays.stream(System.getProperty("email.recipients", "100,1000,10000")
+                    .split(",")).map(String::trim).map(Integer::valueOf).toList();
+            return new Settings(recipients, Integer.getInteger("email.threads", 4),
+                    Long.getLong("email.handshakeDelayMs", 5L));
+        }
+    }
+
+    /**
+     * Outcome of one run.
+     *
+     * @param kind                the emails sent
+     * @param recipients          emails sent
+     * @param received            emails the sink received
+     * @param elapsedMs           wall time of the {@code EmailService} calls and of draining the queue
+     * @param p99SendMs           99th percentile of one SMTP send
+     * @param bytesPerQueuedEmail heap retained per queued email
+     */
+    public record Result(Kind kind, int recipients, long received, long elapsedMs, double p99SendMs,
+                         long bytesPerQueuedEmail) {
+
+        public double emailsPerSecond() {
+            return received * 1000.0 / Math.max(1, elapsedMs);
+        }
+    }
+
+    private final Settings settings;
+
+    public EmailPipelineBenchmark(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        EmailPipelineBenchmark benchmark = new EmailPipelineBenchmark(settings);
+        // One discarded pass, so the first recipient count is not measured on a cold JIT
+        for (Kind kind : Kind.values()) {
+            benchmark.run(kind, WARMUP_RECIPIENTS);
+        }
+        System.out.printf("%d threads, %d ms handshake%n", settings.threads(), settings.handshakeDelayMs());
+        System.out.printf("%-10s %10s %12s %10s %14s%n", "kind", "recipients", "emails/s", "p99 ms", "bytes/email");
+        for (Result result : benchmark.run()) {
+            System.out.printf("%-10s %10d %12.1f %10.3f %14d%n", result.kind(), result.recipients(),
+                    result.emailsPerSecond(), result.p99SendMs(), result.bytesPerQueuedEmail());
+        }
+    }
+
+    public List<Result> run() throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (int recipients : settings.recipients()) {
+            for (Kind kind : Kind.values()) {
+                results.add(run(kind, recipients));
+            }
+        }
+        return results;
+    }
+
+    public Result run(Kind kind, int recipients) throws Exception {
+        try (SmtpSink sink = new SmtpSink(settings.handshakeDelayMs())) {
+            SmtpTransportPool pool = new SmtpTransportPool(sink.sessionProperties(), FROM, "secret",
+                    settings.threads(), Duration.ofSeconds(30), Duration.ofSeconds(30));
+            try {
+                InMemoryEmailQueue queue = new InMemoryEmailQueue();
+                EmailQueueService emailQueueService = emailQueueService(queue, pool);
+                EmailService emailService = emailService(emailQueueService, pool);
+
+                long bytesPerEmail;
+                long elapsedNanos;
+                if (kind == Kind.ACTIVATION) {
+                    bytesPerEmail = retainedBytesPerEmail(() -> {
+                        List<QueuedEmailEntity> emails = new ArrayList<>(recipients);
+                        for (int i = 0; i < recipients; i++) {
+                            EmailTemplateRegistry.RenderedEmail email = EmailTemplateRegistry.render(
+                                    EmailTemplateType.ACCOUNT_ACTIVATION, "en", activationLink(i), 48,
+                                    secretKey(i));
+                            emails.add(new QueuedEmailEntity(recipient(i), email.subject(), email.body()));
+                        }
+                        return emails;
+                    }, recipients);
+                    long start = System.nanoTime();
+                    sendActivations(emailService, recipients);
+                    elapsedNanos = System.nanoTime() - start;
+                } else {
+                    List<UserEntity> users = users(recipients);
+                    List<NotificationEntity> notifications = kind == Kind.DIGEST ? notifications(users) : null;
+                    long before = usedHeap();
+                    long start = System.nanoTime();
+                    if (kind == Kind.CYCLE) {
+                        emailService.queueCycleOpenNotificationEmails("7", "2026-01-01", "2026-06-30",
+                                "Maria Silva", recipients, users);
+                    } else {
+                        emailService.queueMessageNotificationEmails(notifications);
+                    }
+                    elapsedNanos = System.nanoTime() - start;
+                    // With every email in the queue; the GCs are left out of the time
+                    bytesPerEmail = Math.max(0, (usedHeap() - before) / recipients);
+                    start = System.nanoTime();
+                    emailQueueService.drain();
+                    elapsedNanos += System.nanoTime() - start;
+                }
+                long elapsedMs = elapsedNanos / 1_000_000L;
+                Map<?, ?> sendLatency = (Map<?, ?>) pool.getStats().get("sendLatency");
+                return new Result(kind, recipients, sink.getMessagesReceived(), elapsedMs,
+                        (Double) sendLatency.get("p99Ms"), bytesPerEmail);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private void sendActivations(EmailService emailService, int recipients) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(settings.threads());
+        try {
+            List<Future<?>> sends = new ArrayList<>(recipients);
+            for (int i = 0; i < recipients; i++) {
+                int index = i;
+                sends.add(executor.submit(() -> emailService.sendActivationEmail(recipient(index),
+                        "token-" + index, secretKey(index), "en")));
+            }
+            for (Future<?> send : sends) {
+                send.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface EmailBuilder {
+        List<QueuedEmailEntity> build();
+    }
+
+    private static long retainedBytesPerEmail(EmailBuilder builder, int count) {
+        long before = usedHeap();
+        List<QueuedEmailEntity> emails = builder.build();
+        long after = usedHeap();
+        if (emails.size() != count) {
+            throw new IllegalStateException("Built " + emails.size() + " emails, expected " + count);
+        }
+        return Math.max(0, (after - before) / count);
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static String recipient(int index) {
+        return "user" + index + "@example.com";
+    }
+
+    private static String activationLink(int index) {
+        return "https://localhost:3000/activate?token=token-" + index + "&lang=en";
+    }
+
+    private static String secretKey(int index) {
+        return "JBSWY3DPEHPK3PXP" + index;
+    }
+
+    private static List<UserEntity> users(int count) {
+        List<UserEntity> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(user(i + 1L, recipient(i)));
+        }
+        return users;
+    }
+
+    private static UserEntity user(Long id, String email) {
+        UserEntity user = new UserEntity();
+        user.setId(id);
+        user.setEmail(email);
+        user.setName("User" + id);
+        user.setSurname("Silva");
+        return user;
+    }
+
+    /**
+     * Unread messages from {@value #SENDERS_PER_DIGEST} senders for each user, so every user gets a digest.
+     */
+    private static List<NotificationEntity> notifications(List<UserEntity> recipients) {
+        List<UserEntity> senders = new ArrayList<>(SENDERS_PER_DIGEST);
+        for (int i = 0; i < SENDERS_PER_DIGEST; i++) {
+            senders.add(user(-1L - i, "sender" + i + "@example.com"));
+        }
+        List<NotificationEntity> notifications = new ArrayList<>(recipients.size() * SENDERS_PER_DIGEST);
+        long id = 1;
+        for (UserEntity recipient : recipients) {
+            for (UserEntity sender : senders) {
+                NotificationEntity notification = new NotificationEntity();
+                notification.setId(id++);
+                notification.setUser(recipient);
+                notification.setSender(sender);
+                notification.setType(NotificationType.MESSAGE);
+                notification.setMessageCount(2);
+                notifications.add(notification);
+            }
+        }
+        return notifications;
+    }
+
+    private static EmailQueueService emailQueueService(EmailQueueRepository queue, SmtpTransportPool pool)
+            throws Exception {
+        EmailQueueService emailQueueService = new EmailQueueService();
+        set(EmailQueueService.class, emailQueueService, "emailQueueRepository", queue);
+        set(EmailQueueService.class, emailQueueService, "smtpTransportPool", pool);
+        // Outside the container the self-reference is the bean itself
+        set(EmailQueueService.class, emailQueueService, "self", emailQueueService);
+        set(EmailQueueService.class, emailQueueService, "rateLimiter", new TokenBucket(Long.MAX_VALUE / 2, 0));
+        return emailQueueService;
+    }
+
+    private static EmailService emailService(EmailQueueService emailQueueService, SmtpTransportPool pool)
+            throws Exception {
+        ConfigurationDTO configuration = new ConfigurationDTO();
+        configuration.setVerificationTime(48 * 60);
+        configuration.setPasswordResetTime(120);
+        EmailService emailService = new EmailService();
+        set(EmailService.class, emailService, "emailAccount", FROM);
+        set(EmailService.class, emailService, "smtpTransportPool", pool);
+        set(EmailService.class, emailService, "emailQueueService", emailQueueService);
+        set(EmailService.class, emailService, "configurationService", new ConfigurationService() {
+            @Override
+            public ConfigurationDTO getLatestConfiguration() {
+                return configuration;
+            }
+        });
+        return emailService;
+    }
+
+    private static void set(Class<?> type, Object target, String name, Object value) throws Exception {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    /**
+     * The email queue table, in memory: emails are claimed in the order they were queued.
+     */
+    private static final class InMemoryEmailQueue extends EmailQueueRepository {
+
+        private final AtomicLong ids = new AtomicLong();
+        private final Deque<QueuedEmailEntity> pending = new ArrayDeque<>();
+
+        @Override
+        public void persistJob(EmailJobEntity job) {
+            job.setId(ids.incrementAndGet());
+        }
+
+        @Override
+        public synchronized void persist(QueuedEmailEntity email) {
+            email.setId(ids.incrementAndGet());
+            pending.addLast(email);
+        }
+
+        @Override
+        public synchronized List<QueuedEmailEntity> claimDueEmails(LocalDateTime now, int limit) {
+            List<QueuedEmailEntity> claimed = new ArrayList<>(Math.min(limit, pending.size()));
+            while (claimed.size() < limit && !pending.isEmpty()) {
+                claimed.add(pending.pollFirst());
+            }
+            return claimed;
+        }
+
+        @Override
+        public synchronized long countPendingEmails() {
+            return pending.stream().filter(email -> email.getState() == QueuedEmailState.PENDING).count();
+        }
+
+        @Override
+        public void addJobProgress(Long jobId, int sent, int failed) {
+        }
+
+        @Override
+        public int completeFinishedJobs(Collection<Long> jobIds, LocalDateTime completedAt) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package pt.uc.dei.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pt.uc.dei.config.EmailTemplateRegistry;
+import pt.uc.dei.enums.EmailTemplateType;
+import pt.uc.dei.enums.Language;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares email rendering throughput for a batch of 5,000 recipients with {@link String#formatted}, as
+ * {@code MessageTemplate} used to render, against the compiled templates of {@link EmailTemplateRegistry}.
+ * <p>
+ * The chat request email differs per recipient, so every email is rendered. The cycle open email is the same
+ * for every recipient with the same language, so the registry path renders it once per language, as
+ * {@code EmailService} queues it. Scores are emails per second.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=pt.uc.dei.benchmark.EmailTemplateBenchmark} or from the IDE. The GC profiler reports the
+ * allocation rate ({@code gc.alloc.rate.norm}, bytes per email).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(EmailTemplateBenchmark.RECIPIENTS)
+public class EmailTemplateBenchmark {
+
+    static final int RECIPIENTS = 5_000;
+
+    private String[] recipientNames;
+    private String[] languages;
+    private String chatSource;
+    private String cycleOpenSource;
+
+    @Setup
+    public void setUp() {
+        recipientNames = new String[RECIPIENTS];
+        languages = new String[RECIPIENTS];
+        for (int i = 0; i < RECIPIENTS; i++) {
+            recipientNames[i] = "User " + i;
+            languages[i] = "en";
+        }
+        chatSource = EmailTemplateRegistry.getBodyTemplate(EmailTemplateType.CHAT_REQUEST, Language.ENGLISH)
+                .getSource();
+        cycleOpenSource = EmailTemplateRegistry.getBodyTemplate(EmailTemplateType.CYCLE_OPEN, Language.ENGLISH)
+                .getSource();
+    }
+
+    /**
+     * A per-recipient email as it was rendered before: a language switch and {@code String.formatted}.
+     */
+    @Benchmark
+    public void chatRequestFormatted(Blackhole blackhole) {
+        for (int i = 0; i < RECIPIENTS; i++) {
+            String subject;
+            String body;
+            switch (languages[i]) {
+                case "en":
+                default:
+                    subject = "CITRUS - Novo pedido de chat";
+                    body = chatSource.formatted(recipientNames[i], "Maria Silva", "https://localhost:3000/messages?id=7");
+            }
+            blackhole.consume(subject);
+            blackhole.consume(body);
+        }
+    }
+
+    /**
+     * A per-recipient email through the registry.
+     */
+    @Benchmark
+    public void chatRequestCompiled(Blackhole blackhole) {
+        for (int i = 0; i < RECIPIENTS; i++) {
+            blackhole.consume(EmailTemplateRegistry.render(EmailTemplateType.CHAT_REQUEST, languages[i],
+                    recipientNames[i], "Maria Silva", "https://localhost:3000/messages?id=7"));
+        }
+    }
+
+    /**
+     * The cycle open batch as it was rendered before: once per recipient with {@code String.formatted}.
+     */
+    @Benchmark
+    public void cycleOpenFormatted(Blackhole blackhole) {
+        for (int i = 0; i < RECIPIENTS; i++) {
+            blackhole.consume(cycleOpenSource.formatted("7", "2026-01-01", "2026-06-30", "Maria Silva", 42,
+                    "https://localhost:3000/appraisals"));
+        }
+    }
+
+    /**
+     * The cycle open batch as {@code EmailService} renders it now: once per language, through the registry.
+     */
+    @Benchmark
+    public void cycleOpenCompiledPerLanguage(Blackhole blackhole) {
+        Map<Language, EmailTemplateRegistry.RenderedEmail> rendered = new EnumMap<>(Language.class);
+        for (int i = 0; i < RECIPIENTS; i++) {
+            blackhole.consume(rendered.computeIfAbsent(EmailTemplateRegistry.resolveLanguage(languages[i]),
+                    language -> EmailTemplateRegistry.render(EmailTemplateType.CYCLE_OPEN, language, "7",
+                            "2026-01-01", "2026-06-30", "Maria Silva", 42, "https://localhost:3000/appraisals")));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EmailTemplateBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,89 @@
+package pt.uc.dei.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pt.uc.dei.dtos.MessageDTO;
+import pt.uc.dei.dtos.NotificationDTO;
+import pt.uc.dei.dtos.UserResponseDTO;
+import pt.uc.dei.utils.FrameEncoder;
+import pt.uc.dei.utils.JsonCreator;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares WebSocket frame encoding throughput and allocation of the serialize/parse/serialize path in
+ * {@link JsonCreator#createJson(String, String, Object)} against the single-pass {@link FrameEncoder}.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=pt.uc.dei.benchmark.FrameEncoderBenchmark} or from the IDE. The GC profiler reports the
+ * allocation rate ({@code gc.alloc.rate.norm}, bytes per frame).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FrameEncoderBenchmark {
+
+    private MessageDTO message;
+    private NotificationDTO notification;
+
+    @Setup
+    public void setUp() {
+        message = new MessageDTO();
+        message.setId(12345L);
+        message.setSenderId(42L);
+        message.setRecipientId(43L);
+        message.setContent("Olá! Podes rever a avaliação do ciclo antes de sexta-feira?");
+        message.setSentDate(LocalDateTime.now());
+        message.setMessageIsRead(false);
+
+        UserResponseDTO sender = new UserResponseDTO();
+        sender.setId(42L);
+        sender.setName("Maria");
+        sender.setSurname("Silva");
+        notification = new NotificationDTO();
+        notification.setId(987L);
+        notification.setType("APPRAISAL");
+        notification.setContent("4");
+        notification.setCreationDate(LocalDateTime.now());
+        notification.setNotificationIsRead(false);
+        notification.setNotificationIsSeen(false);
+        notification.setMessageCount(0);
+        notification.setSender(sender);
+    }
+
+    @Benchmark
+    public String messageJsonCreator() {
+        return JsonCreator.createJson("MESSAGE", "message", message).toString();
+    }
+
+    @Benchmark
+    public String messageFrameEncoder() {
+        return FrameEncoder.encode("MESSAGE", "message", message);
+    }
+
+    @Benchmark
+    public String notificationJsonCreator() {
+        return JsonCreator.createJson("APPRAISAL", "notification", notification).toString();
+    }
+
+    @Benchmark
+    public String notificationFrameEncoder() {
+        return FrameEncoder.encode("APPRAISAL", "notification", notification);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(FrameEncoderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,80 @@
+package pt.uc.dei.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import pt.uc.dei.utils.JWTUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares token validation throughput of the previous per-call key/parser construction
+ * against the cached verifier in {@link JWTUtil#validateToken(String)}.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=pt.uc.dei.benchmark.JWTUtilBenchmark} or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JWTUtilBenchmark {
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        byte[] secret = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+        JWTUtil.SECRET_KEY = Base64.getEncoder().encodeToString(secret);
+        JWTUtil.SECRET_KEY_ID = null;
+        JWTUtil.RETIRED_SECRET_KEYS = null;
+        token = Jwts.builder()
+                .header().keyId(JWTUtil.DEFAULT_KEY_ID).and()
+                .setSubject("42")
+                .claim("userIsAdmin", false)
+                .claim("userIsManager", true)
+                .claim("accountState", "COMPLETE")
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(secret), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * Validation as it was done before: decode the secret, derive the key and build a parser per call.
+     */
+    @Benchmark
+    public Claims perCallParser() {
+        return Jwts.parser()
+                .setSigningKey(Keys.hmacShaKeyFor(Base64.getDecoder().decode(JWTUtil.SECRET_KEY)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    /**
+     * Validation through the shared key ring and parser.
+     */
+    @Benchmark
+    public Claims cachedVerifier() {
+        return JWTUtil.validateToken(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JWTUtilBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
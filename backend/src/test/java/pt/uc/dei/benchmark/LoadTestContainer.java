@@ -0,0 +1,282 @@
+package pt.uc.dei.benchmark;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.ejb.EJB;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.PersistenceContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Just enough of a container to run the WebSocket endpoints and the services behind them outside WildFly.
+ * <p>
+ * Beans are created on first use with their no-arg constructor, then their {@code @Inject} and {@code @EJB}
+ * fields are filled and {@code @PostConstruct} runs. Interfaces resolve to their MapStruct {@code Impl}.
+ * Types outside {@code pt.uc.dei} that were not {@link #register registered} are left {@code null}. Every
+ * {@code @PersistenceContext} gets a proxy to an {@link EntityManager} of the calling thread, and
+ * {@link #inTransaction(Callable)} stands in for container-managed transactions.
+ * <p>
+ * An injected {@link Event} calls the {@code @Observes} methods of the beans created so far. Observers of
+ * a transaction phase after completion run once the surrounding transaction commits, each in a new
+ * transaction on the committing thread; {@code @Asynchronous} is not emulated.
+ */
+final class LoadTestContainer implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(LoadTestContainer.class);
+
+    private static final String APPLICATION_PACKAGE = "pt.uc.dei.";
+
+    private final EntityManagerFactory emf;
+    private final ThreadLocal<EntityManager> entityManagers = new ThreadLocal<>();
+    private final List<EntityManager> opened = new CopyOnWriteArrayList<>();
+    private final EntityManager entityManager;
+    private final Map<Class<?>, Object> beans = new HashMap<>();
+    private final Map<Class<?>, List<Method>> observers = new ConcurrentHashMap<>();
+    private final ThreadLocal<List<Runnable>> afterCommit = ThreadLocal.withInitial(ArrayList::new);
+
+    LoadTestContainer(EntityManagerFactory emf) {
+        this.emf = emf;
+        this.entityManager = (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(),
+                new Class<?>[]{EntityManager.class}, (proxy, method, args) -> {
+                    try {
+                        return method.invoke(currentEntityManager(), args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Registers an instance built by the caller, e.g. a bean that takes constructor arguments.
+     */
+    synchronized <T> void register(Class<T> type, T instance) {
+        beans.put(type, instance);
+    }
+
+    /**
+     * Returns the bean of a type, creating and wiring it on first use.
+     *
+     * @return the bean, or {@code null} if the type cannot be provided
+     */
+    synchronized <T> T get(Class<T> type) {
+        if (beans.containsKey(type)) {
+            return type.cast(beans.get(type));
+        }
+        Class<?> implementation = implementation(type);
+        if (implementation == null) {
+            beans.put(type, null);
+            return null;
+        }
+        Object bean;
+        try {
+            var constructor = implementation.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            bean = constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create " + implementation.getName(), e);
+        }
+        // Registered before wiring, so beans that depend on each other resolve to the same instances
+        beans.put(type, bean);
+        wire(bean);
+        return type.cast(bean);
+    }
+
+    /**
+     * @return entity manager that delegates to the calling thread's own
+     */
+    EntityManager getEntityManager() {
+        return entityManager;
+    }
+
+    /**
+     * Runs work in a transaction of the calling thread's entity manager, or joins the one already active.
+     * The persistence context is cleared afterwards, as a transaction-scoped context would be.
+     */
+    <T> T inTransaction(Callable<T> work) throws Exception {
+        EntityManager em = currentEntityManager();
+        EntityTransaction transaction = em.getTransaction();
+        if (transaction.isActive()) {
+            return work.call();
+        }
+        T result;
+        transaction.begin();
+        try {
+            result = work.call();
+            transaction.commit();
+        } catch (Exception | Error e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            afterCommit.remove();
+            throw e;
+        } finally {
+            em.clear();
+        }
+        runAfterCommit();
+        return result;
+    }
+
+    @Override
+    public void close() {
+        for (EntityManager em : opened) {
+            try {
+                em.close();
+            } catch (RuntimeException ignore) {
+                // Owned by a thread that may still be finishing a callback
+            }
+        }
+        opened.clear();
+    }
+
+    private void runAfterCommit() {
+        List<Runnable> callbacks = afterCommit.get();
+        if (callbacks.isEmpty()) {
+            return;
+        }
+        afterCommit.remove();
+        for (Runnable callback : callbacks) {
+            try {
+                inTransaction(() -> {
+                    callback.run();
+                    return null;
+                });
+            } catch (Exception e) {
+                LOGGER.warn("After-commit observer failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return event whose {@code fire} notifies the observers of the beans created so far
+     */
+    private Event<?> event() {
+        return (Event<?>) Proxy.newProxyInstance(Event.class.getClassLoader(), new Class<?>[]{Event.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("fire")) {
+                        throw new UnsupportedOperationException("Event." + method.getName());
+                    }
+                    fire(args[0]);
+                    return null;
+                });
+    }
+
+    private void fire(Object event) throws Exception {
+        List<Object> targets;
+        synchronized (this) {
+            targets = new ArrayList<>(beans.values());
+        }
+        for (Object bean : targets) {
+            if (bean == null) {
+                continue;
+            }
+            for (Method observer : observers.computeIfAbsent(bean.getClass(), LoadTestContainer::observerMethods)) {
+                Parameter parameter = observer.getParameters()[0];
+                if (!parameter.getType().isInstance(event)) {
+                    continue;
+                }
+                TransactionPhase phase = parameter.getAnnotation(Observes.class).during();
+                boolean inTransaction = currentEntityManager().getTransaction().isActive();
+                if (phase == TransactionPhase.IN_PROGRESS || phase == TransactionPhase.BEFORE_COMPLETION
+                        || !inTransaction) {
+                    observer.invoke(bean, event);
+                } else {
+                    afterCommit.get().add(() -> {
+                        try {
+                            observer.invoke(bean, event);
+                        } catch (ReflectiveOperationException e) {
+                            throw new IllegalStateException("Observer " + observer + " failed", e);
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    private static List<Method> observerMethods(Class<?> type) {
+        List<Method> methods = new ArrayList<>();
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.getParameterCount() > 0 && method.getParameters()[0].isAnnotationPresent(Observes.class)) {
+                method.setAccessible(true);
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    private EntityManager currentEntityManager() {
+        EntityManager em = entityManagers.get();
+        if (em == null || !em.isOpen()) {
+            em = emf.createEntityManager();
+            entityManagers.set(em);
+            opened.add(em);
+        }
+        return em;
+    }
+
+    private static Class<?> implementation(Class<?> type) {
+        if (!type.getName().startsWith(APPLICATION_PACKAGE)) {
+            return null;
+        }
+        if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+            return type;
+        }
+        try {
+            return Class.forName(type.getName() + "Impl", true, type.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private void wire(Object bean) {
+        for (Class<?> c = bean.getClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                Object value;
+                if (field.isAnnotationPresent(PersistenceContext.class)) {
+                    value = entityManager;
+                } else if (field.isAnnotationPresent(Inject.class) && field.getType() == Event.class) {
+                    value = event();
+                } else if (field.isAnnotationPresent(Inject.class) || field.isAnnotationPresent(EJB.class)) {
+                    value = get(field.getType());
+                } else {
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    field.set(bean, value);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot inject " + field, e);
+                }
+            }
+        }
+        for (Method method : bean.getClass().getDeclaredMethods()) {
+            if (method.isAnnotationPresent(PostConstruct.class)) {
+                try {
+                    method.setAccessible(true);
+                    method.invoke(bean);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("@PostConstruct of " + bean.getClass().getName() + " failed", e);
+                }
+            }
+        }
+    }
+}
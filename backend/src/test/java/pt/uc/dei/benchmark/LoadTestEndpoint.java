@@ -0,0 +1,106 @@
+package pt.uc.dei.benchmark;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.PongMessage;
+import jakarta.websocket.Session;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Programmatic endpoint that hands the container's callbacks to an annotated endpoint instance
+ * ({@code WsChat}, {@code WsNotifications}) created by {@link LoadTestContainer}.
+ * <p>
+ * Every callback runs in a transaction, as it would in the EJB container, and the bytes it allocates on the
+ * calling thread are added to {@link #getAllocatedBytes()}.
+ */
+public final class LoadTestEndpoint extends Endpoint {
+
+    private static final Logger LOGGER = LogManager.getLogger(LoadTestEndpoint.class);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Object target;
+    private final LoadTestContainer container;
+    private final Method onOpen;
+    private final Method onMessage;
+    private final Method onPong;
+    private final Method onClose;
+    private final Method onError;
+
+    private final LongAdder callbacks = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    LoadTestEndpoint(Object target, LoadTestContainer container) {
+        this.target = target;
+        this.container = container;
+        try {
+            Class<?> type = target.getClass();
+            onOpen = type.getMethod("onOpen", Session.class, EndpointConfig.class);
+            onMessage = type.getMethod("toDoOnMessage", Session.class, String.class);
+            onPong = type.getMethod("handlePing", Session.class, PongMessage.class);
+            onClose = type.getMethod("onClose", Session.class, CloseReason.class);
+            onError = type.getMethod("onError", Session.class, Throwable.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(target.getClass().getName() + " is not a WebSocket endpoint", e);
+        }
+    }
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        session.addMessageHandler(String.class, text -> call(onMessage, session, text));
+        session.addMessageHandler(PongMessage.class, pong -> call(onPong, session, pong));
+        call(onOpen, session, config);
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        call(onClose, session, closeReason);
+    }
+
+    @Override
+    public void onError(Session session, Throwable error) {
+        call(onError, session, error);
+    }
+
+    long getCallbacks() {
+        return callbacks.sum();
+    }
+
+    long getFailures() {
+        return failures.sum();
+    }
+
+    long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    private void call(Method method, Object... args) {
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        try {
+            container.inTransaction((Callable<Void>) () -> {
+                try {
+                    method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            failures.increment();
+            LOGGER.debug("{} failed in {}", method.getName(), target.getClass().getSimpleName(), e);
+        } finally {
+            callbacks.increment();
+            allocatedBytes.add(THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package pt.uc.dei.benchmark;
+
+import pt.uc.dei.config.EmailConfig;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local SMTP server that accepts every message and keeps only counts, standing in for the real SMTP relay in
+ * tests and benchmarks.
+ * <p>
+ * It speaks enough ESMTP for JavaMail: EHLO, AUTH PLAIN and LOGIN with any credentials, MAIL, RCPT, DATA, RSET,
+ * NOOP and QUIT. Recipients containing {@code reject} are refused with 550. STARTTLS is not offered, so clients
+ * with {@code mail.smtp.starttls.enable} carry on in plain text. {@code handshakeDelayMs} is slept on every new
+ * connection and every AUTH, to stand in for the TCP, TLS and AUTH round trips of a remote server.
+ */
+public final class SmtpSink implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final long handshakeDelayMs;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connectionsAccepted = new AtomicInteger();
+    private final AtomicInteger authentications = new AtomicInteger();
+    private final AtomicLong messagesReceived = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Starts the sink on a free local port.
+     *
+     * @param handshakeDelayMs delay added to each connection greeting and each AUTH
+     * @throws IOException if the port cannot be opened
+     */
+    public SmtpSink(long handshakeDelayMs) throws IOException {
+        this.handshakeDelayMs = handshakeDelayMs;
+        this.serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "smtp-sink-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return JavaMail session properties for sending to this sink with AUTH, the production ones but for host,
+     *         port and timeouts
+     */
+    public Properties sessionProperties() {
+        return EmailConfig.getSMTPProperties("127.0.0.1", getPort(), true, true, 5000);
+    }
+
+    public int getConnectionsAccepted() {
+        return connectionsAccepted.get();
+    }
+
+    public int getAuthentications() {
+        return authentications.get();
+    }
+
+    public long getMessagesReceived() {
+        return messagesReceived.get();
+    }
+
+    /**
+     * Drops every open connection without a reply, as a server restart or an idle timeout would.
+     */
+    public void dropConnections() {
+        for (Socket socket : connections) {
+            closeQuietly(socket);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closeQuietly(serverSocket);
+        dropConnections();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                connectionsAccepted.incrementAndGet();
+                Thread handler = new Thread(() -> serve(socket), "smtp-sink-" + socket.getPort());
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream out = socket.getOutputStream()) {
+            pause();
+            reply(out, "220 sink ESMTP ready");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase(Locale.ROOT);
+                if (command.startsWith("EHLO")) {
+                    reply(out, "250-sink\r\n250-AUTH PLAIN LOGIN\r\n250-8BITMIME\r\n250 OK");
+                } else if (command.startsWith("HELO")) {
+                    reply(out, "250 sink");
+                } else if (command.startsWith("AUTH PLAIN")) {
+                    if (command.trim().equals("AUTH PLAIN")) {
+                        reply(out, "334 ");
+                        in.readLine();
+                    }
+                    authenticated(out);
+                } else if (command.startsWith("AUTH LOGIN")) {
+                    reply(out, "334 VXNlcm5hbWU6");
+                    in.readLine();
+                    reply(out, "334 UGFzc3dvcmQ6");
+                    in.readLine();
+                    authenticated(out);
+                } else if (command.startsWith("MAIL FROM") || command.startsWith("RSET") || command.startsWith("NOOP")) {
+                    reply(out, "250 OK");
+                } else if (command.startsWith("RCPT TO")) {
+                    reply(out, command.contains("REJECT") ? "550 No such user" : "250 OK");
+                } else if (command.startsWith("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    String data;
+                    while ((data = in.readLine()) != null && !data.equals(".")) {
+                        // Discarded
+                    }
+                    messagesReceived.incrementAndGet();
+                    reply(out, "250 OK queued");
+                } else if (command.startsWith("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (SocketException e) {
+            // Dropped by dropConnections() or by the client
+        } catch (IOException e) {
+            if (!closed) {
+                e.printStackTrace();
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void authenticated(OutputStream out) throws IOException {
+        pause();
+        authentications.incrementAndGet();
+        reply(out, "235 Authentication successful");
+    }
+
+    private void pause() {
+        if (handshakeDelayMs > 0) {
+            try {
+                Thread.sleep(handshakeDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void reply(OutputStream out, String reply) throws IOException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Already closed
+        }
+    }
+}
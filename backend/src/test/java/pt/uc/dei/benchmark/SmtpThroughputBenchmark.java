@@ -0,0 +1,148 @@
+package pt.uc.dei.benchmark;
+
+import jakarta.mail.Authenticator;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.PasswordAuthentication;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import pt.uc.dei.config.MessageTemplate;
+import pt.uc.dei.services.SmtpTransportPool;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures email throughput against a local {@link SmtpSink} with one connection per email, as
+ * {@code EmailService} used to send, and with {@link SmtpTransportPool}.
+ * <p>
+ * Each mode sends {@code messages} cycle notification emails from {@code threads} threads. The sink sleeps
+ * {@code handshakeDelayMs} when a connection opens and on AUTH, standing in for the TCP, STARTTLS and AUTH round
+ * trips to a remote relay, so the numbers show what reusing connections saves rather than local socket speed.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=pt.uc.dei.benchmark.SmtpThroughputBenchmark -Dsmtp.messages=500 -Dsmtp.threads=4
+ * -Dsmtp.handshakeDelayMs=50}.
+ */
+public final class SmtpThroughputBenchmark {
+
+    private static final String FROM = "citrus@example.com";
+
+    /**
+     * @param messages         emails sent in each mode
+     * @param threads          concurrent senders, and the pool size
+     * @param handshakeDelayMs sink delay on connect and on AUTH
+     */
+    public record Settings(int messages, int threads, long handshakeDelayMs) {
+
+        public static Settings fromSystemProperties() {
+            return new Settings(Integer.getInteger("smtp.messages", 500), Integer.getInteger("smtp.threads", 4),
+                    Long.getLong("smtp.handshakeDelayMs", 50L));
+        }
+    }
+
+    /**
+     * Outcome of one mode.
+     *
+     * @param messages    emails the sink received
+     * @param connections connections the sink accepted
+     * @param elapsedMs   wall time of the run
+     */
+    public record Result(long messages, int connections, long elapsedMs) {
+
+        public double messagesPerSecond() {
+            return messages * 1000.0 / Math.max(1, elapsedMs);
+        }
+    }
+
+    public record Report(Result perMessage, Result pooled) {
+    }
+
+    private final Settings settings;
+
+    public SmtpThroughputBenchmark(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        Report report = new SmtpThroughputBenchmark(settings).run();
+        System.out.printf("%d emails, %d threads, %d ms handshake%n", settings.messages(), settings.threads(),
+                settings.handshakeDelayMs());
+        print("connection per email", report.perMessage());
+        print("pooled", report.pooled());
+    }
+
+    private static void print(String mode, Result result) {
+        System.out.printf("%-22s %8.1f emails/s  %6d connections  %6d ms%n", mode, result.messagesPerSecond(),
+                result.connections(), result.elapsedMs());
+    }
+
+    public Report run() throws Exception {
+        Result perMessage;
+        try (SmtpSink sink = new SmtpSink(settings.handshakeDelayMs())) {
+            perMessage = measure(sink, recipient -> {
+                // A new session, connection and AUTH for every email
+                Session session = Session.getInstance(sink.sessionProperties(), new Authenticator() {
+                    protected PasswordAuthentication getPasswordAuthentication() {
+                        return new PasswordAuthentication(FROM, "secret");
+                    }
+                });
+                Transport.send(message(session, recipient));
+            });
+        }
+        Result pooled;
+        try (SmtpSink sink = new SmtpSink(settings.handshakeDelayMs())) {
+            SmtpTransportPool pool = new SmtpTransportPool(sink.sessionProperties(), FROM, "secret",
+                    settings.threads(), Duration.ofSeconds(30), Duration.ofSeconds(30));
+            try {
+                pooled = measure(sink, recipient -> pool.send(message(pool.getSession(), recipient)));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return new Report(perMessage, pooled);
+    }
+
+    private interface Sender {
+        void send(String recipient) throws MessagingException;
+    }
+
+    private Result measure(SmtpSink sink, Sender sender) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(settings.threads());
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> sends = new ArrayList<>(settings.messages());
+            for (int i = 0; i < settings.messages(); i++) {
+                String recipient = "user" + i + "@example.com";
+                sends.add(executor.submit(() -> {
+                    sender.send(recipient);
+                    return null;
+                }));
+            }
+            for (Future<?> send : sends) {
+                send.get();
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+            return new Result(sink.getMessagesReceived(), sink.getConnectionsAccepted(), elapsedMs);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Message message(Session session, String recipient) throws MessagingException {
+        Message message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(FROM));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(recipient));
+        message.setSubject("CITRUS - New Performance Cycle Started");
+        message.setContent(MessageTemplate.CYCLE_NOTIFICATION_TEMPLATE_EN("7", "2026-01-01", "2026-06-30",
+                "Maria Silva", 42, "https://localhost:3000/appraisals"), "text/html");
+        return message;
+    }
+}
@@ -0,0 +1,587 @@
+package pt.uc.dei.benchmark;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import jakarta.websocket.ClientEndpointConfig;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Endpoint;
+import jakarta.websocket.EndpointConfig;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.ServerEndpoint;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.client.ClientProperties;
+import org.glassfish.tyrus.spi.ServerContainer;
+import org.glassfish.tyrus.spi.ServerContainerFactory;
+import pt.uc.dei.dtos.MessageDTO;
+import pt.uc.dei.entities.UserEntity;
+import pt.uc.dei.enums.AccountState;
+import pt.uc.dei.enums.Office;
+import pt.uc.dei.enums.Role;
+import pt.uc.dei.services.NotificationDispatcher;
+import pt.uc.dei.services.NotificationService;
+import pt.uc.dei.utils.JWTUtil;
+import pt.uc.dei.utils.LatencyHistogram;
+import pt.uc.dei.websocket.CustomConfigurator;
+import pt.uc.dei.websocket.HeartbeatScheduler;
+import pt.uc.dei.websocket.LocalMessageBus;
+import pt.uc.dei.websocket.WebSocketCluster;
+import pt.uc.dei.websocket.WsChat;
+import pt.uc.dei.websocket.WsNotifications;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test of the chat and notification WebSocket endpoints on a single machine, with no external services.
+ * <p>
+ * {@code WsChat} and {@code WsNotifications} run in-process on a standalone Tyrus server, wired with the real
+ * services and repositories over the H2 {@code test-unit} persistence unit (see {@link LoadTestContainer}).
+ * The harness seeds {@code users} users, opens a chat and a notification session for each with a minted
+ * JWT cookie, then for {@code durationSeconds} sends chat messages between random users and creates message
+ * notifications for random users at the configured rates. Each payload carries its send time, so clients
+ * record delivery latency; the server side records the bytes allocated by endpoint callbacks and by the
+ * notification service. A warm-up phase with the same traffic runs first and is not reported.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=pt.uc.dei.benchmark.WebSocketLoadHarness -Dloadtest.users=2000} and the other
+ * {@code loadtest.*} properties of {@link Settings#fromSystemProperties()}. Every user holds four sockets
+ * (two on each side), so raise {@code ulimit -n} above {@code 4 * users} first.
+ */
+public final class WebSocketLoadHarness {
+
+    private static final String CONTEXT_PATH = "/projectcitrus";
+    private static final Pattern SENT_AT = Pattern.compile("lt:(\\d+)");
+    private static final Pattern AUTHENTICATED_USER = Pattern.compile("\"userId\":\\s*(\\d+)");
+    private static final int CONNECT_THREADS = 16;
+    private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Size and shape of a run.
+     *
+     * @param users            connected users; each opens one chat and one notification session
+     * @param warmupSeconds    traffic before measuring
+     * @param durationSeconds  measured traffic
+     * @param chatRate         chat messages sent per second, over all users
+     * @param notificationRate message notifications created per second, over all users
+     * @param threads          client threads sending chat messages
+     */
+    public record Settings(int users, int warmupSeconds, int durationSeconds, int chatRate, int notificationRate,
+                           int threads) {
+
+        /**
+         * Reads {@code loadtest.users} (1000), {@code loadtest.warmupSeconds} (5),
+         * {@code loadtest.durationSeconds} (30), {@code loadtest.chatRate} (2000),
+         * {@code loadtest.notificationRate} (200) and {@code loadtest.threads} (4).
+         */
+        public static Settings fromSystemProperties() {
+            return new Settings(Integer.getInteger("loadtest.users", 1000),
+                    Integer.getInteger("loadtest.warmupSeconds", 5),
+                    Integer.getInteger("loadtest.durationSeconds", 30),
+                    Integer.getInteger("loadtest.chatRate", 2000),
+                    Integer.getInteger("loadtest.notificationRate", 200),
+                    Integer.getInteger("loadtest.threads", 4));
+        }
+    }
+
+    /**
+     * Measurements of one traffic type.
+     *
+     * @param sent       messages sent
+     * @param received   messages received by their recipients
+     * @param throughput received messages per second
+     * @param p50Ms      median delivery latency
+     * @param p99Ms      99th percentile delivery latency
+     * @param maxMs      highest delivery latency
+     */
+    public record Traffic(long sent, long received, double throughput, double p50Ms, double p99Ms, double maxMs) {
+
+        @Override
+        public String toString() {
+            return String.format("sent %d, received %d, %.1f/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    sent, received, throughput, p50Ms, p99Ms, maxMs);
+        }
+    }
+
+    /**
+     * Result of a run.
+     *
+     * @param sessions         sessions authenticated by the endpoints
+     * @param connectMillis    time to open them
+     * @param chat             chat message delivery
+     * @param notifications    notification delivery
+     * @param callbacks        endpoint callbacks while measuring
+     * @param failures         endpoint callbacks and notification calls that threw
+     * @param allocatedBytes   bytes allocated by endpoint callbacks and notification calls while measuring
+     * @param chatOutbound     outbound queue counters of the chat endpoint
+     * @param notificationOutbound outbound queue counters of the notification endpoint
+     */
+    public record Report(long sessions, long connectMillis, Traffic chat, Traffic notifications, long callbacks,
+                         long failures, long allocatedBytes, Map<String, Object> chatOutbound,
+                         Map<String, Object> notificationOutbound) {
+
+        /**
+         * @return server-side bytes allocated per delivered message
+         */
+        public long allocatedBytesPerDelivery() {
+            long delivered = chat.received() + notifications.received();
+            return delivered == 0 ? 0 : allocatedBytes / delivered;
+        }
+
+        @Override
+        public String toString() {
+            return "sessions       " + sessions + " opened in " + connectMillis + " ms\n"
+                    + "chat           " + chat + "\n"
+                    + "notifications  " + notifications + "\n"
+                    + "server         " + callbacks + " callbacks, " + failures + " failures, "
+                    + allocatedBytes / (1024 * 1024) + " MB allocated, "
+                    + allocatedBytesPerDelivery() + " bytes per delivery\n"
+                    + "chat queues    " + outboundSummary(chatOutbound) + "\n"
+                    + "notif. queues  " + outboundSummary(notificationOutbound);
+        }
+
+        private static String outboundSummary(Map<String, Object> stats) {
+            return "enqueued " + stats.get("enqueued") + ", coalesced " + stats.get("coalesced")
+                    + ", dropped " + stats.get("dropped") + ", evicted " + stats.get("evicted")
+                    + ", queue wait " + stats.get("queueWait");
+        }
+    }
+
+    /**
+     * Counters the clients record into; replaced after the warm-up.
+     */
+    private static final class Metrics {
+        private final LongAdder chatSent = new LongAdder();
+        private final LongAdder chatReceived = new LongAdder();
+        private final LongAdder notificationsSent = new LongAdder();
+        private final LongAdder notificationsReceived = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final LatencyHistogram chatLatency = new LatencyHistogram();
+        private final LatencyHistogram notificationLatency = new LatencyHistogram();
+    }
+
+    /**
+     * Client side of one session.
+     */
+    public final class Client extends Endpoint {
+        private final boolean chat;
+        private final CountDownLatch authenticated = new CountDownLatch(1);
+        private volatile Long authenticatedUserId;
+        private volatile Session session;
+
+        private Client(boolean chat) {
+            this.chat = chat;
+        }
+
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+            this.session = session;
+            session.addMessageHandler(String.class, this::onText);
+        }
+
+        private void onText(String text) {
+            if (authenticated.getCount() > 0 && text.contains("\"AUTHENTICATED\"")) {
+                Matcher user = AUTHENTICATED_USER.matcher(text);
+                authenticatedUserId = user.find() ? Long.valueOf(user.group(1)) : null;
+                authenticated.countDown();
+                return;
+            }
+            Matcher matcher = SENT_AT.matcher(text);
+            if (matcher.find()) {
+                long sentAt = Long.parseLong(matcher.group(1));
+                Metrics current = metrics;
+                if (chat) {
+                    current.chatLatency.recordSince(sentAt);
+                    current.chatReceived.increment();
+                } else {
+                    current.notificationLatency.recordSince(sentAt);
+                    current.notificationsReceived.increment();
+                }
+            }
+        }
+
+        private synchronized void send(String text) throws IOException {
+            session.getBasicRemote().sendText(text);
+        }
+    }
+
+    private final Settings settings;
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<Client> chatClients = new ArrayList<>();
+    private final List<Client> notificationClients = new ArrayList<>();
+    private volatile Metrics metrics = new Metrics();
+
+    private LoadTestContainer container;
+    private LoadTestEndpoint chatEndpoint;
+    private LoadTestEndpoint notificationEndpoint;
+    private NotificationService notificationService;
+    private HeartbeatScheduler heartbeat;
+
+    public WebSocketLoadHarness(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.fromSystemProperties();
+        System.out.println("WebSocket load test: " + settings);
+        System.out.println(new WebSocketLoadHarness(settings).run());
+        System.exit(0);
+    }
+
+    /**
+     * Boots the endpoints, connects the clients, drives the traffic and tears everything down.
+     *
+     * @return the measurements of the timed phase
+     */
+    public Report run() throws Exception {
+        String previousSecret = JWTUtil.SECRET_KEY;
+        String previousKeyId = JWTUtil.SECRET_KEY_ID;
+        String previousRetired = JWTUtil.RETIRED_SECRET_KEYS;
+        JWTUtil.SECRET_KEY = Base64.getEncoder().encodeToString(SECRET);
+        JWTUtil.SECRET_KEY_ID = null;
+        JWTUtil.RETIRED_SECRET_KEYS = null;
+
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("test-unit", Map.of(
+                "javax.persistence.jdbc.url", "jdbc:h2:mem:websocket-load;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                "hibernate.show_sql", "false"));
+        ScheduledExecutorService heartbeatTicker = Executors.newSingleThreadScheduledExecutor();
+        ServerContainer server = null;
+        ClientManager client = null;
+        try {
+            container = new LoadTestContainer(emf);
+            startEndpoints(heartbeatTicker);
+            seedUsers();
+
+            int port = freePort();
+            server = ServerContainerFactory.createServerContainer(Map.of());
+            server.addEndpoint(endpointConfig(WsChat.class, chatEndpoint));
+            server.addEndpoint(endpointConfig(WsNotifications.class, notificationEndpoint));
+            server.start(CONTEXT_PATH, port);
+
+            client = ClientManager.createClient();
+            client.getProperties().put(ClientProperties.SHARED_CONTAINER, true);
+            long connectStarted = System.nanoTime();
+            connect(client, port);
+            long connectMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStarted);
+
+            if (settings.warmupSeconds() > 0) {
+                drive(settings.warmupSeconds());
+            }
+            Metrics measured = new Metrics();
+            metrics = measured;
+            long callbacksBefore = chatEndpoint.getCallbacks() + notificationEndpoint.getCallbacks();
+            long failuresBefore = chatEndpoint.getFailures() + notificationEndpoint.getFailures();
+            long allocatedBefore = chatEndpoint.getAllocatedBytes() + notificationEndpoint.getAllocatedBytes();
+            long started = System.nanoTime();
+            drive(settings.durationSeconds());
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            return new Report((Integer) heartbeat.getStats().get("live"), connectMillis,
+                    traffic(measured.chatSent, measured.chatReceived, measured.chatLatency, seconds),
+                    traffic(measured.notificationsSent, measured.notificationsReceived,
+                            measured.notificationLatency, seconds),
+                    chatEndpoint.getCallbacks() + notificationEndpoint.getCallbacks() - callbacksBefore,
+                    chatEndpoint.getFailures() + notificationEndpoint.getFailures() - failuresBefore
+                            + measured.failures.sum(),
+                    chatEndpoint.getAllocatedBytes() + notificationEndpoint.getAllocatedBytes() - allocatedBefore
+                            + measured.allocatedBytes.sum(),
+                    container.get(WsChat.class).getDeliveryStats(),
+                    container.get(WsNotifications.class).getDeliveryStats());
+        } finally {
+            disconnect();
+            awaitServerSessionsClosed();
+            if (client != null) {
+                client.shutdown();
+            }
+            if (server != null) {
+                server.stop();
+            }
+            heartbeatTicker.shutdownNow();
+            if (container != null) {
+                container.close();
+            }
+            emf.close();
+            JWTUtil.SECRET_KEY = previousSecret;
+            JWTUtil.SECRET_KEY_ID = previousKeyId;
+            JWTUtil.RETIRED_SECRET_KEYS = previousRetired;
+        }
+    }
+
+    /**
+     * Creates both endpoints on a single-node cluster and turns the heartbeat wheel on the harness' own thread.
+     */
+    private void startEndpoints(ScheduledExecutorService heartbeatTicker) {
+        WebSocketCluster cluster = new WebSocketCluster(new LocalMessageBus(), "load-test", 60_000);
+        cluster.start();
+        heartbeat = new HeartbeatScheduler();
+        Map<String, Object> wheel = heartbeat.getStats();
+        long tickMillis = Math.max(1, (Long) wheel.get("intervalMs") / (Integer) wheel.get("slots"));
+        heartbeatTicker.scheduleAtFixedRate(heartbeat::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        container.register(WebSocketCluster.class, cluster);
+        container.register(HeartbeatScheduler.class, heartbeat);
+        chatEndpoint = new LoadTestEndpoint(container.get(WsChat.class), container);
+        notificationEndpoint = new LoadTestEndpoint(container.get(WsNotifications.class), container);
+        notificationService = container.get(NotificationService.class);
+        // Created up front so it observes the notifications written from here on
+        container.get(NotificationDispatcher.class);
+    }
+
+    private void seedUsers() throws Exception {
+        container.inTransaction(() -> {
+            EntityManager em = container.getEntityManager();
+            List<UserEntity> users = new ArrayList<>();
+            for (int i = 0; i < settings.users(); i++) {
+                UserEntity user = new UserEntity();
+                user.setEmail("load" + i + "@example.com");
+                user.setPassword("password");
+                user.setName("Load");
+                user.setSurname("User " + i);
+                user.setSecretKey("load-" + i + "-secret");
+                user.setAccountState(AccountState.COMPLETE);
+                user.setRole(Role.SOFTWARE_ENGINEER);
+                user.setOnlineStatus(false);
+                user.setUserIsAdmin(false);
+                user.setUserIsDeleted(false);
+                user.setUserIsManager(false);
+                user.setOffice(Office.NO_OFFICE);
+                em.persist(user);
+                users.add(user);
+            }
+            em.flush();
+            users.forEach(user -> userIds.add(user.getId()));
+            return null;
+        });
+    }
+
+    /**
+     * Opens the sessions from {@value #CONNECT_THREADS} threads, so handshakes overlap as they do with real
+     * clients. Every session must be authenticated as the user whose cookie its handshake carried.
+     */
+    private void connect(ClientManager client, int port) throws Exception {
+        URI chatUri = uri(port, WsChat.class);
+        URI notificationsUri = uri(port, WsNotifications.class);
+        ExecutorService connecting = Executors.newFixedThreadPool(CONNECT_THREADS);
+        try {
+            List<Future<Client[]>> opened = new ArrayList<>(userIds.size());
+            for (Long userId : userIds) {
+                opened.add(connecting.submit(() -> {
+                    ClientEndpointConfig config = clientConfig(token(userId));
+                    return new Client[]{open(client, new Client(true), config, chatUri, userId),
+                            open(client, new Client(false), config, notificationsUri, userId)};
+                }));
+            }
+            // Kept in the order of userIds, which the traffic drivers index into
+            for (Future<Client[]> future : opened) {
+                Client[] clients = future.get();
+                chatClients.add(clients[0]);
+                notificationClients.add(clients[1]);
+            }
+        } finally {
+            connecting.shutdownNow();
+        }
+    }
+
+    private Client open(ClientManager client, Client endpoint, ClientEndpointConfig config, URI uri, Long userId)
+            throws Exception {
+        URI connection = URI.create(uri + "?" + CustomConfigurator.CONNECTION_PARAMETER + "=" + UUID.randomUUID());
+        client.connectToServer(endpoint, config, connection);
+        if (!endpoint.authenticated.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Session to " + uri + " was not authenticated");
+        }
+        if (!userId.equals(endpoint.authenticatedUserId)) {
+            throw new IllegalStateException("Session of user " + userId + " to " + uri + " was authenticated as user "
+                    + endpoint.authenticatedUserId);
+        }
+        return endpoint;
+    }
+
+    /**
+     * Sends chat messages from {@code threads} client threads and creates notifications from one thread, both
+     * paced to their rate, then waits for the chat messages in flight.
+     */
+    private void drive(int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        Metrics current = metrics;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < settings.threads(); i++) {
+            threads.add(paced("load-chat-" + i, settings.chatRate() / (double) settings.threads(), deadline,
+                    () -> sendChatMessage(current)));
+        }
+        threads.add(paced("load-notifications", settings.notificationRate(), deadline,
+                () -> createNotification(current)));
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (current.chatReceived.sum() < current.chatSent.sum() && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        // Notifications are sent inside the creating call; give the last frames a moment to arrive
+        Thread.sleep(200);
+    }
+
+    private static Thread paced(String name, double ratePerSecond, long deadline, Runnable operation) {
+        Thread thread = new Thread(() -> {
+            if (ratePerSecond <= 0) {
+                return;
+            }
+            long interval = (long) (1e9 / ratePerSecond);
+            long next = System.nanoTime();
+            while (next < deadline) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                operation.run();
+                next += interval;
+            }
+        }, name);
+        thread.start();
+        return thread;
+    }
+
+    private void sendChatMessage(Metrics current) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int sender = random.nextInt(userIds.size());
+        int recipient = (sender + 1 + random.nextInt(userIds.size() - 1)) % userIds.size();
+        String frame = "{\"type\":\"MESSAGE\",\"recipientId\":" + userIds.get(recipient)
+                + ",\"message\":\"lt:" + System.nanoTime() + "\"}";
+        try {
+            chatClients.get(sender).send(frame);
+            current.chatSent.increment();
+        } catch (IOException e) {
+            current.failures.increment();
+        }
+    }
+
+    private void createNotification(Metrics current) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int sender = random.nextInt(userIds.size());
+        int recipient = (sender + 1 + random.nextInt(userIds.size() - 1)) % userIds.size();
+        MessageDTO message = new MessageDTO();
+        message.setSenderId(userIds.get(sender));
+        message.setRecipientId(userIds.get(recipient));
+        message.setContent("lt:" + System.nanoTime());
+        message.setSentDate(LocalDateTime.now());
+        message.setMessageIsRead(false);
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        try {
+            if (Boolean.TRUE.equals(container.inTransaction(() -> notificationService.newMessageNotification(message)))) {
+                current.notificationsSent.increment();
+            } else {
+                current.failures.increment();
+            }
+        } catch (Exception e) {
+            current.failures.increment();
+        } finally {
+            current.allocatedBytes.add(THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore);
+        }
+    }
+
+    private void disconnect() {
+        for (List<Client> clients : List.of(chatClients, notificationClients)) {
+            for (Client client : clients) {
+                Session session = client.session;
+                if (session != null && session.isOpen()) {
+                    try {
+                        session.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "Load test finished"));
+                    } catch (IOException ignore) {
+                    }
+                }
+            }
+            clients.clear();
+        }
+    }
+
+    /**
+     * Waits for the endpoints' close callbacks, which still use the database, before it is shut down.
+     */
+    private void awaitServerSessionsClosed() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (heartbeat != null && (Integer) heartbeat.getStats().get("live") > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static Traffic traffic(LongAdder sent, LongAdder received, LatencyHistogram latency, double seconds) {
+        return new Traffic(sent.sum(), received.sum(), received.sum() / seconds,
+                latency.percentileMillis(50), latency.percentileMillis(99), latency.percentileMillis(100));
+    }
+
+    private static ServerEndpointConfig endpointConfig(Class<?> annotated, LoadTestEndpoint endpoint) {
+        return ServerEndpointConfig.Builder.create(LoadTestEndpoint.class, path(annotated))
+                .configurator(new CustomConfigurator(false) {
+                    @Override
+                    public <T> T getEndpointInstance(Class<T> endpointClass) {
+                        return endpointClass.cast(endpoint);
+                    }
+                })
+                .build();
+    }
+
+    private static ClientEndpointConfig clientConfig(String token) {
+        return ClientEndpointConfig.Builder.create()
+                .configurator(new ClientEndpointConfig.Configurator() {
+                    @Override
+                    public void beforeRequest(Map<String, List<String>> headers) {
+                        headers.put("Cookie", List.of("jwt=" + token));
+                    }
+                })
+                .build();
+    }
+
+    private static String token(Long userId) {
+        return Jwts.builder()
+                .header().keyId(JWTUtil.DEFAULT_KEY_ID).and()
+                .setSubject(String.valueOf(userId))
+                .claim("userIsAdmin", false)
+                .claim("userIsManager", false)
+                .claim("accountState", AccountState.COMPLETE.name())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(SECRET), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    private static URI uri(int port, Class<?> annotated) {
+        return URI.create("ws://localhost:" + port + CONTEXT_PATH + path(annotated));
+    }
+
+    private static String path(Class<?> annotated) {
+        return annotated.getAnnotation(ServerEndpoint.class).value();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
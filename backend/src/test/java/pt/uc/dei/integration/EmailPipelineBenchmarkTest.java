@@ -0,0 +1,28 @@
+package pt.uc.dei.integration;
+
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.benchmark.EmailPipelineBenchmark;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the email pipeline benchmark at a small scale against the local sink, so every kind of email keeps
+ * reaching the SMTP server through {@code EmailService} between real benchmark runs.
+ */
+class EmailPipelineBenchmarkTest {
+
+    @Test
+    void everyEmailReachesTheSink() throws Exception {
+        List<EmailPipelineBenchmark.Result> results = new EmailPipelineBenchmark(
+                new EmailPipelineBenchmark.Settings(List.of(20), 2, 0)).run();
+
+        assertEquals(EmailPipelineBenchmark.Kind.values().length, results.size());
+        for (EmailPipelineBenchmark.Result result : results) {
+            assertEquals(20, result.received(), result.kind().name());
+            assertTrue(result.p99SendMs() > 0, result.kind().name());
+            assertTrue(result.emailsPerSecond() > 0, result.kind().name());
+        }
+    }
+}
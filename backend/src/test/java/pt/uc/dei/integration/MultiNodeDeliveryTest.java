@@ -0,0 +1,265 @@
+package pt.uc.dei.integration;
+
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.websocket.LocalMessageBus;
+import pt.uc.dei.websocket.SessionRegistry;
+import pt.uc.dei.websocket.WebSocketCluster;
+import pt.uc.dei.websocket.WebSocketOutbound;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two WebSocket cluster nodes in one JVM over a shared in-memory bus and checks that each message
+ * reaches the recipient exactly once, sent by the node that holds the recipient's session.
+ */
+class MultiNodeDeliveryTest {
+
+    private static final String ENDPOINT = "chat";
+
+    /**
+     * Message bus that counts published messages and can be made to fail, or to lose messages it accepted
+     * until it "reconnects".
+     */
+    private static final class CountingBus extends LocalMessageBus {
+        final List<String> published = new ArrayList<>();
+        final List<Runnable> reconnectListeners = new ArrayList<>();
+        boolean failing;
+        boolean losing;
+
+        @Override
+        public boolean publish(String channel, String payload) {
+            if (failing) {
+                return false;
+            }
+            published.add(payload);
+            return losing || super.publish(channel, payload);
+        }
+
+        @Override
+        public void onReconnect(Runnable listener) {
+            reconnectListeners.add(listener);
+        }
+
+        void reconnect() {
+            losing = false;
+            reconnectListeners.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * One application node: its own sessions, outbound queues and cluster membership.
+     */
+    private static final class Node {
+        final SessionRegistry sessions = new SessionRegistry();
+        final WebSocketOutbound outbound = new WebSocketOutbound("chat", 16, 10_000, sessions::unregister);
+        final WebSocketCluster cluster;
+
+        Node(CountingBus bus, String nodeId) {
+            this(bus, nodeId, 60_000);
+        }
+
+        Node(CountingBus bus, String nodeId, long nodeTtlMs) {
+            cluster = new WebSocketCluster(bus, nodeId, nodeTtlMs);
+            cluster.register(ENDPOINT, WebSocketCluster.LocalDelivery.of(sessions, outbound));
+            cluster.start();
+        }
+
+        Session connect(Long userId, String sessionId, List<String> inbox) {
+            Session session = session(sessionId, inbox);
+            sessions.register(userId, session);
+            cluster.announce(ENDPOINT, userId);
+            return session;
+        }
+
+        void disconnect(Session session) {
+            Long userId = sessions.unregister(session);
+            outbound.remove(session);
+            cluster.announce(ENDPOINT, userId);
+        }
+    }
+
+    private CountingBus bus;
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeEach
+    void setUp() {
+        bus = new CountingBus();
+        nodeA = new Node(bus, "node-a");
+        nodeB = new Node(bus, "node-b");
+    }
+
+    @Test
+    void messageForUserOnOtherNodeIsSentByThatNodeOnly() {
+        List<String> inbox = new ArrayList<>();
+        nodeB.connect(7L, "b-1", inbox);
+
+        assertTrue(nodeA.cluster.deliver(ENDPOINT, 7L, "hello", null));
+
+        assertEquals(List.of("hello"), inbox);
+        assertEquals(1L, nodeA.cluster.getStats().get("forwarded"));
+        assertEquals(1L, nodeB.cluster.getStats().get("received"));
+    }
+
+    @Test
+    void localRecipientIsNotPublished() {
+        List<String> inbox = new ArrayList<>();
+        nodeA.connect(7L, "a-1", inbox);
+        int before = bus.published.size();
+
+        assertTrue(nodeA.cluster.deliver(ENDPOINT, 7L, "hello", null));
+
+        assertEquals(List.of("hello"), inbox);
+        assertEquals(before, bus.published.size());
+    }
+
+    @Test
+    void userConnectedToBothNodesGetsOneCopyPerSession() {
+        List<String> inboxA = new ArrayList<>();
+        List<String> inboxB = new ArrayList<>();
+        nodeA.connect(7L, "a-1", inboxA);
+        nodeB.connect(7L, "b-1", inboxB);
+
+        assertTrue(nodeA.cluster.deliver(ENDPOINT, 7L, "hello", null));
+
+        assertEquals(List.of("hello"), inboxA);
+        assertEquals(List.of("hello"), inboxB);
+    }
+
+    @Test
+    void offlineUserIsReportedUndelivered() {
+        int before = bus.published.size();
+
+        assertFalse(nodeA.cluster.deliver(ENDPOINT, 7L, "hello", null));
+        assertEquals(before, bus.published.size());
+    }
+
+    @Test
+    void failedForwardIsReportedUndelivered() {
+        List<String> inbox = new ArrayList<>();
+        nodeB.connect(7L, "b-1", inbox);
+        bus.failing = true;
+
+        assertFalse(nodeA.cluster.deliver(ENDPOINT, 7L, "hello", null));
+
+        assertTrue(inbox.isEmpty());
+        assertEquals(0L, nodeA.cluster.getStats().get("forwarded"));
+    }
+
+    @Test
+    void lastSessionClosedStopsForwarding() {
+        List<String> inbox = new ArrayList<>();
+        Session first = nodeB.connect(7L, "b-1", inbox);
+        Session second = nodeB.connect(7L, "b-2", inbox);
+
+        nodeB.disconnect(first);
+        assertTrue(nodeA.cluster.isConnectedElsewhere(ENDPOINT, 7L));
+
+        nodeB.disconnect(second);
+        assertFalse(nodeA.cluster.isConnectedElsewhere(ENDPOINT, 7L));
+        assertFalse(nodeA.cluster.deliver(ENDPOINT, 7L, "hello", null));
+        assertTrue(inbox.isEmpty());
+    }
+
+    @Test
+    void startingNodeLearnsExistingSessions() {
+        List<String> inbox = new ArrayList<>();
+        nodeB.connect(7L, "b-1", inbox);
+
+        Node nodeC = new Node(bus, "node-c");
+
+        assertTrue(nodeC.cluster.isConnectedElsewhere(ENDPOINT, 7L));
+        assertTrue(nodeC.cluster.deliver(ENDPOINT, 7L, "hello", null));
+        assertEquals(List.of("hello"), inbox);
+    }
+
+    @Test
+    void timedOutNodeIsResyncedWhenHeardFromAgain() throws InterruptedException {
+        CountingBus slowBus = new CountingBus();
+        Node watcher = new Node(slowBus, "node-w", 200);
+        Node holder = new Node(slowBus, "node-h");
+        List<String> inbox = new ArrayList<>();
+        holder.connect(7L, "h-1", inbox);
+        assertTrue(watcher.cluster.isConnectedElsewhere(ENDPOINT, 7L));
+
+        Thread.sleep(300);
+        watcher.cluster.heartbeat();
+        assertFalse(watcher.cluster.isConnectedElsewhere(ENDPOINT, 7L), "the holder timed out");
+
+        holder.cluster.heartbeat();
+
+        assertTrue(watcher.cluster.isConnectedElsewhere(ENDPOINT, 7L));
+        assertTrue(watcher.cluster.deliver(ENDPOINT, 7L, "hello", null));
+        assertEquals(List.of("hello"), inbox);
+    }
+
+    @Test
+    void reconnectRebuildsDirectoryFromLostMessages() {
+        Session first = nodeB.connect(7L, "b-1", new ArrayList<>());
+        bus.losing = true;
+        nodeB.disconnect(first);
+        nodeB.connect(8L, "b-2", new ArrayList<>());
+        assertTrue(nodeA.cluster.isConnectedElsewhere(ENDPOINT, 7L), "the LEAVE was lost");
+        assertFalse(nodeA.cluster.isConnectedElsewhere(ENDPOINT, 8L), "the JOIN was lost");
+
+        bus.reconnect();
+
+        assertFalse(nodeA.cluster.isConnectedElsewhere(ENDPOINT, 7L));
+        assertTrue(nodeA.cluster.isConnectedElsewhere(ENDPOINT, 8L));
+    }
+
+    @Test
+    void failedAnnouncementIsRepairedOnNextHeartbeat() {
+        bus.failing = true;
+        nodeB.connect(7L, "b-1", new ArrayList<>());
+        bus.failing = false;
+        assertFalse(nodeA.cluster.isConnectedElsewhere(ENDPOINT, 7L));
+
+        nodeB.cluster.heartbeat();
+
+        assertTrue(nodeA.cluster.isConnectedElsewhere(ENDPOINT, 7L));
+    }
+
+    @Test
+    void endpointsAreRoutedSeparately() {
+        nodeB.connect(7L, "b-1", new ArrayList<>());
+
+        assertTrue(nodeA.cluster.isConnectedElsewhere(ENDPOINT, 7L));
+        assertFalse(nodeA.cluster.isConnectedElsewhere("notifications", 7L));
+    }
+
+    /**
+     * Session whose async sends complete immediately and are recorded in the inbox.
+     */
+    private static Session session(String id, List<String> inbox) {
+        RemoteEndpoint.Async async = (RemoteEndpoint.Async) Proxy.newProxyInstance(
+                RemoteEndpoint.Async.class.getClassLoader(), new Class<?>[]{RemoteEndpoint.Async.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("sendText") && args.length == 2) {
+                        inbox.add((String) args[0]);
+                        ((SendHandler) args[1]).onResult(new SendResult());
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "getAsyncRemote" -> async;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "Session[" + id + "]";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
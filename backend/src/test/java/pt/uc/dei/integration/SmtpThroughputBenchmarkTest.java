@@ -0,0 +1,25 @@
+package pt.uc.dei.integration;
+
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.benchmark.SmtpThroughputBenchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the SMTP throughput benchmark at a small scale against the local sink, so pooled sending keeps
+ * reusing its connections and keeps its advantage between real benchmark runs.
+ */
+class SmtpThroughputBenchmarkTest {
+
+    @Test
+    void pooledSendingReusesConnectionsAndIsFaster() throws Exception {
+        SmtpThroughputBenchmark.Report report = new SmtpThroughputBenchmark(
+                new SmtpThroughputBenchmark.Settings(40, 2, 10)).run();
+
+        assertEquals(40, report.perMessage().messages());
+        assertEquals(40, report.perMessage().connections());
+        assertEquals(40, report.pooled().messages());
+        assertTrue(report.pooled().connections() <= 2);
+        assertTrue(report.pooled().messagesPerSecond() > report.perMessage().messagesPerSecond());
+    }
+}
@@ -0,0 +1,27 @@
+package pt.uc.dei.integration;
+
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.benchmark.WebSocketLoadHarness;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the WebSocket load harness at a small scale, so the in-process server, the client sessions and the
+ * measurements keep working between real load-test runs.
+ */
+class WebSocketLoadHarnessTest {
+
+    @Test
+    void deliversEveryChatMessageAndReportsMeasurements() throws Exception {
+        WebSocketLoadHarness.Report report = new WebSocketLoadHarness(
+                new WebSocketLoadHarness.Settings(20, 0, 2, 100, 20, 2)).run();
+
+        assertEquals(40, report.sessions());
+        assertTrue(report.chat().sent() > 0);
+        assertEquals(report.chat().sent(), report.chat().received());
+        assertTrue(report.notifications().received() > 0);
+        assertTrue(report.chat().p99Ms() > 0);
+        assertEquals(0, report.failures());
+        assertTrue(report.allocatedBytes() > 0);
+    }
+}
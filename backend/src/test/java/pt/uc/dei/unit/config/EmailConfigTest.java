@@ -0,0 +1,36 @@
+package pt.uc.dei.unit.config;
+
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.config.EmailConfig;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailConfigTest {
+
+    @Test
+    void defaultsToGmailWithStartTls() {
+        // SMTP_HOST and friends are not set in the test environment
+        Properties properties = EmailConfig.getSMTPProperties();
+
+        assertEquals("smtp.gmail.com", properties.get("mail.smtp.host"));
+        assertEquals("587", properties.get("mail.smtp.port"));
+        assertEquals("true", properties.get("mail.smtp.auth"));
+        assertEquals("true", properties.get("mail.smtp.starttls.enable"));
+        assertEquals("15000", properties.get("mail.smtp.timeout"));
+    }
+
+    @Test
+    void pointsAtTheGivenServer() {
+        Properties properties = EmailConfig.getSMTPProperties("mail.local", 2525, false, false, 3000);
+
+        assertEquals("mail.local", properties.get("mail.smtp.host"));
+        assertEquals("2525", properties.get("mail.smtp.port"));
+        assertEquals("false", properties.get("mail.smtp.auth"));
+        assertEquals("false", properties.get("mail.smtp.starttls.enable"));
+        assertEquals("3000", properties.get("mail.smtp.connectiontimeout"));
+        assertEquals("3000", properties.get("mail.smtp.writetimeout"));
+        assertEquals("false", properties.get("mail.smtp.quitwait"));
+    }
+}
@@ -0,0 +1,70 @@
+package pt.uc.dei.unit.config;
+
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.config.EmailTemplateRegistry;
+import pt.uc.dei.config.MessageTemplate;
+import pt.uc.dei.enums.EmailTemplateType;
+import pt.uc.dei.enums.Language;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplateRegistryTest {
+
+    @Test
+    void englishActivationIsNotReplacedByPortuguese() {
+        EmailTemplateRegistry.RenderedEmail email = EmailTemplateRegistry.render(
+                EmailTemplateType.ACCOUNT_ACTIVATION, "en", "https://x/activate", 48, "SECRET");
+
+        assertEquals("CITRUS - Activate Your Account", email.subject());
+        assertEquals(MessageTemplate.ACCOUNT_ACTIVATION_TEMPLATE_EN("https://x/activate", 48, "SECRET"), email.body());
+    }
+
+    @Test
+    void portugueseVariantIsUsedForPt() {
+        EmailTemplateRegistry.RenderedEmail email = EmailTemplateRegistry.render(
+                EmailTemplateType.PASSWORD_RESET, "pt", "https://x/reset", 2);
+
+        assertEquals("CITRUS - recupere a sua password", email.subject());
+        assertEquals(MessageTemplate.PASSWORD_RESET_TEMPLATE_PT("https://x/reset", 2), email.body());
+    }
+
+    @Test
+    void unknownOrMissingLanguageFallsBackToEnglish() {
+        assertEquals(Language.ENGLISH, EmailTemplateRegistry.resolveLanguage(null));
+        assertEquals(Language.ENGLISH, EmailTemplateRegistry.resolveLanguage("xx"));
+        assertEquals(Language.PORTUGUESE, EmailTemplateRegistry.resolveLanguage(" PT "));
+        assertEquals(Language.PORTUGUESE, EmailTemplateRegistry.resolveLanguage("portuguese"));
+
+        // Italian has no cycle close variant of its own
+        EmailTemplateRegistry.RenderedEmail email = EmailTemplateRegistry.render(
+                EmailTemplateType.CYCLE_CLOSE, "it", "7", "2026-01-01", "2026-06-30", "Maria Silva", 42, "https://x");
+        assertEquals("CITRUS - Performance Cycle Ended", email.subject());
+        assertEquals(MessageTemplate.CYCLE_END_NOTIFICATION_TEMPLATE_EN("7", "2026-01-01", "2026-06-30",
+                "Maria Silva", 42, "https://x"), email.body());
+    }
+
+    @Test
+    void subjectsTakeTheBodyArguments() {
+        EmailTemplateRegistry.RenderedEmail update = EmailTemplateRegistry.render(
+                EmailTemplateType.PROFILE_UPDATE, Language.ENGLISH, "Rui", "Ana", "2026-10-17", "https://x");
+        EmailTemplateRegistry.RenderedEmail course = EmailTemplateRegistry.render(
+                EmailTemplateType.COURSE_ASSIGNMENT, Language.ENGLISH, "Ana", "Rui", "Java", "2026-10-17", "https://x");
+
+        assertEquals("CITRUS - Ana profile updated", update.subject());
+        assertEquals("CITRUS - Ana new course added", course.subject());
+
+        EmailTemplateRegistry.RenderedEmail digest = EmailTemplateRegistry.render(
+                EmailTemplateType.MESSAGE_DIGEST, Language.ENGLISH, "Ana", 3, "<li>Rui</li>", "https://x");
+        assertEquals("CITRUS - Unread messages in 3 chats", digest.subject());
+        assertTrue(digest.body().contains("<li>Rui</li>"));
+    }
+
+    @Test
+    void everyTypeRendersInEveryLanguage() {
+        for (EmailTemplateType type : EmailTemplateType.values()) {
+            for (Language language : Language.values()) {
+                assertNotNull(EmailTemplateRegistry.getBodyTemplate(type, language), type + " " + language);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package pt.uc.dei.unit.config;
+
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.config.EmailTemplate;
+import pt.uc.dei.config.EmailTemplateRegistry;
+import pt.uc.dei.config.MessageTemplate;
+import pt.uc.dei.enums.EmailTemplateType;
+import pt.uc.dei.enums.Language;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailTemplateTest {
+
+    @Test
+    void rendersSequentialPlaceholders() {
+        EmailTemplate template = EmailTemplate.compile("<a href=\"%s\">%s</a> valid for %d hours");
+
+        assertEquals(3, template.getArgumentCount());
+        assertEquals("<a href=\"https://x\">Go</a> valid for 48 hours", template.render("https://x", "Go", 48));
+    }
+
+    @Test
+    void rendersIndexedPlaceholdersAndPercentSigns() {
+        EmailTemplate template = EmailTemplate.compile("CITRUS - %2$s profile updated by %1$s (100%%)");
+
+        assertEquals("CITRUS - Ana profile updated by Rui (100%)", template.render("Rui", "Ana", "unused"));
+        assertEquals(2, template.getArgumentCount());
+    }
+
+    @Test
+    void matchesStringFormattedForEveryEmailTemplate() {
+        for (EmailTemplateType type : EmailTemplateType.values()) {
+            for (Language language : Language.values()) {
+                EmailTemplate template = EmailTemplateRegistry.getBodyTemplate(type, language);
+                // Integers format the same under %s and %d
+                Object[] args = new Object[template.getArgumentCount()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = 1000 + i;
+                }
+                assertEquals(template.getSource().formatted(args), template.render(args), type + " " + language);
+            }
+        }
+    }
+
+    @Test
+    void nullArgumentsRenderLikeFormatter() {
+        assertEquals("Hi null", EmailTemplate.compile("Hi %s").render((Object) null));
+    }
+
+    @Test
+    void rejectsTooFewArguments() {
+        EmailTemplate template = EmailTemplate.compile("%s and %s");
+        assertThrows(IllegalArgumentException.class, () -> template.render("one"));
+    }
+
+    @Test
+    void rejectsUnsupportedConversions() {
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("%.2f"));
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("trailing %"));
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("%0$s"));
+    }
+
+    @Test
+    void escapesHtmlMetacharacters() {
+        assertEquals("&lt;b&gt;Ana &amp; &quot;Rui&quot; d&#39;Or&lt;/b&gt;", EmailTemplate.escapeHtml("<b>Ana & \"Rui\" d'Or</b>"));
+        String plain = "Ana Silva";
+        assertSame(plain, EmailTemplate.escapeHtml(plain));
+        assertEquals("null", EmailTemplate.escapeHtml(null));
+    }
+
+    @Test
+    void digestSenderItemEscapesTheName() {
+        String item = MessageTemplate.MESSAGE_DIGEST_SENDER_TEMPLATE_EN("https://x?id=7",
+                "Eve\"><a href=\"https://evil\">click</a>", 1);
+
+        assertEquals("          <li><a href=\"https://x?id=7\"><strong>Eve&quot;&gt;&lt;a href=&quot;https://evil&quot;&gt;"
+                + "click&lt;/a&gt;</strong></a> (1 message)</li>\n", item);
+        assertTrue(MessageTemplate.MESSAGE_DIGEST_SENDER_TEMPLATE_EN("https://x", "Rui", 3).contains("(3 messages)"));
+    }
+
+    @Test
+    void templateWithoutPlaceholdersIsReturnedAsIs() {
+        EmailTemplate template = EmailTemplate.compile("<p>Olá</p>");
+        assertEquals(0, template.getArgumentCount());
+        assertEquals("<p>Olá</p>", template.render());
+    }
+}
@@ -12,9 +12,11 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.MockedStatic;
 
+import pt.uc.dei.config.PasswordHashingUnavailableExceptionMapper;
 import pt.uc.dei.controllers.AuthenticationController;
 import pt.uc.dei.dtos.*;
 import pt.uc.dei.services.*;
+import pt.uc.dei.services.PasswordHashingService.PasswordHashingUnavailableException;
 import pt.uc.dei.utils.ApiResponse;
 import pt.uc.dei.utils.JWTUtil;
 import pt.uc.dei.utils.TwoFactorUtil;
@@ -304,4 +306,16 @@ class AuthenticationControllerTest {
         Response response = authenticationController.requestAuthCode(dto);
         assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
     }
+
+    @Test
+    void testRequestAuthCode_hashingSaturated_returns503WithRetryAfter() {
+        RequestAuthCodeDTO dto = new RequestAuthCodeDTO();
+        dto.setEmail("user@example.com");
+        when(authenticationService.getAuthCode(dto)).thenThrow(new PasswordHashingUnavailableException("Password hashing timed out"));
+        PasswordHashingUnavailableException e = assertThrows(PasswordHashingUnavailableException.class,
+                () -> authenticationController.requestAuthCode(dto));
+        Response response = new PasswordHashingUnavailableExceptionMapper().toResponse(e);
+        assertEquals(Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), response.getStatus());
+        assertEquals("1", response.getHeaderString("Retry-After"));
+    }
 }
@@ -10,6 +10,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import pt.uc.dei.controllers.NotificationController;
 import pt.uc.dei.dtos.NotificationDTO;
 import pt.uc.dei.dtos.NotificationUpdateDTO;
+import pt.uc.dei.enums.NotificationType;
 import pt.uc.dei.services.NotificationService;
 import pt.uc.dei.utils.ApiResponse;
 import pt.uc.dei.utils.JWTUtil;
@@ -18,6 +19,7 @@ import jakarta.ws.rs.core.Response;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -166,4 +168,41 @@ class NotificationControllerTest {
             assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
         }
     }
+
+    @Test
+    void testGetNotificationFeed_unauthorized() {
+        Response response = notificationController.getNotificationFeed(null, null, 20, null, false, false);
+        assertEquals(Response.Status.UNAUTHORIZED.getStatusCode(), response.getStatus());
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void testGetNotificationFeed_success() {
+        try (var mocked = mockStatic(JWTUtil.class)) {
+            mocked.when(() -> JWTUtil.getUserIdFromToken(anyString())).thenReturn(2L);
+            Map<String, Object> feed = Map.of("notifications", List.of(), "hasMore", false);
+            when(notificationService.getNotificationFeed(2L, "abc", 10, NotificationType.COURSE, true, false))
+                    .thenReturn(feed);
+            Response response = notificationController.getNotificationFeed("jwt", "abc", 10, "course", true, false);
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            assertEquals(feed, ((ApiResponse) response.getEntity()).getData());
+        }
+    }
+
+    @Test
+    void testGetNotificationFeed_invalidTypeOrCursor() {
+        try (var mocked = mockStatic(JWTUtil.class)) {
+            mocked.when(() -> JWTUtil.getUserIdFromToken(anyString())).thenReturn(2L);
+            Response invalidType = notificationController.getNotificationFeed("jwt", null, 20, "nope", false, false);
+            assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), invalidType.getStatus());
+
+            when(notificationService.getNotificationFeed(2L, "bad", 20, null, false, false))
+                    .thenThrow(new IllegalArgumentException("Invalid notification feed cursor"));
+            Response invalidCursor = notificationController.getNotificationFeed("jwt", "bad", 20, null, false, false);
+            assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), invalidCursor.getStatus());
+
+            Response invalidLimit = notificationController.getNotificationFeed("jwt", null, 0, null, false, false);
+            assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), invalidLimit.getStatus());
+        }
+    }
 }
@@ -15,7 +15,17 @@ import pt.uc.dei.services.UserService;
 import pt.uc.dei.services.AppraisalService;
 import pt.uc.dei.services.CourseService;
 import pt.uc.dei.services.CycleService;
+import pt.uc.dei.services.EmailQueueService;
+import pt.uc.dei.services.PasswordHashingService;
+import pt.uc.dei.services.NotificationDispatcher;
+import pt.uc.dei.services.MessageDigestJob;
+import pt.uc.dei.services.NotificationRetentionJob;
+import pt.uc.dei.services.PrincipalCache;
 import pt.uc.dei.utils.ApiResponse;
+import pt.uc.dei.websocket.HeartbeatScheduler;
+import pt.uc.dei.websocket.WebSocketCluster;
+import pt.uc.dei.websocket.WsChat;
+import pt.uc.dei.websocket.WsNotifications;
 
 import jakarta.ws.rs.core.Response;
 
@@ -31,6 +41,16 @@ class StatsControllerTest {
     @Mock AppraisalService appraisalService;
     @Mock CourseService courseService;
     @Mock CycleService cycleService;
+    @Mock PrincipalCache principalCache;
+    @Mock PasswordHashingService passwordHashingService;
+    @Mock WsChat wsChat;
+    @Mock WsNotifications wsNotifications;
+    @Mock HeartbeatScheduler heartbeatScheduler;
+    @Mock WebSocketCluster webSocketCluster;
+    @Mock NotificationDispatcher notificationDispatcher;
+    @Mock NotificationRetentionJob notificationRetentionJob;
+    @Mock MessageDigestJob messageDigestJob;
+    @Mock EmailQueueService emailQueueService;
     @InjectMocks StatsController statsController;
 
     @BeforeEach
@@ -112,4 +132,98 @@ class StatsControllerTest {
         assertEquals(3L, stats.get("open"));
         assertEquals(5L, stats.get("closed"));
     }
+
+    @Test
+    void testGetPrincipalCacheStats() {
+        Map<String, Object> cacheStats = new HashMap<>();
+        cacheStats.put("hits", 4L);
+        cacheStats.put("misses", 1L);
+        when(principalCache.getStats()).thenReturn(cacheStats);
+        Response response = statsController.getPrincipalCacheStats();
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        ApiResponse api = (ApiResponse) response.getEntity();
+        assertTrue(api.isSuccess());
+        assertEquals(cacheStats, api.getData());
+    }
+
+    @Test
+    void testGetPasswordHashingStats() {
+        Map<String, Object> hashingStats = new HashMap<>();
+        hashingStats.put("cost", 10);
+        hashingStats.put("rejected", 0L);
+        when(passwordHashingService.getStats()).thenReturn(hashingStats);
+        Response response = statsController.getPasswordHashingStats();
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        ApiResponse api = (ApiResponse) response.getEntity();
+        assertTrue(api.isSuccess());
+        assertEquals(hashingStats, api.getData());
+    }
+
+    @Test
+    void testGetNotificationRetentionStats() {
+        Map<String, Object> retentionStats = Map.of("mode", "ARCHIVE", "archived", 12L);
+        when(notificationRetentionJob.getStats()).thenReturn(retentionStats);
+        Response response = statsController.getNotificationRetentionStats();
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(retentionStats, ((ApiResponse) response.getEntity()).getData());
+    }
+
+    @Test
+    void testGetMessageDigestStats() {
+        Map<String, Object> digestStats = Map.of("watermark", 0L, "emails", 7L);
+        when(messageDigestJob.getStats()).thenReturn(digestStats);
+        Response response = statsController.getMessageDigestStats();
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(digestStats, ((ApiResponse) response.getEntity()).getData());
+    }
+
+    @Test
+    void testGetEmailQueueStats() {
+        Map<String, Object> queueStats = Map.of("pending", 3L, "sent", 40L);
+        when(emailQueueService.getStats()).thenReturn(queueStats);
+        Response response = statsController.getEmailQueueStats();
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(queueStats, ((ApiResponse) response.getEntity()).getData());
+    }
+
+    @Test
+    void testGetEmailJobProgress() {
+        Map<String, Object> progress = Map.of("id", 7L, "sent", 2, "pending", 1);
+        when(emailQueueService.getJobProgress(7L)).thenReturn(progress);
+        Response response = statsController.getEmailJobProgress(7L);
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(progress, ((ApiResponse) response.getEntity()).getData());
+    }
+
+    @Test
+    void testGetEmailJobProgressNotFound() {
+        when(emailQueueService.getJobProgress(8L)).thenReturn(null);
+        Response response = statsController.getEmailJobProgress(8L);
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
+        assertFalse(((ApiResponse) response.getEntity()).isSuccess());
+    }
+
+    @Test
+    void testGetWebSocketStats() {
+        Map<String, Object> chatStats = new HashMap<>();
+        chatStats.put("queuedMessages", 3);
+        Map<String, Object> notificationStats = new HashMap<>();
+        notificationStats.put("evicted", 1L);
+        when(wsChat.getDeliveryStats()).thenReturn(chatStats);
+        when(wsNotifications.getDeliveryStats()).thenReturn(notificationStats);
+        Map<String, Object> heartbeatStats = Map.of("reaped", 2L);
+        when(heartbeatScheduler.getStats()).thenReturn(heartbeatStats);
+        Map<String, Object> outboxStats = Map.of("pending", 4L);
+        when(notificationDispatcher.getStats()).thenReturn(outboxStats);
+        Map<String, Object> clusterStats = Map.of("peers", 1);
+        when(webSocketCluster.getStats()).thenReturn(clusterStats);
+        Response response = statsController.getWebSocketStats();
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        Map<String, Object> stats = (Map<String, Object>) ((ApiResponse) response.getEntity()).getData();
+        assertEquals(chatStats, stats.get("chat"));
+        assertEquals(notificationStats, stats.get("notifications"));
+        assertEquals(heartbeatStats, stats.get("heartbeat"));
+        assertEquals(outboxStats, stats.get("notificationOutbox"));
+        assertEquals(clusterStats, stats.get("cluster"));
+    }
 }
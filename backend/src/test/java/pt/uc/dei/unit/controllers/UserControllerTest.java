@@ -18,6 +18,8 @@ import pt.uc.dei.services.*;
 import pt.uc.dei.utils.ApiResponse;
 import pt.uc.dei.utils.JWTUtil;
 import pt.uc.dei.mapper.FinishedCourseMapper;
+import pt.uc.dei.config.PasswordHashingUnavailableExceptionMapper;
+import pt.uc.dei.services.PasswordHashingService.PasswordHashingUnavailableException;
 
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.HttpHeaders;
@@ -112,6 +114,20 @@ class UserControllerTest {
         assertFalse(api.isSuccess());
     }
 
+    @Test
+    void testRegisterUser_hashingSaturated_returns503WithRetryAfter() {
+        TemporaryUserDTO dto = new TemporaryUserDTO();
+        dto.setEmail("new@example.com");
+        when(userService.findIfUserExists("new@example.com")).thenReturn(false);
+        when(userService.registerUser(dto)).thenThrow(new PasswordHashingUnavailableException("Password hashing queue is full"));
+        PasswordHashingUnavailableException e = assertThrows(PasswordHashingUnavailableException.class,
+                () -> userController.registerUser(dto, "en"));
+        Response response = new PasswordHashingUnavailableExceptionMapper().toResponse(e);
+        assertEquals(Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), response.getStatus());
+        assertEquals("1", response.getHeaderString("Retry-After"));
+        verifyNoInteractions(emailService);
+    }
+
     @Test
     void testRegisterUser_success() {
         TemporaryUserDTO dto = new TemporaryUserDTO();
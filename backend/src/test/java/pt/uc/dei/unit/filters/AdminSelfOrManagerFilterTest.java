@@ -9,6 +9,7 @@ import jakarta.ws.rs.core.UriInfo;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import pt.uc.dei.dtos.UserResponseDTO;
+import pt.uc.dei.services.OrgChartIndex;
 import pt.uc.dei.utils.ApiResponse;
 
 import java.util.Collections;
@@ -72,6 +73,7 @@ class AdminSelfOrManagerFilterTest {
         when(ctx.getProperty("userIsAdmin")).thenReturn(false);
 
         AdminSelfOrManagerFilter filter = new AdminSelfOrManagerFilter();
+        setField(filter, "orgChartIndex", new OrgChartIndex());
         filter.filter(ctx);
 
         ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
@@ -96,4 +98,57 @@ class AdminSelfOrManagerFilterTest {
 
         verify(ctx, never()).abortWith(any());
     }
+
+    @Test
+    void testAllowsDirectManagerAccess() {
+        ContainerRequestContext ctx = requestFor(99L, "42");
+        OrgChartIndex orgChartIndex = new OrgChartIndex();
+        orgChartIndex.setManager(42L, 99L);
+        AdminSelfOrManagerFilter filter = new AdminSelfOrManagerFilter();
+        setField(filter, "orgChartIndex", orgChartIndex);
+        filter.filter(ctx);
+
+        verify(ctx, never()).abortWith(any());
+    }
+
+    @Test
+    void testDeniesTransitiveManagerAccess() {
+        ContainerRequestContext ctx = requestFor(7L, "42");
+        OrgChartIndex orgChartIndex = new OrgChartIndex();
+        orgChartIndex.setManager(42L, 99L);
+        orgChartIndex.setManager(99L, 7L);
+        AdminSelfOrManagerFilter filter = new AdminSelfOrManagerFilter();
+        setField(filter, "orgChartIndex", orgChartIndex);
+        filter.filter(ctx);
+
+        ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+        verify(ctx).abortWith(captor.capture());
+        assertEquals(Response.Status.FORBIDDEN.getStatusCode(), captor.getValue().getStatus());
+    }
+
+    private static ContainerRequestContext requestFor(Long userId, String pathId) {
+        ContainerRequestContext ctx = mock(ContainerRequestContext.class);
+        UriInfo uriInfo = mock(UriInfo.class);
+        MultivaluedMap<String, String> pathParams = mock(MultivaluedMap.class);
+        when(ctx.getUriInfo()).thenReturn(uriInfo);
+        when(uriInfo.getPathParameters()).thenReturn(pathParams);
+        when(pathParams.getFirst("id")).thenReturn(pathId);
+
+        UserResponseDTO user = mock(UserResponseDTO.class);
+        when(user.getId()).thenReturn(userId);
+        when(ctx.getProperty("user")).thenReturn(user);
+        when(ctx.getProperty("userIsAdmin")).thenReturn(false);
+        return ctx;
+    }
+
+    // Helper for reflection field injection
+    private static void setField(Object target, String fieldName, Object value) {
+        try {
+            var field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
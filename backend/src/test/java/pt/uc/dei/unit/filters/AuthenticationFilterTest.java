@@ -17,8 +17,11 @@ import pt.uc.dei.dtos.ConfigurationDTO;
 import pt.uc.dei.dtos.UserResponseDTO;
 import pt.uc.dei.services.AuthenticationService;
 import pt.uc.dei.services.ConfigurationService;
+import pt.uc.dei.services.PrincipalCache;
+import pt.uc.dei.services.TokenVersionRegistry;
 import pt.uc.dei.utils.JWTUtil;
 
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -34,6 +37,8 @@ class AuthenticationFilterTest {
     private ConfigurationService configurationService;
     private JWTUtil jwtUtil;
     private ResourceInfo resourceInfo;
+    private PrincipalCache principalCache;
+    private TokenVersionRegistry tokenVersionRegistry;
     private ContainerRequestContext ctx;
 
     @BeforeEach
@@ -43,12 +48,16 @@ class AuthenticationFilterTest {
         jwtUtil = mock(JWTUtil.class);
         resourceInfo = mock(ResourceInfo.class);
         ctx = mock(ContainerRequestContext.class);
+        principalCache = new PrincipalCache(100, Duration.ofMinutes(1), System::nanoTime);
+        tokenVersionRegistry = new TokenVersionRegistry();
         filter = new AuthenticationFilter();
         // Inject mocks via reflection (since @Inject is not used in test)
         setField(filter, "authenticationService", authenticationService);
         setField(filter, "configurationService", configurationService);
         setField(filter, "jwtUtil", jwtUtil);
         setField(filter, "resourceInfo", resourceInfo);
+        setField(filter, "principalCache", principalCache);
+        setField(filter, "tokenVersionRegistry", tokenVersionRegistry);
     }
 
     @Test
@@ -158,6 +167,112 @@ class AuthenticationFilterTest {
         }
     }
 
+    @Test
+    void testPrincipalLoadedOnceWhileCached() {
+        Map<String, Cookie> cookies = new HashMap<>();
+        cookies.put("jwt", new Cookie("jwt", "valid"));
+        when(resourceInfo.getResourceMethod()).thenReturn(AuthenticationFilterTest.class.getMethods()[0]);
+        when(resourceInfo.getResourceClass()).thenReturn((Class) Object.class);
+        when(ctx.getCookies()).thenReturn(cookies);
+        Claims claims = mock(Claims.class);
+        when(claims.getExpiration()).thenReturn(new Date(System.currentTimeMillis() + 3600000));
+        when(claims.getSubject()).thenReturn("1");
+        try (MockedStatic<JWTUtil> jwtUtilMock = Mockito.mockStatic(JWTUtil.class)) {
+            jwtUtilMock.when(() -> JWTUtil.validateToken("valid")).thenReturn(claims);
+            UserResponseDTO user = mock(UserResponseDTO.class);
+            when(authenticationService.getSelfInformation(1L)).thenReturn(user);
+            filter.filter(ctx);
+            filter.filter(ctx);
+            verify(authenticationService, times(1)).getSelfInformation(1L);
+            verify(ctx, times(2)).setProperty(eq("user"), eq(user));
+
+            principalCache.invalidate(1L);
+            filter.filter(ctx);
+            verify(authenticationService, times(2)).getSelfInformation(1L);
+        }
+    }
+
+    @Test
+    void testClaimsOnlyModeSkipsUserLookup() {
+        setField(filter, "claimsOnly", true);
+        Map<String, Cookie> cookies = new HashMap<>();
+        cookies.put("jwt", new Cookie("jwt", "valid"));
+        when(resourceInfo.getResourceMethod()).thenReturn(AuthenticationFilterTest.class.getMethods()[0]);
+        when(resourceInfo.getResourceClass()).thenReturn((Class) Object.class);
+        when(ctx.getCookies()).thenReturn(cookies);
+        Claims claims = mock(Claims.class);
+        when(claims.getExpiration()).thenReturn(new Date(System.currentTimeMillis() + 3600000));
+        when(claims.getSubject()).thenReturn("1");
+        when(claims.get("userIsAdmin", Boolean.class)).thenReturn(true);
+        when(claims.get("userIsManager", Boolean.class)).thenReturn(false);
+        when(claims.get("accountState")).thenReturn("COMPLETE");
+        try (MockedStatic<JWTUtil> jwtUtilMock = Mockito.mockStatic(JWTUtil.class)) {
+            jwtUtilMock.when(() -> JWTUtil.validateToken("valid")).thenReturn(claims);
+            filter.filter(ctx);
+            verify(authenticationService, never()).getSelfInformation(any());
+            verify(ctx).setProperty(eq("userIsAdmin"), eq(true));
+            verify(ctx).setProperty(eq("userIsManager"), eq(false));
+            verify(ctx).setProperty(eq("user"), argThat(u -> ((UserResponseDTO) u).getId() == 1L));
+            verify(ctx, never()).abortWith(any());
+        }
+    }
+
+    @Test
+    void testStaleTokenOfActiveUserIsReissued() {
+        setField(filter, "claimsOnly", true);
+        tokenVersionRegistry.update(1L, 2);
+        Map<String, Cookie> cookies = new HashMap<>();
+        cookies.put("jwt", new Cookie("jwt", "valid"));
+        when(resourceInfo.getResourceMethod()).thenReturn(AuthenticationFilterTest.class.getMethods()[0]);
+        when(resourceInfo.getResourceClass()).thenReturn((Class) Object.class);
+        when(ctx.getCookies()).thenReturn(cookies);
+        Claims claims = mock(Claims.class);
+        when(claims.getExpiration()).thenReturn(new Date(System.currentTimeMillis() + 3600000));
+        when(claims.getSubject()).thenReturn("1");
+        when(claims.get("tokenVersion", Integer.class)).thenReturn(1);
+        try (MockedStatic<JWTUtil> jwtUtilMock = Mockito.mockStatic(JWTUtil.class)) {
+            jwtUtilMock.when(() -> JWTUtil.validateToken("valid")).thenReturn(claims);
+            UserResponseDTO user = new UserResponseDTO();
+            user.setId(1L);
+            user.setUserIsAdmin(false);
+            user.setUserIsDeleted(false);
+            when(authenticationService.getSelfInformation(1L)).thenReturn(user);
+            ConfigurationDTO config = mock(ConfigurationDTO.class);
+            when(config.getLoginTime()).thenReturn(60);
+            when(configurationService.getLatestConfiguration()).thenReturn(config);
+            when(jwtUtil.generateToken(user)).thenReturn("newToken");
+            filter.filter(ctx);
+            verify(authenticationService).getSelfInformation(1L);
+            verify(ctx).setProperty(eq("user"), eq(user));
+            verify(ctx).setProperty(eq("newCookie"), any(NewCookie.class));
+            verify(ctx, never()).abortWith(any());
+        }
+    }
+
+    @Test
+    void testStaleTokenOfDeletedUserIsRejected() {
+        tokenVersionRegistry.update(1L, 1);
+        Map<String, Cookie> cookies = new HashMap<>();
+        cookies.put("jwt", new Cookie("jwt", "valid"));
+        when(resourceInfo.getResourceMethod()).thenReturn(AuthenticationFilterTest.class.getMethods()[0]);
+        when(resourceInfo.getResourceClass()).thenReturn((Class) Object.class);
+        when(ctx.getCookies()).thenReturn(cookies);
+        Claims claims = mock(Claims.class);
+        when(claims.getExpiration()).thenReturn(new Date(System.currentTimeMillis() + 3600000));
+        when(claims.getSubject()).thenReturn("1");
+        try (MockedStatic<JWTUtil> jwtUtilMock = Mockito.mockStatic(JWTUtil.class)) {
+            jwtUtilMock.when(() -> JWTUtil.validateToken("valid")).thenReturn(claims);
+            UserResponseDTO user = new UserResponseDTO();
+            user.setId(1L);
+            user.setUserIsDeleted(true);
+            when(authenticationService.getSelfInformation(1L)).thenReturn(user);
+            filter.filter(ctx);
+            verify(ctx).abortWith(argThat(
+                    response -> ((Response) response).getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()));
+            verify(ctx, never()).setProperty(eq("user"), any());
+        }
+    }
+
     // Helper for reflection field injection
     private static void setField(Object target, String fieldName, Object value) {
         try {
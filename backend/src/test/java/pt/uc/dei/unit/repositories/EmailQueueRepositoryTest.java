@@ -0,0 +1,135 @@
+package pt.uc.dei.unit.repositories;
+
+import org.junit.jupiter.api.*;
+import pt.uc.dei.entities.EmailJobEntity;
+import pt.uc.dei.entities.QueuedEmailEntity;
+import pt.uc.dei.enums.EmailJobType;
+import pt.uc.dei.enums.QueuedEmailState;
+import pt.uc.dei.repositories.EmailQueueRepository;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailQueueRepositoryTest {
+    private static EntityManagerFactory emf;
+    private EntityManager em;
+    private EmailQueueRepository repository;
+
+    @BeforeAll
+    static void setupClass() {
+        emf = Persistence.createEntityManagerFactory("test-unit");
+    }
+
+    @AfterAll
+    static void tearDownClass() {
+        if (emf != null) emf.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        em = emf.createEntityManager();
+        repository = new EmailQueueRepository();
+        // Inject EntityManager via reflection
+        try {
+            var field = repository.getClass().getSuperclass().getDeclaredField("em");
+            field.setAccessible(true);
+            field.set(repository, em);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        em.getTransaction().begin();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (em.getTransaction().isActive()) {
+            em.getTransaction().rollback();
+        }
+        em.close();
+    }
+
+    private EmailJobEntity createJob(int total) {
+        EmailJobEntity job = new EmailJobEntity();
+        job.setType(EmailJobType.CYCLE_OPEN);
+        job.setDescription("Cycle 1");
+        job.setTotalEmails(total);
+        job.setCreatedAt(LocalDateTime.now());
+        repository.persistJob(job);
+        return job;
+    }
+
+    private QueuedEmailEntity createEmail(EmailJobEntity job, QueuedEmailState state, LocalDateTime nextAttempt) {
+        QueuedEmailEntity email = new QueuedEmailEntity("user@example.com", "CITRUS - test", "<p>Olá</p>");
+        email.setJob(job);
+        email.setState(state);
+        email.setCreatedAt(LocalDateTime.now());
+        email.setNextAttempt(nextAttempt);
+        em.persist(email);
+        return email;
+    }
+
+    @Test
+    void testClaimDueEmails_OnlyPendingAndDue() {
+        EmailJobEntity job = createJob(4);
+        LocalDateTime now = LocalDateTime.now();
+        QueuedEmailEntity due = createEmail(job, QueuedEmailState.PENDING, now.minusMinutes(1));
+        createEmail(job, QueuedEmailState.PENDING, now.plusMinutes(5));
+        createEmail(job, QueuedEmailState.SENT, now.minusMinutes(1));
+        createEmail(job, QueuedEmailState.FAILED, now.minusMinutes(1));
+        em.flush();
+
+        List<QueuedEmailEntity> claimed = repository.claimDueEmails(now, 10);
+
+        assertEquals(1, claimed.size());
+        assertEquals(due.getId(), claimed.get(0).getId());
+        assertEquals(2, repository.countPendingEmails());
+    }
+
+    @Test
+    void testClaimDueEmails_OldestFirstUpToLimit() {
+        EmailJobEntity job = createJob(3);
+        LocalDateTime now = LocalDateTime.now();
+        QueuedEmailEntity first = createEmail(job, QueuedEmailState.PENDING, now.minusSeconds(1));
+        QueuedEmailEntity second = createEmail(job, QueuedEmailState.PENDING, now.minusSeconds(1));
+        createEmail(job, QueuedEmailState.PENDING, now.minusSeconds(1));
+        em.flush();
+
+        List<QueuedEmailEntity> claimed = repository.claimDueEmails(now, 2);
+
+        assertEquals(List.of(first.getId(), second.getId()), claimed.stream().map(QueuedEmailEntity::getId).toList());
+    }
+
+    @Test
+    void testJobProgressAndCompletion() {
+        EmailJobEntity job = createJob(3);
+        em.flush();
+
+        repository.addJobProgress(job.getId(), 2, 0);
+        assertEquals(0, repository.completeFinishedJobs(List.of(job.getId()), LocalDateTime.now()));
+
+        repository.addJobProgress(job.getId(), 0, 1);
+        assertEquals(1, repository.completeFinishedJobs(List.of(job.getId()), LocalDateTime.now()));
+        em.clear();
+
+        EmailJobEntity found = repository.findJob(job.getId());
+        assertEquals(2, found.getSentEmails());
+        assertEquals(1, found.getFailedEmails());
+        assertNotNull(found.getCompletedAt());
+        // Already complete
+        assertEquals(0, repository.completeFinishedJobs(List.of(job.getId()), LocalDateTime.now()));
+    }
+
+    @Test
+    void testFindRecentJobs_NewestFirst() {
+        EmailJobEntity older = createJob(1);
+        EmailJobEntity newer = createJob(1);
+        em.flush();
+
+        List<EmailJobEntity> jobs = repository.findRecentJobs(1);
+
+        assertEquals(1, jobs.size());
+        assertEquals(newer.getId(), jobs.get(0).getId());
+        assertNotEquals(older.getId(), jobs.get(0).getId());
+    }
+}
@@ -1,11 +1,13 @@
 package pt.uc.dei.unit.repositories;
 
 import org.junit.jupiter.api.*;
+import pt.uc.dei.entities.NotificationArchiveEntity;
 import pt.uc.dei.entities.NotificationEntity;
 import pt.uc.dei.entities.UserEntity;
 import pt.uc.dei.enums.AccountState;
 import pt.uc.dei.enums.Role;
 import pt.uc.dei.enums.Office;
+import pt.uc.dei.enums.NotificationDeliveryState;
 import pt.uc.dei.enums.NotificationType;
 import pt.uc.dei.repositories.NotificationRepository;
 import jakarta.persistence.*;
@@ -133,20 +135,6 @@ class NotificationRepositoryTest {
         assertNull(found);
     }
 
-    @Test
-    void testGetTotalNotifications_Positive() {
-        createNotification(userA, userB, NotificationType.MESSAGE, false, false, false, 1, "Test", LocalDateTime.now());
-        em.flush();
-        int total = repository.getTotalNotifications(userA.getId());
-        assertTrue(total > 0);
-    }
-
-    @Test
-    void testGetTotalNotifications_Negative() {
-        int total = repository.getTotalNotifications(-1L);
-        assertEquals(0, total);
-    }
-
     @Test
     void testReadNotification_Positive() {
         NotificationEntity n = createNotification(userA, userB, NotificationType.MESSAGE, false, false, false, 1, "Test", LocalDateTime.now());
@@ -184,16 +172,262 @@ class NotificationRepositoryTest {
     }
 
     @Test
-    void testGetUnemailedMessageNotifications_Positive() {
-        createNotification(userA, userB, NotificationType.MESSAGE, false, false, false, 1, "Test", LocalDateTime.now().minusDays(2));
+    void testMarkUnreadMessageNotificationsAsRead_ReturnsCount() {
+        createNotification(userA, userB, NotificationType.MESSAGE, false, false, false, 1, "1", LocalDateTime.now());
+        createNotification(userA, userB, NotificationType.MESSAGE, true, false, false, 1, "2", LocalDateTime.now());
+        createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "3", LocalDateTime.now());
         em.flush();
-        List<NotificationEntity> notifications = repository.getUnemailedMessageNotifications();
-        assertFalse(notifications.isEmpty());
+        assertEquals(1, repository.markUnreadMessageNotificationsAsRead(userA.getId()));
+        assertEquals(0, repository.markUnreadMessageNotificationsAsRead(userA.getId()));
     }
 
     @Test
-    void testGetUnemailedMessageNotifications_Negative() {
-        List<NotificationEntity> notifications = repository.getUnemailedMessageNotifications();
-        assertTrue(notifications.isEmpty());
+    void testInsertBroadcast_CreatesOneRowPerExistingRecipient() {
+        UserEntity userC = createUser("userC@example.com", "UserC", Role.SOFTWARE_ENGINEER);
+        em.flush();
+        LocalDateTime creationDate = LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.MILLIS);
+
+        int inserted = repository.insertBroadcast(NotificationType.CYCLE_OPEN, "2026-12-31", userB.getId(),
+                List.of(userA.getId(), userC.getId(), -1L), creationDate);
+
+        assertEquals(2, inserted);
+        em.clear();
+        List<NotificationEntity> rows = em.createQuery(
+                        "SELECT n FROM NotificationEntity n WHERE n.sender.id = :senderId ORDER BY n.user.id",
+                        NotificationEntity.class)
+                .setParameter("senderId", userB.getId())
+                .getResultList();
+        assertEquals(List.of(userA.getId(), userC.getId()), rows.stream().map(n -> n.getUser().getId()).toList());
+        NotificationEntity created = rows.get(0);
+        assertEquals("2026-12-31", created.getContent());
+        assertEquals(userB.getId(), created.getSender().getId());
+        assertFalse(created.getNotificationIsRead());
+        assertFalse(created.getNotificationIsSeen());
+        assertEquals(0, created.getMessageCount());
+        assertEquals(NotificationDeliveryState.PENDING, created.getDeliveryState());
+    }
+
+    @Test
+    void testInsertBroadcast_NoRecipients() {
+        assertEquals(0, repository.insertBroadcast(NotificationType.CYCLE_OPEN, "x", userB.getId(), List.of(), LocalDateTime.now()));
+    }
+
+    @Test
+    void testGetNotificationsAfter_ReturnsOnlyNewerOldestFirst() {
+        NotificationEntity first = createNotification(userA, userB, NotificationType.APPRAISAL, false, false, false, 0, "1", LocalDateTime.now());
+        NotificationEntity second = createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "2", LocalDateTime.now());
+        NotificationEntity third = createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "3", LocalDateTime.now());
+        createNotification(userB, userA, NotificationType.COURSE, false, false, false, 0, "other user", LocalDateTime.now());
+        em.flush();
+
+        List<NotificationEntity> after = repository.getNotificationsAfter(userA.getId(), first.getId(), 10);
+        assertEquals(List.of(second.getId(), third.getId()), after.stream().map(NotificationEntity::getId).toList());
+        assertEquals(1, repository.getNotificationsAfter(userA.getId(), first.getId(), 1).size());
+        assertTrue(repository.getNotificationsAfter(userA.getId(), third.getId(), 10).isEmpty());
+    }
+
+    @Test
+    void testGetLatestNotifications_NewestFirst() {
+        createNotification(userA, userB, NotificationType.APPRAISAL, false, false, false, 0, "1", LocalDateTime.now());
+        NotificationEntity second = createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "2", LocalDateTime.now());
+        NotificationEntity third = createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "3", LocalDateTime.now());
+        em.flush();
+
+        List<NotificationEntity> latest = repository.getLatestNotifications(userA.getId(), 2);
+        assertEquals(List.of(third.getId(), second.getId()), latest.stream().map(NotificationEntity::getId).toList());
+    }
+
+    @Test
+    void testGetUnseenNotifications() {
+        NotificationEntity unseen = createNotification(userA, userB, NotificationType.MESSAGE, false, false, false, 2, "Hi", LocalDateTime.now());
+        createNotification(userA, userB, NotificationType.MESSAGE, true, true, false, 0, "Seen", LocalDateTime.now());
+        NotificationEntity course = createNotification(userA, userB, NotificationType.COURSE, false, false, false, 3, "Course", LocalDateTime.now());
+        createNotification(userA, userB, NotificationType.CYCLE_OPEN, false, false, false, 0, "Cycle", LocalDateTime.now());
+        em.flush();
+
+        List<NotificationEntity> result = repository.getUnseenNotifications(userA.getId(), List.of(NotificationType.MESSAGE));
+        assertEquals(List.of(unseen.getId()), result.stream().map(NotificationEntity::getId).toList());
+        result = repository.getUnseenNotifications(userA.getId(), List.of(NotificationType.MESSAGE, NotificationType.COURSE));
+        assertEquals(List.of(unseen.getId(), course.getId()), result.stream().map(NotificationEntity::getId).toList());
+        assertTrue(repository.getUnseenNotifications(userA.getId(), List.of()).isEmpty());
+    }
+
+    @Test
+    void testClaimPendingDeliveries_OnlyDueOldestFirst() {
+        NotificationEntity first = createNotification(userA, userB, NotificationType.APPRAISAL, false, false, false, 0, "1", LocalDateTime.now());
+        NotificationEntity second = createNotification(userB, userA, NotificationType.COURSE, false, false, false, 0, "2", LocalDateTime.now());
+        NotificationEntity retryLater = createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "3", LocalDateTime.now());
+        retryLater.setNextDeliveryAttempt(LocalDateTime.now().plusMinutes(1));
+        NotificationEntity delivered = createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "4", LocalDateTime.now());
+        delivered.setDeliveryState(NotificationDeliveryState.DELIVERED);
+        NotificationEntity untracked = createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "5", LocalDateTime.now());
+        untracked.setDeliveryState(null);
+        em.flush();
+
+        List<NotificationEntity> claimed = repository.claimPendingDeliveries(LocalDateTime.now(), 10);
+        assertEquals(List.of(first.getId(), second.getId()), claimed.stream().map(NotificationEntity::getId).toList());
+        assertEquals(1, repository.claimPendingDeliveries(LocalDateTime.now(), 1).size());
+        assertEquals(3, repository.claimPendingDeliveries(LocalDateTime.now().plusMinutes(2), 10).size());
+    }
+
+    @Test
+    void testUpdateDeliveryState_AndCountPending() {
+        NotificationEntity first = createNotification(userA, userB, NotificationType.APPRAISAL, false, false, false, 0, "1", LocalDateTime.now());
+        NotificationEntity second = createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "2", LocalDateTime.now());
+        createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "3", LocalDateTime.now());
+        em.flush();
+        assertEquals(3, repository.countPendingDeliveries());
+
+        assertEquals(1, repository.updateDeliveryState(List.of(first.getId()), NotificationDeliveryState.DELIVERED));
+        assertEquals(1, repository.updateDeliveryState(List.of(second.getId()), NotificationDeliveryState.OFFLINE));
+        assertEquals(0, repository.updateDeliveryState(List.of(), NotificationDeliveryState.DELIVERED));
+        em.clear();
+
+        assertEquals(1, repository.countPendingDeliveries());
+        assertEquals(NotificationDeliveryState.DELIVERED, em.find(NotificationEntity.class, first.getId()).getDeliveryState());
+        assertEquals(NotificationDeliveryState.OFFLINE, em.find(NotificationEntity.class, second.getId()).getDeliveryState());
+    }
+
+    @Test
+    void testGetNotificationFeed_SeeksByCreationDateAndId() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.MILLIS);
+        NotificationEntity oldest = createNotification(userA, userB, NotificationType.APPRAISAL, true, true, false, 0, "1", now.minusHours(2));
+        NotificationEntity tiedFirst = createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "2", now);
+        NotificationEntity tiedSecond = createNotification(userA, userB, NotificationType.COURSE, false, true, false, 0, "3", now);
+        createNotification(userB, userA, NotificationType.COURSE, false, false, false, 0, "other user", now);
+        em.flush();
+
+        List<NotificationEntity> first = repository.getNotificationFeed(userA.getId(), null, null, null, false, false, 2);
+        assertEquals(List.of(tiedSecond.getId(), tiedFirst.getId()), first.stream().map(NotificationEntity::getId).toList());
+
+        NotificationEntity last = first.get(1);
+        List<NotificationEntity> second = repository.getNotificationFeed(userA.getId(), last.getCreationDate(), last.getId(),
+                null, false, false, 2);
+        assertEquals(List.of(oldest.getId()), second.stream().map(NotificationEntity::getId).toList());
+    }
+
+    @Test
+    void testGetNotificationFeed_Filters() {
+        LocalDateTime now = LocalDateTime.now();
+        NotificationEntity read = createNotification(userA, userB, NotificationType.APPRAISAL, true, true, false, 0, "1", now);
+        NotificationEntity unseen = createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "2", now);
+        NotificationEntity seenUnread = createNotification(userA, userB, NotificationType.COURSE, false, true, false, 0, "3", now);
+        em.flush();
+
+        assertEquals(List.of(read.getId()), repository.getNotificationFeed(userA.getId(), null, null,
+                NotificationType.APPRAISAL, false, false, 10).stream().map(NotificationEntity::getId).toList());
+        assertEquals(List.of(seenUnread.getId(), unseen.getId()), repository.getNotificationFeed(userA.getId(), null, null,
+                null, true, false, 10).stream().map(NotificationEntity::getId).toList());
+        assertEquals(List.of(unseen.getId()), repository.getNotificationFeed(userA.getId(), null, null,
+                NotificationType.COURSE, true, true, 10).stream().map(NotificationEntity::getId).toList());
+    }
+
+    @Test
+    void testLockRetentionCandidates_OnlyOldReadAndSeenInIdOrder() {
+        LocalDateTime old = LocalDateTime.now().minusDays(100);
+        NotificationEntity first = createNotification(userA, userB, NotificationType.APPRAISAL, true, true, false, 0, "1", old);
+        NotificationEntity second = createNotification(userB, userA, NotificationType.COURSE, true, true, false, 0, "2", old);
+        second.setDeliveryState(NotificationDeliveryState.DELIVERED);
+        NotificationEntity unread = createNotification(userA, userB, NotificationType.COURSE, false, true, false, 0, "3", old);
+        unread.setDeliveryState(NotificationDeliveryState.OFFLINE);
+        NotificationEntity unseen = createNotification(userA, userB, NotificationType.COURSE, true, false, false, 0, "4", old);
+        unseen.setDeliveryState(NotificationDeliveryState.OFFLINE);
+        NotificationEntity recent = createNotification(userA, userB, NotificationType.COURSE, true, true, false, 0, "5", LocalDateTime.now());
+        recent.setDeliveryState(NotificationDeliveryState.DELIVERED);
+        em.flush();
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(90);
+        // first is still waiting for delivery
+        assertEquals(List.of(second.getId()), repository.lockRetentionCandidates(cutoff, 0, 10));
+        first.setDeliveryState(NotificationDeliveryState.DELIVERED);
+        em.flush();
+        assertEquals(List.of(first.getId()), repository.lockRetentionCandidates(cutoff, 0, 1));
+        assertEquals(List.of(second.getId()), repository.lockRetentionCandidates(cutoff, first.getId(), 1));
+    }
+
+    @Test
+    void testArchiveAndDeleteNotifications() {
+        LocalDateTime created = LocalDateTime.now().minusDays(100).truncatedTo(java.time.temporal.ChronoUnit.MILLIS);
+        NotificationEntity archived = createNotification(userA, userB, NotificationType.APPRAISAL, true, true, false, 2, "5", created);
+        NotificationEntity kept = createNotification(userA, userB, NotificationType.COURSE, true, true, false, 0, "7", created);
+        em.flush();
+
+        LocalDateTime archivedAt = LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.MILLIS);
+        assertEquals(1, repository.archiveNotifications(List.of(archived.getId()), archivedAt));
+        assertEquals(1, repository.deleteNotifications(List.of(archived.getId())));
+        assertEquals(0, repository.deleteNotifications(List.of()));
+        em.clear();
+
+        assertNull(em.find(NotificationEntity.class, archived.getId()));
+        assertNotNull(em.find(NotificationEntity.class, kept.getId()));
+        NotificationArchiveEntity copy = em.find(NotificationArchiveEntity.class, archived.getId());
+        assertEquals(userA.getId(), copy.getUserId());
+        assertEquals(userB.getId(), copy.getSenderId());
+        assertEquals(NotificationType.APPRAISAL, copy.getType());
+        assertEquals("5", copy.getContent());
+        assertEquals(created, copy.getCreationDate());
+        assertEquals(2, copy.getMessageCount());
+        assertEquals(archivedAt, copy.getArchivedAt());
+    }
+
+    @Test
+    void testFindCoalescibleNotification_NewestUnreadUnseenWithinWindow() {
+        LocalDateTime now = LocalDateTime.now();
+        createNotification(userA, userB, NotificationType.APPRAISAL, false, false, false, 0, "old", now.minusMinutes(5));
+        NotificationEntity recent = createNotification(userA, userB, NotificationType.APPRAISAL, false, false, false, 0, "recent", now.minusSeconds(10));
+        createNotification(userA, userB, NotificationType.APPRAISAL, true, true, false, 0, "read", now);
+        createNotification(userA, userB, NotificationType.COURSE, false, false, false, 0, "other type", now);
+        createNotification(userA, userA, NotificationType.APPRAISAL, false, false, false, 0, "other sender", now);
+        em.flush();
+
+        NotificationEntity found = repository.findCoalescibleNotification(userA.getId(), NotificationType.APPRAISAL,
+                userB.getId(), now.minusMinutes(1));
+        assertEquals(recent.getId(), found.getId());
+        assertNull(repository.findCoalescibleNotification(userB.getId(), NotificationType.APPRAISAL,
+                userA.getId(), now.minusMinutes(1)));
+    }
+
+    @Test
+    void testFindDigestRecipients_UnreadUnemailedMessagesBeforeCutoffByRecipient() {
+        UserEntity userC = createUser("userC@example.com", "UserC", Role.SOFTWARE_ENGINEER);
+        LocalDateTime old = LocalDateTime.now().minusDays(2);
+        createNotification(userA, userB, NotificationType.MESSAGE, false, false, false, 1, "1", old);
+        createNotification(userA, userC, NotificationType.MESSAGE, false, false, false, 3, "2", old);
+        createNotification(userC, userA, NotificationType.MESSAGE, false, false, false, 1, "3", old);
+        createNotification(userB, userA, NotificationType.MESSAGE, false, false, true, 1, "emailed", old);
+        createNotification(userB, userA, NotificationType.MESSAGE, true, true, false, 1, "read", old);
+        createNotification(userB, userA, NotificationType.APPRAISAL, false, false, false, 0, "other type", old);
+        createNotification(userB, userA, NotificationType.MESSAGE, false, false, false, 1, "recent", LocalDateTime.now());
+        em.flush();
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(1);
+        assertEquals(List.of(userA.getId(), userC.getId()), repository.findDigestRecipients(cutoff, 0, 10));
+        assertEquals(List.of(userA.getId()), repository.findDigestRecipients(cutoff, 0, 1));
+        assertEquals(List.of(userC.getId()), repository.findDigestRecipients(cutoff, userA.getId(), 10));
+    }
+
+    @Test
+    void testLockFindAndMarkDigestNotifications() {
+        UserEntity userC = createUser("userC@example.com", "UserC", Role.SOFTWARE_ENGINEER);
+        LocalDateTime old = LocalDateTime.now().minusDays(2);
+        NotificationEntity first = createNotification(userA, userB, NotificationType.MESSAGE, false, false, false, 1, "1", old);
+        NotificationEntity second = createNotification(userA, userC, NotificationType.MESSAGE, false, false, false, 3, "2", old);
+        NotificationEntity other = createNotification(userC, userA, NotificationType.MESSAGE, false, false, false, 1, "3", old);
+        em.flush();
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(1);
+        List<Long> ids = repository.lockDigestNotifications(List.of(userA.getId()), cutoff);
+        assertEquals(List.of(first.getId(), second.getId()), ids.stream().sorted().toList());
+
+        List<NotificationEntity> found = repository.findWithUsers(ids);
+        assertEquals(List.of(first.getId(), second.getId()), found.stream().map(NotificationEntity::getId).toList());
+        assertEquals("UserC", found.get(1).getSender().getName());
+
+        assertEquals(2, repository.markEmailSent(ids));
+        em.clear();
+        assertTrue(em.find(NotificationEntity.class, first.getId()).getEmailSent());
+        assertFalse(em.find(NotificationEntity.class, other.getId()).getEmailSent());
+        assertTrue(repository.findDigestRecipients(cutoff, 0, 10).contains(userC.getId()));
+        assertFalse(repository.findDigestRecipients(cutoff, 0, 10).contains(userA.getId()));
     }
 }
@@ -1,6 +1,7 @@
 package pt.uc.dei.unit.repositories;
 
 import org.junit.jupiter.api.*;
+import pt.uc.dei.entities.NotificationEntity;
 import pt.uc.dei.entities.UserEntity;
 import pt.uc.dei.enums.*;
 import pt.uc.dei.repositories.UserRepository;
@@ -174,4 +175,89 @@ class UserRepositoryTest {
         assertNotNull(users);
         assertTrue(users.stream().anyMatch(u -> u.getUserIsAdmin() || u.getUserIsManager()));
     }
+
+    @Test
+    void testUpdatePresence_UpdatesOnlyGivenUsers() {
+        UserEntity online = createUser("presence1@example.com", "P1", "Test", Role.SOFTWARE_ENGINEER, Office.LISBON, AccountState.COMPLETE, false, false, false);
+        UserEntity untouched = createUser("presence2@example.com", "P2", "Test", Role.SOFTWARE_ENGINEER, Office.LISBON, AccountState.COMPLETE, false, false, false);
+        em.flush();
+        LocalDateTime seen = LocalDateTime.of(2025, 1, 1, 12, 0);
+        int updated = repository.updatePresence(List.of(online.getId()), true, seen);
+        em.clear();
+        assertEquals(1, updated);
+        UserEntity reloaded = em.find(UserEntity.class, online.getId());
+        assertTrue(reloaded.getOnlineStatus());
+        assertEquals(seen, reloaded.getLastSeen());
+        assertFalse(em.find(UserEntity.class, untouched.getId()).getOnlineStatus());
+    }
+
+    @Test
+    void testUpdatePresence_EmptyIsNoOp() {
+        assertEquals(0, repository.updatePresence(List.of(), true, LocalDateTime.now()));
+    }
+
+    @Test
+    void testResetOnlineStatus() {
+        UserEntity user = createUser("presence3@example.com", "P3", "Test", Role.SOFTWARE_ENGINEER, Office.LISBON, AccountState.COMPLETE, false, false, false);
+        user.setOnlineStatus(true);
+        UserEntity other = createUser("presence4@example.com", "P4", "Test", Role.SOFTWARE_ENGINEER, Office.LISBON, AccountState.COMPLETE, false, false, false);
+        other.setOnlineStatus(true);
+        em.flush();
+        assertTrue(repository.findOnlineUserIds().containsAll(List.of(user.getId(), other.getId())));
+        assertEquals(1, repository.resetOnlineStatus(List.of(user.getId())));
+        assertEquals(0, repository.resetOnlineStatus(List.of()));
+        em.clear();
+        assertFalse(em.find(UserEntity.class, user.getId()).getOnlineStatus());
+        assertTrue(em.find(UserEntity.class, other.getId()).getOnlineStatus());
+    }
+
+    @Test
+    void testNotificationCounters_InitAdjustAndRead() {
+        UserEntity user = createUser("counters1@example.com", "C1", "Test", Role.SOFTWARE_ENGINEER, Office.LISBON, AccountState.COMPLETE, false, false, false);
+        UserEntity sender = createUser("counters2@example.com", "C2", "Test", Role.SOFTWARE_ENGINEER, Office.LISBON, AccountState.COMPLETE, false, false, false);
+        for (boolean read : new boolean[]{false, false, true}) {
+            NotificationEntity notification = new NotificationEntity();
+            notification.setUser(user);
+            notification.setSender(sender);
+            notification.setType(NotificationType.COURSE);
+            notification.setContent("1");
+            notification.setCreationDate(LocalDateTime.now());
+            notification.setNotificationIsRead(read);
+            notification.setNotificationIsSeen(read);
+            notification.setMessageCount(0);
+            em.persist(notification);
+        }
+        em.flush();
+
+        // Never counted: left alone by adjustments and missing from reads
+        assertEquals(0, repository.adjustNotificationCounters(List.of(user.getId()), 1, 1));
+        assertTrue(repository.findNotificationCounters(List.of(user.getId())).isEmpty());
+
+        assertTrue(repository.initNotificationCounters(user.getId()));
+        assertFalse(repository.initNotificationCounters(user.getId()));
+        assertArrayEquals(new int[]{2, 2}, repository.findNotificationCounters(List.of(user.getId())).get(user.getId()));
+
+        assertEquals(1, repository.adjustNotificationCounters(List.of(user.getId(), -1L), 1, -1));
+        assertArrayEquals(new int[]{3, 1}, repository.findNotificationCounters(List.of(user.getId())).get(user.getId()));
+
+        repository.adjustNotificationCounters(List.of(user.getId()), -10, -10);
+        assertArrayEquals(new int[]{0, 0}, repository.findNotificationCounters(List.of(user.getId())).get(user.getId()));
+    }
+
+    @Test
+    void testNotificationCounters_NotOverwrittenByDirtyManagedUser() {
+        UserEntity user = createUser("counters3@example.com", "C3", "Test", Role.SOFTWARE_ENGINEER, Office.LISBON, AccountState.COMPLETE, false, false, false);
+        em.flush();
+        repository.initNotificationCounters(user.getId());
+        repository.adjustNotificationCounters(List.of(user.getId()), 2, 2);
+
+        // The managed user still holds the counters it was loaded with; changing it must not write them back
+        user.setName("Renamed");
+        em.flush();
+        em.clear();
+
+        UserEntity reloaded = em.find(UserEntity.class, user.getId());
+        assertEquals("Renamed", reloaded.getName());
+        assertArrayEquals(new int[]{2, 2}, repository.findNotificationCounters(List.of(user.getId())).get(user.getId()));
+    }
 }
@@ -9,6 +9,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import pt.uc.dei.dtos.*;
 import pt.uc.dei.entities.*;
@@ -18,6 +19,7 @@ import pt.uc.dei.repositories.AppraisalRepository;
 import pt.uc.dei.repositories.CycleRepository;
 import pt.uc.dei.repositories.UserRepository;
 import pt.uc.dei.services.AppraisalService;
+import pt.uc.dei.services.OrgChartIndex;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -36,6 +38,8 @@ class AppraisalServiceTest {
     private CycleRepository cycleRepository;
     @Mock
     private AppraisalMapper appraisalMapper;
+    @Spy
+    private OrgChartIndex orgChartIndex = new OrgChartIndex();
 
     @InjectMocks
     private AppraisalService appraisalService;
@@ -236,23 +240,23 @@ class AppraisalServiceTest {
     class CheckIfManagerOfUser {
         @Test
         void returnsTrueIfManagerMatches() {
-            when(appraisalRepository.find(100L)).thenReturn(appraisalEntity);
-            appraisalEntity.setAppraisingUser(appraisingUser);
+            when(appraisalRepository.findAppraisedUserId(100L)).thenReturn(1L);
+            orgChartIndex.setManager(1L, 2L);
             boolean result = appraisalService.checkIfManagerOfUser(100L, 2L);
             assertTrue(result);
         }
 
         @Test
         void returnsFalseIfManagerDoesNotMatch() {
-            when(appraisalRepository.find(100L)).thenReturn(appraisalEntity);
-            appraisalEntity.setAppraisingUser(appraisedUser); // id=1L
+            when(appraisalRepository.findAppraisedUserId(100L)).thenReturn(1L);
+            orgChartIndex.setManager(1L, 3L);
             boolean result = appraisalService.checkIfManagerOfUser(100L, 2L);
             assertFalse(result);
         }
 
         @Test
         void returnsFalseIfAppraisalNotFound() {
-            when(appraisalRepository.find(100L)).thenReturn(null);
+            when(appraisalRepository.findAppraisedUserId(100L)).thenReturn(null);
             boolean result = appraisalService.checkIfManagerOfUser(100L, 2L);
             assertFalse(result);
         }
@@ -15,8 +15,9 @@ import pt.uc.dei.enums.AccountState;
 import pt.uc.dei.mapper.UserMapper;
 import pt.uc.dei.repositories.*;
 import pt.uc.dei.services.AuthenticationService;
+import pt.uc.dei.services.PasswordHashingService;
+import pt.uc.dei.services.PresenceService;
 import pt.uc.dei.utils.JWTUtil;
-import pt.uc.dei.utils.PasswordUtils;
 import pt.uc.dei.utils.TwoFactorUtil;
 
 import java.time.LocalDateTime;
@@ -32,6 +33,8 @@ class AuthenticationServiceTest {
     @Mock UserMapper userMapper;
     @Mock ActivationTokenRepository activationTokenRepository;
     @Mock PasswordResetTokenRepository passwordResetTokenRepository;
+    @Mock PasswordHashingService passwordHashingService;
+    @Mock PresenceService presenceService;
     @InjectMocks AuthenticationService authenticationService;
 
     private UserEntity user;
@@ -87,11 +90,30 @@ class AuthenticationServiceTest {
         @Test
         void returnsNullOnInvalidPassword() {
             when(userRepository.findUserByEmail("test@example.com")).thenReturn(user);
-            try (var passwordUtilsMock = mockStatic(PasswordUtils.class)) {
-                passwordUtilsMock.when(() -> PasswordUtils.verify(anyString(), anyString())).thenReturn(false);
-                String token = authenticationService.loginUser(loginDTO);
-                assertNull(token);
-            }
+            when(passwordHashingService.verify(any(), any())).thenReturn(false);
+            String token = authenticationService.loginUser(loginDTO);
+            assertNull(token);
+            verify(passwordHashingService, never()).rehashIfNeeded(any(), any());
+        }
+        @Test
+        void rehashesPasswordStoredWithOutdatedCost() {
+            user.setPassword("oldhash");
+            when(userRepository.findUserByEmail("test@example.com")).thenReturn(user);
+            when(passwordHashingService.verify("oldhash", loginDTO.getPassword())).thenReturn(true);
+            when(passwordHashingService.rehashIfNeeded("oldhash", loginDTO.getPassword())).thenReturn("newhash");
+            when(userMapper.toUserResponseDto(user)).thenReturn(new UserResponseDTO());
+            when(jwtUtil.generateToken(any(UserResponseDTO.class))).thenReturn("jwt");
+            assertEquals("jwt", authenticationService.loginUser(loginDTO));
+            assertEquals("newhash", user.getPassword());
+            verify(userRepository).merge(user);
+        }
+        @Test
+        void propagatesHashingPoolSaturation() {
+            when(userRepository.findUserByEmail("test@example.com")).thenReturn(user);
+            when(passwordHashingService.verify(any(), any()))
+                    .thenThrow(new PasswordHashingService.PasswordHashingUnavailableException("busy"));
+            assertThrows(PasswordHashingService.PasswordHashingUnavailableException.class,
+                    () -> authenticationService.loginUser(loginDTO));
         }
         @Test
         void returnsNullOnUserNotFound() {
@@ -171,13 +193,11 @@ class AuthenticationServiceTest {
         @Test
         void returnsAuthCodeIfCredentialsValid() {
             when(userRepository.findUserByEmail("test@example.com")).thenReturn(user);
-            try (var passwordUtilsMock = mockStatic(PasswordUtils.class)) {
-                passwordUtilsMock.when(() -> PasswordUtils.verify("hashed", "plain")).thenReturn(true);
-                user.setPassword("hashed");
-                user.setSecretKey("SECRET");
-                requestAuthCodeDTO.setPassword("plain");
-                assertEquals("SECRET", authenticationService.getAuthCode(requestAuthCodeDTO));
-            }
+            when(passwordHashingService.verify("hashed", "plain")).thenReturn(true);
+            user.setPassword("hashed");
+            user.setSecretKey("SECRET");
+            requestAuthCodeDTO.setPassword("plain");
+            assertEquals("SECRET", authenticationService.getAuthCode(requestAuthCodeDTO));
         }
         @Test
         void returnsNullIfUserNotFound() {
@@ -187,10 +207,8 @@ class AuthenticationServiceTest {
         @Test
         void returnsNullIfPasswordInvalid() {
             when(userRepository.findUserByEmail("test@example.com")).thenReturn(user);
-            try (var passwordUtilsMock = mockStatic(PasswordUtils.class)) {
-                passwordUtilsMock.when(() -> PasswordUtils.verify(anyString(), anyString())).thenReturn(false);
-                assertNull(authenticationService.getAuthCode(requestAuthCodeDTO));
-            }
+            when(passwordHashingService.verify(any(), any())).thenReturn(false);
+            assertNull(authenticationService.getAuthCode(requestAuthCodeDTO));
         }
     }
 
@@ -216,12 +234,11 @@ class AuthenticationServiceTest {
         void returnsTrueOnSuccess() {
             when(passwordResetTokenRepository.getTokenFromValue("token123")).thenReturn(passwordResetTokenEntity);
             when(userRepository.findUserById(1L)).thenReturn(user);
-            try (var passwordUtilsMock = mockStatic(PasswordUtils.class)) {
-                passwordUtilsMock.when(() -> PasswordUtils.encrypt("newpass")).thenReturn("hashednew");
-                doNothing().when(userRepository).persist(user);
-                doNothing().when(passwordResetTokenRepository).remove(passwordResetTokenEntity);
-                assertTrue(authenticationService.setNewPassword(passwordResetTokenDTO, "newpass"));
-            }
+            when(passwordHashingService.hash("newpass")).thenReturn("hashednew");
+            doNothing().when(userRepository).persist(user);
+            doNothing().when(passwordResetTokenRepository).remove(passwordResetTokenEntity);
+            assertTrue(authenticationService.setNewPassword(passwordResetTokenDTO, "newpass"));
+            assertEquals("hashednew", user.getPassword());
         }
         @Test
         void returnsFalseOnException() {
@@ -234,26 +251,26 @@ class AuthenticationServiceTest {
     @DisplayName("setUserOnline and setUserOffline")
     class SetUserOnlineOffline {
         @Test
-        void setUserOnlineReturnsTrueIfUserFound() {
-            when(userRepository.findUserById(1L)).thenReturn(user);
-            doNothing().when(userRepository).merge(user);
+        void setUserOnlineRecordsActivityWithoutDatabaseAccess() {
+            when(presenceService.recordActivity(1L)).thenReturn(true);
             assertTrue(authenticationService.setUserOnline(1L));
+            verifyNoInteractions(userRepository);
         }
         @Test
-        void setUserOnlineReturnsFalseIfUserNotFound() {
-            when(userRepository.findUserById(1L)).thenReturn(null);
-            assertFalse(authenticationService.setUserOnline(1L));
+        void setUserOnlineReturnsFalseWithoutUserId() {
+            when(presenceService.recordActivity(null)).thenReturn(false);
+            assertFalse(authenticationService.setUserOnline(null));
         }
         @Test
-        void setUserOfflineReturnsTrueIfUserFound() {
-            when(userRepository.findUserById(1L)).thenReturn(user);
-            doNothing().when(userRepository).merge(user);
+        void setUserOfflineRecordsActivityWithoutDatabaseAccess() {
+            when(presenceService.recordActivity(1L)).thenReturn(true);
             assertTrue(authenticationService.setUserOffline(1L));
+            verifyNoInteractions(userRepository);
         }
         @Test
-        void setUserOfflineReturnsFalseIfUserNotFound() {
-            when(userRepository.findUserById(1L)).thenReturn(null);
-            assertFalse(authenticationService.setUserOffline(1L));
+        void logoutUserDelegatesToPresence() {
+            when(presenceService.recordActivity(1L)).thenReturn(true);
+            assertTrue(authenticationService.logoutUser(1L));
         }
     }
 }
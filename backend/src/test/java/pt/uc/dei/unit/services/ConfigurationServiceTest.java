@@ -1,5 +1,6 @@
 package pt.uc.dei.unit.services;
 
+import jakarta.enterprise.event.Event;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -8,18 +9,22 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import pt.uc.dei.config.ConfigurationSnapshot;
 import pt.uc.dei.dtos.ConfigurationDTO;
 import pt.uc.dei.entities.ConfigurationEntity;
 import pt.uc.dei.entities.UserEntity;
 import pt.uc.dei.repositories.ConfigurationRepository;
 import pt.uc.dei.repositories.UserRepository;
+import pt.uc.dei.services.ConfigurationChangedEvent;
 import pt.uc.dei.services.ConfigurationService;
+import pt.uc.dei.services.ConfigurationSnapshotHolder;
 import pt.uc.dei.services.UserService;
 
 import java.time.LocalDateTime;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +32,8 @@ class ConfigurationServiceTest {
     @Mock ConfigurationRepository configurationRepository;
     @Mock UserService userService;
     @Mock UserRepository userRepository;
+    @Mock ConfigurationSnapshotHolder configurationSnapshotHolder;
+    @Mock Event<ConfigurationChangedEvent> configurationChanged;
     @InjectMocks ConfigurationService configurationService;
 
     private ConfigurationEntity configurationEntity;
@@ -60,7 +67,7 @@ class ConfigurationServiceTest {
     class GetLatestConfiguration {
         @Test
         void returnsConfigurationDTOIfFound() {
-            when(configurationRepository.getLatestConfiguration()).thenReturn(configurationEntity);
+            when(configurationSnapshotHolder.get()).thenReturn(ConfigurationSnapshot.from(configurationEntity));
             ConfigurationDTO result = configurationService.getLatestConfiguration();
             assertNotNull(result);
             assertEquals(configurationEntity.getId(), result.getId());
@@ -72,10 +79,17 @@ class ConfigurationServiceTest {
         }
         @Test
         void returnsNullOnException() {
-            when(configurationRepository.getLatestConfiguration()).thenThrow(new RuntimeException());
+            when(configurationSnapshotHolder.get()).thenThrow(new RuntimeException());
             ConfigurationDTO result = configurationService.getLatestConfiguration();
             assertNull(result);
         }
+        @Test
+        void neverQueriesRepository() {
+            when(configurationSnapshotHolder.get()).thenReturn(ConfigurationSnapshot.from(configurationEntity));
+            configurationService.getLatestConfiguration();
+            configurationService.getLatestConfiguration();
+            verifyNoInteractions(configurationRepository);
+        }
     }
 
     @Nested
@@ -87,12 +101,38 @@ class ConfigurationServiceTest {
             doNothing().when(configurationRepository).persist(any(ConfigurationEntity.class));
             boolean result = configurationService.createNewConfiguration(configurationDTO);
             assertTrue(result);
+            verify(configurationChanged).fire(argThat(event -> event.getSnapshot().getLoginTime() == 15
+                    && Boolean.TRUE.equals(event.getSnapshot().getTwoFactorAuthEnabled())));
+            // Published by the holder only after the commit
+            verify(configurationSnapshotHolder, never()).replace(any());
         }
         @Test
         void returnsFalseOnException() {
             when(userRepository.findUserById(2L)).thenThrow(new RuntimeException());
             boolean result = configurationService.createNewConfiguration(configurationDTO);
             assertFalse(result);
+            verify(configurationChanged, never()).fire(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("updateTwoFactorAuth")
+    class UpdateTwoFactorAuth {
+        @Test
+        void publishesUpdatedSnapshot() {
+            when(configurationRepository.updateTwoFactorAuthEnabled(false)).thenReturn(true);
+            when(configurationSnapshotHolder.get()).thenReturn(ConfigurationSnapshot.from(configurationEntity));
+            assertTrue(configurationService.updateTwoFactorAuth(false));
+            verify(configurationChanged).fire(argThat(event ->
+                    Boolean.FALSE.equals(event.getSnapshot().getTwoFactorAuthEnabled())
+                            && event.getSnapshot().getLoginTime() == 15));
+            verify(configurationSnapshotHolder, never()).replace(any());
+        }
+        @Test
+        void keepsSnapshotWhenUpdateFails() {
+            when(configurationRepository.updateTwoFactorAuthEnabled(false)).thenReturn(false);
+            assertFalse(configurationService.updateTwoFactorAuth(false));
+            verify(configurationChanged, never()).fire(any());
         }
     }
 }
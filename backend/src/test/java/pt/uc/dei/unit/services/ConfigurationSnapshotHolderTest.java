@@ -0,0 +1,82 @@
+package pt.uc.dei.unit.services;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import pt.uc.dei.config.ConfigurationSnapshot;
+import pt.uc.dei.entities.ConfigurationEntity;
+import pt.uc.dei.repositories.ConfigurationRepository;
+import pt.uc.dei.services.ConfigurationChangedEvent;
+import pt.uc.dei.services.ConfigurationSnapshotHolder;
+import pt.uc.dei.websocket.LocalMessageBus;
+import pt.uc.dei.websocket.MessageBus;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConfigurationSnapshotHolderTest {
+
+    @Test
+    void committedChangeMakesOtherNodesReload() throws Exception {
+        LocalMessageBus bus = new LocalMessageBus();
+        ConfigurationRepository localRepository = mock(ConfigurationRepository.class);
+        ConfigurationRepository remoteRepository = mock(ConfigurationRepository.class);
+        ConfigurationSnapshotHolder local = node(bus, localRepository);
+        ConfigurationSnapshotHolder remote = node(bus, remoteRepository);
+        when(remoteRepository.getLatestConfiguration()).thenReturn(configuration(1L, 30));
+        remote.reload();
+
+        ConfigurationEntity changed = configuration(2L, 60);
+        when(remoteRepository.getLatestConfiguration()).thenReturn(changed);
+        local.onConfigurationChanged(new ConfigurationChangedEvent(ConfigurationSnapshot.from(changed)));
+
+        assertEquals(60, local.get().getLoginTime());
+        assertEquals(60, remote.get().getLoginTime());
+        assertEquals(2L, remote.get().getId());
+        // The committing node already holds the new snapshot
+        verify(localRepository, never()).getLatestConfiguration();
+    }
+
+    @Test
+    void reloadsAfterBusReconnect() throws Exception {
+        MessageBus bus = mock(MessageBus.class);
+        ConfigurationRepository repository = mock(ConfigurationRepository.class);
+        ConfigurationSnapshotHolder holder = node(bus, repository);
+        when(repository.getLatestConfiguration()).thenReturn(configuration(1L, 30));
+        holder.reload();
+        ArgumentCaptor<Runnable> reconnect = ArgumentCaptor.forClass(Runnable.class);
+        verify(bus).onReconnect(reconnect.capture());
+
+        // A change announced while disconnected is picked up from the database
+        when(repository.getLatestConfiguration()).thenReturn(configuration(2L, 45));
+        reconnect.getValue().run();
+
+        assertEquals(45, holder.get().getLoginTime());
+    }
+
+    private static ConfigurationEntity configuration(Long id, int loginTime) {
+        ConfigurationEntity entity = new ConfigurationEntity();
+        entity.setId(id);
+        entity.setLoginTime(loginTime);
+        entity.setTwoFactorAuthEnabled(false);
+        return entity;
+    }
+
+    private static ConfigurationSnapshotHolder node(MessageBus bus, ConfigurationRepository repository) throws Exception {
+        ConfigurationSnapshotHolder holder = new ConfigurationSnapshotHolder();
+        setField(holder, "messageBus", bus);
+        setField(holder, "configurationRepository", repository);
+        Method subscribe = ConfigurationSnapshotHolder.class.getDeclaredMethod("subscribe");
+        subscribe.setAccessible(true);
+        subscribe.invoke(holder);
+        return holder;
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,177 @@
+package pt.uc.dei.unit.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.uc.dei.benchmark.SmtpSink;
+import pt.uc.dei.entities.EmailJobEntity;
+import pt.uc.dei.entities.QueuedEmailEntity;
+import pt.uc.dei.enums.EmailJobType;
+import pt.uc.dei.enums.QueuedEmailState;
+import pt.uc.dei.repositories.EmailQueueRepository;
+import pt.uc.dei.services.EmailQueueService;
+import pt.uc.dei.services.SmtpTransportPool;
+import pt.uc.dei.utils.TokenBucket;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailQueueServiceTest {
+
+    @Mock EmailQueueRepository emailQueueRepository;
+
+    private SmtpSink sink;
+    private SmtpTransportPool pool;
+    private EmailQueueService emailQueueService;
+    private EmailJobEntity job;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        sink = new SmtpSink(0);
+        pool = new SmtpTransportPool(sink.sessionProperties(), "citrus@example.com", "secret", 1,
+                Duration.ofSeconds(1), Duration.ofMinutes(1));
+        emailQueueService = new EmailQueueService();
+        set("emailQueueRepository", emailQueueRepository);
+        set("smtpTransportPool", pool);
+        // Outside the container the self-reference is the bean itself
+        set("self", emailQueueService);
+        rateLimit(10);
+
+        job = new EmailJobEntity();
+        job.setId(1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+        sink.close();
+    }
+
+    private void set(String name, Object value) throws Exception {
+        Field field = EmailQueueService.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(emailQueueService, value);
+    }
+
+    /**
+     * Replaces the rate limiter with a full bucket of {@code tokens} that never refills.
+     */
+    private void rateLimit(int tokens) throws Exception {
+        set("rateLimiter", new TokenBucket(tokens, 0));
+    }
+
+    private List<QueuedEmailEntity> emails(String... recipients) {
+        List<QueuedEmailEntity> emails = new ArrayList<>();
+        long id = 1;
+        for (String recipient : recipients) {
+            QueuedEmailEntity email = new QueuedEmailEntity(recipient, "CITRUS - test", "<p>Olá</p>");
+            email.setId(id++);
+            email.setJob(job);
+            emails.add(email);
+        }
+        return emails;
+    }
+
+    @Test
+    void enqueueWritesJobAndPendingEmails() {
+        doAnswer(invocation -> {
+            invocation.<EmailJobEntity>getArgument(0).setId(9L);
+            return null;
+        }).when(emailQueueRepository).persistJob(any());
+        List<QueuedEmailEntity> emails = List.of(
+                new QueuedEmailEntity("a@example.com", "s", "b"), new QueuedEmailEntity("b@example.com", "s", "b"));
+
+        Long jobId = emailQueueService.enqueue(EmailJobType.CYCLE_OPEN, "Cycle 7", emails);
+
+        assertEquals(9L, jobId);
+        verify(emailQueueRepository).persistJob(argThat(j -> j.getTotalEmails() == 2
+                && j.getType() == EmailJobType.CYCLE_OPEN && j.getCreatedAt() != null));
+        verify(emailQueueRepository, times(2)).persist(any(QueuedEmailEntity.class));
+        for (QueuedEmailEntity email : emails) {
+            assertEquals(9L, email.getJob().getId());
+            assertEquals(QueuedEmailState.PENDING, email.getState());
+            assertNotNull(email.getNextAttempt());
+        }
+    }
+
+    @Test
+    void enqueueOfNothingCreatesNoJob() {
+        assertNull(emailQueueService.enqueue(EmailJobType.CYCLE_CLOSE, "Cycle 7", List.of()));
+        verifyNoInteractions(emailQueueRepository);
+    }
+
+    @Test
+    void drainSendsDueEmailsOnOneConnectionAndRecordsProgress() {
+        List<QueuedEmailEntity> emails = emails("a@example.com", "b@example.com");
+        when(emailQueueRepository.claimDueEmails(any(), eq(10))).thenReturn(emails);
+
+        assertEquals(2, emailQueueService.drain());
+
+        assertEquals(2, sink.getMessagesReceived());
+        assertEquals(1, sink.getConnectionsAccepted());
+        for (QueuedEmailEntity email : emails) {
+            assertEquals(QueuedEmailState.SENT, email.getState());
+            assertNotNull(email.getSentAt());
+        }
+        verify(emailQueueRepository).addJobProgress(1L, 2, 0);
+        verify(emailQueueRepository).completeFinishedJobs(eq(Set.of(1L)), any());
+        assertEquals(2L, emailQueueService.getStats().get("sent"));
+    }
+
+    @Test
+    void leavesEmailsPendingOnceRateLimitIsUsedUp() throws Exception {
+        rateLimit(2);
+        List<QueuedEmailEntity> emails = emails("a@example.com", "b@example.com", "c@example.com");
+        when(emailQueueRepository.claimDueEmails(any(), eq(2))).thenReturn(emails);
+
+        assertEquals(2, emailQueueService.drain());
+        // No tokens left: the next run does not even claim
+        assertEquals(0, emailQueueService.drain());
+
+        assertEquals(2, sink.getMessagesReceived());
+        assertEquals(QueuedEmailState.PENDING, emails.get(2).getState());
+        verify(emailQueueRepository, times(1)).claimDueEmails(any(), anyInt());
+        verify(emailQueueRepository).addJobProgress(1L, 2, 0);
+    }
+
+    @Test
+    void rejectedAddressFailsAtOnce() {
+        List<QueuedEmailEntity> emails = emails("reject@example.com", "ok@example.com");
+        when(emailQueueRepository.claimDueEmails(any(), eq(10))).thenReturn(emails);
+
+        emailQueueService.drain();
+
+        assertEquals(QueuedEmailState.FAILED, emails.get(0).getState());
+        assertEquals(1, emails.get(0).getAttempts());
+        assertNotNull(emails.get(0).getLastError());
+        assertEquals(QueuedEmailState.SENT, emails.get(1).getState());
+        verify(emailQueueRepository).addJobProgress(1L, 1, 1);
+    }
+
+    @Test
+    void unreachableServerSchedulesRetry() {
+        sink.close();
+        List<QueuedEmailEntity> emails = emails("a@example.com");
+        when(emailQueueRepository.claimDueEmails(any(), eq(10))).thenReturn(emails);
+
+        emailQueueService.drain();
+
+        QueuedEmailEntity email = emails.get(0);
+        assertEquals(QueuedEmailState.PENDING, email.getState());
+        assertEquals(1, email.getAttempts());
+        assertTrue(email.getNextAttempt().isAfter(LocalDateTime.now().plusSeconds(50)));
+        verify(emailQueueRepository, never()).addJobProgress(anyLong(), anyInt(), anyInt());
+    }
+}
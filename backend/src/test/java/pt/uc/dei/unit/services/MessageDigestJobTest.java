@@ -0,0 +1,127 @@
+package pt.uc.dei.unit.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.uc.dei.entities.NotificationEntity;
+import pt.uc.dei.entities.UserEntity;
+import pt.uc.dei.repositories.NotificationRepository;
+import pt.uc.dei.services.EmailService;
+import pt.uc.dei.services.MessageDigestJob;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageDigestJobTest {
+
+    @Mock NotificationRepository notificationRepository;
+    @Mock EmailService emailService;
+    @InjectMocks MessageDigestJob messageDigestJob;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Outside the container the self-reference is the bean itself
+        Field self = MessageDigestJob.class.getDeclaredField("self");
+        self.setAccessible(true);
+        self.set(messageDigestJob, messageDigestJob);
+    }
+
+    private static List<Long> ids(long from, int count) {
+        return LongStream.range(from, from + count).boxed().toList();
+    }
+
+    private static NotificationEntity notification(Long id, Long recipientId) {
+        UserEntity recipient = new UserEntity();
+        recipient.setId(recipientId);
+        NotificationEntity notification = new NotificationEntity();
+        notification.setId(id);
+        notification.setUser(recipient);
+        return notification;
+    }
+
+    @Test
+    void queuesOneDigestPerRecipientAndMarksAllEmailed() {
+        List<NotificationEntity> notifications = List.of(notification(10L, 2L), notification(11L, 2L),
+                notification(12L, 3L));
+        when(notificationRepository.findDigestRecipients(any(), eq(0L), eq(100))).thenReturn(List.of(2L, 3L));
+        when(notificationRepository.lockDigestNotifications(eq(List.of(2L, 3L)), any()))
+                .thenReturn(List.of(10L, 11L, 12L));
+        when(notificationRepository.findWithUsers(List.of(10L, 11L, 12L))).thenReturn(notifications);
+
+        assertEquals(2, messageDigestJob.run());
+
+        verify(emailService).queueMessageNotificationEmails(notifications);
+        verify(notificationRepository).markEmailSent(List.of(10L, 11L, 12L));
+        Map<String, Object> stats = messageDigestJob.getStats();
+        assertEquals(3L, stats.get("notifications"));
+        assertEquals(0L, stats.get("watermark"));
+    }
+
+    @Test
+    void continuesAfterLastRecipientOfFullBatchThenStartsOver() {
+        List<Long> full = ids(1, 100);
+        when(notificationRepository.findDigestRecipients(any(), eq(0L), eq(100))).thenReturn(full);
+        when(notificationRepository.findDigestRecipients(any(), eq(100L), eq(100))).thenReturn(List.of());
+        when(notificationRepository.lockDigestNotifications(eq(full), any())).thenReturn(List.of());
+
+        messageDigestJob.run();
+
+        verify(notificationRepository).findDigestRecipients(any(), eq(100L), eq(100));
+        Map<String, Object> lastRun = (Map<String, Object>) messageDigestJob.getStats().get("lastRun");
+        assertEquals(2, lastRun.get("batches"));
+        assertEquals(true, lastRun.get("passComplete"));
+        assertEquals(0L, messageDigestJob.getStats().get("watermark"));
+    }
+
+    @Test
+    void stopsAtBatchLimitAndResumesFromWatermark() {
+        when(notificationRepository.findDigestRecipients(any(), anyLong(), eq(100)))
+                .thenAnswer(invocation -> ids((long) invocation.getArgument(1) + 1, 100));
+        when(notificationRepository.lockDigestNotifications(any(), any())).thenReturn(List.of());
+
+        messageDigestJob.run();
+
+        verify(notificationRepository, times(5)).findDigestRecipients(any(), anyLong(), eq(100));
+        assertEquals(500L, messageDigestJob.getStats().get("watermark"));
+        Map<String, Object> lastRun = (Map<String, Object>) messageDigestJob.getStats().get("lastRun");
+        assertEquals(false, lastRun.get("passComplete"));
+
+        messageDigestJob.run();
+
+        verify(notificationRepository).findDigestRecipients(any(), eq(500L), eq(100));
+    }
+
+    @Test
+    void skipsRecipientsLockedByAnotherSweep() {
+        when(notificationRepository.findDigestRecipients(any(), eq(0L), eq(100))).thenReturn(List.of(2L));
+        when(notificationRepository.lockDigestNotifications(eq(List.of(2L)), any())).thenReturn(List.of());
+
+        assertEquals(0, messageDigestJob.run());
+
+        verifyNoInteractions(emailService);
+        verify(notificationRepository, never()).markEmailSent(any());
+    }
+
+    @Test
+    void usesDigestDelayAsCutoff() {
+        when(notificationRepository.findDigestRecipients(any(), anyLong(), anyInt())).thenReturn(List.of());
+
+        messageDigestJob.run();
+
+        verify(notificationRepository).findDigestRecipients(argThat((LocalDateTime cutoff) ->
+                cutoff.isBefore(LocalDateTime.now().minusHours(23)) && cutoff.isAfter(LocalDateTime.now().minusHours(25))),
+                eq(0L), eq(100));
+        verifyNoInteractions(emailService);
+    }
+}
@@ -0,0 +1,169 @@
+package pt.uc.dei.unit.services;
+
+import jakarta.enterprise.event.Event;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.uc.dei.repositories.UserRepository;
+import pt.uc.dei.services.NotificationCounterService;
+import pt.uc.dei.services.NotificationCounterService.Counters;
+import pt.uc.dei.services.NotificationCountersChangedEvent;
+import pt.uc.dei.websocket.LocalMessageBus;
+import pt.uc.dei.websocket.MessageBus;
+import pt.uc.dei.websocket.WsNotifications;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationCounterServiceTest {
+
+    @Mock UserRepository userRepository;
+    @Mock WsNotifications wsNotifications;
+    @Mock Event<NotificationCountersChangedEvent> countersChanged;
+    @Mock MessageBus messageBus;
+    @InjectMocks NotificationCounterService notificationCounterService;
+
+    @Test
+    void countsOnceThenServesFromMemory() {
+        when(wsNotifications.isConnectedHere(1L)).thenReturn(true);
+        when(userRepository.findNotificationCounters(List.of(1L))).thenReturn(Map.of(1L, new int[]{4, 2}));
+
+        assertEquals(new Counters(4, 2), notificationCounterService.getCounters(1L));
+        assertEquals(new Counters(4, 2), notificationCounterService.getCounters(1L));
+
+        verify(userRepository, times(1)).initNotificationCounters(1L);
+        verify(userRepository, times(1)).findNotificationCounters(anyCollection());
+    }
+
+    @Test
+    void evictedUsersAreReadAgain() {
+        when(wsNotifications.isConnectedHere(1L)).thenReturn(true);
+        when(userRepository.findNotificationCounters(List.of(1L)))
+                .thenReturn(Map.of(1L, new int[]{4, 2}))
+                .thenReturn(Map.of(1L, new int[]{1, 0}));
+        notificationCounterService.getCounters(1L);
+
+        notificationCounterService.evict(1L);
+
+        assertEquals(new Counters(1, 0), notificationCounterService.getCounters(1L));
+        assertEquals(1, notificationCounterService.getCachedUsers());
+    }
+
+    @Test
+    void usersNotConnectedHereAreNotRemembered() {
+        when(userRepository.findNotificationCounters(List.of(1L))).thenReturn(Map.of(1L, new int[]{4, 2}));
+
+        notificationCounterService.getCounters(1L);
+        notificationCounterService.getCounters(1L);
+
+        verify(userRepository, times(2)).findNotificationCounters(anyCollection());
+        assertEquals(0, notificationCounterService.getCachedUsers());
+    }
+
+    @Test
+    void adjustFiresEventOnlyWhenCountersChanged() {
+        when(userRepository.adjustNotificationCounters(List.of(1L), 1, 1)).thenReturn(1);
+        when(userRepository.adjustNotificationCounters(List.of(2L), 1, 1)).thenReturn(0);
+
+        notificationCounterService.adjust(1L, 1, 1);
+        notificationCounterService.adjust(2L, 1, 1);
+
+        verify(countersChanged, times(1)).fire(argThat(event -> event.getUserIds().equals(List.of(1L))));
+    }
+
+    @Test
+    void pushesCommittedCountersAndRemembersConnectedUsers() {
+        when(userRepository.findNotificationCounters(List.of(1L))).thenReturn(Map.of(1L, new int[]{5, 3}));
+        when(wsNotifications.isConnectedHere(1L)).thenReturn(true);
+        when(messageBus.publish(eq("notification_counters"), endsWith(":1"))).thenReturn(true);
+
+        notificationCounterService.onCountersChanged(new NotificationCountersChangedEvent(List.of(1L)));
+
+        verify(wsNotifications).sendCounters(1L, new Counters(5, 3));
+        assertEquals(new Counters(5, 3), notificationCounterService.getCounters(1L));
+        verify(userRepository, never()).initNotificationCounters(anyLong());
+    }
+
+    @Test
+    void broadcastReadsAllRecipientsAtOnceAndForgetsUsersConnectedElsewhere() {
+        when(userRepository.findNotificationCounters(List.of(1L, 2L)))
+                .thenReturn(Map.of(1L, new int[]{1, 1}, 2L, new int[]{7, 7}));
+        // User 2 is only connected to another node: the cluster delivers the frame there
+        when(wsNotifications.sendCounters(1L, new Counters(1, 1))).thenReturn(true);
+        when(wsNotifications.sendCounters(2L, new Counters(7, 7))).thenReturn(true);
+        when(wsNotifications.isConnectedHere(1L)).thenReturn(true);
+        when(wsNotifications.isConnectedHere(2L)).thenReturn(false);
+
+        notificationCounterService.onCountersChanged(new NotificationCountersChangedEvent(List.of(1L, 2L)));
+
+        verify(userRepository, times(1)).findNotificationCounters(anyCollection());
+        assertEquals(1, notificationCounterService.getCachedUsers());
+    }
+
+    @Test
+    void changeCommittedElsewhereDropsTheCachedCounters() throws Exception {
+        LocalMessageBus bus = new LocalMessageBus();
+        UserRepository repository = mock(UserRepository.class);
+        WsNotifications committingEndpoint = mock(WsNotifications.class);
+        WsNotifications connectedEndpoint = mock(WsNotifications.class);
+        NotificationCounterService committing = node(bus, repository, committingEndpoint);
+        NotificationCounterService connected = node(bus, repository, connectedEndpoint);
+        when(connectedEndpoint.isConnectedHere(1L)).thenReturn(true);
+        when(repository.findNotificationCounters(List.of(1L)))
+                .thenReturn(Map.of(1L, new int[]{4, 2}))
+                .thenReturn(Map.of(1L, new int[]{5, 3}));
+        assertEquals(new Counters(4, 2), connected.getCounters(1L));
+
+        committing.onCountersChanged(new NotificationCountersChangedEvent(List.of(1L)));
+
+        assertEquals(0, committing.getCachedUsers());
+        assertEquals(0, connected.getCachedUsers());
+        assertEquals(new Counters(5, 3), connected.getCounters(1L));
+    }
+
+    @Test
+    void busReconnectDropsAllCachedCounters() throws Exception {
+        MessageBus bus = mock(MessageBus.class);
+        WsNotifications endpoint = mock(WsNotifications.class);
+        NotificationCounterService node = node(bus, userRepository, endpoint);
+        when(endpoint.isConnectedHere(anyLong())).thenReturn(true);
+        when(userRepository.findNotificationCounters(anyCollection())).thenReturn(Map.of());
+        node.getCounters(1L);
+        node.getCounters(2L);
+        ArgumentCaptor<Runnable> reconnect = ArgumentCaptor.forClass(Runnable.class);
+        verify(bus).onReconnect(reconnect.capture());
+
+        reconnect.getValue().run();
+
+        assertEquals(0, node.getCachedUsers());
+    }
+
+    private NotificationCounterService node(MessageBus bus, UserRepository repository, WsNotifications endpoint)
+            throws Exception {
+        NotificationCounterService service = new NotificationCounterService();
+        setField(service, "messageBus", bus);
+        setField(service, "userRepository", repository);
+        setField(service, "wsNotifications", endpoint);
+        setField(service, "countersChanged", countersChanged);
+        Method subscribe = NotificationCounterService.class.getDeclaredMethod("subscribe");
+        subscribe.setAccessible(true);
+        subscribe.invoke(service);
+        return service;
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,167 @@
+package pt.uc.dei.unit.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.uc.dei.dtos.NotificationDTO;
+import pt.uc.dei.entities.NotificationEntity;
+import pt.uc.dei.entities.UserEntity;
+import pt.uc.dei.enums.NotificationDeliveryState;
+import pt.uc.dei.enums.NotificationType;
+import pt.uc.dei.mapper.NotificationMapper;
+import pt.uc.dei.repositories.NotificationRepository;
+import pt.uc.dei.services.NotificationDispatcher;
+import pt.uc.dei.websocket.WsNotifications;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationDispatcherTest {
+
+    @Mock NotificationRepository notificationRepository;
+    @Mock NotificationMapper notificationMapper;
+    @Mock WsNotifications wsNotifications;
+    @InjectMocks NotificationDispatcher notificationDispatcher;
+
+    private final UserEntity sender = user(1L);
+    private final LocalDateTime created = LocalDateTime.now().minusSeconds(1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Outside the container the self-reference is the bean itself
+        Field self = NotificationDispatcher.class.getDeclaredField("self");
+        self.setAccessible(true);
+        self.set(notificationDispatcher, notificationDispatcher);
+    }
+
+    private static UserEntity user(Long id) {
+        UserEntity user = new UserEntity();
+        user.setId(id);
+        return user;
+    }
+
+    private NotificationEntity notification(Long id, Long recipientId, NotificationType type, String content) {
+        NotificationEntity notification = new NotificationEntity();
+        notification.setId(id);
+        notification.setUser(user(recipientId));
+        notification.setSender(sender);
+        notification.setType(type);
+        notification.setContent(content);
+        notification.setCreationDate(created);
+        notification.setMessageCount(0);
+        notification.setNotificationIsRead(false);
+        notification.setNotificationIsSeen(false);
+        return notification;
+    }
+
+    @Test
+    void marksAcceptedNotificationDelivered() {
+        NotificationEntity notification = notification(10L, 2L, NotificationType.APPRAISAL, "5");
+        when(notificationRepository.claimPendingDeliveries(any(), anyInt())).thenReturn(List.of(notification));
+        NotificationDTO dto = new NotificationDTO();
+        when(notificationMapper.toDto(notification)).thenReturn(dto);
+        when(wsNotifications.deliver(2L, List.of(dto))).thenReturn(true);
+
+        assertEquals(1, notificationDispatcher.dispatchBatch());
+
+        verify(notificationRepository).updateDeliveryState(List.of(10L), NotificationDeliveryState.DELIVERED);
+        verify(notificationRepository).updateDeliveryState(List.of(), NotificationDeliveryState.OFFLINE);
+    }
+
+    @Test
+    void marksNotificationOfDisconnectedUserOffline() {
+        NotificationEntity notification = notification(10L, 2L, NotificationType.APPRAISAL, "5");
+        when(notificationRepository.claimPendingDeliveries(any(), anyInt())).thenReturn(List.of(notification));
+        when(notificationMapper.toDto(notification)).thenReturn(new NotificationDTO());
+        when(wsNotifications.deliver(eq(2L), anyList())).thenReturn(false);
+
+        notificationDispatcher.dispatchBatch();
+
+        verify(notificationRepository).updateDeliveryState(List.of(10L), NotificationDeliveryState.OFFLINE);
+    }
+
+    @Test
+    void sendsNotificationsOfOneRecipientInOneFrame() {
+        NotificationEntity first = notification(10L, 2L, NotificationType.APPRAISAL, "5");
+        NotificationEntity second = notification(11L, 2L, NotificationType.COURSE, "7");
+        when(notificationRepository.claimPendingDeliveries(any(), anyInt())).thenReturn(List.of(first, second));
+        NotificationDTO firstDto = new NotificationDTO();
+        NotificationDTO secondDto = new NotificationDTO();
+        when(notificationMapper.toDto(first)).thenReturn(firstDto);
+        when(notificationMapper.toDto(second)).thenReturn(secondDto);
+        when(wsNotifications.deliver(2L, List.of(firstDto, secondDto))).thenReturn(true);
+
+        notificationDispatcher.dispatchBatch();
+
+        verify(wsNotifications, times(1)).deliver(anyLong(), anyList());
+        verify(notificationRepository).updateDeliveryState(List.of(10L, 11L), NotificationDeliveryState.DELIVERED);
+        assertEquals(1L, notificationDispatcher.getStats().get("frames"));
+    }
+
+    @Test
+    void serializesBroadcastOnce() {
+        NotificationEntity toManager = notification(20L, 2L, NotificationType.CYCLE_OPEN, "2026-12-31");
+        NotificationEntity toAdmin = notification(30L, 3L, NotificationType.CYCLE_OPEN, "2026-12-31");
+        when(notificationRepository.claimPendingDeliveries(any(), anyInt())).thenReturn(List.of(toManager, toAdmin));
+        NotificationDTO dto = new NotificationDTO();
+        dto.setType(NotificationType.CYCLE_OPEN.name());
+        when(notificationMapper.toDto(any())).thenReturn(dto);
+        when(wsNotifications.broadcast(dto, Map.of(2L, 20L, 3L, 30L))).thenReturn(Set.of(2L));
+
+        notificationDispatcher.dispatchBatch();
+
+        verify(notificationMapper, times(1)).toDto(any());
+        verify(wsNotifications, never()).deliver(anyLong(), anyList());
+        verify(notificationRepository).updateDeliveryState(List.of(20L), NotificationDeliveryState.DELIVERED);
+        verify(notificationRepository).updateDeliveryState(List.of(30L), NotificationDeliveryState.OFFLINE);
+    }
+
+    @Test
+    void failedPushIsRetriedLater() {
+        NotificationEntity notification = notification(10L, 2L, NotificationType.APPRAISAL, "5");
+        when(notificationRepository.claimPendingDeliveries(any(), anyInt())).thenReturn(List.of(notification));
+        when(notificationMapper.toDto(notification)).thenReturn(new NotificationDTO());
+        when(wsNotifications.deliver(eq(2L), anyList())).thenThrow(new IllegalStateException("cluster down"));
+
+        notificationDispatcher.dispatchBatch();
+
+        assertEquals(NotificationDeliveryState.PENDING, notification.getDeliveryState());
+        assertEquals(1, notification.getDeliveryAttempts());
+        assertTrue(notification.getNextDeliveryAttempt().isAfter(LocalDateTime.now()));
+        verify(notificationRepository).updateDeliveryState(List.of(), NotificationDeliveryState.DELIVERED);
+    }
+
+    @Test
+    void givesUpAfterLastAttempt() {
+        NotificationEntity notification = notification(10L, 2L, NotificationType.APPRAISAL, "5");
+        notification.setDeliveryAttempts(4);
+        when(notificationRepository.claimPendingDeliveries(any(), anyInt())).thenReturn(List.of(notification));
+        when(notificationMapper.toDto(notification)).thenThrow(new IllegalStateException("mapping failed"));
+
+        notificationDispatcher.dispatchBatch();
+
+        assertEquals(NotificationDeliveryState.FAILED, notification.getDeliveryState());
+        assertNull(notification.getNextDeliveryAttempt());
+        assertEquals(1L, notificationDispatcher.getStats().get("failed"));
+    }
+
+    @Test
+    void dispatchPendingStopsWhenNothingIsDue() {
+        when(notificationRepository.claimPendingDeliveries(any(), anyInt())).thenReturn(List.of());
+
+        assertEquals(0, notificationDispatcher.dispatchPending());
+
+        verifyNoInteractions(wsNotifications);
+    }
+}
@@ -0,0 +1,91 @@
+package pt.uc.dei.unit.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.uc.dei.repositories.NotificationRepository;
+import pt.uc.dei.services.NotificationRetentionJob;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationRetentionJobTest {
+
+    @Mock NotificationRepository notificationRepository;
+    @InjectMocks NotificationRetentionJob notificationRetentionJob;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Outside the container the self-reference is the bean itself
+        Field self = NotificationRetentionJob.class.getDeclaredField("self");
+        self.setAccessible(true);
+        self.set(notificationRetentionJob, notificationRetentionJob);
+    }
+
+    private static List<Long> ids(long from, int count) {
+        return LongStream.range(from, from + count).boxed().toList();
+    }
+
+    @Test
+    void archivesThenDeletesEachBatch() {
+        List<Long> batch = ids(1, 3);
+        when(notificationRepository.lockRetentionCandidates(any(), eq(0L), eq(500))).thenReturn(batch);
+
+        assertEquals(3, notificationRetentionJob.run());
+
+        verify(notificationRepository).archiveNotifications(eq(batch), any());
+        verify(notificationRepository).deleteNotifications(batch);
+    }
+
+    @Test
+    void continuesAfterLastIdOfFullBatch() {
+        List<Long> full = ids(1, 500);
+        List<Long> rest = ids(501, 2);
+        when(notificationRepository.lockRetentionCandidates(any(), eq(0L), eq(500))).thenReturn(full);
+        when(notificationRepository.lockRetentionCandidates(any(), eq(500L), eq(500))).thenReturn(rest);
+
+        assertEquals(502, notificationRetentionJob.run());
+
+        Map<String, Object> lastRun = (Map<String, Object>) notificationRetentionJob.getStats().get("lastRun");
+        assertEquals(502, lastRun.get("archived"));
+        assertEquals(2, lastRun.get("batches"));
+        assertEquals(true, lastRun.get("complete"));
+        assertEquals(502L, notificationRetentionJob.getStats().get("archived"));
+    }
+
+    @Test
+    void usesRetentionAgeAsCutoff() {
+        when(notificationRepository.lockRetentionCandidates(any(), anyLong(), anyInt())).thenReturn(List.of());
+
+        notificationRetentionJob.run();
+
+        verify(notificationRepository).lockRetentionCandidates(argThat(cutoff ->
+                cutoff.isBefore(LocalDateTime.now().minusDays(89)) && cutoff.isAfter(LocalDateTime.now().minusDays(91))),
+                eq(0L), eq(500));
+        verify(notificationRepository, never()).archiveNotifications(any(), any());
+        verify(notificationRepository, never()).deleteNotifications(any());
+    }
+
+    @Test
+    void failedBatchEndsRunAndIsReported() {
+        when(notificationRepository.lockRetentionCandidates(any(), anyLong(), anyInt()))
+                .thenThrow(new IllegalStateException("database down"));
+
+        assertEquals(0, notificationRetentionJob.run());
+
+        Map<String, Object> lastRun = (Map<String, Object>) notificationRetentionJob.getStats().get("lastRun");
+        assertEquals(false, lastRun.get("complete"));
+        assertEquals(1L, notificationRetentionJob.getStats().get("runs"));
+    }
+}
@@ -1,5 +1,6 @@
 package pt.uc.dei.unit.services;
 
+import jakarta.enterprise.event.Event;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -13,13 +14,15 @@ import pt.uc.dei.dtos.MessageDTO;
 import pt.uc.dei.dtos.NotificationDTO;
 import pt.uc.dei.dtos.NotificationUpdateDTO;
 import pt.uc.dei.entities.*;
+import pt.uc.dei.enums.NotificationDeliveryState;
 import pt.uc.dei.enums.NotificationType;
 import pt.uc.dei.mapper.NotificationMapper;
 import pt.uc.dei.repositories.MessageRepository;
 import pt.uc.dei.repositories.NotificationRepository;
 import pt.uc.dei.repositories.UserRepository;
+import pt.uc.dei.services.NotificationCounterService;
 import pt.uc.dei.services.NotificationService;
-import pt.uc.dei.websocket.WsNotifications;
+import pt.uc.dei.services.NotificationsWrittenEvent;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -31,7 +34,8 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class NotificationServiceTest {
     @Mock NotificationRepository notificationRepository;
-    @Mock WsNotifications wsNotifications;
+    @Mock Event<NotificationsWrittenEvent> notificationsWritten;
+    @Mock NotificationCounterService notificationCounterService;
     @Mock MessageRepository messageRepository;
     @Mock NotificationMapper notificationMapper;
     @Mock UserRepository userRepository;
@@ -92,9 +96,10 @@ class NotificationServiceTest {
             when(userRepository.findUserById(1L)).thenReturn(sender);
             when(messageRepository.getUnreadMessageCount(2L, 1L)).thenReturn(1);
             when(notificationRepository.getMessageNotificationBetween(2L, 1L)).thenReturn(null);
-            when(notificationMapper.toDto(any())).thenReturn(notificationDTO);
-            doReturn(true).when(wsNotifications).notifyUser(notificationDTO);
             assertTrue(notificationService.newMessageNotification(messageDTO));
+            verify(notificationRepository).persist(argThat(n -> n.getDeliveryState() == NotificationDeliveryState.PENDING));
+            verify(notificationCounterService).adjust(2L, 1, 1);
+            verify(notificationsWritten).fire(any(NotificationsWrittenEvent.class));
         }
         @Test
         void returnsFalseIfRecipientNotFound() {
@@ -117,9 +122,14 @@ class NotificationServiceTest {
             existing.setUser(recipient);
             existing.setType(NotificationType.MESSAGE);
             when(notificationRepository.getMessageNotificationBetween(2L, 1L)).thenReturn(existing);
-            when(notificationMapper.toDto(any())).thenReturn(notificationDTO);
-            doReturn(false).when(wsNotifications).notifyUser(notificationDTO);
+            existing.setDeliveryState(NotificationDeliveryState.DELIVERED);
+            existing.setDeliveryAttempts(3);
             assertTrue(notificationService.newMessageNotification(messageDTO));
+            assertEquals(NotificationDeliveryState.PENDING, existing.getDeliveryState());
+            assertEquals(0, existing.getDeliveryAttempts());
+            // Still unseen and not read before, so neither counter changes
+            verify(notificationCounterService, never()).adjust(anyLong(), anyInt(), anyInt());
+            verify(notificationsWritten).fire(any(NotificationsWrittenEvent.class));
         }
         @Test
         void returnsFalseOnException() {
@@ -160,6 +170,31 @@ class NotificationServiceTest {
             assertTrue(notificationService.updateNotificationStatus(updateDTO, 2L));
         }
         @Test
+        void decrementsCountersOfFlagsThatChanged() {
+            NotificationEntity found = new NotificationEntity();
+            found.setUser(recipient);
+            found.setNotificationIsRead(false);
+            found.setNotificationIsSeen(true);
+            when(notificationRepository.findById(10L)).thenReturn(found);
+            when(recipient.getId()).thenReturn(2L);
+            assertTrue(notificationService.updateNotificationStatus(updateDTO, 2L));
+            verify(notificationCounterService).adjust(2L, -1, 0);
+        }
+        @Test
+        void incrementsUnreadWhenMarkedUnread() {
+            NotificationEntity found = new NotificationEntity();
+            found.setUser(recipient);
+            found.setNotificationIsRead(true);
+            found.setNotificationIsSeen(true);
+            when(notificationRepository.findById(10L)).thenReturn(found);
+            when(recipient.getId()).thenReturn(2L);
+            NotificationUpdateDTO markUnread = new NotificationUpdateDTO();
+            markUnread.setNotificationId(10L);
+            markUnread.setNotificationIsRead(false);
+            assertTrue(notificationService.updateNotificationStatus(markUnread, 2L));
+            verify(notificationCounterService).adjust(2L, 1, 0);
+        }
+        @Test
         void returnsFalseIfNotificationNotFound() {
             when(notificationRepository.findById(10L)).thenReturn(null);
             assertFalse(notificationService.updateNotificationStatus(updateDTO, 2L));
@@ -180,32 +215,24 @@ class NotificationServiceTest {
         }
     }
 
-    @Nested
-    @DisplayName("getTotalNotifications")
-    class GetTotalNotifications {
-        @Test
-        void returnsTotal() {
-            when(notificationRepository.getTotalNotifications(2L)).thenReturn(5);
-            assertEquals(5, notificationService.getTotalNotifications(2L));
-        }
-        @Test
-        void returnsZeroOnException() {
-            when(notificationRepository.getTotalNotifications(anyLong())).thenThrow(new RuntimeException());
-            assertEquals(0, notificationService.getTotalNotifications(2L));
-        }
-    }
-
     @Nested
     @DisplayName("markMessageNotificationsAsRead")
     class MarkMessageNotificationsAsRead {
         @Test
         void marksAsRead() {
-            when(notificationRepository.markMessageNotificationsAsRead(2L)).thenReturn(true);
+            when(notificationRepository.markUnreadMessageNotificationsAsRead(2L)).thenReturn(3);
             assertTrue(notificationService.markMessageNotificationsAsRead(2L));
+            verify(notificationCounterService).adjust(2L, -3, 0);
+        }
+        @Test
+        void leavesCountersAloneWhenNothingWasUnread() {
+            when(notificationRepository.markUnreadMessageNotificationsAsRead(2L)).thenReturn(0);
+            assertTrue(notificationService.markMessageNotificationsAsRead(2L));
+            verifyNoInteractions(notificationCounterService);
         }
         @Test
         void returnsFalseOnException() {
-            when(notificationRepository.markMessageNotificationsAsRead(anyLong())).thenThrow(new RuntimeException());
+            when(notificationRepository.markUnreadMessageNotificationsAsRead(anyLong())).thenThrow(new RuntimeException());
             assertFalse(notificationService.markMessageNotificationsAsRead(2L));
         }
     }
@@ -217,9 +244,39 @@ class NotificationServiceTest {
         void createsAndSendsAppraisalNotification() throws Exception {
             when(userRepository.findUserById(2L)).thenReturn(recipient);
             when(userRepository.findUserById(1L)).thenReturn(sender);
-            when(notificationMapper.toDto(any())).thenReturn(notificationDTO);
-            doReturn(true).when(wsNotifications).notifyUser(notificationDTO);
             assertTrue(notificationService.newAppraisalNotification(appraisal));
+            verify(notificationsWritten).fire(any(NotificationsWrittenEvent.class));
+        }
+        @Test
+        void foldsIntoRecentNotificationFromSameSender() {
+            when(userRepository.findUserById(2L)).thenReturn(recipient);
+            when(userRepository.findUserById(1L)).thenReturn(sender);
+            NotificationEntity burst = new NotificationEntity();
+            burst.setType(NotificationType.APPRAISAL);
+            burst.setContent("3");
+            burst.setMessageCount(0);
+            burst.setDeliveryState(NotificationDeliveryState.DELIVERED);
+            when(notificationRepository.findCoalescibleNotification(any(), eq(NotificationType.APPRAISAL), any(),
+                    argThat(since -> since.isBefore(LocalDateTime.now().minusSeconds(59))))).thenReturn(burst);
+
+            assertTrue(notificationService.newAppraisalNotification(appraisal));
+            assertTrue(notificationService.newAppraisalNotification(appraisal));
+
+            assertEquals(3, burst.getMessageCount());
+            assertEquals("5", burst.getContent());
+            assertEquals(NotificationDeliveryState.PENDING, burst.getDeliveryState());
+            verify(notificationRepository, never()).persist(any());
+            verifyNoInteractions(notificationCounterService);
+            verify(notificationsWritten, times(2)).fire(any(NotificationsWrittenEvent.class));
+        }
+        @Test
+        void createsNewNotificationWhenNothingToFold() {
+            when(userRepository.findUserById(2L)).thenReturn(recipient);
+            when(userRepository.findUserById(1L)).thenReturn(sender);
+            assertTrue(notificationService.newAppraisalNotification(appraisal));
+            verify(notificationRepository).persist(argThat(n -> n.getMessageCount() == 0
+                    && n.getType() == NotificationType.APPRAISAL));
+            verify(notificationCounterService).adjust((Long) any(), eq(1), eq(1));
         }
         @Test
         void returnsFalseIfRecipientNotFound() {
@@ -247,9 +304,8 @@ class NotificationServiceTest {
             when(finishedCourse.getUser()).thenReturn(recipient);
             when(recipient.getManager()).thenReturn(sender);
             when(userRepository.findUserById(anyLong())).thenReturn(recipient).thenReturn(sender);
-            when(notificationMapper.toDto(any())).thenReturn(notificationDTO);
-            doReturn(true).when(wsNotifications).notifyUser(notificationDTO);
             assertTrue(notificationService.newCourseNotification(finishedCourse));
+            verify(notificationsWritten).fire(any(NotificationsWrittenEvent.class));
         }
         @Test
         void returnsFalseIfRecipientNotFound() {
@@ -272,26 +328,146 @@ class NotificationServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("getReplay")
+    class GetReplay {
+        private NotificationEntity withId(long id) {
+            NotificationEntity entity = new NotificationEntity();
+            entity.setId(id);
+            return entity;
+        }
+
+        @Test
+        void replaysNewerAndUpdatedMessageNotifications() {
+            NotificationEntity updatedMessage = withId(5L);
+            NotificationEntity newer = withId(12L);
+            when(notificationRepository.getNotificationsAfter(2L, 10L, 51)).thenReturn(List.of(newer));
+            when(notificationRepository.getUnseenNotifications(eq(2L), anyCollection()))
+                    .thenReturn(List.of(updatedMessage, newer));
+            NotificationDTO updatedDto = new NotificationDTO();
+            NotificationDTO newerDto = new NotificationDTO();
+            when(notificationMapper.toDto(updatedMessage)).thenReturn(updatedDto);
+            when(notificationMapper.toDto(newer)).thenReturn(newerDto);
+
+            Optional<List<NotificationDTO>> replay = notificationService.getReplay(2L, 10L, 50);
+
+            assertTrue(replay.isPresent());
+            assertEquals(List.of(updatedDto, newerDto), replay.get());
+        }
+
+        @Test
+        void replaysNotificationsFoldedInPlace() {
+            NotificationEntity folded = withId(7L);
+            folded.setType(NotificationType.APPRAISAL);
+            folded.setMessageCount(3);
+            when(notificationRepository.getNotificationsAfter(2L, 10L, 51)).thenReturn(List.of());
+            when(notificationRepository.getUnseenNotifications(eq(2L), argThat(types ->
+                    types.containsAll(List.of(NotificationType.MESSAGE, NotificationType.APPRAISAL,
+                            NotificationType.COURSE, NotificationType.USER_UPDATE)))))
+                    .thenReturn(List.of(folded));
+            NotificationDTO foldedDto = new NotificationDTO();
+            when(notificationMapper.toDto(folded)).thenReturn(foldedDto);
+
+            Optional<List<NotificationDTO>> replay = notificationService.getReplay(2L, 10L, 50);
+
+            assertTrue(replay.isPresent());
+            assertEquals(List.of(foldedDto), replay.get());
+        }
+
+        @Test
+        void returnsEmptyWhenGapTooLarge() {
+            when(notificationRepository.getNotificationsAfter(2L, 10L, 3))
+                    .thenReturn(List.of(withId(11L), withId(12L), withId(13L)));
+
+            assertTrue(notificationService.getReplay(2L, 10L, 2).isEmpty());
+            verify(notificationRepository, never()).getUnseenNotifications(anyLong(), anyCollection());
+            verify(notificationMapper, never()).toDto(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("getNotificationFeed")
+    class GetNotificationFeed {
+        private NotificationEntity notification(long id, LocalDateTime creationDate) {
+            NotificationEntity notification = new NotificationEntity();
+            notification.setId(id);
+            notification.setCreationDate(creationDate);
+            return notification;
+        }
+
+        @Test
+        void returnsPageWithCursorToNextOne() {
+            LocalDateTime now = LocalDateTime.of(2026, 10, 1, 12, 0, 0, 123_456_000);
+            List<NotificationEntity> rows = List.of(notification(9L, now), notification(8L, now), notification(7L, now.minusHours(1)));
+            when(notificationRepository.getNotificationFeed(2L, null, null, null, false, false, 3)).thenReturn(rows);
+            when(notificationMapper.toDto(any())).thenReturn(notificationDTO);
+
+            Map<String, Object> page = notificationService.getNotificationFeed(2L, null, 2, null, false, false);
+
+            assertEquals(2, ((List<?>) page.get("notifications")).size());
+            assertEquals(true, page.get("hasMore"));
+            String cursor = (String) page.get("nextCursor");
+            assertNotNull(cursor);
+
+            when(notificationRepository.getNotificationFeed(2L, now, 8L, NotificationType.APPRAISAL, true, true, 3))
+                    .thenReturn(List.of(notification(7L, now.minusHours(1))));
+            Map<String, Object> next = notificationService.getNotificationFeed(2L, cursor, 2, NotificationType.APPRAISAL, true, true);
+            assertEquals(false, next.get("hasMore"));
+            assertNull(next.get("nextCursor"));
+        }
+
+        @Test
+        void capsPageSize() {
+            when(notificationRepository.getNotificationFeed(eq(2L), isNull(), isNull(), isNull(), eq(false), eq(false), anyInt()))
+                    .thenReturn(List.of());
+            Map<String, Object> page = notificationService.getNotificationFeed(2L, null, 10_000, null, false, false);
+            assertEquals(NotificationService.MAX_FEED_PAGE_SIZE, page.get("limit"));
+            verify(notificationRepository).getNotificationFeed(2L, null, null, null, false, false,
+                    NotificationService.MAX_FEED_PAGE_SIZE + 1);
+        }
+
+        @Test
+        void rejectsMalformedCursor() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> notificationService.getNotificationFeed(2L, "not-a-cursor", 20, null, false, false));
+            verifyNoInteractions(notificationRepository);
+        }
+    }
+
     @Nested
     @DisplayName("newCycleOpenNotification")
     class NewCycleOpenNotification {
         @Test
-        void createsNotificationsForAllUsers() throws Exception {
-            List<UserEntity> users = Arrays.asList(recipient, sender);
-            when(userRepository.findUserById(anyLong())).thenReturn(recipient).thenReturn(sender);
-            when(notificationMapper.toDto(any())).thenReturn(notificationDTO);
-            doReturn(true).when(wsNotifications).notifyUser(notificationDTO);
-            assertDoesNotThrow(() -> notificationService.newCycleOpenNotification(cycle, users));
+        void broadcastsToAllUsersWithBulkInsert() {
+            UserEntity manager = new UserEntity();
+            manager.setId(2L);
+            UserEntity admin = new UserEntity();
+            admin.setId(3L);
+            when(sender.getId()).thenReturn(1L);
+            when(userRepository.findUserById(1L)).thenReturn(sender);
+            when(notificationRepository.insertBroadcast(eq(NotificationType.CYCLE_OPEN), anyString(), eq(1L), anyCollection(), any()))
+                    .thenReturn(2);
+
+            notificationService.newCycleOpenNotification(cycle, Arrays.asList(manager, null, admin, manager));
+
+            verify(notificationRepository).insertBroadcast(eq(NotificationType.CYCLE_OPEN), eq(cycle.getEndDate().toString()),
+                    eq(1L), eq(new LinkedHashSet<>(List.of(2L, 3L))), any());
+            verify(userRepository, times(1)).findUserById(anyLong());
+            verify(notificationRepository, never()).persist(any());
+            verify(notificationCounterService).adjust(new LinkedHashSet<>(List.of(2L, 3L)), 1, 1);
+            verify(notificationsWritten).fire(any(NotificationsWrittenEvent.class));
         }
         @Test
         void handlesNullCycleOrUsers() {
             assertDoesNotThrow(() -> notificationService.newCycleOpenNotification(null, null));
         }
         @Test
-        void handlesUserNotFound() {
+        void handlesSenderNotFound() {
             List<UserEntity> users = Arrays.asList(recipient);
+            when(recipient.getId()).thenReturn(2L);
             when(userRepository.findUserById(anyLong())).thenReturn(null);
             assertDoesNotThrow(() -> notificationService.newCycleOpenNotification(cycle, users));
+            verify(notificationRepository, never()).insertBroadcast(any(), any(), any(), any(), any());
         }
     }
 
@@ -299,22 +475,27 @@ class NotificationServiceTest {
     @DisplayName("newCycleCloseNotification")
     class NewCycleCloseNotification {
         @Test
-        void createsNotificationsForAllUsers() throws Exception {
-            List<UserEntity> users = Arrays.asList(recipient, sender);
-            when(userRepository.findUserById(anyLong())).thenReturn(recipient).thenReturn(sender);
-            when(notificationMapper.toDto(any())).thenReturn(notificationDTO);
-            doReturn(true).when(wsNotifications).notifyUser(notificationDTO);
-            assertDoesNotThrow(() -> notificationService.newCycleCloseNotification(cycle, users));
+        void broadcastsToAllUsersWithBulkInsert() {
+            when(recipient.getId()).thenReturn(2L);
+            when(sender.getId()).thenReturn(1L);
+            when(userRepository.findUserById(1L)).thenReturn(sender);
+            when(notificationRepository.insertBroadcast(eq(NotificationType.CYCLE_CLOSE), anyString(), eq(1L), anyCollection(), any()))
+                    .thenReturn(1);
+
+            notificationService.newCycleCloseNotification(cycle, Arrays.asList(recipient));
+
+            verify(notificationRepository).insertBroadcast(eq(NotificationType.CYCLE_CLOSE), anyString(), eq(1L),
+                    eq(new LinkedHashSet<>(List.of(2L))), any());
+            verify(notificationsWritten).fire(any(NotificationsWrittenEvent.class));
         }
         @Test
         void handlesNullCycleOrUsers() {
             assertDoesNotThrow(() -> notificationService.newCycleCloseNotification(null, null));
         }
         @Test
-        void handlesUserNotFound() {
-            List<UserEntity> users = Arrays.asList(recipient);
-            when(userRepository.findUserById(anyLong())).thenReturn(null);
-            assertDoesNotThrow(() -> notificationService.newCycleCloseNotification(cycle, users));
+        void skipsEmptyRecipientList() {
+            assertDoesNotThrow(() -> notificationService.newCycleCloseNotification(cycle, List.of()));
+            verify(userRepository, never()).findUserById(anyLong());
         }
     }
 
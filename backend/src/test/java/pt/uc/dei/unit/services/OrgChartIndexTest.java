@@ -0,0 +1,125 @@
+package pt.uc.dei.unit.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import pt.uc.dei.repositories.UserRepository;
+import pt.uc.dei.services.ManagerChangedEvent;
+import pt.uc.dei.services.OrgChartIndex;
+import pt.uc.dei.websocket.LocalMessageBus;
+import pt.uc.dei.websocket.MessageBus;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrgChartIndexTest {
+    private OrgChartIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new OrgChartIndex();
+        // 1 manages 2 and 3; 2 manages 4
+        index.load(Map.of(2L, 1L, 3L, 1L, 4L, 2L));
+    }
+
+    @Test
+    void testDirectManager() {
+        assertTrue(index.isDirectManager(1L, 2L));
+        assertTrue(index.isDirectManager(2L, 4L));
+        assertFalse(index.isDirectManager(1L, 4L));
+        assertFalse(index.isDirectManager(1L, 1L));
+        assertNull(index.getManager(1L));
+    }
+
+    @Test
+    void testTransitiveManager() {
+        assertTrue(index.isManagerOf(1L, 4L));
+        assertTrue(index.isManagerOf(2L, 4L));
+        assertFalse(index.isManagerOf(3L, 4L));
+        assertFalse(index.isManagerOf(4L, 1L));
+        assertFalse(index.isManagerOf(null, 4L));
+    }
+
+    @Test
+    void testReassignmentUpdatesChildren() {
+        index.setManager(4L, 3L);
+        assertEquals(Set.of(2L, 3L), index.getDirectReports(1L));
+        assertTrue(index.getDirectReports(2L).isEmpty());
+        assertEquals(Set.of(4L), index.getDirectReports(3L));
+        assertTrue(index.isManagerOf(1L, 4L));
+        assertFalse(index.isManagerOf(2L, 4L));
+    }
+
+    @Test
+    void testRemoveManager() {
+        index.setManager(2L, null);
+        assertNull(index.getManager(2L));
+        assertFalse(index.isManagerOf(1L, 4L));
+        assertEquals(Set.of(3L), index.getDirectReports(1L));
+        assertEquals(3, index.size() + 1);
+    }
+
+    @Test
+    void testCycleDoesNotLoop() {
+        index.setManager(1L, 4L);
+        assertFalse(index.isManagerOf(99L, 4L));
+        assertTrue(index.isManagerOf(4L, 2L));
+    }
+
+    @Test
+    void testCommittedReassignmentReachesOtherNodes() throws Exception {
+        LocalMessageBus bus = new LocalMessageBus();
+        OrgChartIndex local = node(bus, mock(UserRepository.class));
+        OrgChartIndex remote = node(bus, mock(UserRepository.class));
+        remote.load(Map.of(2L, 1L, 4L, 2L));
+
+        local.onManagerChanged(new ManagerChangedEvent(4L, 1L));
+        assertEquals(1L, local.getManager(4L));
+        assertEquals(1L, remote.getManager(4L));
+        assertEquals(Set.of(2L, 4L), remote.getDirectReports(1L));
+
+        local.onManagerChanged(new ManagerChangedEvent(2L, null));
+        assertNull(remote.getManager(2L));
+        assertFalse(remote.isManagerOf(1L, 2L));
+    }
+
+    @Test
+    void testReloadsFromDatabaseAfterBusReconnect() throws Exception {
+        MessageBus bus = mock(MessageBus.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        OrgChartIndex node = node(bus, userRepository);
+        node.load(Map.of(2L, 1L));
+        ArgumentCaptor<Runnable> reconnect = ArgumentCaptor.forClass(Runnable.class);
+        verify(bus).onReconnect(reconnect.capture());
+        verify(bus).subscribe(eq("org_chart"), any());
+
+        // A reassignment missed while disconnected is picked up from the database
+        when(userRepository.findManagerLinks()).thenReturn(Map.of(2L, 3L));
+        reconnect.getValue().run();
+
+        assertEquals(3L, node.getManager(2L));
+        assertTrue(node.getDirectReports(1L).isEmpty());
+        verify(bus, never()).publish(anyString(), anyString());
+    }
+
+    private static OrgChartIndex node(MessageBus bus, UserRepository userRepository) throws Exception {
+        OrgChartIndex index = new OrgChartIndex();
+        setField(index, "messageBus", bus);
+        setField(index, "userRepository", userRepository);
+        Method subscribe = OrgChartIndex.class.getDeclaredMethod("subscribe");
+        subscribe.setAccessible(true);
+        subscribe.invoke(index);
+        return index;
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
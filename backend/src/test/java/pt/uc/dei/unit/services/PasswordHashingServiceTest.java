@@ -0,0 +1,118 @@
+package pt.uc.dei.unit.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.services.PasswordHashingService;
+import pt.uc.dei.services.PasswordHashingService.PasswordHashingUnavailableException;
+import pt.uc.dei.utils.PasswordUtils;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private PasswordHashingService service;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (service != null) {
+            Method shutdown = PasswordHashingService.class.getDeclaredMethod("shutdown");
+            shutdown.setAccessible(true);
+            shutdown.invoke(service);
+        }
+    }
+
+    @Test
+    void hashesWithConfiguredCostAndVerifies() {
+        service = new PasswordHashingService(2, 8, Duration.ofSeconds(5), 4);
+        String hash = service.hash("secret");
+        assertEquals(4, PasswordUtils.getCost(hash));
+        assertTrue(service.verify(hash, "secret"));
+        assertFalse(service.verify(hash, "wrong"));
+    }
+
+    @Test
+    void detectsHashesThatNeedRehash() {
+        service = new PasswordHashingService(1, 4, Duration.ofSeconds(5), 5);
+        String outdated = PasswordUtils.encrypt("secret", 4);
+        assertTrue(service.needsRehash(outdated));
+        assertFalse(service.needsRehash(PasswordUtils.encrypt("secret", 5)));
+
+        String upgraded = service.rehashIfNeeded(outdated, "secret");
+        assertNotNull(upgraded);
+        assertEquals(5, PasswordUtils.getCost(upgraded));
+        assertTrue(PasswordUtils.verify(upgraded, "secret"));
+        assertNull(service.rehashIfNeeded(upgraded, "secret"));
+        assertEquals(1L, service.getStats().get("rehashed"));
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        service = new PasswordHashingService(1, 1, Duration.ofSeconds(30), 12);
+        ExecutorService callers = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                results.add(callers.submit(() -> service.hash("secret")));
+            }
+            int rejected = 0;
+            for (Future<String> result : results) {
+                try {
+                    result.get();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    assertInstanceOf(PasswordHashingUnavailableException.class, e.getCause());
+                    rejected++;
+                }
+            }
+            assertTrue(rejected > 0, "expected at least one rejection");
+            assertEquals((long) rejected, service.getStats().get("rejected"));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void dropsRequestsThatWaitedPastTheQueueTimeout() throws Exception {
+        service = new PasswordHashingService(1, 8, Duration.ofMillis(1), 12);
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                results.add(callers.submit(() -> service.hash("secret")));
+            }
+            int dropped = 0;
+            for (Future<String> result : results) {
+                try {
+                    result.get();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    assertInstanceOf(PasswordHashingUnavailableException.class, e.getCause());
+                    dropped++;
+                }
+            }
+            assertTrue(dropped > 0, "expected at least one request to time out in the queue");
+            assertEquals((long) dropped, service.getStats().get("timedOut"));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordsLatencyHistograms() {
+        service = new PasswordHashingService(1, 4, Duration.ofSeconds(5), 4);
+        service.hash("a");
+        service.verify(service.hash("b"), "b");
+        Map<String, Object> stats = service.getStats();
+        assertEquals(4, stats.get("cost"));
+        assertEquals(3L, ((Map<String, Object>) stats.get("hashLatency")).get("count"));
+        assertEquals(3L, ((Map<String, Object>) stats.get("queueWait")).get("count"));
+    }
+}
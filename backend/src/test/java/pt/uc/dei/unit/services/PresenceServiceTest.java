@@ -0,0 +1,203 @@
+package pt.uc.dei.unit.services;
+
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pt.uc.dei.repositories.MessageRepository;
+import pt.uc.dei.repositories.UserRepository;
+import pt.uc.dei.services.PresenceService;
+import pt.uc.dei.websocket.LocalMessageBus;
+import pt.uc.dei.websocket.SessionRegistry;
+import pt.uc.dei.websocket.WebSocketCluster;
+import pt.uc.dei.websocket.WsChat;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceServiceTest {
+
+    @Mock UserRepository userRepository;
+    @Mock MessageRepository messageRepository;
+    @Mock WsChat wsChat;
+    private final LocalMessageBus bus = new LocalMessageBus();
+    @Spy WebSocketCluster cluster = new WebSocketCluster(bus, "node-a", 60_000);
+    @InjectMocks PresenceService presenceService;
+
+    private final SessionRegistry chat = new SessionRegistry();
+    private final SessionRegistry notifications = new SessionRegistry();
+
+    @BeforeEach
+    void setUp() {
+        cluster.register("chat", WebSocketCluster.LocalDelivery.of(chat, null));
+        cluster.register("notifications", WebSocketCluster.LocalDelivery.of(notifications, null));
+        cluster.start();
+    }
+
+    /**
+     * Starts a second node on the same bus, with one chat session of the user.
+     */
+    private void connectOnOtherNode(Long userId) {
+        WebSocketCluster other = new WebSocketCluster(bus, "node-b", 60_000);
+        SessionRegistry otherChat = new SessionRegistry();
+        other.register("chat", WebSocketCluster.LocalDelivery.of(otherChat, null));
+        other.start();
+        Session session = mock(Session.class);
+        when(session.getId()).thenReturn("b-" + userId);
+        otherChat.register(userId, session);
+        other.announce("chat", userId);
+    }
+
+    private Session connect(SessionRegistry registry, Long userId, String sessionId) {
+        Session session = mock(Session.class);
+        when(session.getId()).thenReturn(sessionId);
+        registry.register(userId, session);
+        presenceService.sessionsChanged(userId);
+        return session;
+    }
+
+    private void disconnect(SessionRegistry registry, Session session) {
+        presenceService.sessionsChanged(registry.unregister(session));
+    }
+
+    private static List<Object[]> contacts(Long... ids) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Long id : ids) {
+            rows.add(new Object[]{id, LocalDateTime.now()});
+        }
+        return rows;
+    }
+
+    @Test
+    void firstSessionMarksUserOnlineAndNotifiesContacts() {
+        when(messageRepository.getAllConversations(1L)).thenReturn(contacts(2L, 3L));
+
+        connect(chat, 1L, "s1");
+
+        assertTrue(presenceService.isOnline(1L));
+        // Contacts may be connected to another node, so every contact is handed to the WebSocket delivery
+        verify(wsChat).sendPresence(2L, 1L, true);
+        verify(wsChat).sendPresence(3L, 1L, true);
+    }
+
+    @Test
+    void additionalSessionsDoNotRepublish() {
+        when(messageRepository.getAllConversations(1L)).thenReturn(contacts());
+        connect(chat, 1L, "s1");
+        connect(notifications, 1L, "s2");
+        presenceService.sessionsChanged(1L);
+        verify(messageRepository, times(1)).getAllConversations(1L);
+    }
+
+    @Test
+    void lastSessionClosedMarksUserOffline() {
+        when(messageRepository.getAllConversations(1L)).thenReturn(contacts());
+        Session first = connect(chat, 1L, "s1");
+        Session second = connect(notifications, 1L, "s2");
+
+        disconnect(chat, first);
+        assertTrue(presenceService.isOnline(1L));
+
+        disconnect(notifications, second);
+        disconnect(notifications, second);
+        assertFalse(presenceService.isOnline(1L));
+        verify(messageRepository, times(2)).getAllConversations(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushWritesPendingPresenceInBulk() {
+        when(messageRepository.getAllConversations(anyLong())).thenReturn(contacts());
+        connect(chat, 1L, "s1");
+        connect(notifications, 2L, "s2");
+        disconnect(chat, connect(chat, 3L, "s3"));
+        presenceService.recordActivity(4L);
+        when(userRepository.updatePresence(anyCollection(), anyBoolean(), any())).thenReturn(2);
+
+        presenceService.flush();
+
+        ArgumentCaptor<Collection<Long>> online = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Collection<Long>> offline = ArgumentCaptor.forClass(Collection.class);
+        verify(userRepository).updatePresence(online.capture(), eq(true), any(LocalDateTime.class));
+        verify(userRepository).updatePresence(offline.capture(), eq(false), any(LocalDateTime.class));
+        assertEquals(2, online.getValue().size());
+        assertTrue(online.getValue().containsAll(List.of(1L, 2L)));
+        assertTrue(offline.getValue().containsAll(List.of(3L, 4L)));
+        assertEquals(0, presenceService.getPendingCount());
+        verify(userRepository, never()).findUserById(anyLong());
+        verify(userRepository, never()).merge(any());
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        presenceService.recordActivity(1L);
+        when(userRepository.updatePresence(anyCollection(), anyBoolean(), any()))
+                .thenThrow(new RuntimeException("db down"));
+
+        presenceService.flush();
+
+        assertEquals(1, presenceService.getPendingCount());
+    }
+
+    @Test
+    void flushWithoutChangesSkipsDatabase() {
+        presenceService.flush();
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void recordActivityRequiresUserId() {
+        assertFalse(presenceService.recordActivity(null));
+        assertTrue(presenceService.recordActivity(5L));
+        assertEquals(1, presenceService.getPendingCount());
+    }
+
+    @Test
+    void userConnectedToAnotherNodeIsNotWrittenOffline() {
+        when(messageRepository.getAllConversations(1L)).thenReturn(contacts(2L));
+        Session session = connect(chat, 1L, "s1");
+        connectOnOtherNode(1L);
+
+        disconnect(chat, session);
+        presenceService.flush();
+
+        assertTrue(presenceService.isOnline(1L));
+        assertEquals(0, presenceService.getPendingCount());
+        verify(wsChat, never()).sendPresence(2L, 1L, false);
+        verify(userRepository, never()).updatePresence(argThat(ids -> ids.contains(1L)), eq(false), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void startupResetWaitsAndSparesUsersOfOtherNodes() throws Exception {
+        when(userRepository.findOnlineUserIds()).thenReturn(List.of(1L, 2L));
+        connectOnOtherNode(2L);
+
+        presenceService.resetOnlineStatus();
+        presenceService.flush();
+        verify(userRepository, never()).resetOnlineStatus(anyCollection());
+
+        Field resetAfter = PresenceService.class.getDeclaredField("resetAfter");
+        resetAfter.setAccessible(true);
+        resetAfter.setLong(presenceService, 0L);
+        presenceService.flush();
+        presenceService.flush();
+
+        ArgumentCaptor<Collection<Long>> reset = ArgumentCaptor.forClass(Collection.class);
+        verify(userRepository).resetOnlineStatus(reset.capture());
+        assertEquals(List.of(1L), List.copyOf(reset.getValue()));
+    }
+}
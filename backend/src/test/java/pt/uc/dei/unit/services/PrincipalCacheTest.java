@@ -0,0 +1,127 @@
+package pt.uc.dei.unit.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.dtos.UserResponseDTO;
+import pt.uc.dei.services.PrincipalCache;
+import pt.uc.dei.services.PrincipalChangedEvent;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrincipalCacheTest {
+    private AtomicLong clock;
+    private AtomicInteger loads;
+    private Function<Long, UserResponseDTO> loader;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        loads = new AtomicInteger();
+        loader = id -> {
+            loads.incrementAndGet();
+            UserResponseDTO dto = new UserResponseDTO();
+            dto.setId(id);
+            return dto;
+        };
+    }
+
+    private PrincipalCache cache(int maxEntries) {
+        return new PrincipalCache(maxEntries, Duration.ofSeconds(60), clock::get);
+    }
+
+    @Test
+    void testHitAfterMiss() {
+        PrincipalCache cache = cache(10);
+        UserResponseDTO first = cache.get(1L, loader);
+        UserResponseDTO second = cache.get(1L, loader);
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void testExpiredEntryReloaded() {
+        PrincipalCache cache = cache(10);
+        cache.get(1L, loader);
+        clock.addAndGet(Duration.ofSeconds(61).toNanos());
+        cache.get(1L, loader);
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void testInvalidateForcesReload() {
+        PrincipalCache cache = cache(10);
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+        cache.invalidate(1L, null);
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+        assertEquals(3, loads.get());
+        assertEquals(1L, cache.getStats().get("invalidations"));
+    }
+
+    @Test
+    void testNullNotCached() {
+        PrincipalCache cache = cache(10);
+        assertNull(cache.get(1L, id -> null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testInvalidationDuringLoadIsNotCached() {
+        PrincipalCache cache = cache(10);
+        cache.get(1L, id -> {
+            cache.invalidate(id);
+            return loader.apply(id);
+        });
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testBoundedSizeEvictsOldestEntries() {
+        PrincipalCache cache = cache(10);
+        for (long id = 1; id <= 11; id++) {
+            clock.incrementAndGet();
+            cache.get(id, loader);
+        }
+        assertTrue(cache.size() <= 10);
+        assertTrue(cache.getEvictionCount() > 0);
+        // The most recently loaded entry survives eviction
+        cache.get(11L, loader);
+        assertEquals(11, loads.get());
+    }
+
+    @Test
+    void testStatsContainCounters() {
+        PrincipalCache cache = cache(10);
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+        assertEquals(0L, stats.get("evictions"));
+        assertEquals(0.5, (double) stats.get("hitRatio"), 0.0001);
+        assertEquals(60L, stats.get("ttlSeconds"));
+    }
+
+    @Test
+    void testCommittedChangeEventInvalidates() {
+        PrincipalCache cache = cache(10);
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+
+        cache.onPrincipalChanged(new PrincipalChangedEvent(1L, null));
+
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+        assertEquals(3, loads.get());
+    }
+}
@@ -0,0 +1,132 @@
+package pt.uc.dei.unit.services;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.benchmark.SmtpSink;
+import pt.uc.dei.services.SmtpTransportPool;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmtpTransportPoolTest {
+
+    private SmtpSink sink;
+    private SmtpTransportPool pool;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        sink = new SmtpSink(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        sink.close();
+    }
+
+    private SmtpTransportPool pool(int size, Duration validateAfter) {
+        pool = new SmtpTransportPool(sink.sessionProperties(), "citrus@example.com", "secret", size,
+                Duration.ofMillis(100), validateAfter);
+        return pool;
+    }
+
+    private Message message(String recipient) throws MessagingException {
+        Message message = new MimeMessage(pool.getSession());
+        message.setFrom(new InternetAddress("citrus@example.com"));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(recipient));
+        message.setSubject("CITRUS - test");
+        message.setContent("<p>Olá</p>", "text/html");
+        return message;
+    }
+
+    @Test
+    void reusesOneAuthenticatedConnectionForSequentialSends() throws Exception {
+        pool(2, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 20; i++) {
+            pool.send(message("user" + i + "@example.com"));
+        }
+
+        assertEquals(20, sink.getMessagesReceived());
+        assertEquals(1, sink.getConnectionsAccepted());
+        assertEquals(1, sink.getAuthentications());
+        assertEquals(20L, pool.getStats().get("messagesSent"));
+        assertEquals(1, pool.getStats().get("idle"));
+    }
+
+    @Test
+    void leaseSendsManyMessagesOnOneConnection() throws Exception {
+        pool(2, Duration.ofMinutes(1));
+
+        try (SmtpTransportPool.Lease lease = pool.lease()) {
+            for (int i = 0; i < 5; i++) {
+                lease.send(message("user" + i + "@example.com"));
+            }
+            assertEquals(1, pool.getStats().get("inUse"));
+        }
+
+        assertEquals(5, sink.getMessagesReceived());
+        assertEquals(1, sink.getConnectionsAccepted());
+        assertEquals(0, pool.getStats().get("inUse"));
+    }
+
+    @Test
+    void reconnectsAndRetriesWhenServerDroppedConnection() throws Exception {
+        pool(1, Duration.ofMinutes(1));
+        pool.send(message("first@example.com"));
+
+        sink.dropConnections();
+        pool.send(message("second@example.com"));
+
+        assertEquals(2, sink.getMessagesReceived());
+        assertEquals(2, sink.getConnectionsAccepted());
+        assertEquals(1L, pool.getStats().get("reconnects"));
+    }
+
+    @Test
+    void checksIdleConnectionBeforeReuse() throws Exception {
+        pool(1, Duration.ZERO);
+        pool.send(message("first@example.com"));
+
+        sink.dropConnections();
+        pool.send(message("second@example.com"));
+
+        assertEquals(2, sink.getMessagesReceived());
+        assertEquals(2L, pool.getStats().get("connectionsOpened"));
+        assertEquals(0L, pool.getStats().get("reconnects"));
+    }
+
+    @Test
+    void rejectedRecipientKeepsConnection() throws Exception {
+        pool(1, Duration.ofMinutes(1));
+
+        assertThrows(SendFailedException.class, () -> pool.send(message("reject@example.com")));
+        pool.send(message("ok@example.com"));
+
+        assertEquals(1, sink.getMessagesReceived());
+        assertEquals(1, sink.getConnectionsAccepted());
+        assertEquals(1L, pool.getStats().get("sendFailures"));
+    }
+
+    @Test
+    void failsWhenNoConnectionIsFreeInTime() throws Exception {
+        pool(1, Duration.ofMinutes(1));
+
+        try (SmtpTransportPool.Lease ignored = pool.lease()) {
+            assertThrows(MessagingException.class, () -> pool.send(message("late@example.com")));
+        }
+
+        assertEquals(1L, pool.getStats().get("borrowTimeouts"));
+        pool.send(message("later@example.com"));
+        assertEquals(1, sink.getMessagesReceived());
+    }
+}
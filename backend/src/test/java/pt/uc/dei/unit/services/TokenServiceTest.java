@@ -11,6 +11,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import pt.uc.dei.dtos.*;
 import pt.uc.dei.entities.*;
 import pt.uc.dei.repositories.*;
+import pt.uc.dei.config.ConfigurationSnapshot;
+import pt.uc.dei.services.ConfigurationSnapshotHolder;
 import pt.uc.dei.services.TokenService;
 import pt.uc.dei.services.UserService;
 
@@ -28,7 +30,7 @@ class TokenServiceTest {
     @Mock ActivationTokenRepository activationTokenRepository;
     @Mock TemporaryUserRepository temporaryUserRepository;
     @Mock UserRepository userRepository;
-    @Mock ConfigurationRepository configurationRepository;
+    @Mock ConfigurationSnapshotHolder configurationSnapshotHolder;
     @Mock UserService userService;
     @Mock PasswordResetTokenRepository passwordResetTokenRepository;
     @InjectMocks TokenService tokenService;
@@ -179,21 +181,21 @@ class TokenServiceTest {
     class IsTokenExpired {
         @Test
         void returnsTrueIfExpired() {
-            when(configurationRepository.getLatestConfiguration()).thenReturn(configurationEntity);
+            when(configurationSnapshotHolder.get()).thenReturn(ConfigurationSnapshot.from(configurationEntity));
             ActivationTokenDTO token = new ActivationTokenDTO();
             token.setCreationDate(LocalDateTime.now().minusMinutes(120));
             assertTrue(tokenService.isTokenExpired(token));
         }
         @Test
         void returnsFalseIfNotExpired() {
-            when(configurationRepository.getLatestConfiguration()).thenReturn(configurationEntity);
+            when(configurationSnapshotHolder.get()).thenReturn(ConfigurationSnapshot.from(configurationEntity));
             ActivationTokenDTO token = new ActivationTokenDTO();
             token.setCreationDate(LocalDateTime.now());
             assertFalse(tokenService.isTokenExpired(token));
         }
         @Test
         void returnsFalseIfException() {
-            when(configurationRepository.getLatestConfiguration()).thenThrow(new RuntimeException());
+            when(configurationSnapshotHolder.get()).thenThrow(new RuntimeException());
             ActivationTokenDTO token = new ActivationTokenDTO();
             token.setCreationDate(LocalDateTime.now());
             assertFalse(tokenService.isTokenExpired(token));
@@ -0,0 +1,84 @@
+package pt.uc.dei.unit.services;
+
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.services.PrincipalCache;
+import pt.uc.dei.services.TokenVersionChangedEvent;
+import pt.uc.dei.services.TokenVersionRegistry;
+import pt.uc.dei.websocket.LocalMessageBus;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TokenVersionRegistryTest {
+
+    @Test
+    void testUnknownUserAcceptsTokensWithoutVersion() {
+        TokenVersionRegistry registry = new TokenVersionRegistry();
+        assertEquals(0, registry.currentVersion(1L));
+        assertTrue(registry.isCurrent(1L, null));
+        assertTrue(registry.isCurrent(1L, 0));
+    }
+
+    @Test
+    void testUpdateRejectsOlderTokens() {
+        TokenVersionRegistry registry = new TokenVersionRegistry();
+        registry.update(1L, 2);
+        assertFalse(registry.isCurrent(1L, null));
+        assertFalse(registry.isCurrent(1L, 1));
+        assertTrue(registry.isCurrent(1L, 2));
+        assertTrue(registry.isCurrent(2L, null));
+    }
+
+    @Test
+    void testVersionsOnlyMoveForward() {
+        TokenVersionRegistry registry = new TokenVersionRegistry();
+        registry.update(1L, 3);
+        registry.update(1L, 2);
+        assertEquals(3, registry.currentVersion(1L));
+    }
+
+    @Test
+    void testLoadReplacesTable() {
+        TokenVersionRegistry registry = new TokenVersionRegistry();
+        registry.update(1L, 5);
+        registry.load(Map.of(2L, 1));
+        assertEquals(0, registry.currentVersion(1L));
+        assertEquals(1, registry.currentVersion(2L));
+    }
+
+    @Test
+    void testCommittedBumpDropsPrincipalAndReachesOtherNodes() throws Exception {
+        LocalMessageBus bus = new LocalMessageBus();
+        PrincipalCache localCache = mock(PrincipalCache.class);
+        PrincipalCache remoteCache = mock(PrincipalCache.class);
+        TokenVersionRegistry local = node(bus, localCache);
+        TokenVersionRegistry remote = node(bus, remoteCache);
+
+        local.onTokenVersionChanged(new TokenVersionChangedEvent(1L, 2));
+
+        assertEquals(2, local.currentVersion(1L));
+        assertEquals(2, remote.currentVersion(1L));
+        verify(localCache).invalidate(1L);
+        verify(remoteCache).invalidate(1L);
+    }
+
+    private static TokenVersionRegistry node(LocalMessageBus bus, PrincipalCache principalCache) throws Exception {
+        TokenVersionRegistry registry = new TokenVersionRegistry();
+        setField(registry, "messageBus", bus);
+        setField(registry, "principalCache", principalCache);
+        Method subscribe = TokenVersionRegistry.class.getDeclaredMethod("subscribe");
+        subscribe.setAccessible(true);
+        subscribe.invoke(registry);
+        return registry;
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -1,11 +1,13 @@
 package pt.uc.dei.unit.services;
 
+import jakarta.enterprise.event.Event;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import pt.uc.dei.dtos.*;
 import pt.uc.dei.entities.*;
@@ -14,12 +16,19 @@ import pt.uc.dei.mapper.FinishedCourseMapper;
 import pt.uc.dei.mapper.UserMapper;
 import pt.uc.dei.repositories.*;
 import pt.uc.dei.services.EmailService;
+import pt.uc.dei.services.ManagerChangedEvent;
 import pt.uc.dei.services.NotificationService;
+import pt.uc.dei.services.OrgChartIndex;
+import pt.uc.dei.services.PasswordHashingService;
+import pt.uc.dei.services.PrincipalChangedEvent;
 import pt.uc.dei.services.TokenService;
+import pt.uc.dei.services.TokenVersionChangedEvent;
 import pt.uc.dei.services.UserService;
 import pt.uc.dei.utils.CSVGenerator;
 import pt.uc.dei.utils.JWTUtil;
 import pt.uc.dei.utils.TwoFactorUtil;
+import pt.uc.dei.websocket.LocalMessageBus;
+import java.lang.reflect.Field;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -44,6 +53,11 @@ class UserServiceTest {
     @Mock FinishedCourseMapper finishedCourseMapper;
     @Mock TwoFactorUtil twoFactorUtil;
     @Mock ActivationTokenRepository activationTokenRepository;
+    @Mock Event<PrincipalChangedEvent> principalChanged;
+    @Mock Event<TokenVersionChangedEvent> tokenVersionChanged;
+    @Mock PasswordHashingService passwordHashingService;
+    @Spy OrgChartIndex orgChartIndex = new OrgChartIndex();
+    @Mock Event<ManagerChangedEvent> managerChanged;
 
     @InjectMocks UserService userService;
 
@@ -146,19 +160,47 @@ class UserServiceTest {
 
     @Test
     void testCheckIfManagerOfUser_true() {
-        UserEntity user = new UserEntity();
-        UserEntity manager = new UserEntity();
-        manager.setId(2L);
-        user.setManagerUser(manager);
-        when(userRepository.findUserById(1L)).thenReturn(user);
+        orgChartIndex.setManager(1L, 2L);
         assertTrue(userService.checkIfManagerOfUser(1L, 2L));
+        verifyNoInteractions(userRepository);
     }
 
     @Test
     void testCheckIfManagerOfUser_false() {
+        orgChartIndex.setManager(1L, 3L);
+        assertFalse(userService.checkIfManagerOfUser(1L, 2L));
+        assertFalse(userService.checkIfManagerOfUser(4L, 2L));
+    }
+
+    @Test
+    void testUpdateUser_managerReassignmentUpdatesOrgChartAfterCommit() throws Exception {
+        UserEntity previousManager = new UserEntity();
+        previousManager.setId(2L);
+        previousManager.setUserIsManager(true);
+        UserEntity newManager = new UserEntity();
+        newManager.setId(3L);
+        newManager.setUserIsManager(true);
         UserEntity user = new UserEntity();
-        user.setManagerUser(null);
+        user.setId(1L);
+        user.setHasAvatar(false);
+        user.setManagerUser(previousManager);
+        orgChartIndex.setManager(1L, 2L);
         when(userRepository.findUserById(1L)).thenReturn(user);
+        when(userRepository.findUserById(3L)).thenReturn(newManager);
+        when(userRepository.checkIfUserStillHasManagedUsers(2L)).thenReturn(true);
+        UpdateUserDTO dto = new UpdateUserDTO();
+        dto.setManagerId(3L);
+        assertTrue(userService.updateUser(1L, dto));
+        // Still the committed manager until the transaction succeeds
+        assertTrue(userService.checkIfManagerOfUser(1L, 2L));
+        ArgumentCaptor<ManagerChangedEvent> event = ArgumentCaptor.forClass(ManagerChangedEvent.class);
+        verify(managerChanged).fire(event.capture());
+
+        Field messageBus = OrgChartIndex.class.getDeclaredField("messageBus");
+        messageBus.setAccessible(true);
+        messageBus.set(orgChartIndex, new LocalMessageBus());
+        orgChartIndex.onManagerChanged(event.getValue());
+        assertTrue(userService.checkIfManagerOfUser(1L, 3L));
         assertFalse(userService.checkIfManagerOfUser(1L, 2L));
     }
 
@@ -221,6 +263,21 @@ class UserServiceTest {
         // merge is void, so just doNothing
         doNothing().when(userRepository).merge(user);
         assertTrue(userService.updateAdminPermissions(1L, true, 2L));
+        verify(principalChanged).fire(argThat(event -> event.getUserIds().equals(List.of(1L))));
+    }
+
+    @Test
+    void testUpdateAdminPermissions_revokesExistingTokens() {
+        UserEntity requester = new UserEntity();
+        requester.setUserIsAdmin(true);
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        user.setUserIsAdmin(false);
+        when(userRepository.findUserById(1L)).thenReturn(user);
+        when(userRepository.findUserById(2L)).thenReturn(requester);
+        assertTrue(userService.updateAdminPermissions(1L, true, 2L));
+        assertEquals(1, user.getTokenVersion());
+        verify(tokenVersionChanged).fire(argThat(event -> event.getUserId().equals(1L) && event.getVersion() == 1));
     }
 
     @Test
@@ -0,0 +1,82 @@
+package pt.uc.dei.unit.utils;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.dtos.MessageDTO;
+import pt.uc.dei.dtos.NotificationDTO;
+import pt.uc.dei.dtos.UserResponseDTO;
+import pt.uc.dei.utils.FrameEncoder;
+import pt.uc.dei.utils.JsonCreator;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameEncoderTest {
+
+    private static JsonObject parse(String json) {
+        try (JsonReader reader = Json.createReader(new StringReader(json))) {
+            return reader.readObject();
+        }
+    }
+
+    private static MessageDTO message() {
+        MessageDTO message = new MessageDTO();
+        message.setId(7L);
+        message.setSenderId(1L);
+        message.setRecipientId(2L);
+        message.setContent("Olá \"mundo\"\n");
+        message.setSentDate(LocalDateTime.of(2026, 10, 17, 9, 30, 15, 123_000_000));
+        message.setMessageIsRead(false);
+        return message;
+    }
+
+    @Test
+    void matchesJsonCreatorForDtos() {
+        MessageDTO message = message();
+        assertEquals(JsonCreator.createJson("MESSAGE", "message", message),
+                parse(FrameEncoder.encode("MESSAGE", "message", message)));
+
+        NotificationDTO notification = new NotificationDTO();
+        notification.setId(3L);
+        notification.setType("APPRAISAL");
+        notification.setContent("5");
+        notification.setCreationDate(LocalDateTime.of(2026, 1, 2, 3, 4));
+        notification.setSender(new UserResponseDTO());
+        assertEquals(JsonCreator.createJson("APPRAISAL", "notification", notification),
+                parse(FrameEncoder.encode("APPRAISAL", "notification", notification)));
+    }
+
+    @Test
+    void matchesJsonCreatorForScalarsAndLists() {
+        assertEquals(JsonCreator.createJson("ERROR", "message", "Invalid"),
+                parse(FrameEncoder.encode("ERROR", "message", "Invalid")));
+        assertEquals(JsonCreator.createJson("NOTIFICATION_COUNT", "count", 4),
+                parse(FrameEncoder.encode("NOTIFICATION_COUNT", "count", 4)));
+        List<MessageDTO> messages = List.of(message(), message());
+        assertEquals(JsonCreator.createJson("REPLAY", "messages", messages),
+                parse(FrameEncoder.encode("REPLAY", "messages", messages)));
+    }
+
+    @Test
+    void reusedBufferDoesNotLeakPreviousFrame() {
+        String large = FrameEncoder.encode("MESSAGE", "message", "x".repeat(10_000));
+        String small = FrameEncoder.encode("PING", "message", "y");
+
+        assertTrue(large.length() > 10_000);
+        assertEquals("{\"type\":\"PING\",\"message\":\"y\"}", small);
+    }
+
+    @Test
+    void oversizedBuffersAreNotRetained() {
+        String huge = FrameEncoder.encode("MESSAGE", "message", "z".repeat(200_000));
+        String next = FrameEncoder.encode("MESSAGE", "message", "a");
+
+        assertEquals(200_000 + "{\"type\":\"MESSAGE\",\"message\":\"\"}".length(), huge.length());
+        assertEquals("{\"type\":\"MESSAGE\",\"message\":\"a\"}", next);
+    }
+}
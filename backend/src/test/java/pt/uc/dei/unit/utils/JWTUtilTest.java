@@ -3,9 +3,11 @@ package pt.uc.dei.unit.utils;
 import pt.uc.dei.utils.JWTUtil;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
@@ -19,6 +21,32 @@ import java.util.Date;
 import static org.junit.jupiter.api.Assertions.*;
 
 class JWTUtilTest {
+    private static final String PRIMARY = "0123456789abcdef0123456789abcdef";
+    private static final String ROTATED = "fedcba9876543210fedcba9876543210";
+
+    @AfterEach
+    void resetKeys() {
+        JWTUtil.SECRET_KEY_ID = null;
+        JWTUtil.RETIRED_SECRET_KEYS = null;
+    }
+
+    private static String encode(String key) {
+        return Base64.getEncoder().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String signedToken(String key, String keyId, String subject) {
+        var builder = Jwts.builder();
+        if (keyId != null) {
+            builder.header().keyId(keyId);
+        }
+        return builder
+                .setSubject(subject)
+                .setIssuedAt(new Date(System.currentTimeMillis() - 1000))
+                .setExpiration(new Date(System.currentTimeMillis() + 100000))
+                .signWith(Keys.hmacShaKeyFor(key.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
     @Test
     void testBuildUnauthorizedResponse() {
         var response = JWTUtil.buildUnauthorizedResponse("Unauthorized");
@@ -66,4 +94,37 @@ class JWTUtilTest {
             assertTrue(claims.get("userIsAdmin", Boolean.class));
         }
     }
+
+    @Test
+    void testValidateToken_RetiredKeyStillAcceptedAfterRotation() {
+        JWTUtil.SECRET_KEY = encode(ROTATED);
+        JWTUtil.SECRET_KEY_ID = "2025-10";
+        JWTUtil.RETIRED_SECRET_KEYS = JWTUtil.DEFAULT_KEY_ID + ":" + encode(PRIMARY);
+
+        assertEquals("7", JWTUtil.validateToken(signedToken(PRIMARY, JWTUtil.DEFAULT_KEY_ID, "7")).getSubject());
+        assertEquals("8", JWTUtil.validateToken(signedToken(ROTATED, "2025-10", "8")).getSubject());
+        // Tokens issued before key ids existed resolve to the default key id
+        assertEquals("9", JWTUtil.validateToken(signedToken(PRIMARY, null, "9")).getSubject());
+    }
+
+    @Test
+    void testValidateToken_UnknownKeyIdRejected() {
+        JWTUtil.SECRET_KEY = encode(PRIMARY);
+        assertThrows(JwtException.class, () -> JWTUtil.validateToken(signedToken(PRIMARY, "unknown", "1")));
+    }
+
+    @Test
+    void testValidateToken_KeyMismatchRejected() {
+        JWTUtil.SECRET_KEY = encode(PRIMARY);
+        assertThrows(JwtException.class, () -> JWTUtil.validateToken(signedToken(ROTATED, JWTUtil.DEFAULT_KEY_ID, "1")));
+    }
+
+    @Test
+    void testValidateToken_PicksUpChangedSecret() {
+        JWTUtil.SECRET_KEY = encode(PRIMARY);
+        String token = signedToken(ROTATED, null, "5");
+        assertThrows(JwtException.class, () -> JWTUtil.validateToken(token));
+        JWTUtil.SECRET_KEY = encode(ROTATED);
+        assertEquals("5", JWTUtil.validateToken(token).getSubject());
+    }
 }
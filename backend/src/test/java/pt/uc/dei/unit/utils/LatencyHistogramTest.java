@@ -0,0 +1,55 @@
+package pt.uc.dei.unit.utils;
+
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.utils.LatencyHistogram;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.percentileMillis(99));
+        assertEquals(0L, histogram.toMap().get("count"));
+    }
+
+    @Test
+    void percentilesFallInPowerOfTwoBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertEquals(100, histogram.getCount());
+        double p50 = histogram.percentileMillis(50);
+        assertTrue(p50 >= 1.0 && p50 <= 2.1, "p50 was " + p50);
+        double p99 = histogram.percentileMillis(99);
+        assertTrue(p99 >= 100.0 && p99 <= 131.1, "p99 was " + p99);
+    }
+
+    @Test
+    void summaryContainsMeanAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(4));
+        Map<String, Object> summary = histogram.toMap();
+        assertEquals(2L, summary.get("count"));
+        assertEquals(3.0, (double) summary.get("meanMs"), 0.001);
+        assertEquals(4.0, (double) summary.get("maxMs"), 0.001);
+    }
+
+    @Test
+    void negativeSamplesCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0.0, (double) histogram.toMap().get("maxMs"));
+    }
+}
@@ -0,0 +1,54 @@
+package pt.uc.dei.unit.utils;
+
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.utils.LongLongHashMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongHashMapTest {
+
+    @Test
+    void testPutGetRemove() {
+        LongLongHashMap map = new LongLongHashMap(2);
+        assertEquals(-1L, map.put(1L, 10L, -1L));
+        assertEquals(10L, map.put(1L, 11L, -1L));
+        assertEquals(11L, map.get(1L, -1L));
+        assertEquals(-1L, map.get(2L, -1L));
+        assertEquals(11L, map.remove(1L, -1L));
+        assertEquals(-1L, map.remove(1L, -1L));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void testRejectsReservedKey() {
+        LongLongHashMap map = new LongLongHashMap();
+        assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, 1L, 0L));
+        assertFalse(map.containsKey(Long.MIN_VALUE));
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomOperations() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, -1L), map.remove(key, -1L));
+                expected.remove(key);
+            } else {
+                long value = random.nextLong();
+                assertEquals(expected.getOrDefault(key, -1L), map.put(key, value, -1L));
+                expected.put(key, value);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2_000; key++) {
+            assertEquals(expected.getOrDefault(key, -1L), map.get(key, -1L));
+        }
+    }
+}
@@ -40,4 +40,23 @@ class PasswordUtilsTest {
         String invalidHash = "$2a$10$invalidhashstringnotvalidatall";
         assertFalse(PasswordUtils.verify(invalidHash, password));
     }
+
+    @Test
+    void testEncryptWithCost_EmbedsCost() {
+        String hash = PasswordUtils.encrypt("password", 5);
+        assertEquals(5, PasswordUtils.getCost(hash));
+        assertTrue(PasswordUtils.verify(hash, "password"));
+    }
+
+    @Test
+    void testGetCost_DefaultCost() {
+        assertEquals(PasswordUtils.DEFAULT_COST, PasswordUtils.getCost(PasswordUtils.encrypt("password")));
+    }
+
+    @Test
+    void testGetCost_NotBcrypt() {
+        assertEquals(-1, PasswordUtils.getCost(null));
+        assertEquals(-1, PasswordUtils.getCost("plaintext"));
+        assertEquals(-1, PasswordUtils.getCost("$2a$xx$abc"));
+    }
 }
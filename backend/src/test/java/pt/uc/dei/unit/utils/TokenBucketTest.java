@@ -0,0 +1,64 @@
+package pt.uc.dei.unit.utils;
+
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.utils.TokenBucket;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void startsFullAndEmptiesAfterBurst() {
+        TokenBucket bucket = new TokenBucket(3, 60, now::get);
+
+        assertEquals(3, bucket.available());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(0, bucket.available());
+    }
+
+    @Test
+    void refillsAtTheHourlyRate() {
+        TokenBucket bucket = new TokenBucket(5, 60, now::get);
+        for (int i = 0; i < 5; i++) {
+            bucket.tryAcquire();
+        }
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertFalse(bucket.tryAcquire());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        assertEquals(2, bucket.available());
+    }
+
+    @Test
+    void neverHoldsMoreThanCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 3600, now::get);
+
+        now.addAndGet(TimeUnit.HOURS.toNanos(1));
+
+        assertEquals(2, bucket.available());
+        assertEquals(2, bucket.getCapacity());
+    }
+
+    @Test
+    void zeroRateNeverRefills() {
+        TokenBucket bucket = new TokenBucket(1, 0, now::get);
+        assertTrue(bucket.tryAcquire());
+
+        now.addAndGet(TimeUnit.DAYS.toNanos(1));
+
+        assertFalse(bucket.tryAcquire());
+    }
+}
@@ -0,0 +1,118 @@
+package pt.uc.dei.unit.websocket;
+
+import jakarta.websocket.Extension;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.Session;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import pt.uc.dei.utils.JWTUtil;
+import pt.uc.dei.websocket.CustomConfigurator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CustomConfiguratorTest {
+
+    private static Extension extension(String name) {
+        return new Extension() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public List<Parameter> getParameters() {
+                return List.of();
+            }
+        };
+    }
+
+    private static List<String> names(List<Extension> extensions) {
+        return extensions.stream().map(Extension::getName).toList();
+    }
+
+    private static Map<String, List<String>> connection(String key) {
+        return key == null ? Map.of() : Map.of(CustomConfigurator.CONNECTION_PARAMETER, List.of(key));
+    }
+
+    private static HandshakeRequest handshake(MockedStatic<JWTUtil> jwt, String key, Long userId) {
+        HandshakeRequest request = mock(HandshakeRequest.class);
+        when(request.getParameterMap()).thenReturn(connection(key));
+        jwt.when(() -> JWTUtil.getUserIdFromToken(request)).thenReturn(userId);
+        return request;
+    }
+
+    private static Session session(String key) {
+        Session session = mock(Session.class);
+        when(session.getRequestParameterMap()).thenReturn(connection(key));
+        return session;
+    }
+
+    private static ServerEndpointConfig endpointConfig(CustomConfigurator configurator) {
+        return ServerEndpointConfig.Builder.create(Object.class, "/websocket/chat/").configurator(configurator).build();
+    }
+
+    @Test
+    void negotiatesPermessageDeflateWhenInstalledAndRequested() {
+        List<Extension> negotiated = new CustomConfigurator(true).getNegotiatedExtensions(
+                List.of(extension("permessage-deflate")),
+                List.of(extension("x-unknown"), extension("permessage-deflate"), extension("permessage-deflate")));
+
+        assertEquals(List.of("permessage-deflate"), names(negotiated));
+    }
+
+    @Test
+    void skipsPermessageDeflateWhenDisabled() {
+        List<Extension> negotiated = new CustomConfigurator(false).getNegotiatedExtensions(
+                List.of(extension("permessage-deflate")), List.of(extension("permessage-deflate")));
+
+        assertTrue(negotiated.isEmpty());
+    }
+
+    @Test
+    void neverNegotiatesExtensionsTheContainerLacks() {
+        List<Extension> negotiated = new CustomConfigurator(true).getNegotiatedExtensions(
+                List.of(), List.of(extension("permessage-deflate")));
+
+        assertTrue(negotiated.isEmpty());
+    }
+
+    @Test
+    void overlappingHandshakesAuthenticateTheirOwnSessions() {
+        CustomConfigurator configurator = new CustomConfigurator(true);
+        ServerEndpointConfig config = endpointConfig(configurator);
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        try (MockedStatic<JWTUtil> jwt = mockStatic(JWTUtil.class)) {
+            // Both handshakes complete on the shared configuration before either session opens
+            configurator.modifyHandshake(config, handshake(jwt, first, 1L), mock(HandshakeResponse.class));
+            configurator.modifyHandshake(config, handshake(jwt, second, 2L), mock(HandshakeResponse.class));
+        }
+
+        assertEquals(1L, CustomConfigurator.takeUserId(session(first)));
+        assertEquals(2L, CustomConfigurator.takeUserId(session(second)));
+        assertNull(CustomConfigurator.takeUserId(session(first)), "a handshake is claimed only once");
+    }
+
+    @Test
+    void reusedOrMissingConnectionKeysAuthenticateNobody() {
+        CustomConfigurator configurator = new CustomConfigurator(true);
+        ServerEndpointConfig config = endpointConfig(configurator);
+        String shared = UUID.randomUUID().toString();
+        try (MockedStatic<JWTUtil> jwt = mockStatic(JWTUtil.class)) {
+            configurator.modifyHandshake(config, handshake(jwt, shared, 1L), mock(HandshakeResponse.class));
+            configurator.modifyHandshake(config, handshake(jwt, shared, 2L), mock(HandshakeResponse.class));
+            configurator.modifyHandshake(config, handshake(jwt, null, 3L), mock(HandshakeResponse.class));
+        }
+
+        assertNull(CustomConfigurator.takeUserId(session(shared)));
+        assertNull(CustomConfigurator.takeUserId(session(null)));
+        assertTrue(config.getUserProperties().isEmpty(), "nothing per handshake is kept on the shared configuration");
+    }
+}
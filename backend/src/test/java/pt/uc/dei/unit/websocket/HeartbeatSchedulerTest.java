@@ -0,0 +1,173 @@
+package pt.uc.dei.unit.websocket;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.websocket.HeartbeatScheduler;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeartbeatSchedulerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    /**
+     * Fake session that counts pings and records how it was closed.
+     */
+    private static final class FakeSession {
+        int pings;
+        boolean open = true;
+        CloseReason closeReason;
+        final Session session;
+
+        FakeSession(String id) {
+            RemoteEndpoint.Async async = (RemoteEndpoint.Async) Proxy.newProxyInstance(
+                    RemoteEndpoint.Async.class.getClassLoader(), new Class<?>[]{RemoteEndpoint.Async.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("sendPing")) {
+                            pings++;
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+            session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getId" -> id;
+                        case "isOpen" -> open;
+                        case "getAsyncRemote" -> async;
+                        case "close" -> {
+                            closeReason = (CloseReason) args[0];
+                            open = false;
+                            yield null;
+                        }
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+
+    private HeartbeatScheduler scheduler(int slots) {
+        return new HeartbeatScheduler(1000, 3000, slots, now::get);
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Turns the wheel once, as the scheduler thread does during one interval.
+     */
+    private void revolution(HeartbeatScheduler scheduler, int slots) {
+        for (int i = 0; i < slots; i++) {
+            scheduler.tick();
+        }
+    }
+
+    @Test
+    void pingsEverySessionOncePerRevolution() {
+        HeartbeatScheduler scheduler = scheduler(8);
+        List<FakeSession> clients = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            FakeSession client = new FakeSession("s" + i);
+            clients.add(client);
+            scheduler.register(client.session, s -> { });
+        }
+
+        revolution(scheduler, 8);
+
+        clients.forEach(client -> assertEquals(1, client.pings));
+        assertEquals(20L, scheduler.getStats().get("pings"));
+    }
+
+    @Test
+    void spreadsSessionsOverSlots() {
+        HeartbeatScheduler scheduler = scheduler(8);
+        List<FakeSession> clients = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            FakeSession client = new FakeSession("session-" + i);
+            clients.add(client);
+            scheduler.register(client.session, s -> { });
+        }
+
+        scheduler.tick();
+
+        long pinged = clients.stream().filter(client -> client.pings > 0).count();
+        assertTrue(pinged > 0 && pinged < 64, "one tick should ping only one slot, pinged " + pinged);
+    }
+
+    @Test
+    void reapsSessionsThatStopAnswering() {
+        HeartbeatScheduler scheduler = scheduler(4);
+        FakeSession silent = new FakeSession("silent");
+        FakeSession alive = new FakeSession("alive");
+        List<Session> reaped = new ArrayList<>();
+        scheduler.register(silent.session, reaped::add);
+        scheduler.register(alive.session, reaped::add);
+
+        for (int second = 0; second < 5; second++) {
+            advance(1000);
+            scheduler.touch(alive.session);
+            revolution(scheduler, 4);
+        }
+
+        assertEquals(List.of(silent.session), reaped);
+        assertEquals(CloseReason.CloseCodes.GOING_AWAY, silent.closeReason.getCloseCode());
+        assertTrue(alive.open);
+        Map<String, Object> stats = scheduler.getStats();
+        assertEquals(1, stats.get("live"));
+        assertEquals(1L, stats.get("reaped"));
+    }
+
+    @Test
+    void reportsIdleSessionsBeforeReapingThem() {
+        HeartbeatScheduler scheduler = scheduler(4);
+        FakeSession client = new FakeSession("a");
+        scheduler.register(client.session, s -> { });
+
+        advance(1500);
+
+        assertEquals(1, scheduler.getStats().get("idle"));
+        scheduler.touch(client.session);
+        assertEquals(0, scheduler.getStats().get("idle"));
+    }
+
+    @Test
+    void closedSessionsAreHandedBackWithoutClosingAgain() {
+        HeartbeatScheduler scheduler = scheduler(1);
+        FakeSession client = new FakeSession("a");
+        List<Session> reaped = new ArrayList<>();
+        scheduler.register(client.session, reaped::add);
+        client.open = false;
+
+        scheduler.tick();
+        scheduler.tick();
+
+        assertEquals(List.of(client.session), reaped);
+        assertNull(client.closeReason);
+        assertEquals(0, client.pings);
+    }
+
+    @Test
+    void unregisteredSessionsAreNotPinged() {
+        HeartbeatScheduler scheduler = scheduler(1);
+        FakeSession client = new FakeSession("a");
+        scheduler.register(client.session, s -> fail("should not be reaped"));
+        scheduler.unregister(client.session);
+        scheduler.unregister(client.session);
+
+        advance(10_000);
+        scheduler.tick();
+
+        assertEquals(0, client.pings);
+        assertEquals(0, scheduler.getStats().get("live"));
+    }
+}
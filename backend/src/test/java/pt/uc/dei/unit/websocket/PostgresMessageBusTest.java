@@ -0,0 +1,164 @@
+package pt.uc.dei.unit.websocket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import pt.uc.dei.websocket.PostgresMessageBus;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PostgresMessageBusTest {
+
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement notify = mock(PreparedStatement.class);
+    private final AtomicInteger publisherConnections = new AtomicInteger();
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private final CountDownLatch database = new CountDownLatch(1);
+    private PostgresMessageBus bus;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+        when(connection.prepareStatement(anyString())).thenReturn(notify);
+        // The listener polls an idle database
+        when(pgConnection.getNotifications(anyInt())).thenAnswer(invocation -> {
+            pause(50);
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.countDown();
+        if (bus != null) {
+            bus.close();
+        }
+    }
+
+    private PostgresMessageBus bus(int queueCapacity) {
+        return new PostgresMessageBus(() -> {
+            if (Thread.currentThread().getName().equals("message-bus-publisher")) {
+                publisherConnections.incrementAndGet();
+            }
+            return connection;
+        }, queueCapacity);
+    }
+
+    /**
+     * Makes {@code pg_notify} block until the test releases {@link #database}.
+     */
+    private void slowDatabase() throws SQLException {
+        when(notify.execute()).thenAnswer(invocation -> {
+            sending.countDown();
+            database.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void publishDoesNotWaitForASlowDatabase() throws Exception {
+        slowDatabase();
+        bus = bus(10);
+
+        long start = System.nanoTime();
+        assertTrue(bus.publish("cluster", "first"));
+        assertTrue(sending.await(2, TimeUnit.SECONDS));
+        assertTrue(bus.publish("cluster", "second"));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < 1000, "publish waited " + elapsedMs + " ms for the database");
+        assertEquals(1, bus.getStats().get("queued"));
+
+        database.countDown();
+        verify(notify, timeout(2000).times(2)).execute();
+    }
+
+    @Test
+    void fullQueueDropsAndCountsMessages() throws Exception {
+        slowDatabase();
+        bus = bus(2);
+
+        assertTrue(bus.publish("cluster", "in flight"));
+        assertTrue(sending.await(2, TimeUnit.SECONDS));
+        assertTrue(bus.publish("cluster", "queued 1"));
+        assertTrue(bus.publish("cluster", "queued 2"));
+        assertFalse(bus.publish("cluster", "dropped"));
+
+        assertEquals(2, bus.getStats().get("queued"));
+        assertEquals(1L, bus.getStats().get("dropped"));
+
+        database.countDown();
+        verify(notify, timeout(2000).times(3)).execute();
+        verify(notify, never()).setString(2, "dropped");
+    }
+
+    @Test
+    void reusesOnePublishingConnection() throws Exception {
+        bus = bus(10);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bus.publish("cluster", "message " + i));
+        }
+
+        verify(notify, timeout(2000).times(3)).execute();
+        assertEquals(1, publisherConnections.get());
+        verify(connection, times(1)).prepareStatement("SELECT pg_notify(?, ?)");
+        verify(notify).setString(2, "message 0");
+        verify(notify).setString(2, "message 2");
+    }
+
+    @Test
+    void failedSendIsCountedAndTheConnectionReopened() throws Exception {
+        when(notify.execute()).thenThrow(new SQLException("connection reset")).thenReturn(true);
+        bus = bus(10);
+
+        assertTrue(bus.publish("cluster", "lost"));
+        assertTrue(bus.publish("cluster", "sent"));
+
+        // The second message goes out after a one second back-off, on a new connection
+        verify(notify, timeout(3000).times(2)).execute();
+        assertEquals(2, publisherConnections.get());
+        assertEquals(1L, bus.getStats().get("failed"));
+    }
+
+    @Test
+    void oversizedPayloadIsRejected() {
+        bus = bus(10);
+
+        assertFalse(bus.publish("cluster", "x".repeat(8000)));
+
+        assertEquals(1L, bus.getStats().get("rejected"));
+        assertEquals(0, bus.getStats().get("queued"));
+    }
+
+    @Test
+    void publishAfterCloseIsDropped() {
+        bus = bus(10);
+        bus.close();
+
+        assertFalse(bus.publish("cluster", "late"));
+        assertEquals(1L, bus.getStats().get("dropped"));
+    }
+}
@@ -0,0 +1,172 @@
+package pt.uc.dei.unit.websocket;
+
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.websocket.SessionRegistry;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+
+    /**
+     * Lightweight stand-in for a container session: only the id matters to the registry.
+     */
+    private static Session session(String id) {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getId" -> id;
+                    case "isOpen" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "Session[" + id + "]";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Test
+    void registersAndLooksUpInBothDirections() {
+        SessionRegistry registry = new SessionRegistry();
+        Session first = session("a");
+        Session second = session("b");
+        registry.register(1L, first);
+        registry.register(1L, second);
+
+        assertEquals(1L, registry.getUserId(first));
+        assertEquals(Set.of(first, second), registry.getSessions(1L));
+        assertTrue(registry.isConnected(1L));
+        assertEquals(1, registry.getUserCount());
+        assertEquals(2, registry.getSessionCount());
+    }
+
+    @Test
+    void lastSessionRemovesUser() {
+        SessionRegistry registry = new SessionRegistry();
+        Session first = session("a");
+        Session second = session("b");
+        registry.register(1L, first);
+        registry.register(1L, second);
+
+        assertEquals(1L, registry.unregister(first));
+        assertTrue(registry.isConnected(1L));
+        assertEquals(1L, registry.unregister(second));
+        assertFalse(registry.isConnected(1L));
+        assertNull(registry.unregister(second));
+        assertNull(registry.getUserId(second));
+        assertTrue(registry.getSessions(1L).isEmpty());
+        assertEquals(0, registry.getSessionCount());
+    }
+
+    @Test
+    void unknownUserHasNoSessions() {
+        SessionRegistry registry = new SessionRegistry();
+        assertTrue(registry.getSessions(42L).isEmpty());
+        assertTrue(registry.getSessions(null).isEmpty());
+        assertFalse(registry.isConnected(null));
+    }
+
+    @Test
+    void sessionViewIsReadOnly() {
+        SessionRegistry registry = new SessionRegistry();
+        registry.register(1L, session("a"));
+        assertThrows(UnsupportedOperationException.class, () -> registry.getSessions(1L).clear());
+    }
+
+    @Test
+    void staysConsistentUnderConcurrentOpenSendAndClose() throws Exception {
+        int threads = 8;
+        int sessionsPerThread = 1000;
+        int users = 250;
+        SessionRegistry registry = new SessionRegistry();
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<Map<Session, Long>>> workers = new ArrayList<>();
+        try {
+            // Readers iterate and look up sessions while writers open and close them
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(pool.submit(() -> {
+                    start.await();
+                    while (running.get()) {
+                        registry.forEachSession(s -> assertNotNull(s.getId()));
+                        for (long user = 0; user < users; user++) {
+                            for (Session s : registry.getSessions(user)) {
+                                Long owner = registry.getUserId(s);
+                                assertTrue(owner == null || owner == user);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                workers.add(pool.submit(() -> {
+                    Map<Session, Long> kept = new HashMap<>();
+                    start.await();
+                    for (int i = 0; i < sessionsPerThread; i++) {
+                        long user = (thread * sessionsPerThread + i) % users;
+                        Session s = session(thread + "-" + i);
+                        registry.register(user, s);
+                        assertEquals(user, registry.getUserId(s));
+                        if (i % 2 == 0) {
+                            assertEquals(user, registry.unregister(s));
+                        } else {
+                            kept.put(s, user);
+                        }
+                    }
+                    return kept;
+                }));
+            }
+            start.countDown();
+
+            Map<Session, Long> expected = new HashMap<>();
+            for (Future<Map<Session, Long>> worker : workers) {
+                expected.putAll(worker.get(30, TimeUnit.SECONDS));
+            }
+            running.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+
+            assertEquals(threads * sessionsPerThread / 2, registry.getSessionCount());
+            Set<Long> expectedUsers = new HashSet<>(expected.values());
+            assertEquals(expectedUsers.size(), registry.getUserCount());
+            expected.forEach((s, user) -> {
+                assertEquals(user, registry.getUserId(s));
+                assertTrue(registry.getSessions(user).contains(s));
+            });
+
+            // Close everything concurrently; no user may be left behind
+            List<Future<?>> closers = new ArrayList<>();
+            List<Session> all = new ArrayList<>(expected.keySet());
+            int chunk = all.size() / threads;
+            for (int t = 0; t < threads; t++) {
+                List<Session> slice = all.subList(t * chunk, t == threads - 1 ? all.size() : (t + 1) * chunk);
+                closers.add(pool.submit(() -> slice.forEach(registry::unregister)));
+            }
+            for (Future<?> closer : closers) {
+                closer.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(0, registry.getSessionCount());
+            assertEquals(0, registry.getUserCount());
+        } finally {
+            running.set(false);
+            pool.shutdownNow();
+        }
+    }
+}
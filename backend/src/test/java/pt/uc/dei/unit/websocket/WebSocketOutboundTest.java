@@ -0,0 +1,194 @@
+package pt.uc.dei.unit.websocket;
+
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.Test;
+import pt.uc.dei.websocket.WebSocketOutbound;
+import pt.uc.dei.websocket.WebSocketOutbound.Result;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSocketOutboundTest {
+
+    /**
+     * Fake session whose async sends complete only when the test says so, like a slow client.
+     */
+    private static final class FakeSession {
+        final String id;
+        final List<String> delivered = new ArrayList<>();
+        final List<SendHandler> pending = new ArrayList<>();
+        CloseReason closeReason;
+        boolean open = true;
+        final Session session;
+
+        FakeSession(String id) {
+            this.id = id;
+            RemoteEndpoint.Async async = (RemoteEndpoint.Async) Proxy.newProxyInstance(
+                    RemoteEndpoint.Async.class.getClassLoader(), new Class<?>[]{RemoteEndpoint.Async.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("sendText") && args.length == 2) {
+                            delivered.add((String) args[0]);
+                            pending.add((SendHandler) args[1]);
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+            session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getId" -> id;
+                        case "isOpen" -> open;
+                        case "getAsyncRemote" -> async;
+                        case "close" -> {
+                            closeReason = (CloseReason) args[0];
+                            open = false;
+                            yield null;
+                        }
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        case "toString" -> "Session[" + id + "]";
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        void completeOne() {
+            pending.remove(0).onResult(new SendResult());
+        }
+
+        void completeAll() {
+            while (!pending.isEmpty()) {
+                completeOne();
+            }
+        }
+    }
+
+    @Test
+    void sendsOneMessageAtATimeInOrder() {
+        WebSocketOutbound outbound = new WebSocketOutbound("test", 10, 1000, s -> { });
+        FakeSession client = new FakeSession("a");
+
+        assertEquals(Result.QUEUED, outbound.send(client.session, "1"));
+        assertEquals(Result.QUEUED, outbound.send(client.session, "2"));
+        assertEquals(Result.QUEUED, outbound.send(client.session, "3"));
+        assertEquals(List.of("1"), client.delivered);
+
+        client.completeAll();
+        assertEquals(List.of("1", "2", "3"), client.delivered);
+        assertEquals(0, outbound.getStats().get("queuedMessages"));
+    }
+
+    @Test
+    void coalescesQueuedMessagesWithSameKey() {
+        WebSocketOutbound outbound = new WebSocketOutbound("test", 10, 1000, s -> { });
+        FakeSession client = new FakeSession("a");
+
+        outbound.send(client.session, "in-flight");
+        assertEquals(Result.QUEUED, outbound.send(client.session, "count=1", "COUNT"));
+        assertEquals(Result.COALESCED, outbound.send(client.session, "count=2", "COUNT"));
+        assertEquals(Result.COALESCED, outbound.send(client.session, "count=3", "COUNT"));
+        outbound.send(client.session, "other");
+
+        client.completeAll();
+        assertEquals(List.of("in-flight", "count=3", "other"), client.delivered);
+        assertEquals(2L, outbound.getStats().get("coalesced"));
+    }
+
+    @Test
+    void slowClientDoesNotAffectOthers() {
+        WebSocketOutbound outbound = new WebSocketOutbound("test", 2, 60_000, s -> { });
+        FakeSession slow = new FakeSession("slow");
+        FakeSession fast = new FakeSession("fast");
+
+        outbound.send(slow.session, "1");
+        outbound.send(slow.session, "2");
+        outbound.send(slow.session, "3");
+        assertEquals(Result.DROPPED, outbound.send(slow.session, "4"));
+
+        assertEquals(Result.QUEUED, outbound.send(fast.session, "x"));
+        fast.completeAll();
+        assertEquals(List.of("x"), fast.delivered);
+        assertEquals(1L, outbound.getStats().get("dropped"));
+        assertEquals(2, outbound.getStats().get("maxQueueDepth"));
+    }
+
+    @Test
+    void evictsSessionWhoseQueueStaysFull() throws Exception {
+        List<Session> evicted = new ArrayList<>();
+        WebSocketOutbound outbound = new WebSocketOutbound("test", 1, 20, evicted::add);
+        FakeSession slow = new FakeSession("slow");
+
+        outbound.send(slow.session, "1");
+        outbound.send(slow.session, "2");
+        assertEquals(Result.DROPPED, outbound.send(slow.session, "3"));
+        Thread.sleep(50);
+        assertEquals(Result.EVICTED, outbound.send(slow.session, "4"));
+
+        assertEquals(List.of(slow.session), evicted);
+        assertEquals(CloseReason.CloseCodes.TRY_AGAIN_LATER, slow.closeReason.getCloseCode());
+        assertEquals(Result.CLOSED, outbound.send(slow.session, "5"));
+        assertEquals(1L, outbound.getStats().get("evicted"));
+        assertEquals(0, outbound.getStats().get("sessions"));
+    }
+
+    @Test
+    void evictStalledClosesFullQueuesWithoutNewTraffic() throws Exception {
+        List<Session> evicted = new ArrayList<>();
+        WebSocketOutbound outbound = new WebSocketOutbound("test", 1, 20, evicted::add);
+        FakeSession slow = new FakeSession("slow");
+        outbound.send(slow.session, "1");
+        outbound.send(slow.session, "2");
+        outbound.send(slow.session, "3");
+
+        outbound.evictStalled();
+        assertTrue(evicted.isEmpty());
+        Thread.sleep(50);
+        outbound.evictStalled();
+        assertEquals(List.of(slow.session), evicted);
+    }
+
+    @Test
+    void drainingTheQueueResetsTheFullTimer() throws Exception {
+        List<Session> evicted = new ArrayList<>();
+        WebSocketOutbound outbound = new WebSocketOutbound("test", 1, 20, evicted::add);
+        FakeSession client = new FakeSession("a");
+        outbound.send(client.session, "1");
+        outbound.send(client.session, "2");
+        outbound.send(client.session, "3");
+        client.completeOne();
+        Thread.sleep(50);
+        outbound.evictStalled();
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test
+    void closedSessionsAreNotQueued() {
+        WebSocketOutbound outbound = new WebSocketOutbound("test", 10, 1000, s -> { });
+        FakeSession client = new FakeSession("a");
+        client.open = false;
+        assertEquals(Result.CLOSED, outbound.send(client.session, "x"));
+        assertFalse(outbound.sendAll(List.of(client.session), "x", null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordsLatencyAndFailures() {
+        WebSocketOutbound outbound = new WebSocketOutbound("test", 10, 1000, s -> { });
+        FakeSession client = new FakeSession("a");
+        outbound.send(client.session, "1");
+        outbound.send(client.session, "2");
+        client.pending.remove(0).onResult(new SendResult(new java.io.IOException("broken pipe")));
+        client.completeAll();
+
+        Map<String, Object> stats = outbound.getStats();
+        assertEquals(1L, stats.get("failed"));
+        assertEquals(2L, ((Map<String, Object>) stats.get("sendLatency")).get("count"));
+        assertEquals(2L, ((Map<String, Object>) stats.get("queueWait")).get("count"));
+    }
+}
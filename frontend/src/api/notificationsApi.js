@@ -37,6 +37,41 @@ export const getAllNotifications = async () => {
   }
 };
 
+/**
+ * Fetches one page of the current user's notifications, newest first.
+ * @async
+ * @function getNotificationFeed
+ * @param {Object} [options] - Feed options.
+ * @param {string} [options.cursor] - The nextCursor of the previous page; omit for the first page.
+ * @param {number} [options.limit] - Page size (the server caps it).
+ * @param {string} [options.type] - Only notifications of this type.
+ * @param {boolean} [options.unread] - Only notifications not yet read.
+ * @param {boolean} [options.unseen] - Only notifications not yet seen.
+ * @returns {Promise<Object>} An object containing success status, HTTP status, and the page ({ notifications, nextCursor, hasMore }) or error details.
+ */
+export const getNotificationFeed = async ({ cursor, limit, type, unread, unseen } = {}) => {
+  try {
+    const response = await axios.get(`${notificationsEndpoint}feed`, {
+      withCredentials: true,
+      params: { cursor, limit, type, unread, unseen },
+      headers: {
+        "Content-Type": "application/json",
+      },
+    });
+    return {
+      success: true,
+      status: response.status,
+      data: response.data,
+    };
+  } catch (error) {
+    return {
+      success: false,
+      status: error.response?.status || 500,
+      error: error.response?.data || error.message,
+    };
+  }
+};
+
 // ✅ UPDATE A NOTIFICATION (isRead, isSeen, etc)
 /**
  * Updates a notification's properties (e.g., isRead, isSeen) for the current user.
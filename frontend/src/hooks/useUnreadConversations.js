@@ -1,5 +1,6 @@
 import { useState, useEffect, useCallback } from "react";
 import useAuthStore from "../stores/useAuthStore";
+import { withConnectionKey } from "../utils/utilityFunctions";
 
 function useUnreadConversations() {
   const { user } = useAuthStore();
@@ -64,7 +65,7 @@ function useUnreadConversations() {
       setWebSocket(null);
     }
 
-    const ws = new WebSocket(WS_URL);
+    const ws = new WebSocket(withConnectionKey(WS_URL));
 
     ws.onopen = () => {
       setWebSocket(ws);
@@ -4,6 +4,13 @@ import { create } from "zustand";
 const useNotificationStore = create((set, get) => ({
   messageNotifications: [],
   otherNotifications: [],
+  // Unread and unseen totals kept by the server, pushed in NOTIFICATION_COUNT frames
+  unreadCount: 0,
+  unseenCount: 0,
+
+  setCounters: ({ unread, unseen }) => {
+    set({ unreadCount: unread ?? 0, unseenCount: unseen ?? 0 });
+  },
 
   // Fetch notifications from API and set them in the store
   fetchAndSetNotifications: async () => {
@@ -26,6 +33,27 @@ const useNotificationStore = create((set, get) => ({
     }
   },
 
+  // Highest notification id held by the store, sent when resuming the WebSocket stream
+  getLastNotificationId: () => {
+    const ids = [...get().messageNotifications, ...get().otherNotifications]
+      .map((n) => n.id)
+      .filter((id) => typeof id === "number");
+    return ids.length ? Math.max(...ids) : null;
+  },
+
+  // Notifications missed while disconnected, oldest first
+  applyReplay: (notifications) => {
+    notifications.forEach((n) =>
+      n.type === "MESSAGE" ? get().addMessageNotification(n) : get().addOtherNotification(n)
+    );
+  },
+
+  // Latest notifications, replacing the current lists
+  applySnapshot: (notifications) => {
+    get().setMessageNotifications(notifications.filter((n) => n.type === "MESSAGE"));
+    get().setOtherNotifications(notifications.filter((n) => n.type !== "MESSAGE"));
+  },
+
   setMessageNotifications: (notifications) => {
     set({ messageNotifications: notifications });
   },
@@ -27,6 +27,12 @@ export function checkIfNumeric(string) {
   ); // Garante que strings de espaços em branco falhem
 }
 
+// Acrescenta ao URL de um WebSocket uma chave aleatória desta ligação; o servidor usa-a para associar a
+// sessão ao seu próprio handshake, por isso cada new WebSocket(...) deve usar um URL novo
+export function withConnectionKey(url) {
+  return `${url}?connection=${crypto.randomUUID()}`;
+}
+
 //Função para transformar datas em array para data de javascript
 export function transformArrayDatetoDate(arrayDate){
   const date = new Date(
@@ -1,6 +1,6 @@
 import { useEffect, useRef } from "react";
 import useMessageStore from '../stores/useMessageStore';
-import { transformArrayDatetoDate } from "../utils/utilityFunctions";
+import { transformArrayDatetoDate, withConnectionKey } from "../utils/utilityFunctions";
 import useAuthStore from "../stores/useAuthStore";
 
 function useWebSocketChat() {
@@ -42,7 +42,7 @@ function useWebSocketChat() {
       return;
     }
 
-    const ws = new WebSocket(WS_URL);
+    const ws = new WebSocket(withConnectionKey(WS_URL));
     websocketRef.current = ws;
 
     ws.onopen = () => {
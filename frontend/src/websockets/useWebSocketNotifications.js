@@ -1,5 +1,6 @@
 import { useEffect, useRef } from "react";
 import useNotificationStore from "../stores/useNotificationStore";
+import { withConnectionKey } from "../utils/utilityFunctions";
 
 function useWebSocketNotifications() {
   const WS_URL = "wss://localhost:8443/projectcitrus/websocket/notifications/";
@@ -14,13 +15,19 @@ function useWebSocketNotifications() {
       return;
     }
 
-    const ws = new WebSocket(WS_URL);
+    const ws = new WebSocket(withConnectionKey(WS_URL));
     websocketRef.current = ws;
 
     ws.onopen = () => {
       console.log("WebSocket connected");
-      // Fetch and set notifications on WebSocket open
-      useNotificationStore.getState().fetchAndSetNotifications();
+      // Ask only for what was missed since the last notification received;
+      // without one the server answers with a snapshot of the latest notifications
+      ws.send(
+        JSON.stringify({
+          type: "RESUME",
+          lastNotificationId: useNotificationStore.getState().getLastNotificationId(),
+        })
+      );
     };
 
     ws.onmessage = function (event) {
@@ -55,6 +62,16 @@ function useWebSocketNotifications() {
           console.log("Received user update notification:", data);
           addOtherNotification(data.notification);
           break;
+        case "NOTIFICATION_COUNT":
+          useNotificationStore.getState().setCounters(data);
+          break;
+        case "NOTIFICATION_REPLAY":
+        case "NOTIFICATION_BATCH":
+          useNotificationStore.getState().applyReplay(data.notifications || []);
+          break;
+        case "NOTIFICATION_SNAPSHOT":
+          useNotificationStore.getState().applySnapshot(data.notifications || []);
+          break;
         case "AUTH_FAILED":
           console.error("WebSocket authentication failed");
           ws.close();